@@ -165,6 +165,8 @@ public class RangerBasePlugin {
 
 	public RangerAuthContext getCurrentRangerAuthContext() { return currentAuthContext; }
 
+	public RangerPolicyEngine getPolicyEngine() { return policyEngine; }
+
 	public List<RangerChainedPlugin> getChainedPlugins() { return chainedPlugins; }
 
 	// For backward compatibility
@@ -74,6 +74,7 @@ public class RangerAtlasAuthorizer implements AtlasAuthorizer {
 
     private static volatile RangerBasePlugin atlasPlugin = null;
     private static volatile RangerGroupUtil groupUtil = null;
+    private static volatile RangerAtlasDecisionCache decisionCache = null;
 
     static final Set<AtlasPrivilege> CLASSIFICATION_PRIVILEGES = new HashSet<AtlasPrivilege>() {{
         add(AtlasPrivilege.ENTITY_ADD_CLASSIFICATION);
@@ -101,6 +102,7 @@ public class RangerAtlasAuthorizer implements AtlasAuthorizer {
 
                     atlasPlugin = plugin;
                     groupUtil = new RangerGroupUtil(atlasPlugin.getUserStore());
+                    decisionCache = RangerAtlasDecisionCache.create(atlasPlugin);
                 }
             }
         }
@@ -130,6 +132,7 @@ public class RangerAtlasAuthorizer implements AtlasAuthorizer {
 
                     atlasPlugin = plugin;
                     groupUtil = new RangerGroupUtil(atlasPlugin.getUserStore());
+                    decisionCache = RangerAtlasDecisionCache.create(atlasPlugin);
                 }
             }
         }
@@ -656,6 +659,26 @@ public class RangerAtlasAuthorizer implements AtlasAuthorizer {
         }
         boolean ret = false;
 
+        RangerAtlasDecisionCache            cache           = decisionCache;
+        RangerAtlasDecisionCache.Generation cacheGeneration = cache != null && atlasPlugin != null ? cache.getGeneration() : null;
+        List<Object>                        cacheKey        = null;
+
+        if (cacheGeneration != null && cacheGeneration.isEnabled()) {
+            groupUtil.setUserStore(atlasPlugin.getUserStore());
+
+            cacheKey = RangerAtlasDecisionCache.getKey(request, groupUtil.getContainedGroups(request.getUser()));
+
+            Boolean cachedDecision = cache.get(cacheGeneration, cacheKey, auditHandler != null);
+
+            if (cachedDecision != null) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("<== isAccessAllowed(" + request + "): " + cachedDecision + " (cached)");
+                }
+
+                return cachedDecision;
+            }
+        }
+
         try {
             final String                   action         = request.getAction() != null ? request.getAction().getType() : null;
             final Set<String>              entityTypes    = request.getEntityTypeAndAllSuperTypes();
@@ -723,6 +746,10 @@ public class RangerAtlasAuthorizer implements AtlasAuthorizer {
             }
         }
 
+        if (cacheKey != null) {
+            cache.put(cacheGeneration, cacheKey, ret, auditHandler == null || auditHandler.hasAuditEvents());
+        }
+
         if (LOG.isDebugEnabled()) {
             LOG.debug("<== isAccessAllowed(" + request + "): " + ret);
         }
@@ -938,6 +965,10 @@ public class RangerAtlasAuthorizer implements AtlasAuthorizer {
         }
 
 
+        public boolean hasAuditEvents() {
+            return !auditEvents.isEmpty();
+        }
+
         public void flushAudit() {
             if (auditEvents != null) {
                 for (AuthzAuditEvent auditEvent : auditEvents.values()) {
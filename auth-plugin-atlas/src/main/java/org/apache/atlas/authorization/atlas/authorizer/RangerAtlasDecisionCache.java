@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.atlas.authorization.atlas.authorizer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.authorize.AtlasEntityAccessRequest;
+import org.apache.atlas.authorize.AtlasPrivilege;
+import org.apache.atlas.model.instance.AtlasClassification;
+import org.apache.atlas.plugin.model.RangerPolicy;
+import org.apache.atlas.plugin.model.RangerPolicy.RangerPolicyItem;
+import org.apache.atlas.plugin.policyengine.RangerPolicyEngine;
+import org.apache.atlas.plugin.service.RangerBasePlugin;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.apache.atlas.authorization.atlas.authorizer.RangerAtlasAuthorizer.CLASSIFICATION_PRIVILEGES;
+import static org.apache.atlas.service.metrics.MetricUtils.getMeterRegistry;
+import static org.apache.atlas.services.atlas.RangerServiceAtlas.RESOURCE_ENTITY_OWNER;
+
+/**
+ * Cache of entity access decisions, for requests with the same user, groups, action, entity-type, entity-id, owner,
+ * classifications and other attributes used by RangerAtlasAuthorizer to evaluate policies.
+ *
+ * Decisions are cached for the current versions of policies, roles and tags; the cache is cleared when any of these
+ * change, as on updates by PolicyRefresher. Decisions are not cached while any policy has conditions or validity
+ * schedules, since these depend on the request context, like the access time and client IP address.
+ *
+ * A decision that was audited is not returned for requests to be audited, so that access audits are not lost.
+ */
+class RangerAtlasDecisionCache {
+    private static final Log LOG = LogFactory.getLog(RangerAtlasDecisionCache.class);
+
+    // the size gauge reads the cache through this reference: Micrometer keeps the gauge registered first with a name
+    private static final AtomicReference<RangerAtlasDecisionCache> liveInstance = new AtomicReference<>();
+
+    private final RangerBasePlugin            plugin;
+    private final int                         maxSize;
+    private final AtomicReference<Generation> generation = new AtomicReference<>();
+    private final Counter                     hits;
+    private final Counter                     misses;
+
+    RangerAtlasDecisionCache(RangerBasePlugin plugin, int maxSize) {
+        MeterRegistry meterRegistry = getMeterRegistry();
+
+        this.plugin  = plugin;
+        this.maxSize = maxSize;
+        this.hits    = Counter.builder("authorizer_decision_cache").tag("result", "hit").register(meterRegistry);
+        this.misses  = Counter.builder("authorizer_decision_cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * @return null if the cache is disabled with atlas.authorizer.decision.cache.enabled
+     */
+    static RangerAtlasDecisionCache create(RangerBasePlugin plugin) {
+        RangerAtlasDecisionCache ret = null;
+
+        try {
+            if (AtlasConfiguration.AUTHORIZER_DECISION_CACHE_ENABLED.getBoolean()) {
+                ret = new RangerAtlasDecisionCache(plugin, AtlasConfiguration.AUTHORIZER_DECISION_CACHE_SIZE.getInt());
+
+                liveInstance.set(ret);
+
+                Gauge.builder("authorizer_decision_cache_size", liveInstance, RangerAtlasDecisionCache::getSize).register(getMeterRegistry());
+            }
+        } catch (Throwable t) {
+            LOG.warn("failed to initialize authorizer decision cache; decisions will not be cached", t);
+        }
+
+        LOG.info("authorizer decision cache is " + (ret != null ? "enabled" : "disabled"));
+
+        return ret;
+    }
+
+    private static int getSize(AtomicReference<RangerAtlasDecisionCache> cache) {
+        Generation generation = cache.get() != null ? cache.get().generation.get() : null;
+
+        return generation != null ? generation.decisions.size() : 0;
+    }
+
+    /**
+     * @return generation of the cache for the current policies, roles and tags; decisions aren't cached if it is disabled
+     */
+    Generation getGeneration() {
+        long       policiesVersion = plugin.getPoliciesVersion();
+        long       rolesVersion    = plugin.getRolesVersion();
+        long       tagsVersion     = plugin.getTagsVersion();
+        Generation ret             = generation.get();
+
+        if (ret == null || ret.policiesVersion != policiesVersion || ret.rolesVersion != rolesVersion || ret.tagsVersion != tagsVersion) {
+            boolean isEnabled = !hasConditionalPolicies(plugin.getPolicyEngine());
+
+            LOG.info("authorizer decision cache: policiesVersion=" + policiesVersion + ", rolesVersion=" + rolesVersion + ", tagsVersion=" + tagsVersion + ", enabled=" + isEnabled);
+
+            ret = new Generation(policiesVersion, rolesVersion, tagsVersion, isEnabled);
+
+            generation.set(ret);
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return cached decision; null if not cached, or if the decision was audited and isAuditRequired is true
+     */
+    Boolean get(Generation generation, List<Object> key, boolean isAuditRequired) {
+        Decision decision = generation.decisions.get(key);
+
+        if (decision == null || (isAuditRequired && decision.isAudited)) {
+            misses.increment();
+
+            return null;
+        }
+
+        hits.increment();
+
+        return decision.isAllowed;
+    }
+
+    void put(Generation generation, List<Object> key, boolean isAllowed, boolean isAudited) {
+        if (generation.decisions.size() >= maxSize) {
+            generation.decisions.clear();
+        }
+
+        generation.decisions.put(key, new Decision(isAllowed, isAudited));
+    }
+
+    /**
+     * @param userGroups groups of the user, as used to evaluate policies
+     */
+    static List<Object> getKey(AtlasEntityAccessRequest request, Set<String> userGroups) {
+        AtlasPrivilege    action                = request.getAction();
+        String            classification        = request.getClassification() != null ? request.getClassification().getTypeName() : null;
+        Set<String>       classificationTypes   = StringUtils.isNotEmpty(classification) && CLASSIFICATION_PRIVILEGES.contains(action) ? request.getClassificationTypeAndAllSuperTypes(classification) : null;
+        Object            ownerUser             = request.getEntity() != null ? request.getEntity().getAttribute(RESOURCE_ENTITY_OWNER) : null;
+        Set<List<Object>> entityClassifications = new HashSet<>();
+
+        if (request.getEntityClassifications() != null) {
+            for (AtlasClassification entityClassification : request.getEntityClassifications()) {
+                Map<String, String> attributes = new HashMap<>();
+
+                if (entityClassification.getAttributes() != null) {
+                    for (Map.Entry<String, Object> entry : entityClassification.getAttributes().entrySet()) {
+                        attributes.put(entry.getKey(), String.valueOf(entry.getValue()));
+                    }
+                }
+
+                entityClassifications.add(Arrays.asList(entityClassification.getTypeName(), request.getClassificationTypeAndAllSuperTypes(entityClassification.getTypeName()), attributes));
+            }
+        }
+
+        return Arrays.asList(request.getUser(), new HashSet<>(userGroups), action, request.getEntityTypeAndAllSuperTypes(), request.getEntityId(),
+                             ownerUser, classificationTypes, request.getLabel(), request.getBusinessMetadata(), entityClassifications);
+    }
+
+    private static boolean hasConditionalPolicies(RangerPolicyEngine policyEngine) {
+        if (policyEngine == null) {
+            return true;
+        }
+
+        for (List<RangerPolicy> policies : Arrays.asList(policyEngine.getResourcePolicies(), policyEngine.getTagPolicies())) {
+            if (policies == null) {
+                continue;
+            }
+
+            for (RangerPolicy policy : policies) {
+                if (CollectionUtils.isNotEmpty(policy.getConditions()) || CollectionUtils.isNotEmpty(policy.getValiditySchedules()) ||
+                    hasConditions(policy.getPolicyItems()) || hasConditions(policy.getDenyPolicyItems()) ||
+                    hasConditions(policy.getAllowExceptions()) || hasConditions(policy.getDenyExceptions())) {
+                    LOG.info("authorizer decision cache: policy " + policy.getId() + " has conditions; decisions will not be cached");
+
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean hasConditions(List<RangerPolicyItem> policyItems) {
+        if (policyItems != null) {
+            for (RangerPolicyItem policyItem : policyItems) {
+                if (CollectionUtils.isNotEmpty(policyItem.getConditions())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    static class Generation {
+        private final long                        policiesVersion;
+        private final long                        rolesVersion;
+        private final long                        tagsVersion;
+        private final boolean                     isEnabled;
+        private final Map<List<Object>, Decision> decisions = new ConcurrentHashMap<>();
+
+        Generation(long policiesVersion, long rolesVersion, long tagsVersion, boolean isEnabled) {
+            this.policiesVersion = policiesVersion;
+            this.rolesVersion    = rolesVersion;
+            this.tagsVersion     = tagsVersion;
+            this.isEnabled       = isEnabled;
+        }
+
+        boolean isEnabled() {
+            return isEnabled;
+        }
+    }
+
+    private static class Decision {
+        private final boolean isAllowed;
+        private final boolean isAudited;
+
+        Decision(boolean isAllowed, boolean isAudited) {
+            this.isAllowed = isAllowed;
+            this.isAudited = isAudited;
+        }
+    }
+}
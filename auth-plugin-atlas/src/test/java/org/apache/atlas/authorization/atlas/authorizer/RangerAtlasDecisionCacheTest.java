@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.atlas.authorization.atlas.authorizer;
+
+import org.apache.atlas.authorize.AtlasEntityAccessRequest;
+import org.apache.atlas.authorize.AtlasPrivilege;
+import org.apache.atlas.model.instance.AtlasClassification;
+import org.apache.atlas.model.instance.AtlasEntityHeader;
+import org.apache.atlas.plugin.model.RangerPolicy;
+import org.apache.atlas.plugin.model.RangerPolicy.RangerPolicyItemCondition;
+import org.apache.atlas.plugin.policyengine.RangerPolicyEngine;
+import org.apache.atlas.plugin.service.RangerBasePlugin;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class RangerAtlasDecisionCacheTest {
+    private static final Set<String> GROUPS = Collections.singleton("analysts");
+
+    private RangerBasePlugin         plugin;
+    private RangerPolicyEngine       policyEngine;
+    private RangerAtlasDecisionCache cache;
+
+    @BeforeMethod
+    public void setUp() {
+        plugin       = mock(RangerBasePlugin.class);
+        policyEngine = mock(RangerPolicyEngine.class);
+
+        when(plugin.getPolicyEngine()).thenReturn(policyEngine);
+        when(policyEngine.getResourcePolicies()).thenReturn(Collections.<RangerPolicy>emptyList());
+        when(policyEngine.getTagPolicies()).thenReturn(Collections.<RangerPolicy>emptyList());
+
+        setVersions(1, 1, 1);
+
+        cache = new RangerAtlasDecisionCache(plugin, 100);
+    }
+
+    @Test
+    public void testKeyIncludesUserGroupsActionAndResource() {
+        AtlasEntityAccessRequest request = request("alice", AtlasPrivilege.ENTITY_READ, entity("hive_table", "db.t1"));
+        List<Object>             key     = RangerAtlasDecisionCache.getKey(request, GROUPS);
+
+        assertEquals(RangerAtlasDecisionCache.getKey(request("alice", AtlasPrivilege.ENTITY_READ, entity("hive_table", "db.t1")), GROUPS), key);
+
+        assertNotEquals(RangerAtlasDecisionCache.getKey(request("bob", AtlasPrivilege.ENTITY_READ, entity("hive_table", "db.t1")), GROUPS), key);
+        assertNotEquals(RangerAtlasDecisionCache.getKey(request, Collections.singleton("admins")), key);
+        assertNotEquals(RangerAtlasDecisionCache.getKey(request("alice", AtlasPrivilege.ENTITY_UPDATE, entity("hive_table", "db.t1")), GROUPS), key);
+        assertNotEquals(RangerAtlasDecisionCache.getKey(request("alice", AtlasPrivilege.ENTITY_READ, entity("hive_table", "db.t2")), GROUPS), key);
+        assertNotEquals(RangerAtlasDecisionCache.getKey(request("alice", AtlasPrivilege.ENTITY_READ, entity("hive_db", "db.t1")), GROUPS), key);
+    }
+
+    @Test
+    public void testKeyIncludesOwnerAndClassifications() {
+        AtlasEntityHeader entity = entity("hive_table", "db.t1");
+        List<Object>      key    = RangerAtlasDecisionCache.getKey(request("alice", AtlasPrivilege.ENTITY_READ, entity), GROUPS);
+
+        AtlasEntityHeader ownedEntity = entity("hive_table", "db.t1");
+
+        ownedEntity.setAttribute("owner", "alice");
+
+        assertNotEquals(RangerAtlasDecisionCache.getKey(request("alice", AtlasPrivilege.ENTITY_READ, ownedEntity), GROUPS), key);
+
+        AtlasEntityHeader taggedEntity = entity("hive_table", "db.t1");
+
+        taggedEntity.setClassifications(Collections.singletonList(new AtlasClassification("PII", Collections.<String, Object>singletonMap("level", "high"))));
+
+        List<Object> taggedKey = RangerAtlasDecisionCache.getKey(request("alice", AtlasPrivilege.ENTITY_READ, taggedEntity), GROUPS);
+
+        assertNotEquals(taggedKey, key);
+
+        taggedEntity.setClassifications(Collections.singletonList(new AtlasClassification("PII", Collections.<String, Object>singletonMap("level", "low"))));
+
+        assertNotEquals(RangerAtlasDecisionCache.getKey(request("alice", AtlasPrivilege.ENTITY_READ, taggedEntity), GROUPS), taggedKey);
+    }
+
+    @Test
+    public void testDecisionIsCachedForGeneration() {
+        RangerAtlasDecisionCache.Generation generation = cache.getGeneration();
+        List<Object>                        key        = key("alice");
+
+        assertTrue(generation.isEnabled());
+        assertSame(cache.getGeneration(), generation);
+        assertNull(cache.get(generation, key, false));
+
+        cache.put(generation, key, true, false);
+
+        assertEquals(cache.get(generation, key, false), Boolean.TRUE);
+        assertNull(cache.get(generation, key("bob"), false));
+    }
+
+    @Test
+    public void testDecisionsInvalidatedOnPolicyRoleOrTagVersionChange() {
+        for (long[] versions : Arrays.asList(new long[] { 2, 1, 1 }, new long[] { 2, 2, 1 }, new long[] { 2, 2, 2 })) {
+            RangerAtlasDecisionCache.Generation generation = cache.getGeneration();
+
+            cache.put(generation, key("alice"), true, false);
+
+            setVersions(versions[0], versions[1], versions[2]);
+
+            RangerAtlasDecisionCache.Generation newGeneration = cache.getGeneration();
+
+            assertNotSame(newGeneration, generation);
+            assertNull(cache.get(newGeneration, key("alice"), false));
+        }
+    }
+
+    @Test
+    public void testAuditedDecisionBypassedForAuditedRequest() {
+        RangerAtlasDecisionCache.Generation generation = cache.getGeneration();
+
+        cache.put(generation, key("alice"), true, true);
+        cache.put(generation, key("bob"), false, false);
+
+        assertNull(cache.get(generation, key("alice"), true));
+        assertEquals(cache.get(generation, key("alice"), false), Boolean.TRUE);
+        assertEquals(cache.get(generation, key("bob"), true), Boolean.FALSE);
+    }
+
+    @Test
+    public void testDecisionsNotCachedWithConditionalPolicies() {
+        RangerPolicy policy = new RangerPolicy();
+
+        policy.setConditions(Collections.singletonList(new RangerPolicyItemCondition("ip-range", Collections.singletonList("10.0.0.*"))));
+
+        when(policyEngine.getResourcePolicies()).thenReturn(Collections.singletonList(policy));
+
+        assertFalse(cache.getGeneration().isEnabled());
+    }
+
+    @Test
+    public void testCacheClearedWhenFull() {
+        RangerAtlasDecisionCache            smallCache = new RangerAtlasDecisionCache(plugin, 2);
+        RangerAtlasDecisionCache.Generation generation = smallCache.getGeneration();
+
+        smallCache.put(generation, key("alice"), true, false);
+        smallCache.put(generation, key("bob"), true, false);
+        smallCache.put(generation, key("carol"), true, false);
+
+        assertNull(smallCache.get(generation, key("alice"), false));
+        assertEquals(smallCache.get(generation, key("carol"), false), Boolean.TRUE);
+    }
+
+    private void setVersions(long policiesVersion, long rolesVersion, long tagsVersion) {
+        when(plugin.getPoliciesVersion()).thenReturn(policiesVersion);
+        when(plugin.getRolesVersion()).thenReturn(rolesVersion);
+        when(plugin.getTagsVersion()).thenReturn(tagsVersion);
+    }
+
+    private static List<Object> key(String user) {
+        return RangerAtlasDecisionCache.getKey(request(user, AtlasPrivilege.ENTITY_READ, entity("hive_table", "db.t1")), GROUPS);
+    }
+
+    private static AtlasEntityAccessRequest request(String user, AtlasPrivilege action, AtlasEntityHeader entity) {
+        return new AtlasEntityAccessRequest(null, action, entity, user, new HashSet<>(GROUPS));
+    }
+
+    private static AtlasEntityHeader entity(String typeName, String qualifiedName) {
+        AtlasEntityHeader ret = new AtlasEntityHeader(typeName);
+
+        ret.setAttribute("qualifiedName", qualifiedName);
+
+        return ret;
+    }
+}
@@ -54,6 +54,24 @@ public class AtlasAccessorResponse {
 
     }
 
+    /**
+     * Copies the accessors of the given response; request details are not copied.
+     */
+    public AtlasAccessorResponse(AtlasAccessorResponse other) {
+        addAll(this.users, other.users);
+        addAll(this.groups, other.groups);
+        addAll(this.roles, other.roles);
+        addAll(this.denyUsers, other.denyUsers);
+        addAll(this.denyGroups, other.denyGroups);
+        addAll(this.denyRoles, other.denyRoles);
+    }
+
+    private static void addAll(Set<String> target, Set<String> source) {
+        if (source != null) {
+            target.addAll(source);
+        }
+    }
+
     public void populateRequestDetails(AtlasAccessorRequest accessorRequest) {
         this.action = accessorRequest.getAction();
         this.guid = accessorRequest.getGuid();
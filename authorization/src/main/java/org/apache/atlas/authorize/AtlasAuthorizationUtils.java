@@ -30,12 +30,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import javax.servlet.http.HttpServletRequest;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.*;
+import java.util.concurrent.Callable;
 
 import static org.apache.atlas.repository.Constants.SKIP_DELETE_AUTH_CHECK_TYPES;
 import static org.apache.atlas.repository.Constants.SKIP_UPDATE_AUTH_CHECK_TYPES;
@@ -337,6 +339,43 @@ public class AtlasAuthorizationUtils {
 
 
 
+    /**
+     * Wraps the given task to run with the security context, user and client addresses of the calling thread,
+     * so that access checks can be evaluated on a pool thread on behalf of the current request.
+     */
+    public static <T> Callable<T> withCurrentContext(Callable<T> task) {
+        Thread          callerThread     = Thread.currentThread();
+        SecurityContext securityContext  = SecurityContextHolder.getContext();
+        RequestContext  requestContext   = RequestContext.get();
+        String          user             = requestContext.getUser();
+        Set<String>     userGroups       = requestContext.getUserGroups();
+        String          clientIPAddress  = requestContext.getClientIPAddress();
+        List<String>    forwardedAddrs   = requestContext.getForwardedAddresses();
+        boolean         importInProgress = requestContext.isImportInProgress();
+
+        return () -> {
+            if (Thread.currentThread() == callerThread) {
+                return task.call();
+            }
+
+            try {
+                SecurityContextHolder.setContext(securityContext);
+
+                RequestContext context = RequestContext.get();
+
+                context.setUser(user, userGroups);
+                context.setClientIPAddress(clientIPAddress);
+                context.setForwardedAddresses(forwardedAddrs);
+                context.setImportInProgress(importInProgress);
+
+                return task.call();
+            } finally {
+                SecurityContextHolder.clearContext();
+                RequestContext.clear();
+            }
+        };
+    }
+
     public static String getCurrentUserName() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
 
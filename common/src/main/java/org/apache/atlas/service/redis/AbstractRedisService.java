@@ -5,7 +5,9 @@ import org.apache.atlas.AtlasException;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang.ArrayUtils;
 import org.redisson.api.RLock;
+import org.redisson.api.RScript;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
 import org.redisson.config.Config;
 import org.redisson.config.ReadMode;
 
@@ -13,6 +15,7 @@ import javax.annotation.PreDestroy;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -31,6 +34,14 @@ public abstract class AbstractRedisService implements RedisService {
     private static final int DEFAULT_REDIS_LOCK_WATCHDOG_TIMEOUT_MS = 600_000;
     private static final String ATLAS_METASTORE_SERVICE = "atlas-metastore-service";
 
+    // sets the lease when free, extends it when held by the same owner
+    private static final String ACQUIRE_LEASE_SCRIPT = "local owner = redis.call('get', KEYS[1]) " +
+                                                       "if owner == false then redis.call('set', KEYS[1], ARGV[1], 'px', ARGV[2]) return 1 end " +
+                                                       "if owner == ARGV[1] then redis.call('pexpire', KEYS[1], ARGV[2]) return 1 end " +
+                                                       "return 0";
+    private static final String RELEASE_LEASE_SCRIPT = "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end " +
+                                                       "return 0";
+
     RedissonClient redisClient;
     RedissonClient redisCacheClient;
     Map<String, RLock> keyLockMap;
@@ -72,6 +83,30 @@ public abstract class AbstractRedisService implements RedisService {
         }
     }
 
+    @Override
+    public boolean acquireLease(String key, String owner, long leaseMs) {
+        try {
+            Long acquired = redisClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, ACQUIRE_LEASE_SCRIPT, RScript.ReturnType.INTEGER,
+                                                                             Collections.<Object>singletonList(key), owner, String.valueOf(leaseMs));
+
+            return acquired != null && acquired == 1L;
+        } catch (Exception e) {
+            getLogger().error("Failed to acquire lease {} for {}", key, owner, e);
+
+            return false;
+        }
+    }
+
+    @Override
+    public void releaseLease(String key, String owner) {
+        try {
+            redisClient.getScript(StringCodec.INSTANCE).eval(RScript.Mode.READ_WRITE, RELEASE_LEASE_SCRIPT, RScript.ReturnType.INTEGER,
+                                                             Collections.<Object>singletonList(key), owner);
+        } catch (Exception e) {
+            getLogger().error("Failed to release lease {} for {}", key, owner, e);
+        }
+    }
+
     @Override
     public String getValue(String key) {
         // If value doesn't exist, return null else return the value
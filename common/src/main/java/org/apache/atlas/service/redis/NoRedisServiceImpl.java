@@ -29,6 +29,16 @@ public class NoRedisServiceImpl extends AbstractRedisService {
         //do nothing
     }
 
+    @Override
+    public boolean acquireLease(String key, String owner, long leaseMs) {
+        return true;
+    }
+
+    @Override
+    public void releaseLease(String key, String owner) {
+        //do nothing
+    }
+
     @Override
     public String getValue(String key) {
         return null;
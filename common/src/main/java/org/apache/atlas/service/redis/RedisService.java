@@ -8,6 +8,17 @@ public interface RedisService {
 
   void releaseDistributedLock(String key);
 
+  /**
+   * Acquires, or renews when already held by the given owner, a lease on the key that expires after leaseMs
+   * unless renewed. Unlike distributed locks, leases are not tied to the calling thread.
+   */
+  boolean acquireLease(String key, String owner, long leaseMs);
+
+  /**
+   * Releases the lease on the key, if it is held by the given owner.
+   */
+  void releaseLease(String key, String owner);
+
   String getValue(String key);
 
   String putValue(String key, String value);
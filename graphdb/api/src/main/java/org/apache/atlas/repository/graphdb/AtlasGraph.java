@@ -29,6 +29,8 @@ import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -105,6 +107,15 @@ public interface AtlasGraph<V, E> {
      */
     Iterable<AtlasVertex<V, E>> getVertices();
 
+    /**
+     * Gets a scanner for the ids of all vertices in the graph, with the storage keyspace split into the given
+     * number of ranges, to scan the graph in parallel and resume a scan range by range.
+     *
+     * @param rangeCount number of ranges requested
+     * @return
+     */
+    AtlasGraphScanner getScanner(int rangeCount);
+
     /**
      * Gets the vertex with the specified id.  As an optimization, a non-null vertex may be
      * returned by some implementations if the Vertex does not exist.  In that case,
@@ -118,6 +129,36 @@ public interface AtlasGraph<V, E> {
      */
     AtlasVertex<V, E> getVertex(String vertexId);
 
+    /**
+     * Gets the vertices with the specified ids, where supported with a single batched
+     * lookup instead of one per vertex.
+     *
+     * @param vertexIds
+     * @return vertices by id; ids of vertices that do not exist are not included.
+     *         Iteration order follows vertexIds.
+     */
+    Map<String, AtlasVertex<V, E>> getVertices(Collection<String> vertexIds);
+
+    /**
+     * Loads the properties of the given vertices with a single batched query, where supported,
+     * so that subsequent reads of these properties in the current transaction don't need a
+     * backend round-trip per vertex. Implementations may choose to do nothing.
+     *
+     * @param vertices
+     * @param propertyKeys properties to load; all properties if none are given
+     */
+    void prefetchProperties(Collection<? extends AtlasVertex<V, E>> vertices, String... propertyKeys);
+
+    /**
+     * Gets the edges of each of the given vertices, where supported with a single batched query.
+     *
+     * @param vertices
+     * @param direction
+     * @param edgeLabels labels of the edges to get; all edges if none are given
+     * @return edges of each vertex, in the order of the given vertices
+     */
+    List<Iterable<AtlasEdge<V, E>>> getEdges(List<? extends AtlasVertex<V, E>> vertices, AtlasEdgeDirection direction, String... edgeLabels);
+
     /**
      * Gets the names of the indexes on edges
      * type.
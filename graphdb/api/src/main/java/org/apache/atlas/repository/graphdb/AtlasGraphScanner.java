@@ -0,0 +1,46 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graphdb;
+
+import java.util.function.Consumer;
+
+/**
+ * Scans the ids of all vertices in the graph, with the keyspace of the storage backend split into ranges that can
+ * be scanned independently, in parallel and in any order. The same storage backend and requested range count
+ * always give the same ranges, so that an interrupted scan can be resumed with the ranges it did not complete.
+ */
+public interface AtlasGraphScanner {
+    /**
+     * @return number of ranges; can be less than requested, when the backend can't split its keyspace
+     */
+    int getRangeCount();
+
+    /**
+     * @return bounds of the range, for logs
+     */
+    String getRangeDescription(int range);
+
+    /**
+     * Calls the consumer with the id of each vertex in the given range, on the calling thread. Ids of vertices that
+     * were deleted, after the scan started or partially, may be included.
+     *
+     * @param range range to scan, from 0 to getRangeCount() - 1
+     * @param consumer
+     */
+    void scanVertexIds(int range, Consumer<String> consumer);
+}
@@ -53,7 +53,10 @@ import org.redisson.client.RedisException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
@@ -135,11 +138,17 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
             if(searchParams.isCallAsync() || AtlasConfiguration.ENABLE_ASYNC_INDEXSEARCH.getBoolean()) {
                 return performAsyncDirectIndexQuery(searchParams);
             } else{
-                String responseString =  performDirectIndexQuery(searchParams.getQuery(), false);
+                Response response = performDirectIndexRequest(searchParams.getQuery(), false);
+
                 if (LOG.isDebugEnabled()) {
+                    String responseString = EntityUtils.toString(response.getEntity());
                     LOG.debug("runQueryWithLowLevelClient.response : {}", responseString);
+                    return getResultFromResponse(ElasticsearchResponseParser.parseSearchResponse(new ByteArrayInputStream(responseString.getBytes(StandardCharsets.UTF_8))));
+                }
+
+                try (InputStream content = response.getEntity().getContent()) {
+                    return getResultFromResponse(ElasticsearchResponseParser.parseSearchResponse(content));
                 }
-                return getResultFromResponse(responseString);
             }
         } catch (IOException e) {
             LOG.error("Failed to execute direct query on ES {}", e.getMessage());
@@ -153,12 +162,10 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
             String responseString = performDirectIndexQuery(query, true);
 
             Map<String, LinkedHashMap> responseMap = AtlasType.fromJson(responseString, Map.class);
-            Map<String, LinkedHashMap> hits_0 = AtlasType.fromJson(AtlasType.toJson(responseMap.get("hits")), Map.class);
+            Map<String, Object>        hits_0      = responseMap.get("hits");
 
-            ret.put("total", hits_0.get("total").get("value"));
-
-            List<LinkedHashMap> hits_1 = AtlasType.fromJson(AtlasType.toJson(hits_0.get("hits")), List.class);
-            ret.put("data", hits_1);
+            ret.put("total", ((Map<String, Object>) hits_0.get("total")).get("value"));
+            ret.put("data", hits_0.get("hits"));
 
             Map<String, Object> aggregationsMap = (Map<String, Object>) responseMap.get("aggregations");
 
@@ -228,9 +235,9 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
                     RequestContext.get().endMetricRecord(RequestContext.get().startMetricRecord("elasticQueryTimeout"));
                     throw new AtlasBaseException(AtlasErrorCode.INDEX_SEARCH_FAILED_DUE_TO_TIMEOUT, KeepAliveTime);
                 }
-                result = getResultFromResponse(response.getFullResponse(), true);
+                result = getResultFromResponse(response.getFullResponse());
             } else {
-                result = getResultFromResponse(response.getFullResponse(), true);
+                result = getResultFromResponse(response.getFullResponse());
             }
         }catch (Exception e) {
             LOG.error("Failed to execute direct query on ES {}", e.getMessage());
@@ -306,14 +313,12 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
         ResponseListener responseListener = new ResponseListener() {
             @Override
             public void onSuccess(Response response) {
-                try {
-                    String respString = EntityUtils.toString(response.getEntity());
-                    Map<String, LinkedHashMap> responseMap = AtlasType.fromJson(respString, Map.class);
-                    Boolean isInComplete = AtlasType.fromJson(AtlasType.toJson(responseMap.get("is_partial")), Boolean.class);
-                    String id = AtlasType.fromJson(AtlasType.toJson(responseMap.get("id")), String.class);
-                    boolean isTimedOut = AtlasType.fromJson(AtlasType.toJson(responseMap.get("response").get("timed_out")), Boolean.class);
+                try (InputStream content = response.getEntity().getContent()) {
+                    ElasticsearchResponseParser.AsyncSearchResponse asyncResponse = ElasticsearchResponseParser.parseAsyncSearchResponse(content);
+                    String id = asyncResponse.getId();
+                    boolean isTimedOut = asyncResponse.isTimedOut();
 
-                    if (isInComplete != null && isInComplete) {
+                    if (asyncResponse.isPartial()) {
                         /*
                            * After the wait time, if the response is still incomplete, then we need to delete the search context
                            * and complete the future with null
@@ -322,7 +327,7 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
                         deleteAsyncSearchResponse(id);
                         future.complete(null);
                     }
-                    AsyncQueryResult result = new AsyncQueryResult(respString, false, isTimedOut);
+                    AsyncQueryResult result = new AsyncQueryResult(asyncResponse.getResponse(), false, isTimedOut);
                     future.complete(result);
                 } catch (IOException e) {
                     future.completeExceptionally(e);
@@ -395,13 +400,12 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
         ResponseListener responseListener = new ResponseListener() {
             @Override
             public void onSuccess(Response response) {
-                try {
-                    String respString = EntityUtils.toString(response.getEntity());
-                    Map<String, LinkedHashMap> responseMap = AtlasType.fromJson(respString, Map.class);
-                    boolean isRunning = AtlasType.fromJson(AtlasType.toJson(responseMap.get("is_running")), Boolean.class);
-                    String id = AtlasType.fromJson(AtlasType.toJson(responseMap.get("id")), String.class);
-                    boolean isTimedOut = AtlasType.fromJson(AtlasType.toJson(responseMap.get("response").get("timed_out")), Boolean.class);
-                    AsyncQueryResult result = new AsyncQueryResult(respString, isRunning, isTimedOut);
+                try (InputStream content = response.getEntity().getContent()) {
+                    ElasticsearchResponseParser.AsyncSearchResponse asyncResponse = ElasticsearchResponseParser.parseAsyncSearchResponse(content);
+                    boolean isRunning = asyncResponse.isRunning();
+                    String id = asyncResponse.getId();
+                    boolean isTimedOut = asyncResponse.isTimedOut();
+                    AsyncQueryResult result = new AsyncQueryResult(asyncResponse.getResponse(), isRunning, isTimedOut);
                     /*
                         * If the response is running, then we need to complete the future with the ID to retrieve this later
                         * Else we will complete the future with the response, if it completes within default timeout of 100ms
@@ -430,6 +434,10 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
     }
 
     private String performDirectIndexQuery(String query, boolean source) throws AtlasBaseException, IOException {
+        return EntityUtils.toString(performDirectIndexRequest(query, source).getEntity());
+    }
+
+    private Response performDirectIndexRequest(String query, boolean source) throws AtlasBaseException, IOException {
         HttpEntity entity = new NStringEntity(query, ContentType.APPLICATION_JSON);
         String endPoint;
 
@@ -454,7 +462,7 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
             }
         }
 
-        return EntityUtils.toString(response.getEntity());
+        return response;
     }
 
     private String performDirectUpdateByQuery(String query) throws AtlasBaseException, IOException {
@@ -481,47 +489,35 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
         return EntityUtils.toString(response.getEntity());
     }
 
-    private DirectIndexQueryResult getResultFromResponse(String responseString, boolean async) throws IOException {
-        Map<String, LinkedHashMap> responseMap = AtlasType.fromJson(responseString, Map.class);
-        return getResultFromResponse(responseMap.get("response"));
-    }
-
-    private DirectIndexQueryResult getResultFromResponse(Map<String, LinkedHashMap> responseMap) throws IOException {
+    private DirectIndexQueryResult getResultFromResponse(ElasticsearchResponseParser.SearchResponse response) {
         DirectIndexQueryResult result = new DirectIndexQueryResult();
-        Map<String, LinkedHashMap> hits_0 = AtlasType.fromJson(AtlasType.toJson(responseMap.get("hits")), Map.class);
-        if (hits_0 == null) {
+        if (response == null || !response.hasHits()) {
             return result;
         }
-        LinkedHashMap approximateCount = hits_0.get("total");
-        if (approximateCount != null) {
-            this.vertexTotals = (Integer) approximateCount.get("value");
+        if (response.getTotal() != null) {
+            this.vertexTotals = response.getTotal();
         }
 
-        List<LinkedHashMap> hits_1 = AtlasType.fromJson(AtlasType.toJson(hits_0.get("hits")), List.class);
+        result.setIterator(toResultIterator(response.getHits()));
 
-        Stream<Result<AtlasJanusVertex, AtlasJanusEdge>> resultStream = hits_1.stream().map(ResultImplDirect::new);
-        result.setIterator(resultStream.iterator());
-
-        Map<String, Object> aggregationsMap = (Map<String, Object>) responseMap.get("aggregations");
+        Map<String, Object> aggregationsMap = response.getAggregations();
 
         if (MapUtils.isNotEmpty(aggregationsMap)) {
             result.setAggregationMap(aggregationsMap);
         }
 
         return result;
-
     }
 
+    private Iterator<Result<AtlasJanusVertex, AtlasJanusEdge>> toResultIterator(List<ElasticsearchResponseParser.Hit> hits) {
+        // without batch prefetch, each hit reads its vertex on its own
+        HitsVertexLoader vertexLoader = AtlasConfiguration.ATLAS_INDEXSEARCH_ENABLE_BATCH_PREFETCH.getBoolean() ? new HitsVertexLoader(hits) : null;
 
-    private DirectIndexQueryResult getResultFromResponse(String responseString) throws IOException {
-
-        Map<String, LinkedHashMap> responseMap = AtlasType.fromJson(responseString, Map.class);
+        Stream<Result<AtlasJanusVertex, AtlasJanusEdge>> resultStream = hits.stream().map(hit -> new ResultImplDirect(hit, vertexLoader));
 
-        return getResultFromResponse(responseMap);
+        return resultStream.iterator();
     }
 
-
-
     @Override
     public DirectIndexQueryResult<AtlasJanusVertex, AtlasJanusEdge> vertices(SearchParams searchParams) throws AtlasBaseException {
         return runQueryWithLowLevelClient(searchParams);
@@ -603,74 +599,103 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
     }
 
 
-    public final class ResultImplDirect implements AtlasIndexQuery.Result<AtlasJanusVertex, AtlasJanusEdge> {
-        private LinkedHashMap<String, Object> hit;
-        Map<String, LinkedHashMap> innerHitsMap;
+    /**
+     * Fetches the vertices of all hits in a result page together, the first time any one of them is asked for.
+     * Used when atlas.indexsearch.enable.batch.prefetch is set.
+     */
+    private final class HitsVertexLoader {
+        private final List<ElasticsearchResponseParser.Hit>                    hits;
+        private       Map<String, AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> vertices;
 
-        public ResultImplDirect(LinkedHashMap<String, Object> hit) {
-            this.hit = hit;
-            if (hit.get("inner_hits") != null) {
-                innerHitsMap = AtlasType.fromJson(AtlasType.toJson(hit.get("inner_hits")), Map.class);
+        HitsVertexLoader(List<ElasticsearchResponseParser.Hit> hits) {
+            this.hits = hits;
+        }
+
+        AtlasVertex<AtlasJanusVertex, AtlasJanusEdge> getVertex(String vertexId) {
+            if (vertices == null) {
+                List<String> vertexIds = new ArrayList<>(hits.size());
+
+                for (ElasticsearchResponseParser.Hit hit : hits) {
+                    vertexIds.add(toVertexId(hit));
+                }
+
+                vertices = graph.getVertices(vertexIds);
             }
+
+            return vertices.get(vertexId);
+        }
+    }
+
+    private static String toVertexId(ElasticsearchResponseParser.Hit hit) {
+        return String.valueOf(LongEncoding.decode(hit.getId()));
+    }
+
+    public final class ResultImplDirect implements AtlasIndexQuery.Result<AtlasJanusVertex, AtlasJanusEdge> {
+        private final ElasticsearchResponseParser.Hit hit;
+        private final HitsVertexLoader                vertexLoader;
+
+        private ResultImplDirect(ElasticsearchResponseParser.Hit hit, HitsVertexLoader vertexLoader) {
+            this.hit          = hit;
+            this.vertexLoader = vertexLoader;
         }
 
         @Override
         public AtlasVertex<AtlasJanusVertex, AtlasJanusEdge> getVertex() {
-            long vertexId = LongEncoding.decode(String.valueOf(hit.get("_id")));
-            return graph.getVertex(String.valueOf(vertexId));
+            String vertexId = toVertexId(hit);
+
+            return vertexLoader != null ? vertexLoader.getVertex(vertexId) : graph.getVertex(vertexId);
         }
 
         @Override
         public Set<String> getCollapseKeys() {
-            Set<String> collapseKeys = new HashSet<>();
-            if (innerHitsMap != null) {
-                collapseKeys = innerHitsMap.keySet();
+            Map<String, ElasticsearchResponseParser.SearchResponse> innerHits = hit.getInnerHits();
+            if (innerHits != null) {
+                return innerHits.keySet();
             }
-            return collapseKeys;
+            return new HashSet<>();
         }
 
         @Override
         public DirectIndexQueryResult getCollapseVertices(String key) {
-            DirectIndexQueryResult result = new DirectIndexQueryResult();
-            if (innerHitsMap != null) {
-                Map<String, LinkedHashMap> responseMap = AtlasType.fromJson(AtlasType.toJson(innerHitsMap.get(key)), Map.class);
-                Map<String, LinkedHashMap> hits_0 = AtlasType.fromJson(AtlasType.toJson(responseMap.get("hits")), Map.class);
+            Map<String, ElasticsearchResponseParser.SearchResponse> innerHits = hit.getInnerHits();
+            ElasticsearchResponseParser.SearchResponse innerResponse = innerHits != null ? innerHits.get(key) : null;
+            if (innerResponse == null) {
+                return null;
+            }
 
-                Integer approximateCount = (Integer) hits_0.get("total").get("value");
-                result.setApproximateCount(approximateCount);
+            DirectIndexQueryResult result = new DirectIndexQueryResult();
+            if (innerResponse.getTotal() != null) {
+                result.setApproximateCount(innerResponse.getTotal().intValue());
+            }
 
-                List<LinkedHashMap> hits_1 = AtlasType.fromJson(AtlasType.toJson(hits_0.get("hits")), List.class);
-                Stream<Result<AtlasJanusVertex, AtlasJanusEdge>> resultStream = hits_1.stream().map(ResultImplDirect::new);
-                result.setIterator(resultStream.iterator());
+            result.setIterator(toResultIterator(innerResponse.getHits()));
 
-                return result;
-            }
-            return null;
+            return result;
         }
 
         @Override
         public double getScore() {
-            Object _score = hit.get("_score");
-            if (_score == null){
+            Double score = hit.getScore();
+            if (score == null) {
                 return -1;
             }
-            return Double.parseDouble(String.valueOf(hit.get("_score")));
+            return score;
         }
 
         @Override
         public Map<String, List<String>> getHighLights() {
-            Object highlight = this.hit.get("highlight");
-            if(Objects.nonNull(highlight)) {
-                return (Map<String, List<String>>) highlight;
+            Map<String, List<String>> highlight = hit.getHighlight();
+            if (highlight != null) {
+                return highlight;
             }
             return new HashMap<>();
         }
 
         @Override
         public ArrayList<Object> getSort() {
-            Object sort = this.hit.get("sort");
-            if (Objects.nonNull(sort) && sort instanceof List) {
-                return (ArrayList<Object>) sort;
+            ArrayList<Object> sort = hit.getSort();
+            if (sort != null) {
+                return sort;
             }
             return new ArrayList<>();
         }
@@ -679,7 +704,7 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
     public class AsyncQueryResult {
         private boolean isRunning;
         private String id;
-        private String fullResponse;
+        private ElasticsearchResponseParser.SearchResponse fullResponse;
         private boolean timedOut;
 
         private boolean success;
@@ -691,7 +716,7 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
         }
 
         // Constructor for a completed process
-        public AsyncQueryResult(String fullResponse, boolean isRunning, boolean timedOut) {
+        public AsyncQueryResult(ElasticsearchResponseParser.SearchResponse fullResponse, boolean isRunning, boolean timedOut) {
             this.isRunning = isRunning;
             this.id = null;
             this.fullResponse = fullResponse;
@@ -723,7 +748,7 @@ public class AtlasElasticsearchQuery implements AtlasIndexQuery<AtlasJanusVertex
             return id;
         }
 
-        public String getFullResponse() {
+        public ElasticsearchResponseParser.SearchResponse getFullResponse() {
             return fullResponse;
         }
 
@@ -31,10 +31,12 @@ import org.apache.atlas.groovy.GroovyExpression;
 import org.apache.atlas.model.discovery.SearchParams;
 import org.apache.atlas.model.instance.AtlasEntity;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
+import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.AtlasGraphIndexClient;
 import org.apache.atlas.repository.graphdb.AtlasGraphManagement;
 import org.apache.atlas.repository.graphdb.AtlasGraphQuery;
+import org.apache.atlas.repository.graphdb.AtlasGraphScanner;
 import org.apache.atlas.repository.graphdb.AtlasGraphTraversal;
 import org.apache.atlas.repository.graphdb.AtlasIndexQuery;
 import org.apache.atlas.repository.graphdb.AtlasIndexQueryParameter;
@@ -71,8 +73,10 @@ import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.janusgraph.core.Cardinality;
 import org.janusgraph.core.JanusGraph;
+import org.janusgraph.core.JanusGraphEdge;
 import org.janusgraph.core.JanusGraphFactory;
 import org.janusgraph.core.JanusGraphIndexQuery;
+import org.janusgraph.core.JanusGraphVertex;
 import org.janusgraph.core.PropertyKey;
 import org.janusgraph.core.SchemaViolationException;
 import org.janusgraph.core.schema.JanusGraphIndex;
@@ -88,9 +92,12 @@ import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -250,6 +257,11 @@ public class AtlasJanusGraph implements AtlasGraph<AtlasJanusVertex, AtlasJanusE
         return wrapVertices(vertices);
     }
 
+    @Override
+    public AtlasGraphScanner getScanner(int rangeCount) {
+        return new AtlasJanusGraphScanner(janusGraph, rangeCount);
+    }
+
     @Override
     public AtlasVertex<AtlasJanusVertex, AtlasJanusEdge> addVertex() {
         Vertex result = getGraph().addVertex();
@@ -418,6 +430,107 @@ public class AtlasJanusGraph implements AtlasGraph<AtlasJanusVertex, AtlasJanusE
         return GraphDbObjectFactory.createVertex(this, vertex);
     }
 
+    @Override
+    public Map<String, AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> getVertices(Collection<String> vertexIds) {
+        Map<String, AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> ret = new LinkedHashMap<>();
+
+        if (vertexIds == null || vertexIds.isEmpty()) {
+            return ret;
+        }
+
+        AtlasPerfMetrics.MetricRecorder metric = RequestContext.get().startMetricRecord("getVerticesInBatch");
+
+        try {
+            Map<String, Vertex> found = new HashMap<>();
+            Iterator<Vertex>    it    = getGraph().vertices(vertexIds.toArray());
+
+            while (it.hasNext()) {
+                Vertex vertex = it.next();
+
+                found.put(String.valueOf(vertex.id()), vertex);
+            }
+
+            for (String vertexId : vertexIds) {
+                Vertex vertex = found.get(vertexId);
+
+                if (vertex != null) {
+                    ret.put(vertexId, GraphDbObjectFactory.createVertex(this, vertex));
+                }
+            }
+        } finally {
+            RequestContext.get().endMetricRecord(metric);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Loads the properties with a JanusGraph multi-query; the results are kept in the transaction's vertex cache,
+     * from where subsequent property reads of the vertices are served.
+     */
+    @Override
+    public void prefetchProperties(Collection<? extends AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> vertices, String... propertyKeys) {
+        if (vertices == null || vertices.size() <= 1) {
+            return;
+        }
+
+        AtlasPerfMetrics.MetricRecorder metric = RequestContext.get().startMetricRecord("prefetchProperties");
+
+        try {
+            getGraph().multiQuery(toJanusVertices(vertices)).keys(propertyKeys).properties();
+        } finally {
+            RequestContext.get().endMetricRecord(metric);
+        }
+    }
+
+    @Override
+    public List<Iterable<AtlasEdge<AtlasJanusVertex, AtlasJanusEdge>>> getEdges(List<? extends AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> vertices, AtlasEdgeDirection direction, String... edgeLabels) {
+        List<Iterable<AtlasEdge<AtlasJanusVertex, AtlasJanusEdge>>> ret = new ArrayList<>(vertices.size());
+
+        if (vertices.size() == 1) {
+            ret.add(vertices.get(0).getEdges(direction, edgeLabels));
+
+            return ret;
+        }
+
+        AtlasPerfMetrics.MetricRecorder metric = RequestContext.get().startMetricRecord("getEdgesInBatch");
+
+        try {
+            List<JanusGraphVertex>                          janusVertices = toJanusVertices(vertices);
+            Map<JanusGraphVertex, Iterable<JanusGraphEdge>> edges         = getGraph().multiQuery(janusVertices)
+                                                                                      .direction(AtlasJanusObjectFactory.createDirection(direction))
+                                                                                      .labels(edgeLabels)
+                                                                                      .edges();
+
+            for (JanusGraphVertex janusVertex : janusVertices) {
+                List<AtlasEdge<AtlasJanusVertex, AtlasJanusEdge>> vertexEdges = new ArrayList<>();
+                Iterable<JanusGraphEdge>                          janusEdges  = edges.get(janusVertex);
+
+                if (janusEdges != null) {
+                    for (JanusGraphEdge janusEdge : janusEdges) {
+                        vertexEdges.add(GraphDbObjectFactory.createEdge(this, janusEdge));
+                    }
+                }
+
+                ret.add(vertexEdges);
+            }
+        } finally {
+            RequestContext.get().endMetricRecord(metric);
+        }
+
+        return ret;
+    }
+
+    private static List<JanusGraphVertex> toJanusVertices(Collection<? extends AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> vertices) {
+        List<JanusGraphVertex> ret = new ArrayList<>(vertices.size());
+
+        for (AtlasVertex<AtlasJanusVertex, AtlasJanusEdge> vertex : vertices) {
+            ret.add((JanusGraphVertex) ((AtlasJanusVertex) vertex).getWrappedElement());
+        }
+
+        return ret;
+    }
+
     @Override
     public Iterable<AtlasVertex<AtlasJanusVertex, AtlasJanusEdge>> getVertices(String key, Object value) {
         AtlasGraphQuery<AtlasJanusVertex, AtlasJanusEdge> query = query();
@@ -21,11 +21,13 @@ package org.apache.atlas.repository.graphdb.janus;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import org.apache.atlas.ApplicationProperties;
+import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.GraphDatabase;
 import org.apache.atlas.repository.graphdb.janus.serializer.BigDecimalSerializer;
 import org.apache.atlas.repository.graphdb.janus.serializer.BigIntegerSerializer;
+import org.apache.atlas.repository.graphdb.janus.serializer.ListSerializer;
 import org.apache.atlas.repository.graphdb.janus.serializer.TypeCategorySerializer;
 import org.apache.atlas.typesystem.types.DataTypes.TypeCategory;
 import org.apache.commons.configuration.Configuration;
@@ -38,7 +40,6 @@ import org.janusgraph.core.schema.JanusGraphManagement;
 import org.janusgraph.diskstorage.StandardIndexProvider;
 import org.janusgraph.diskstorage.StandardStoreManager;
 import org.janusgraph.diskstorage.solr.Solr6Index;
-import org.janusgraph.graphdb.database.serialize.attribute.SerializableSerializer;
 import org.janusgraph.graphdb.tinkerpop.JanusGraphIoRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -84,9 +85,12 @@ public class AtlasJanusGraphDatabase implements GraphDatabase<AtlasJanusVertex,
     public static final String SOLR_INDEX_TX_LOG_TTL_CONF = "write.ahead.log.ttl.in.hours";
     public static final String GRAPH_TX_LOG_TTL_CONF      = "log.tx.ttl";
     public static final long   DEFAULT_GRAPH_TX_LOG_TTL   = 72; //Hrs
+    public static final String LIST_ATTRIBUTE_CLASS_CONF  = "attributes.custom.attribute2.attribute-class";
+    public static final String LIST_SERIALIZER_CLASS_CONF = "attributes.custom.attribute2.serializer-class";
 
     private static volatile AtlasJanusGraph atlasGraphInstance = null;
     private static volatile JanusGraph graphInstance;
+    private static volatile boolean isListSerializerInUse = false;
 
     public AtlasJanusGraphDatabase() {
         //update registry
@@ -110,9 +114,10 @@ public class AtlasJanusGraphDatabase implements GraphDatabase<AtlasJanusVertex,
         janusConfig.setProperty("attributes.custom.attribute1.attribute-class", TypeCategory.class.getName());
         janusConfig.setProperty("attributes.custom.attribute1.serializer-class", TypeCategorySerializer.class.getName());
 
-        //not ideal, but avoids making large changes to Atlas
-        janusConfig.setProperty("attributes.custom.attribute2.attribute-class", ArrayList.class.getName());
-        janusConfig.setProperty("attributes.custom.attribute2.serializer-class", SerializableSerializer.class.getName());
+        //reads values written earlier by SerializableSerializer as well
+        //used only by graphs created with it, or migrated to it: see checkListSerializer()
+        janusConfig.setProperty(LIST_ATTRIBUTE_CLASS_CONF, ArrayList.class.getName());
+        janusConfig.setProperty(LIST_SERIALIZER_CLASS_CONF, ListSerializer.class.getName());
 
         janusConfig.setProperty("attributes.custom.attribute3.attribute-class", BigInteger.class.getName());
         janusConfig.setProperty("attributes.custom.attribute3.serializer-class", BigIntegerSerializer.class.getName());
@@ -182,7 +187,10 @@ public class AtlasJanusGraphDatabase implements GraphDatabase<AtlasJanusVertex,
 
                     configureTxLogBasedIndexRecovery();
 
-                    graphInstance      = initJanusGraph(config);
+                    graphInstance = initJanusGraph(config);
+
+                    checkListSerializer(config);
+
                     atlasGraphInstance = new AtlasJanusGraph();
 
                     validateIndexBackend(config);
@@ -211,6 +219,59 @@ public class AtlasJanusGraphDatabase implements GraphDatabase<AtlasJanusVertex,
         }
     }
 
+    /**
+     * Custom serializers are GLOBAL_OFFLINE options: a graph uses the serializers stored when it was created, not the
+     * configured ones. Graphs created by earlier versions store list-valued properties with SerializableSerializer
+     * until migrated offline: stop all other Atlas servers, then start one with
+     * atlas.graphstore.list.serializer.migrate=true; the setting can be removed once the server is up.
+     */
+    private static void checkListSerializer(Configuration config) {
+        JanusGraphManagement managementSystem = graphInstance.openManagement();
+        String               storedSerializer = managementSystem.get(LIST_SERIALIZER_CLASS_CONF);
+        int                  openInstances    = managementSystem.getOpenInstances().size();
+
+        managementSystem.commit();
+
+        if (ListSerializer.class.getName().equals(storedSerializer)) {
+            isListSerializerInUse = true;
+
+            return;
+        }
+
+        if (!AtlasConfiguration.GRAPHSTORE_LIST_SERIALIZER_MIGRATE.getBoolean()) {
+            LOG.warn("Graph stores list-valued properties with {}, not {}. To migrate, stop other Atlas servers and restart with {}=true",
+                     storedSerializer, ListSerializer.class.getName(), AtlasConfiguration.GRAPHSTORE_LIST_SERIALIZER_MIGRATE.getPropertyName());
+
+            return;
+        }
+
+        if (openInstances > 1) {
+            throw new RuntimeException("List serializer can't be migrated while " + openInstances + " graph instances are open."
+                    + " Stop other Atlas servers, or close stale instances with JanusGraphManagement.forceCloseInstance(). Aborting!");
+        }
+
+        managementSystem = graphInstance.openManagement();
+
+        managementSystem.set(LIST_ATTRIBUTE_CLASS_CONF, ArrayList.class.getName());
+        managementSystem.set(LIST_SERIALIZER_CLASS_CONF, ListSerializer.class.getName());
+        managementSystem.commit();
+
+        // serializers are loaded when the graph is opened
+        graphInstance.close();
+
+        graphInstance         = initJanusGraph(config);
+        isListSerializerInUse = true;
+
+        LOG.info("Migrated list serializer from {} to {}", storedSerializer, ListSerializer.class.getName());
+    }
+
+    /**
+     * @return true if list-valued properties are stored with ListSerializer
+     */
+    public static boolean isListSerializerInUse() {
+        return isListSerializerInUse;
+    }
+
     public static void configureTxLogBasedIndexRecovery() {
         try {
             boolean  recoveryEnabled = ApplicationProperties.get().getBoolean(INDEX_RECOVERY_CONF, DEFAULT_INDEX_RECOVERY);
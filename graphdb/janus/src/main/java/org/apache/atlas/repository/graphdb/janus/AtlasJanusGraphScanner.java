@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graphdb.janus;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import org.apache.atlas.repository.graphdb.AtlasGraphScanner;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.janusgraph.core.JanusGraphException;
+import org.janusgraph.diskstorage.BackendException;
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.cql.CQLStoreManager;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyColumnValueStore;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyColumnValueStoreManager;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyIterator;
+import org.janusgraph.diskstorage.keycolumnvalue.KeyRangeQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.SliceQuery;
+import org.janusgraph.diskstorage.keycolumnvalue.StoreTransaction;
+import org.janusgraph.diskstorage.util.BufferUtil;
+import org.janusgraph.diskstorage.util.StandardBaseTransactionConfig;
+import org.janusgraph.diskstorage.util.StaticArrayBuffer;
+import org.janusgraph.graphdb.database.EdgeSerializer;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.idmanagement.IDManager;
+import org.janusgraph.graphdb.types.system.BaseKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.function.Consumer;
+
+/**
+ * Scans vertex ids from the edgestore of the storage backend, where the key of each vertex is its id:
+ * - stores with ordered keys (HBase, BerkeleyJE) are split into equal ranges of the 8-byte key space; vertex keys
+ *   start with the partition bits of the id, so vertices are spread evenly over the ranges
+ * - Cassandra is split into equal ranges of the Murmur3 token ring, scanned with CQL token range queries
+ * - other stores are scanned as a single range
+ *
+ * Ordered and single-range scans read only keys with the VertexExists property, so they don't read the relations
+ * of vertices. CQL can't filter the keys of a token range on a column without reading all rows of the range, so
+ * the token range scan reads all keys of the edgestore - including keys of removed vertices whose relations were
+ * left behind; callers skip ids for which no vertex is found.
+ */
+public class AtlasJanusGraphScanner implements AtlasGraphScanner {
+    private static final Logger LOG = LoggerFactory.getLogger(AtlasJanusGraphScanner.class);
+
+    private static final int        KEY_LENGTH     = 8;
+    private static final int        CQL_PAGE_SIZE  = 1000;
+    private static final BigInteger KEY_SPACE_SIZE = BigInteger.ONE.shiftLeft(KEY_LENGTH * 8);
+    private static final BigInteger MIN_TOKEN      = BigInteger.valueOf(Long.MIN_VALUE);
+
+    private enum ScanType { ORDERED_KEYS, CQL_TOKENS, SINGLE }
+
+    private final StandardJanusGraph         graph;
+    private final KeyColumnValueStoreManager storeManager;
+    private final String                     edgeStoreName;
+    private final ScanType                   scanType;
+    private final int                        rangeCount;
+
+    public AtlasJanusGraphScanner(StandardJanusGraph graph, int rangeCount) {
+        this.graph         = graph;
+        this.storeManager  = graph.getBackend().getStoreManager();
+        this.edgeStoreName = graph.getBackend().getEdgeStore().getName();
+
+        if (storeManager.getFeatures().hasOrderedScan()) {
+            this.scanType = ScanType.ORDERED_KEYS;
+        } else if (storeManager instanceof CQLStoreManager) {
+            this.scanType = ScanType.CQL_TOKENS;
+        } else {
+            this.scanType = ScanType.SINGLE;
+        }
+
+        this.rangeCount = scanType == ScanType.SINGLE ? 1 : Math.max(rangeCount, 1);
+
+        LOG.info("AtlasJanusGraphScanner: store={}, scanType={}, rangeCount={}", storeManager.getName(), scanType, this.rangeCount);
+    }
+
+    @Override
+    public int getRangeCount() {
+        return rangeCount;
+    }
+
+    @Override
+    public String getRangeDescription(int range) {
+        switch (scanType) {
+            case ORDERED_KEYS:
+                return String.format("keys [%s, %s)", getKeyBound(range), getKeyBound(range + 1));
+
+            case CQL_TOKENS:
+                return String.format("tokens (%d, %d]", getTokenBound(range), getTokenBound(range + 1));
+
+            default:
+                return "all keys";
+        }
+    }
+
+    @Override
+    public void scanVertexIds(int range, Consumer<String> consumer) {
+        if (range < 0 || range >= rangeCount) {
+            throw new IllegalArgumentException("invalid range " + range + "; rangeCount=" + rangeCount);
+        }
+
+        if (scanType == ScanType.CQL_TOKENS) {
+            scanTokenRange(range, consumer);
+        } else {
+            scanKeyRange(range, consumer);
+        }
+    }
+
+    private void scanKeyRange(int range, Consumer<String> consumer) {
+        StoreTransaction tx = null;
+
+        try {
+            KeyColumnValueStore store = storeManager.openDatabase(edgeStoreName);
+
+            tx = storeManager.beginTransaction(StandardBaseTransactionConfig.of(graph.getConfiguration().getTimestampProvider(), storeManager.getFeatures().getKeyConsistentTxConfig()));
+
+            KeyIterator keys = scanType == ScanType.ORDERED_KEYS ? store.getKeys(new KeyRangeQuery(getKeyBound(range), getKeyBound(range + 1), getVertexExistsQuery()), tx)
+                                                                 : store.getKeys(getVertexExistsQuery(), tx);
+
+            try {
+                while (keys.hasNext()) {
+                    StaticBuffer key = keys.next();
+
+                    if (keys.getEntries().hasNext()) {
+                        acceptKey(key, consumer);
+                    }
+                }
+            } finally {
+                keys.close();
+            }
+        } catch (BackendException | IOException e) {
+            throw new JanusGraphException("failed to scan " + getRangeDescription(range), e);
+        } finally {
+            if (tx != null) {
+                try {
+                    tx.commit();
+                } catch (BackendException e) {
+                    LOG.warn("failed to close scan transaction", e);
+                }
+            }
+        }
+    }
+
+    private void scanTokenRange(int range, Consumer<String> consumer) {
+        CQLStoreManager cqlStoreManager = (CQLStoreManager) storeManager;
+        CqlSession      session         = cqlStoreManager.getSession();
+        String          query           = String.format("SELECT DISTINCT key FROM %s.%s WHERE token(key) > ? AND token(key) <= ?",
+                                                        CqlIdentifier.fromInternal(cqlStoreManager.getKeyspaceName()).asCql(true),
+                                                        CqlIdentifier.fromInternal(edgeStoreName).asCql(true));
+
+        for (Row row : session.execute(SimpleStatement.newInstance(query, getTokenBound(range), getTokenBound(range + 1)).setPageSize(CQL_PAGE_SIZE))) {
+            acceptKey(StaticArrayBuffer.of(row.getByteBuffer(0)), consumer);
+        }
+    }
+
+    private void acceptKey(StaticBuffer key, Consumer<String> consumer) {
+        IDManager idManager = graph.getIDManager();
+        long      vertexId  = idManager.getKeyID(key);
+
+        if (idManager.isUserVertexId(vertexId)) {
+            consumer.accept(String.valueOf(vertexId));
+        }
+    }
+
+    private SliceQuery getVertexExistsQuery() {
+        return graph.getEdgeSerializer().getQuery(BaseKey.VertexExists, Direction.OUT, new EdgeSerializer.TypedInterval[0]);
+    }
+
+    // range i covers keys from i/rangeCount of the key space; the end of the last range is past all 8-byte keys
+    private StaticBuffer getKeyBound(int range) {
+        if (range >= rangeCount) {
+            return BufferUtil.oneBuffer(KEY_LENGTH + 1);
+        }
+
+        byte[] bound = KEY_SPACE_SIZE.multiply(BigInteger.valueOf(range)).divide(BigInteger.valueOf(rangeCount)).toByteArray();
+        byte[] ret   = new byte[KEY_LENGTH];
+
+        // toByteArray() is big-endian, with a leading 0 byte for values with the high bit set
+        int length = Math.min(bound.length, KEY_LENGTH);
+
+        System.arraycopy(bound, bound.length - length, ret, KEY_LENGTH - length, length);
+
+        return StaticArrayBuffer.of(ret);
+    }
+
+    // range i covers tokens (bound(i), bound(i + 1)]; Long.MIN_VALUE isn't a token of any key
+    private long getTokenBound(int range) {
+        if (range >= rangeCount) {
+            return Long.MAX_VALUE;
+        }
+
+        return MIN_TOKEN.add(KEY_SPACE_SIZE.multiply(BigInteger.valueOf(range)).divide(BigInteger.valueOf(rangeCount))).longValueExact();
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graphdb.janus;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.atlas.utils.AtlasJson;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-pass reader for Elasticsearch _search and _async_search responses.
+ *
+ * Only the parts of the response used by indexsearch are retained (_id, _score, sort, highlight,
+ * inner_hits, hits.total and aggregations); everything else, including _source, is skipped
+ * without being materialized.
+ */
+public final class ElasticsearchResponseParser {
+    private ElasticsearchResponseParser() {
+    }
+
+    public static SearchResponse parseSearchResponse(InputStream in) throws IOException {
+        try (JsonParser parser = createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new SearchResponse();
+            }
+
+            return readSearchResponse(parser);
+        }
+    }
+
+    public static AsyncSearchResponse parseAsyncSearchResponse(InputStream in) throws IOException {
+        AsyncSearchResponse ret = new AsyncSearchResponse();
+
+        try (JsonParser parser = createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return ret;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String    field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+
+                switch (field) {
+                    case "id":
+                        ret.id = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                        break;
+                    case "is_running":
+                        ret.running = token == JsonToken.VALUE_TRUE;
+                        break;
+                    case "is_partial":
+                        ret.partial = token == JsonToken.VALUE_TRUE;
+                        break;
+                    case "response":
+                        if (token == JsonToken.START_OBJECT) {
+                            ret.response = readSearchResponse(parser);
+                        }
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static JsonParser createParser(InputStream in) throws IOException {
+        return AtlasJson.getMapper().getFactory().createParser(in);
+    }
+
+    // parser is positioned on START_OBJECT of the search response
+    private static SearchResponse readSearchResponse(JsonParser parser) throws IOException {
+        SearchResponse ret = new SearchResponse();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String    field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            switch (field) {
+                case "timed_out":
+                    ret.timedOut = token == JsonToken.VALUE_TRUE;
+                    break;
+                case "hits":
+                    if (token == JsonToken.START_OBJECT) {
+                        readHits(parser, ret);
+                    }
+                    break;
+                case "aggregations":
+                    if (token == JsonToken.START_OBJECT) {
+                        ret.aggregations = parser.readValueAs(LinkedHashMap.class);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return ret;
+    }
+
+    // parser is positioned on START_OBJECT of "hits"
+    private static void readHits(JsonParser parser, SearchResponse response) throws IOException {
+        response.hitsPresent = true;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String    field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if ("total".equals(field)) {
+                if (token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String totalField = parser.getCurrentName();
+
+                        parser.nextToken();
+
+                        if ("value".equals(totalField)) {
+                            response.total = parser.getLongValue();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else if (token == JsonToken.VALUE_NUMBER_INT) {
+                    response.total = parser.getLongValue();
+                }
+            } else if ("hits".equals(field) && token == JsonToken.START_ARRAY) {
+                List<Hit> hits = new ArrayList<>();
+
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    hits.add(readHit(parser));
+                }
+
+                response.hits = hits;
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    // parser is positioned on START_OBJECT of a single hit
+    @SuppressWarnings("unchecked")
+    private static Hit readHit(JsonParser parser) throws IOException {
+        Hit ret = new Hit();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String    field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+
+            switch (field) {
+                case "_id":
+                    ret.id = parser.getText();
+                    break;
+                case "_score":
+                    ret.score = parser.getDoubleValue();
+                    break;
+                case "sort":
+                    ret.sort = parser.readValueAs(ArrayList.class);
+                    break;
+                case "highlight":
+                    ret.highlight = parser.readValueAs(LinkedHashMap.class);
+                    break;
+                case "inner_hits":
+                    if (token == JsonToken.START_OBJECT) {
+                        Map<String, SearchResponse> innerHits = new LinkedHashMap<>();
+
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String name = parser.getCurrentName();
+
+                            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                                innerHits.put(name, readSearchResponse(parser));
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+
+                        ret.innerHits = innerHits;
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return ret;
+    }
+
+    public static class SearchResponse {
+        private boolean             hitsPresent;
+        private Long                total;
+        private List<Hit>           hits = Collections.emptyList();
+        private Map<String, Object> aggregations;
+        private boolean             timedOut;
+
+        public boolean hasHits() {
+            return hitsPresent;
+        }
+
+        public Long getTotal() {
+            return total;
+        }
+
+        public List<Hit> getHits() {
+            return hits;
+        }
+
+        public Map<String, Object> getAggregations() {
+            return aggregations;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+    }
+
+    public static class AsyncSearchResponse {
+        private String         id;
+        private boolean        running;
+        private boolean        partial;
+        private SearchResponse response;
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isRunning() {
+            return running;
+        }
+
+        public boolean isPartial() {
+            return partial;
+        }
+
+        public SearchResponse getResponse() {
+            return response;
+        }
+
+        public boolean isTimedOut() {
+            return response != null && response.isTimedOut();
+        }
+    }
+
+    public static class Hit {
+        private String                    id;
+        private Double                    score;
+        private ArrayList<Object>         sort;
+        private Map<String, List<String>> highlight;
+        private Map<String, SearchResponse> innerHits;
+
+        public String getId() {
+            return id;
+        }
+
+        public Double getScore() {
+            return score;
+        }
+
+        public ArrayList<Object> getSort() {
+            return sort;
+        }
+
+        public Map<String, List<String>> getHighlight() {
+            return highlight;
+        }
+
+        public Map<String, SearchResponse> getInnerHits() {
+            return innerHits;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graphdb.janus.serializer;
+
+import org.apache.atlas.AtlasConfiguration;
+import org.janusgraph.core.attribute.AttributeSerializer;
+import org.janusgraph.diskstorage.ScanBuffer;
+import org.janusgraph.diskstorage.WriteBuffer;
+import org.janusgraph.graphdb.database.serialize.attribute.ByteArraySerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Serializer for ArrayList values.
+ *
+ * Lists of strings, primitives, BigInteger, BigDecimal, Date and nested ArrayLists of these are written in a compact
+ * format: a format byte, the element count and, for each element, a type tag followed by the value. Other lists are
+ * written with Java serialization, as done earlier by SerializableSerializer; values in either format are read.
+ *
+ * The compact format can be disabled with atlas.graphstore.list.property.compact.format.enabled, for example while
+ * servers that can't read it still share the graph during an upgrade.
+ */
+public class ListSerializer implements AttributeSerializer<ArrayList> {
+    private static final Logger LOG = LoggerFactory.getLogger(ListSerializer.class);
+
+    static final byte FORMAT_COMPACT = 1; // Java serialization streams start with 0xAC
+
+    private static final byte TAG_NULL        = 0;
+    private static final byte TAG_STRING      = 1;
+    private static final byte TAG_TRUE        = 2;
+    private static final byte TAG_FALSE       = 3;
+    private static final byte TAG_INT         = 4;
+    private static final byte TAG_LONG        = 5;
+    private static final byte TAG_SHORT       = 6;
+    private static final byte TAG_BYTE        = 7;
+    private static final byte TAG_FLOAT       = 8;
+    private static final byte TAG_DOUBLE      = 9;
+    private static final byte TAG_BIG_INTEGER = 10;
+    private static final byte TAG_BIG_DECIMAL = 11;
+    private static final byte TAG_DATE        = 12;
+    private static final byte TAG_LIST        = 13;
+
+    private static final boolean COMPACT_FORMAT_ENABLED = getCompactFormatEnabled();
+
+    private final ByteArraySerializer delegate = new ByteArraySerializer();
+    private final boolean             writeCompactFormat;
+
+    public ListSerializer() {
+        this(COMPACT_FORMAT_ENABLED);
+    }
+
+    ListSerializer(boolean writeCompactFormat) {
+        this.writeCompactFormat = writeCompactFormat;
+    }
+
+    @Override
+    public ArrayList read(ScanBuffer buffer) {
+        byte[] value = delegate.read(buffer);
+
+        return value.length > 0 && value[0] == FORMAT_COMPACT ? fromCompactFormat(value) : fromJavaSerialization(value);
+    }
+
+    @Override
+    public void write(WriteBuffer buffer, ArrayList attribute) {
+        byte[] value = writeCompactFormat && isCompactable(attribute) ? toCompactFormat(attribute) : toJavaSerialization(attribute);
+
+        delegate.write(buffer, value);
+    }
+
+    static byte[] toCompactFormat(List<?> list) {
+        Output out = new Output(16 + list.size() * 16);
+
+        out.writeByte(FORMAT_COMPACT);
+        out.writeList(list);
+
+        return out.toByteArray();
+    }
+
+    static ArrayList fromCompactFormat(byte[] value) {
+        Input in = new Input(value, 1);
+
+        return in.readList();
+    }
+
+    static byte[] toJavaSerialization(ArrayList list) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(list);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("failed to serialize list", e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    static ArrayList fromJavaSerialization(byte[] value) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(value))) {
+            return (ArrayList) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("failed to deserialize list", e);
+        }
+    }
+
+    static boolean isCompactable(List<?> list) {
+        for (Object element : list) {
+            if (element == null || element instanceof String || element instanceof Boolean || element instanceof Integer ||
+                element instanceof Long || element instanceof Short || element instanceof Byte || element instanceof Float ||
+                element instanceof Double) {
+                continue;
+            }
+
+            Class<?> elementClass = element.getClass();
+
+            if (elementClass == BigInteger.class || elementClass == BigDecimal.class || elementClass == Date.class) {
+                continue;
+            }
+
+            if (elementClass == ArrayList.class && isCompactable((List<?>) element)) {
+                continue;
+            }
+
+            return false;
+        }
+
+        return true;
+    }
+
+    private static boolean getCompactFormatEnabled() {
+        try {
+            return AtlasConfiguration.GRAPHSTORE_LIST_PROPERTY_COMPACT_FORMAT_ENABLED.getBoolean();
+        } catch (Throwable t) {
+            LOG.warn("failed to read {}; list properties will be written with Java serialization", AtlasConfiguration.GRAPHSTORE_LIST_PROPERTY_COMPACT_FORMAT_ENABLED.getPropertyName(), t);
+
+            return false;
+        }
+    }
+
+    private static class Output {
+        private byte[] buf;
+        private int    pos;
+
+        Output(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        void writeList(List<?> list) {
+            writeVarLong(list.size());
+
+            for (Object element : list) {
+                writeElement(element);
+            }
+        }
+
+        private void writeElement(Object element) {
+            if (element == null) {
+                writeByte(TAG_NULL);
+            } else if (element instanceof String) {
+                writeByte(TAG_STRING);
+                writeBytes(((String) element).getBytes(StandardCharsets.UTF_8));
+            } else if (element instanceof Boolean) {
+                writeByte((Boolean) element ? TAG_TRUE : TAG_FALSE);
+            } else if (element instanceof Integer) {
+                writeByte(TAG_INT);
+                writeZigZag((Integer) element);
+            } else if (element instanceof Long) {
+                writeByte(TAG_LONG);
+                writeZigZag((Long) element);
+            } else if (element instanceof Short) {
+                writeByte(TAG_SHORT);
+                writeZigZag((Short) element);
+            } else if (element instanceof Byte) {
+                writeByte(TAG_BYTE);
+                writeByte((Byte) element);
+            } else if (element instanceof Float) {
+                writeByte(TAG_FLOAT);
+                writeFixed(Float.floatToIntBits((Float) element), 4);
+            } else if (element instanceof Double) {
+                writeByte(TAG_DOUBLE);
+                writeFixed(Double.doubleToLongBits((Double) element), 8);
+            } else if (element instanceof BigInteger) {
+                writeByte(TAG_BIG_INTEGER);
+                writeBytes(((BigInteger) element).toByteArray());
+            } else if (element instanceof BigDecimal) {
+                writeByte(TAG_BIG_DECIMAL);
+                writeZigZag(((BigDecimal) element).scale());
+                writeBytes(((BigDecimal) element).unscaledValue().toByteArray());
+            } else if (element instanceof Date) {
+                writeByte(TAG_DATE);
+                writeZigZag(((Date) element).getTime());
+            } else {
+                writeByte(TAG_LIST);
+                writeList((List<?>) element);
+            }
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+
+            buf[pos++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] value) {
+            writeVarLong(value.length);
+            ensureCapacity(value.length);
+
+            System.arraycopy(value, 0, buf, pos, value.length);
+
+            pos += value.length;
+        }
+
+        private void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+
+            buf[pos++] = (byte) value;
+        }
+
+        private void writeFixed(long value, int length) {
+            ensureCapacity(length);
+
+            for (int i = length - 1; i >= 0; i--) {
+                buf[pos++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        private void ensureCapacity(int length) {
+            if (pos + length > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + length));
+            }
+        }
+    }
+
+    private static class Input {
+        private final byte[] buf;
+        private       int    pos;
+
+        Input(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        ArrayList readList() {
+            int       size = (int) readVarLong();
+            ArrayList ret  = new ArrayList(size);
+
+            for (int i = 0; i < size; i++) {
+                ret.add(readElement());
+            }
+
+            return ret;
+        }
+
+        private Object readElement() {
+            byte tag = buf[pos++];
+
+            switch (tag) {
+                case TAG_NULL:
+                    return null;
+                case TAG_STRING: {
+                    int    length = (int) readVarLong();
+                    String ret    = new String(buf, pos, length, StandardCharsets.UTF_8);
+
+                    pos += length;
+
+                    return ret;
+                }
+                case TAG_TRUE:
+                    return Boolean.TRUE;
+                case TAG_FALSE:
+                    return Boolean.FALSE;
+                case TAG_INT:
+                    return (int) readZigZag();
+                case TAG_LONG:
+                    return readZigZag();
+                case TAG_SHORT:
+                    return (short) readZigZag();
+                case TAG_BYTE:
+                    return buf[pos++];
+                case TAG_FLOAT:
+                    return Float.intBitsToFloat((int) readFixed(4));
+                case TAG_DOUBLE:
+                    return Double.longBitsToDouble(readFixed(8));
+                case TAG_BIG_INTEGER:
+                    return new BigInteger(readBytes());
+                case TAG_BIG_DECIMAL: {
+                    int scale = (int) readZigZag();
+
+                    return new BigDecimal(new BigInteger(readBytes()), scale);
+                }
+                case TAG_DATE:
+                    return new Date(readZigZag());
+                case TAG_LIST:
+                    return readList();
+                default:
+                    throw new IllegalArgumentException("invalid list element tag " + tag + " at offset " + (pos - 1));
+            }
+        }
+
+        private byte[] readBytes() {
+            int    length = (int) readVarLong();
+            byte[] ret    = Arrays.copyOfRange(buf, pos, pos + length);
+
+            pos += length;
+
+            return ret;
+        }
+
+        private long readZigZag() {
+            long value = readVarLong();
+
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readVarLong() {
+            long ret   = 0;
+            int  shift = 0;
+
+            while (true) {
+                byte b = buf[pos++];
+
+                ret |= (long) (b & 0x7F) << shift;
+
+                if ((b & 0x80) == 0) {
+                    return ret;
+                }
+
+                shift += 7;
+            }
+        }
+
+        private long readFixed(int length) {
+            long ret = 0;
+
+            for (int i = 0; i < length; i++) {
+                ret = (ret << 8) | (buf[pos++] & 0xFF);
+            }
+
+            return ret;
+        }
+    }
+}
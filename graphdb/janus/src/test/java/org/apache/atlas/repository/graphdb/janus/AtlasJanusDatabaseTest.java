@@ -39,6 +39,7 @@ import org.testng.annotations.Test;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -286,6 +287,39 @@ public class AtlasJanusDatabaseTest {
         assertEdgesMatch(v2.getEdges(AtlasEdgeDirection.BOTH, "delivers"));
     }
 
+    @Test
+    public <V, E> void testGetVerticesAndEdgesInBatch() throws Exception {
+
+        AtlasGraph<V, E> graph = (AtlasGraph<V, E>) getGraph();
+        AtlasVertex<V, E> v1 = graph.addVertex();
+        AtlasVertex<V, E> v2 = graph.addVertex();
+        AtlasVertex<V, E> v3 = graph.addVertex();
+
+        AtlasEdge<V, E> knows = graph.addEdge(v2, v1, "knows");
+        AtlasEdge<V, E> eats = graph.addEdge(v3, v1, "eats");
+
+        graph.commit();
+
+        String missingId = "1";
+        Map<String, AtlasVertex<V, E>> vertices = graph.getVertices(Arrays.asList(v3.getIdForDisplay(), missingId, v1.getIdForDisplay()));
+
+        assertEquals(new ArrayList<>(vertices.keySet()), Arrays.asList(v3.getIdForDisplay(), v1.getIdForDisplay()));
+        assertEquals(vertices.get(v1.getIdForDisplay()), v1);
+
+        graph.prefetchProperties(Arrays.asList(v1, v2, v3));
+
+        List<Iterable<AtlasEdge<V, E>>> edges = graph.getEdges(Arrays.asList(v1, v2, v3), AtlasEdgeDirection.IN);
+
+        assertEdgesMatch(edges.get(0), knows, eats);
+        assertEdgesMatch(edges.get(1));
+        assertEdgesMatch(edges.get(2));
+
+        edges = graph.getEdges(Arrays.asList(v1, v3), AtlasEdgeDirection.BOTH, "eats");
+
+        assertEdgesMatch(edges.get(0), eats);
+        assertEdgesMatch(edges.get(1), eats);
+    }
+
     private <V, E> void assertEdgesMatch(Iterable<AtlasEdge<V, E>> edgesIt, AtlasEdge<V, E>... expected) {
         List<AtlasEdge<V, E>> edges = toList(edgesIt);
         assertEquals(expected.length, edges.size());
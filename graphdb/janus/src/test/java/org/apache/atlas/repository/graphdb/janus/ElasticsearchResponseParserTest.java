@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graphdb.janus;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class ElasticsearchResponseParserTest {
+    private static final String SEARCH_RESPONSE_FILE = "src/test/resources/es-search-response.json";
+
+    @Test
+    public void parseSearchResponse() throws IOException {
+        ElasticsearchResponseParser.SearchResponse response;
+
+        try (InputStream in = new FileInputStream(SEARCH_RESPONSE_FILE)) {
+            response = ElasticsearchResponseParser.parseSearchResponse(in);
+        }
+
+        assertTrue(response.hasHits());
+        assertFalse(response.isTimedOut());
+        assertEquals(response.getTotal(), Long.valueOf(132));
+        assertEquals(response.getHits().size(), 2);
+
+        ElasticsearchResponseParser.Hit first = response.getHits().get(0);
+
+        assertEquals(first.getId(), "3c8w");
+        assertEquals(first.getScore(), Double.valueOf(4.25));
+        assertEquals(first.getSort().size(), 2);
+        assertEquals(first.getSort().get(1), "default/snowflake/orders");
+        assertEquals(first.getHighlight().get("name"), Collections.singletonList("<em>orders</em>"));
+
+        ElasticsearchResponseParser.SearchResponse columns = first.getInnerHits().get("columns");
+
+        assertNotNull(columns);
+        assertEquals(columns.getTotal(), Long.valueOf(2));
+        assertEquals(columns.getHits().size(), 2);
+        assertEquals(columns.getHits().get(0).getId(), "5kq8");
+        assertNull(columns.getHits().get(1).getScore());
+
+        ElasticsearchResponseParser.Hit second = response.getHits().get(1);
+
+        assertEquals(second.getId(), "4ntc");
+        assertNull(second.getScore());
+        assertNull(second.getSort());
+        assertNull(second.getInnerHits());
+
+        Map<String, Object> typeNameAgg = (Map<String, Object>) response.getAggregations().get("group_by_typeName");
+
+        assertEquals(((List) typeNameAgg.get("buckets")).size(), 1);
+    }
+
+    @Test
+    public void parseAsyncSearchResponse() throws IOException {
+        String searchResponse = new String(Files.readAllBytes(Paths.get(SEARCH_RESPONSE_FILE)), StandardCharsets.UTF_8);
+        String asyncResponse  = "{\"id\":\"FmRldE8zREVEUzA2ZVpUeGs2ejJFUFEaMkZ5QTVrSTZSaVN3WlNFVmtlWHJsdzoxMDc=\"," +
+                                "\"is_partial\":false,\"is_running\":false,\"start_time_in_millis\":1583945890986," +
+                                "\"response\":" + searchResponse + "}";
+
+        ElasticsearchResponseParser.AsyncSearchResponse response = ElasticsearchResponseParser.parseAsyncSearchResponse(new ByteArrayInputStream(asyncResponse.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(response.getId(), "FmRldE8zREVEUzA2ZVpUeGs2ejJFUFEaMkZ5QTVrSTZSaVN3WlNFVmtlWHJsdzoxMDc=");
+        assertFalse(response.isPartial());
+        assertFalse(response.isRunning());
+        assertFalse(response.isTimedOut());
+        assertEquals(response.getResponse().getTotal(), Long.valueOf(132));
+        assertEquals(response.getResponse().getHits().get(0).getHighlight().get("name"), Arrays.asList("<em>orders</em>"));
+    }
+
+    @Test
+    public void parseRunningAsyncSearchResponse() throws IOException {
+        String asyncResponse = "{\"id\":\"abc\",\"is_partial\":true,\"is_running\":true,\"response\":{\"timed_out\":false,\"hits\":{\"total\":{\"value\":0},\"hits\":[]}}}";
+
+        ElasticsearchResponseParser.AsyncSearchResponse response = ElasticsearchResponseParser.parseAsyncSearchResponse(new ByteArrayInputStream(asyncResponse.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(response.getId(), "abc");
+        assertTrue(response.isPartial());
+        assertTrue(response.isRunning());
+        assertTrue(response.getResponse().getHits().isEmpty());
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graphdb.janus.serializer;
+
+import org.janusgraph.diskstorage.StaticBuffer;
+import org.janusgraph.diskstorage.util.StaticArrayBuffer;
+import org.janusgraph.diskstorage.util.WriteByteBuffer;
+import org.janusgraph.graphdb.database.serialize.DataOutput;
+import org.janusgraph.graphdb.database.serialize.StandardSerializer;
+import org.janusgraph.graphdb.database.serialize.attribute.SerializableSerializer;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ListSerializerTest {
+    @Test
+    public void testRoundTrip() {
+        ArrayList<Object> list = new ArrayList<>(Arrays.asList("a", "", "\u00fcn\u00efc\u00f8d\u00e9", null, true, false, 1, -1, Integer.MIN_VALUE, Long.MAX_VALUE,
+                                                                (short) -7, (byte) 3, 1.5f, -2.25d, new BigInteger("123456789012345678901234567890"),
+                                                                new BigDecimal("-1234.5678"), new Date(1234567890L),
+                                                                new ArrayList<>(Arrays.asList("nested", 2L))));
+
+        byte[] value = ListSerializer.toCompactFormat(list);
+
+        assertEquals(value[0], ListSerializer.FORMAT_COMPACT);
+        assertEquals(ListSerializer.fromCompactFormat(value), list);
+        assertEquals(roundTrip(new ListSerializer(true), list), list);
+        assertEquals(roundTrip(new ListSerializer(true), new ArrayList<>()), new ArrayList<>());
+    }
+
+    @Test
+    public void testReadsValuesOfSerializableSerializer() {
+        ArrayList<Object> list = new ArrayList<>(Arrays.asList("guid-1", "guid-2", 3L, null));
+
+        // written as JanusGraph stored ArrayList values before ListSerializer
+        StandardSerializer                janusSerializer = new StandardSerializer();
+        SerializableSerializer<ArrayList> legacy          = new SerializableSerializer<>();
+        DataOutput                        out             = janusSerializer.getDataOutput(128);
+
+        legacy.setSerializer(janusSerializer);
+        legacy.write(out, list);
+
+        byte[] value = out.getStaticBuffer().as(StaticBuffer.ARRAY_FACTORY);
+
+        assertEquals(new ListSerializer(true).read(new StaticArrayBuffer(value).asReadBuffer()), list);
+        assertEquals(new ListSerializer(false).read(new StaticArrayBuffer(value).asReadBuffer()), list);
+    }
+
+    @Test
+    public void testJavaSerializedListsAreReadableBySerializableSerializer() {
+        ArrayList<Object> list = new ArrayList<>(Arrays.asList("guid-1", "guid-2"));
+
+        // with compact format disabled, servers not having ListSerializer still read the values written
+        StandardSerializer                janusSerializer = new StandardSerializer();
+        SerializableSerializer<ArrayList> legacy          = new SerializableSerializer<>();
+
+        legacy.setSerializer(janusSerializer);
+
+        assertEquals(legacy.read(new StaticArrayBuffer(write(new ListSerializer(false), list)).asReadBuffer()), list);
+    }
+
+    @Test
+    public void testUnsupportedElementsUseJavaSerialization() {
+        Map<String, String> map = new HashMap<>();
+
+        map.put("key", "value");
+
+        ArrayList<Object> list = new ArrayList<>(Arrays.asList("a", map));
+
+        assertFalse(ListSerializer.isCompactable(list));
+        assertFalse(ListSerializer.isCompactable(new ArrayList<>(Arrays.asList(new Timestamp(0)))));
+        assertTrue(ListSerializer.isCompactable(new ArrayList<>(Arrays.asList("a", 1))));
+        assertEquals(roundTrip(new ListSerializer(true), list), list);
+    }
+
+    @Test
+    public void testCompactFormatIsSmaller() {
+        ArrayList<Object> list = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            list.add("6a1c3c2e-6d5e-4b1f-9d3c-" + String.format("%012d", i));
+        }
+
+        assertTrue(write(new ListSerializer(true), list).length < write(new ListSerializer(false), list).length);
+    }
+
+    private static ArrayList roundTrip(ListSerializer serializer, ArrayList list) {
+        return serializer.read(new StaticArrayBuffer(write(serializer, list)).asReadBuffer());
+    }
+
+    private static byte[] write(ListSerializer serializer, ArrayList list) {
+        WriteByteBuffer buffer = new WriteByteBuffer(128);
+
+        serializer.write(buffer, list);
+
+        return buffer.getStaticBuffer().as(StaticBuffer.ARRAY_FACTORY);
+    }
+}
@@ -50,20 +50,35 @@ public enum AtlasConfiguration {
     NOTIFICATION_SPLIT_MESSAGE_SEGMENTS_WAIT_TIME_SECONDS("atlas.notification.split.message.segments.wait.time.seconds", 15 * 60),
     NOTIFICATION_SPLIT_MESSAGE_BUFFER_PURGE_INTERVAL_SECONDS("atlas.notification.split.message.buffer.purge.interval.seconds", 5 * 60),
     NOTIFICATION_FIXED_BUFFER_ITEMS_INCREMENT_COUNT("atlas.notification.fixed.buffer.items.increment.count", 10),
+    NOTIFICATION_OUTBOX_ENABLED("atlas.notification.outbox.enabled", false),
+    NOTIFICATION_OUTBOX_SPOOL_DIR("atlas.notification.outbox.spool.dir", "/tmp/atlas-notification-outbox"),
+    NOTIFICATION_OUTBOX_MAX_IN_FLIGHT("atlas.notification.outbox.max.inflight", 10000),
+    NOTIFICATION_OUTBOX_MAX_BLOCK_MS("atlas.notification.outbox.max.block.ms", 1000),
 
     NOTIFICATION_CREATE_SHELL_ENTITY_FOR_NON_EXISTING_REF("atlas.notification.consumer.create.shell.entity.for.non-existing.ref", true),
     REST_API_CREATE_SHELL_ENTITY_FOR_NON_EXISTING_REF("atlas.rest.create.shell.entity.for.non-existing.ref", false),
 
     GRAPHSTORE_INDEXED_STRING_SAFE_LENGTH("atlas.graphstore.indexed.string.safe.length", Short.MAX_VALUE),  // based on org.apache.hadoop.hbase.client.Mutation.checkRow()
+    GRAPHSTORE_LIST_PROPERTY_COMPACT_FORMAT_ENABLED("atlas.graphstore.list.property.compact.format.enabled", true),
+    GRAPHSTORE_LIST_SERIALIZER_MIGRATE("atlas.graphstore.list.serializer.migrate", false),
+    LIST_PROPERTY_FORMAT_PATCH_ENABLED("atlas.patch.list.property.format.enabled", false),
+    PATCH_FULL_SCAN_ENABLED("atlas.patch.full.scan.enabled", false),
+    GRAPH_SCAN_RANGES("atlas.graph.scan.ranges", 256),
+    GRAPH_SCAN_NUM_WORKERS("atlas.graph.scan.num.workers", 8),
+    GRAPH_SCAN_BATCH_SIZE("atlas.graph.scan.batch.size", 300),
+    GRAPH_SCAN_MAX_VERTICES_PER_SECOND("atlas.graph.scan.max.vertices.per.second", 0),
 
     RELATIONSHIP_WARN_NO_RELATIONSHIPS("atlas.relationships.warnOnNoRelationships", false),
     ENTITY_CHANGE_NOTIFY_IGNORE_RELATIONSHIP_ATTRIBUTES("atlas.entity.change.notify.ignore.relationship.attributes", true),
 
     CLASSIFICATION_PROPAGATION_DEFAULT("atlas.classification.propagation.default", true),
+    CLASSIFICATION_TEXT_INCREMENTAL_UPDATE_ENABLED("atlas.classification.text.incremental.update.enabled", true),
 
     //search configuration
     SEARCH_MAX_LIMIT("atlas.search.maxlimit", 10000),
     SEARCH_DEFAULT_LIMIT("atlas.search.defaultlimit", 100),
+    SEARCH_BASIC_NATIVE_QUERY_ENABLED("atlas.search.basic.native.query.enabled", false),
+    SEARCH_BASIC_EXPLAIN_ENABLED("atlas.search.basic.explain.enabled", false),
 
     CUSTOM_ATTRIBUTE_KEY_MAX_LENGTH("atlas.custom.attribute.key.max.length", 50),
     CUSTOM_ATTRIBUTE_VALUE_MAX_LENGTH("atlas.custom.attribute.value.max.length", 500),
@@ -71,6 +86,11 @@ public enum AtlasConfiguration {
 
     LABEL_MAX_LENGTH("atlas.entity.label.max.length", 50),
     IMPORT_TEMP_DIRECTORY("atlas.import.temp.directory", ""),
+    IMPORT_STREAMING_ENABLED("atlas.import.streaming.enabled", false),
+    IMPORT_STREAMING_WINDOW_SIZE("atlas.import.streaming.window.size", 1000),
+    EXPORT_RETRIEVAL_PARALLELISM("atlas.export.retrieval.parallelism", 4),
+    EXPORT_RETRIEVAL_LOOKAHEAD("atlas.export.retrieval.lookahead", 100),
+    EXPORT_ZIP_WRITER_QUEUE_SIZE("atlas.export.zip.writer.queue.size", 100),
     MIGRATION_IMPORT_START_POSITION("atlas.migration.import.start.position", 0),
     LINEAGE_USING_GREMLIN("atlas.lineage.query.use.gremlin", false),
 
@@ -79,6 +99,15 @@ public enum AtlasConfiguration {
     REBUILD_INDEX("atlas.rebuild.index", false),
     PROCESS_NAME_UPDATE_PATCH("atlas.process.name.update.patch", false),
     STORE_DIFFERENTIAL_AUDITS("atlas.entity.audit.differential", false),
+    ENTITY_AUDIT_ASYNC_ENABLED("atlas.entity.audit.async.enabled", false),
+    ENTITY_AUDIT_ASYNC_QUEUE_SIZE("atlas.entity.audit.async.queue.size", 10000),
+    ENTITY_AUDIT_ASYNC_BATCH_SIZE("atlas.entity.audit.async.batch.size", 500),
+    ENTITY_AUDIT_ASYNC_FLUSH_INTERVAL_MS("atlas.entity.audit.async.flush.interval.ms", 1000),
+    ENTITY_AUDIT_ASYNC_MAX_RETRIES("atlas.entity.audit.async.max.retries", 3),
+    ENTITY_AUDIT_ASYNC_RETRY_BACKOFF_MS("atlas.entity.audit.async.retry.backoff.ms", 500),
+    ENTITY_AUDIT_ASYNC_SPOOL_MAX_REPLAY_ATTEMPTS("atlas.entity.audit.async.spool.max.replay.attempts", 10),
+    ENTITY_AUDIT_ASYNC_SHUTDOWN_TIMEOUT_MS("atlas.entity.audit.async.shutdown.timeout.ms", 30000),
+    ENTITY_AUDIT_ASYNC_SPOOL_DIR("atlas.entity.audit.async.spool.dir", ""),
     DSL_EXECUTOR_TRAVERSAL("atlas.dsl.executor.traversal", true),
     DSL_CACHED_TRANSLATOR("atlas.dsl.cached.translator", true),
     DEBUG_METRICS_ENABLED("atlas.debug.metrics.enabled", false),
@@ -87,14 +116,26 @@ public enum AtlasConfiguration {
     TASKS_IN_PROGRESS_GRAPH_QUERY("atlas.tasks.inprogress.graph.query", false),
     TASKS_REQUEUE_POLL_INTERVAL("atlas.tasks.requeue.poll.interval.millis", 60000),
     TASKS_QUEUE_SIZE("atlas.tasks.queue.size", 1000),
+    TASKS_EXECUTOR_THREADS("atlas.tasks.executor.threads", 1),
+    TASKS_LEASE_DURATION_MS("atlas.tasks.lease.duration.ms", 60000),
+    TASKS_SCAN_PAGE_SIZE("atlas.tasks.scan.page.size", 100),
+    TASKS_CLASSIFICATION_COALESCE_ENABLED("atlas.tasks.classification.coalesce.enabled", true),
+    ENTITY_LOCK_STRIPES("atlas.entity.lock.stripes", 64),
+    ENTITY_LOCK_TIMEOUT_MS("atlas.entity.lock.timeout.ms", 300000),
+    ENTITY_LOCK_LONG_HOLD_THRESHOLD_MS("atlas.entity.lock.long.hold.threshold.ms", 60000),
+    ENTITY_LOCK_REDIS_ENABLED("atlas.entity.lock.redis.enabled", false),
+    ENTITY_LOCK_REDIS_LEASE_MS("atlas.entity.lock.redis.lease.ms", 600000),
     SESSION_TIMEOUT_SECS("atlas.session.timeout.secs", -1),
     UPDATE_COMPOSITE_INDEX_STATUS("atlas.update.composite.index.status", true),
     TASKS_GRAPH_COMMIT_CHUNK_SIZE("atlas.tasks.graph.commit.chunk.size", 100),
     MAX_NUMBER_OF_RETRIES("atlas.tasks.graph.retry.count", 3),
     GRAPH_TRAVERSAL_PARALLELISM("atlas.graph.traverse.bucket.size",10),
+    GRAPH_TRAVERSAL_BATCH_SIZE("atlas.graph.traverse.batch.size", 100),
+    GRAPH_TRAVERSAL_MAX_VERTICES("atlas.graph.traverse.max.vertices", -1),
     LINEAGE_ON_DEMAND_ENABLED("atlas.lineage.on.demand.enabled", true),
     LINEAGE_ON_DEMAND_DEFAULT_NODE_COUNT("atlas.lineage.on.demand.default.node.count", 3),
     LINEAGE_MAX_NODE_COUNT("atlas.lineage.max.node.count", 100),
+    LINEAGE_EDGE_CACHE_MAX_EDGES("atlas.lineage.edge.cache.max.edges", 100000),
 
     SUPPORTED_RELATIONSHIP_EVENTS("atlas.notification.relationships.filter", "asset_readme,asset_links"),
 
@@ -105,9 +146,16 @@ public enum AtlasConfiguration {
     INDEX_CLIENT_CONNECTION_TIMEOUT("atlas.index.client.connection.timeout.ms", 900000),
     INDEX_CLIENT_SOCKET_TIMEOUT("atlas.index.client.socket.timeout.ms", 900000),
     ENABLE_SEARCH_LOGGER("atlas.enable.search.logger", true),
-    SEARCH_LOGGER_MAX_THREADS("atlas.enable.search.logger.max.threads", 20),
+    SEARCH_LOGGER_QUEUE_SIZE("atlas.enable.search.logger.queue.size", 10000),
+    SEARCH_LOGGER_BULK_SIZE("atlas.enable.search.logger.bulk.size", 500),
+    SEARCH_LOGGER_FLUSH_INTERVAL_MS("atlas.enable.search.logger.flush.interval.ms", 1000),
+    SEARCH_LOGGER_OVERFLOW_POLICY("atlas.enable.search.logger.overflow.policy", "drop_oldest"),
+    SEARCH_LOGGER_SAMPLE_PERCENT("atlas.enable.search.logger.sample.percent", 10),
 
     PERSONA_POLICY_ASSET_MAX_LIMIT("atlas.persona.policy.asset.maxlimit", 1000),
+    PERSONA_POLICY_CLAUSE_CACHE_SIZE("atlas.persona.policy.clause.cache.size", 10000),
+    AUTHORIZER_DECISION_CACHE_ENABLED("atlas.authorizer.decision.cache.enabled", true),
+    AUTHORIZER_DECISION_CACHE_SIZE("atlas.authorizer.decision.cache.size", 100000),
     ENABLE_KEYCLOAK_TOKEN_INTROSPECTION("atlas.canary.keycloak.token-introspection", false),
     HERACLES_CLIENT_PAGINATION_SIZE("atlas.heracles.admin.resource-pagination-size", 100),
     HERACLES_API_SERVER_URL("atlas.heracles.api.service.url", "http://heracles-service.heracles.svc.cluster.local"),
@@ -118,8 +166,11 @@ public enum AtlasConfiguration {
     ATLAS_INDEXSEARCH_LIMIT_UTM_TAGS("atlas.indexsearch.limit.ignore.utm.tags", ""),
     ATLAS_INDEXSEARCH_ENABLE_API_LIMIT("atlas.indexsearch.enable.api.limit", false),
     ATLAS_INDEXSEARCH_ENABLE_JANUS_OPTIMISATION("atlas.indexsearch.enable.janus.optimization", false),
+    ATLAS_INDEXSEARCH_ENABLE_BATCH_PREFETCH("atlas.indexsearch.enable.batch.prefetch", true),
     ATLAS_MAINTENANCE_MODE("atlas.maintenance.mode", false),
     DELTA_BASED_REFRESH_ENABLED("atlas.authorizer.enable.delta_based_refresh", false),
+    AUTHORIZER_BATCH_EVALUATION_PARALLELISM("atlas.authorizer.batch.evaluation.parallelism", 8),
+    AUTHORIZER_BATCH_EVALUATION_PARALLEL_THRESHOLD("atlas.authorizer.batch.evaluation.parallel.threshold", 16),
 
     ATLAS_UD_RELATIONSHIPS_MAX_COUNT("atlas.ud.relationship.max.count", 100),
 
@@ -49,6 +49,7 @@ public class AtlasImportRequest implements Serializable {
     public  static final String OPTION_KEY_BATCH_SIZE      = "batchSize";
     public  static final String OPTION_KEY_FORMAT          = "format";
     public  static final String OPTION_KEY_FORMAT_ZIP_DIRECT = "zipDirect";
+    public  static final String OPTION_KEY_FORMAT_ZIP_STREAMING = "zipStreaming";
     public  static final String START_POSITION_KEY         = "startPosition";
     public  static final String UPDATE_TYPE_DEFINITION_KEY = "updateTypeDefinition";
     private static final String START_GUID_KEY             = "startGuid";
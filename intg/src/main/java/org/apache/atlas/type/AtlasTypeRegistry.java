@@ -17,7 +17,10 @@
  */
 package org.apache.atlas.type;
 
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.AtlasException;
 import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.model.typedef.*;
 import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
@@ -44,6 +47,8 @@ public class AtlasTypeRegistry {
     private static final Logger LOG = LoggerFactory.getLogger(AtlasTypeRegistry.class);
     private static final int    DEFAULT_LOCK_MAX_WAIT_TIME_IN_SECONDS = 15;
 
+    public static final String PROP_INCREMENTAL_UPDATE_ENABLED = "atlas.type.registry.incremental.update.enabled";
+
     public static final ArrayList<String> TYPENAMES_TO_SKIP_SUPER_TYPE_CHECK = new ArrayList<String>() {{
         add("Table");
     }};
@@ -51,12 +56,14 @@ public class AtlasTypeRegistry {
     private   final TypeRegistryUpdateSynchronizer updateSynchronizer;
     private   final Set<String>                    missingRelationshipDefs;
     private   final Map<String, String>            commonIndexFieldNameCache;
+    private         boolean                        incrementalUpdateEnabled;
 
     public AtlasTypeRegistry() {
         registryData              = new RegistryData();
         updateSynchronizer        = new TypeRegistryUpdateSynchronizer(this);
         missingRelationshipDefs   = new HashSet<>();
         commonIndexFieldNameCache = new LinkedHashMap<>();
+        incrementalUpdateEnabled  = getIncrementalUpdateEnabled();
 
         resolveReferencesForRootTypes();
         resolveIndexFieldNamesForRootTypes();
@@ -68,6 +75,7 @@ public class AtlasTypeRegistry {
         updateSynchronizer        = other.updateSynchronizer;
         missingRelationshipDefs   = other.missingRelationshipDefs;
         commonIndexFieldNameCache = other.commonIndexFieldNameCache;
+        incrementalUpdateEnabled  = other.incrementalUpdateEnabled;
 
         resolveReferencesForRootTypes();
         resolveIndexFieldNamesForRootTypes();
@@ -283,6 +291,21 @@ public class AtlasTypeRegistry {
         commonIndexFieldNameCache.put(propertyName, indexFieldName);
     }
 
+    @VisibleForTesting
+    void setIncrementalUpdateEnabled(boolean incrementalUpdateEnabled) {
+        this.incrementalUpdateEnabled = incrementalUpdateEnabled;
+    }
+
+    private static boolean getIncrementalUpdateEnabled() {
+        try {
+            return ApplicationProperties.get().getBoolean(PROP_INCREMENTAL_UPDATE_ENABLED, true);
+        } catch (AtlasException e) {
+            LOG.warn("failed to read {}; type registry updates will re-resolve all types", PROP_INCREMENTAL_UPDATE_ENABLED, e);
+
+            return false;
+        }
+    }
+
     private void resolveReferencesForRootTypes() {
         try {
             AtlasEntityType.ENTITY_ROOT.resolveReferences(this);
@@ -341,6 +364,18 @@ public class AtlasTypeRegistry {
             init();
         }
 
+        // copies the caches of other, sharing the type and typeDef instances
+        RegistryData(RegistryData other) {
+            allTypes             = new TypeCache(other.allTypes);
+            enumDefs             = new TypeDefCache<>(other.enumDefs, allTypes);
+            structDefs           = new TypeDefCache<>(other.structDefs, allTypes);
+            classificationDefs   = new TypeDefCache<>(other.classificationDefs, allTypes);
+            entityDefs           = new TypeDefCache<>(other.entityDefs, allTypes);
+            relationshipDefs     = new TypeDefCache<>(other.relationshipDefs, allTypes);
+            businessMetadataDefs = new TypeDefCache<>(other.businessMetadataDefs, allTypes);
+            allDefCaches         = new TypeDefCache[] { enumDefs, structDefs, classificationDefs, entityDefs, relationshipDefs, businessMetadataDefs};
+        }
+
         void init() {
             allTypes.addType(new AtlasBuiltInTypes.AtlasBooleanType());
             allTypes.addType(new AtlasBuiltInTypes.AtlasByteType());
@@ -433,21 +468,38 @@ public class AtlasTypeRegistry {
         }
     }
 
+    /**
+     * Copy of the registry under update.
+     *
+     * With incremental updates enabled, the copy starts out sharing the resolved types of the parent registry,
+     * which must not be modified as they are in use. As long as only classification types are added, updated or
+     * removed, resolveReferences() re-creates and resolves only the classification hierarchies touched by the
+     * changes - other types don't refer to classification types. Any other change makes resolveReferences()
+     * re-create all types from their typeDefs and resolve all of them.
+     */
     public static class AtlasTransientTypeRegistry extends AtlasTypeRegistry {
         private List<AtlasBaseTypeDef> addedTypes   = new ArrayList<>();
         private List<AtlasBaseTypeDef> updatedTypes = new ArrayList<>();
         private List<AtlasBaseTypeDef> deletedTypes = new ArrayList<>();
 
+        private final Set<String> changedClassifications = new HashSet<>();
+        private       boolean     sharesParentTypes      = false;
+        private       boolean     needsFullResolve       = false;
 
         private AtlasTransientTypeRegistry(AtlasTypeRegistry parent) throws AtlasBaseException {
             super(parent);
 
-            addTypesWithNoRefResolve(parent.getAllEnumDefs());
-            addTypesWithNoRefResolve(parent.getAllStructDefs());
-            addTypesWithNoRefResolve(parent.getAllClassificationDefs());
-            addTypesWithNoRefResolve(parent.getAllEntityDefs());
-            addTypesWithNoRefResolve(parent.getAllRelationshipDefs());
-            addTypesWithNoRefResolve(parent.getAllBusinessMetadataDefs());
+            if (parent.incrementalUpdateEnabled) {
+                registryData      = new RegistryData(parent.registryData);
+                sharesParentTypes = true;
+            } else {
+                addTypesWithNoRefResolve(parent.getAllEnumDefs());
+                addTypesWithNoRefResolve(parent.getAllStructDefs());
+                addTypesWithNoRefResolve(parent.getAllClassificationDefs());
+                addTypesWithNoRefResolve(parent.getAllEntityDefs());
+                addTypesWithNoRefResolve(parent.getAllRelationshipDefs());
+                addTypesWithNoRefResolve(parent.getAllBusinessMetadataDefs());
+            }
 
             addedTypes.clear();
             updatedTypes.clear();
@@ -455,6 +507,16 @@ public class AtlasTypeRegistry {
         }
 
         private void resolveReferences() throws AtlasBaseException {
+            if (sharesParentTypes) {
+                if (!needsFullResolve) {
+                    resolveChangedClassifications();
+
+                    return;
+                }
+
+                recreateAllTypes();
+            }
+
             for (AtlasType type : registryData.allTypes.getAllTypes()) {
                 type.resolveReferences(this);
             }
@@ -468,8 +530,126 @@ public class AtlasTypeRegistry {
             }
         }
 
+        private void resolveChangedClassifications() throws AtlasBaseException {
+            if (changedClassifications.isEmpty()) {
+                return;
+            }
+
+            Set<String>                   hierarchy = getClassificationHierarchy(changedClassifications);
+            List<AtlasClassificationType> types     = new ArrayList<>(hierarchy.size());
+
+            for (String typeName : hierarchy) {
+                AtlasClassificationDef classificationDef = registryData.classificationDefs.getTypeDefByName(typeName);
+
+                if (classificationDef != null) { // null for removed types
+                    AtlasClassificationType type = new AtlasClassificationType(classificationDef);
+
+                    registryData.classificationDefs.removeTypeDefByName(typeName);
+                    registryData.classificationDefs.addType(classificationDef, type);
+
+                    types.add(type);
+                }
+            }
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("AtlasTypeRegistry.resolveChangedClassifications(): changed={}, resolving={}", changedClassifications.size(), types.size());
+            }
+
+            for (AtlasClassificationType type : types) {
+                type.resolveReferences(this);
+            }
+
+            for (AtlasClassificationType type : types) {
+                type.resolveReferencesPhase2(this);
+            }
+
+            for (AtlasClassificationType type : types) {
+                type.resolveReferencesPhase3(this);
+            }
+
+            changedClassifications.clear();
+        }
+
+        // the given classifications, and all classifications connected to them through super-type/sub-type relations
+        private Set<String> getClassificationHierarchy(Set<String> typeNames) {
+            Set<String>   ret     = new HashSet<>();
+            Deque<String> pending = new ArrayDeque<>(typeNames);
+
+            while (!pending.isEmpty()) {
+                String typeName = pending.poll();
+
+                if (!ret.add(typeName)) {
+                    continue;
+                }
+
+                AtlasClassificationDef  classificationDef = registryData.classificationDefs.getTypeDefByName(typeName);
+                AtlasClassificationType classificationType = registryData.classificationDefs.getTypeByName(typeName);
+
+                if (classificationDef != null && classificationDef.getSuperTypes() != null) {
+                    pending.addAll(classificationDef.getSuperTypes());
+                }
+
+                if (classificationType != null && classificationType.getSubTypes() != null) {
+                    pending.addAll(classificationType.getSubTypes());
+                }
+            }
+
+            return ret;
+        }
+
+        // replaces the types shared with the parent registry with new instances, for resolveReferences() to resolve
+        private void recreateAllTypes() throws AtlasBaseException {
+            RegistryData sharedData = registryData;
+
+            registryData = new RegistryData();
+
+            addTypesWithNoRefResolve(sharedData.enumDefs.getAll(), false);
+            addTypesWithNoRefResolve(sharedData.structDefs.getAll(), false);
+            addTypesWithNoRefResolve(sharedData.classificationDefs.getAll(), false);
+            addTypesWithNoRefResolve(sharedData.entityDefs.getAll(), false);
+            addTypesWithNoRefResolve(sharedData.relationshipDefs.getAll(), false);
+            addTypesWithNoRefResolve(sharedData.businessMetadataDefs.getAll(), false);
+
+            sharesParentTypes = false;
+
+            changedClassifications.clear();
+        }
+
+        // called before the given change is applied to registryData
+        private void onTypeChange(AtlasBaseTypeDef currTypeDef, AtlasBaseTypeDef newTypeDef) {
+            if (!sharesParentTypes || needsFullResolve) {
+                return;
+            }
+
+            boolean isCurrClassification = currTypeDef == null || currTypeDef.getClass().equals(AtlasClassificationDef.class);
+            boolean isNewClassification  = newTypeDef == null || newTypeDef.getClass().equals(AtlasClassificationDef.class);
+
+            if (!isCurrClassification || !isNewClassification) {
+                needsFullResolve = true;
+
+                changedClassifications.clear();
+
+                return;
+            }
+
+            if (currTypeDef != null) { // hierarchy the classification is removed from
+                changedClassifications.add(currTypeDef.getName());
+                changedClassifications.addAll(getClassificationHierarchy(Collections.singleton(currTypeDef.getName())));
+            }
+
+            if (newTypeDef != null) {
+                changedClassifications.add(newTypeDef.getName());
+            }
+        }
+
         public void clear() {
             registryData.clear();
+
+            if (sharesParentTypes) {
+                sharesParentTypes = false;
+
+                changedClassifications.clear();
+            }
         }
 
         public void addType(AtlasBaseTypeDef typeDef) throws AtlasBaseException {
@@ -662,6 +842,8 @@ public class AtlasTypeRegistry {
         }
 
         private void removeTypeByNameWithNoRefResolve(AtlasBaseTypeDef typeDef) {
+            onTypeChange(registryData.getTypeDefByName(typeDef.getName()), null);
+
             switch (typeDef.getCategory()) {
                 case ENUM:
                     registryData.enumDefs.removeTypeDefByName(typeDef.getName());
@@ -686,6 +868,8 @@ public class AtlasTypeRegistry {
         }
 
         private void removeTypeByGuidWithNoRefResolve(AtlasBaseTypeDef typeDef) {
+            onTypeChange(registryData.getTypeDefByGuid(typeDef.getGuid()), null);
+
             switch (typeDef.getCategory()) {
                 case ENUM:
                     registryData.enumDefs.removeTypeDefByGuid(typeDef.getGuid());
@@ -717,6 +901,8 @@ public class AtlasTypeRegistry {
             AtlasBaseTypeDef typeDef = getTypeDefByGuid(guid);
 
             if (guid != null) {
+                onTypeChange(typeDef, null);
+
                 registryData.removeByGuid(guid);
             }
 
@@ -739,6 +925,8 @@ public class AtlasTypeRegistry {
             AtlasBaseTypeDef typeDef = getTypeDefByName(name);
 
             if (name != null) {
+                onTypeChange(typeDef, null);
+
                 registryData.removeByName(name);
             }
 
@@ -760,12 +948,20 @@ public class AtlasTypeRegistry {
         public List<AtlasBaseTypeDef> getDeleteedTypes() { return deletedTypes; }
 
 
-        private void addTypeWithNoRefResolve(AtlasBaseTypeDef typeDef) throws AtlasBaseException{
+        private void addTypeWithNoRefResolve(AtlasBaseTypeDef typeDef) throws AtlasBaseException {
+            addTypeWithNoRefResolve(typeDef, true);
+        }
+
+        private void addTypeWithNoRefResolve(AtlasBaseTypeDef typeDef, boolean isChange) throws AtlasBaseException {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("==> AtlasTypeRegistry.addTypeWithNoRefResolve({})", typeDef);
             }
 
             if (typeDef != null) {
+                if (isChange) {
+                    onTypeChange(registryData.getTypeDefByName(typeDef.getName()), typeDef);
+                }
+
                 if (typeDef.getClass().equals(AtlasEnumDef.class)) {
                     AtlasEnumDef enumDef = (AtlasEnumDef) typeDef;
 
@@ -792,7 +988,9 @@ public class AtlasTypeRegistry {
                     registryData.businessMetadataDefs.addType(businessMetadataDef, new AtlasBusinessMetadataType(businessMetadataDef));
                 }
 
-                addedTypes.add(typeDef);
+                if (isChange) {
+                    addedTypes.add(typeDef);
+                }
             }
 
             if (LOG.isDebugEnabled()) {
@@ -801,6 +999,10 @@ public class AtlasTypeRegistry {
         }
 
         private void addTypesWithNoRefResolve(Collection<? extends AtlasBaseTypeDef> typeDefs) throws AtlasBaseException {
+            addTypesWithNoRefResolve(typeDefs, true);
+        }
+
+        private void addTypesWithNoRefResolve(Collection<? extends AtlasBaseTypeDef> typeDefs, boolean isChange) throws AtlasBaseException {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("==> AtlasTypeRegistry.addTypesWithNoRefResolve(length={})",
                         (typeDefs == null ? 0 : typeDefs.size()));
@@ -808,7 +1010,7 @@ public class AtlasTypeRegistry {
 
             if (CollectionUtils.isNotEmpty(typeDefs)) {
                 for (AtlasBaseTypeDef typeDef : typeDefs) {
-                    addTypeWithNoRefResolve(typeDef);
+                    addTypeWithNoRefResolve(typeDef, isChange);
                 }
             }
 
@@ -842,7 +1044,8 @@ public class AtlasTypeRegistry {
             }
 
             if (guid != null && typeDef != null) {
-                // ignore
+                onTypeChange(registryData.getTypeDefByGuid(guid), typeDef);
+
                 if (typeDef.getClass().equals(AtlasEnumDef.class)) {
                     AtlasEnumDef enumDef = (AtlasEnumDef) typeDef;
 
@@ -890,6 +1093,8 @@ public class AtlasTypeRegistry {
             }
 
             if (name != null && typeDef != null) {
+                onTypeChange(registryData.getTypeDefByName(name), typeDef);
+
                 if (typeDef.getClass().equals(AtlasEnumDef.class)) {
                     AtlasEnumDef enumDef = (AtlasEnumDef) typeDef;
 
@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.type;
+
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.typedef.*;
+import org.apache.atlas.model.typedef.AtlasStructDef.AtlasAttributeDef;
+import org.apache.atlas.type.AtlasTypeRegistry.AtlasTransientTypeRegistry;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class TestAtlasTypeRegistryIncrementalUpdate {
+    @Test
+    public void testAddClassificationToHierarchy() throws AtlasBaseException {
+        AtlasTypeRegistry incremental = newTypeRegistry(true);
+        AtlasTypeRegistry full        = newTypeRegistry(false);
+        AtlasEntityType   tableType   = incremental.getEntityTypeByName("Table");
+
+        for (AtlasTypeRegistry typeRegistry : new AtlasTypeRegistry[] { incremental, full }) {
+            AtlasClassificationDef pii = new AtlasClassificationDef("PII_EMAIL");
+
+            pii.addSuperType("PII");
+            pii.addAttribute(new AtlasAttributeDef("domain", AtlasBaseTypeDef.ATLAS_TYPE_STRING));
+
+            update(typeRegistry, pii, null);
+        }
+
+        assertSameClassifications(incremental, full);
+
+        AtlasClassificationType piiType = incremental.getClassificationTypeByName("PII");
+
+        assertEquals(piiType.getSubTypes(), new HashSet<>(Arrays.asList("PII_NAME", "PII_EMAIL")));
+        assertTrue(incremental.getClassificationTypeByName("PII_EMAIL").getAllAttributes().containsKey("level"));
+        assertEquals(incremental.getClassificationTypeByName("PII_EMAIL").getEntityTypes(), Collections.singleton("Table"));
+
+        // types outside the changed hierarchy are shared with the previous registry version
+        assertSame(incremental.getEntityTypeByName("Table"), tableType);
+    }
+
+    @Test
+    public void testUpdateAndRemoveClassification() throws AtlasBaseException {
+        AtlasTypeRegistry incremental = newTypeRegistry(true);
+        AtlasTypeRegistry full        = newTypeRegistry(false);
+
+        for (AtlasTypeRegistry typeRegistry : new AtlasTypeRegistry[] { incremental, full }) {
+            AtlasClassificationDef name = new AtlasClassificationDef(typeRegistry.getClassificationDefByName("PII_NAME"));
+
+            name.setSuperTypes(Collections.singleton("Confidential"));
+
+            update(typeRegistry, name, null);
+        }
+
+        assertSameClassifications(incremental, full);
+        assertTrue(incremental.getClassificationTypeByName("PII").getSubTypes().isEmpty());
+        assertEquals(incremental.getClassificationTypeByName("Confidential").getAllSubTypes(), Collections.singleton("PII_NAME"));
+
+        for (AtlasTypeRegistry typeRegistry : new AtlasTypeRegistry[] { incremental, full }) {
+            update(typeRegistry, null, "PII_NAME");
+        }
+
+        assertSameClassifications(incremental, full);
+        assertNull(incremental.getClassificationTypeByName("PII_NAME"));
+        assertTrue(incremental.getClassificationTypeByName("Confidential").getAllSubTypes().isEmpty());
+    }
+
+    @Test
+    public void testEntityChangeResolvesAllTypes() throws AtlasBaseException {
+        AtlasTypeRegistry typeRegistry = newTypeRegistry(true);
+        AtlasEntityType   tableType    = typeRegistry.getEntityTypeByName("Table");
+        AtlasEntityDef    view         = new AtlasEntityDef("View");
+
+        view.addSuperType("Table");
+
+        update(typeRegistry, view, null);
+
+        assertNotSame(typeRegistry.getEntityTypeByName("Table"), tableType);
+        assertEquals(typeRegistry.getEntityTypeByName("Table").getAllSubTypes(), Collections.singleton("View"));
+        assertEquals(typeRegistry.getClassificationTypeByName("PII").getEntityTypes(), new HashSet<>(Arrays.asList("Table", "View")));
+    }
+
+    @Test
+    public void testClassificationCreateSharesUnrelatedTypes() throws AtlasBaseException {
+        AtlasTypeRegistry      incremental = newTypeRegistry(true, 100);
+        AtlasTypeRegistry      full        = newTypeRegistry(false, 100);
+        Map<String, AtlasType> types       = new HashMap<>();
+
+        for (AtlasType type : incremental.getAllEntityTypes()) {
+            types.put(type.getTypeName(), type);
+        }
+
+        for (AtlasType type : incremental.getAllClassificationTypes()) {
+            types.put(type.getTypeName(), type);
+        }
+
+        for (AtlasTypeRegistry typeRegistry : new AtlasTypeRegistry[] { incremental, full }) {
+            update(typeRegistry, new AtlasClassificationDef("new_tag"), null);
+        }
+
+        assertSameClassifications(incremental, full);
+        assertNotNull(incremental.getClassificationTypeByName("new_tag"));
+
+        // none of the existing types is re-created, hence re-resolved, for a classification outside their hierarchies
+        for (AtlasType type : types.values()) {
+            assertSame(incremental.getType(type.getTypeName()), type, type.getTypeName());
+        }
+    }
+
+    // PII <- PII_NAME, Confidential, all applicable to Table
+    private static AtlasTypeRegistry newTypeRegistry(boolean incrementalUpdateEnabled) throws AtlasBaseException {
+        return newTypeRegistry(incrementalUpdateEnabled, 0);
+    }
+
+    // as above, with unrelated entity_<i> and tag_<i> types
+    private static AtlasTypeRegistry newTypeRegistry(boolean incrementalUpdateEnabled, int unrelatedTypeCount) throws AtlasBaseException {
+        AtlasTypeRegistry      ret          = new AtlasTypeRegistry();
+        AtlasTypesDef          typesDef     = new AtlasTypesDef();
+        AtlasClassificationDef pii          = new AtlasClassificationDef("PII");
+        AtlasClassificationDef piiName      = new AtlasClassificationDef("PII_NAME");
+        AtlasClassificationDef confidential = new AtlasClassificationDef("Confidential");
+
+        ret.setIncrementalUpdateEnabled(incrementalUpdateEnabled);
+
+        pii.addAttribute(new AtlasAttributeDef("level", AtlasBaseTypeDef.ATLAS_TYPE_INT));
+        pii.setEntityTypes(Collections.singleton("Table"));
+        piiName.addSuperType("PII");
+
+        typesDef.getEntityDefs().add(new AtlasEntityDef("Table"));
+        typesDef.getClassificationDefs().add(pii);
+        typesDef.getClassificationDefs().add(piiName);
+        typesDef.getClassificationDefs().add(confidential);
+
+        for (int i = 0; i < unrelatedTypeCount; i++) {
+            typesDef.getEntityDefs().add(new AtlasEntityDef("entity_" + i));
+            typesDef.getClassificationDefs().add(new AtlasClassificationDef("tag_" + i));
+        }
+
+        update(ret, typesDef);
+
+        return ret;
+    }
+
+    private static void update(AtlasTypeRegistry typeRegistry, AtlasTypesDef typesDef) throws AtlasBaseException {
+        AtlasTransientTypeRegistry ttr    = typeRegistry.lockTypeRegistryForUpdate();
+        boolean                    commit = false;
+
+        try {
+            ttr.addTypes(typesDef);
+
+            commit = true;
+        } finally {
+            typeRegistry.releaseTypeRegistryForUpdate(ttr, commit);
+        }
+    }
+
+    private static void update(AtlasTypeRegistry typeRegistry, AtlasBaseTypeDef typeDef, String typeToRemove) throws AtlasBaseException {
+        AtlasTransientTypeRegistry ttr    = typeRegistry.lockTypeRegistryForUpdate();
+        boolean                    commit = false;
+
+        try {
+            if (typeToRemove != null) {
+                ttr.removeTypeByName(typeToRemove);
+            } else if (ttr.isRegisteredType(typeDef.getName())) {
+                ttr.updateType(typeDef);
+            } else {
+                ttr.addType(typeDef);
+            }
+
+            commit = true;
+        } finally {
+            typeRegistry.releaseTypeRegistryForUpdate(ttr, commit);
+        }
+    }
+
+    private static void assertSameClassifications(AtlasTypeRegistry actual, AtlasTypeRegistry expected) {
+        assertEquals(new HashSet<>(actual.getAllClassificationDefNames()), new HashSet<>(expected.getAllClassificationDefNames()));
+
+        for (AtlasClassificationType expectedType : expected.getAllClassificationTypes()) {
+            AtlasClassificationType actualType = actual.getClassificationTypeByName(expectedType.getTypeName());
+
+            assertEquals(actualType.getSuperTypes(), expectedType.getSuperTypes());
+            assertEquals(actualType.getAllSuperTypes(), expectedType.getAllSuperTypes());
+            assertEquals(actualType.getSubTypes(), expectedType.getSubTypes());
+            assertEquals(actualType.getAllSubTypes(), expectedType.getAllSubTypes());
+            assertEquals(actualType.getEntityTypes(), expectedType.getEntityTypes());
+            assertEquals(actualType.getAllAttributes().keySet(), expectedType.getAllAttributes().keySet());
+        }
+    }
+}
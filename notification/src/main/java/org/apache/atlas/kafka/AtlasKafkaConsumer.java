@@ -25,10 +25,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
@@ -84,6 +87,37 @@ public class AtlasKafkaConsumer<T> extends AbstractNotificationConsumer<T> {
         }
     }
 
+    @Override
+    public void pause() {
+        if (kafkaConsumer != null) {
+            kafkaConsumer.pause(kafkaConsumer.assignment());
+        }
+    }
+
+    @Override
+    public void resume() {
+        if (kafkaConsumer != null) {
+            kafkaConsumer.resume(kafkaConsumer.paused());
+        }
+    }
+
+    @Override
+    public void setPartitionsRevokedListener(Consumer<Collection<TopicPartition>> listener) {
+        if (kafkaConsumer != null) {
+            // subscribing again to the same topics replaces the listener
+            kafkaConsumer.subscribe(kafkaConsumer.subscription(), new ConsumerRebalanceListener() {
+                @Override
+                public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+                    listener.accept(partitions);
+                }
+
+                @Override
+                public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+                }
+            });
+        }
+    }
+
     @Override
     public void close() {
         if (kafkaConsumer != null) {
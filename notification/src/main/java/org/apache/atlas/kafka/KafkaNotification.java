@@ -21,11 +21,15 @@ import com.google.common.annotations.VisibleForTesting;
 import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.AtlasException;
+import org.apache.atlas.model.notification.EntityNotification.EntityNotificationV2;
+import org.apache.atlas.model.notification.MessageSource;
 import org.apache.atlas.notification.AbstractNotification;
 import org.apache.atlas.notification.NotificationConsumer;
 import org.apache.atlas.notification.NotificationException;
 import org.apache.atlas.service.Service;
+import org.apache.atlas.service.metrics.MetricUtils;
 import org.apache.atlas.utils.KafkaUtils;
+import org.apache.atlas.v1.model.notification.EntityNotificationV1;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationConverter;
 import org.apache.commons.lang.StringUtils;
@@ -90,6 +94,8 @@ public class KafkaNotification extends AbstractNotification implements Service {
     private final Map<NotificationType, List<KafkaConsumer>> consumers = new HashMap<>();
     private final Map<NotificationType, KafkaProducer>       producers = new HashMap<>();
     private       String                                     consumerClosedErrorMsg;
+    private       Configuration                              applicationProperties;
+    private volatile NotificationOutbox                      outbox;
 
     // ----- Constructors ----------------------------------------------------
 
@@ -106,6 +112,8 @@ public class KafkaNotification extends AbstractNotification implements Service {
 
         LOG.debug("==> KafkaNotification()");
 
+        this.applicationProperties = applicationProperties;
+
         Configuration kafkaConf = ApplicationProperties.getSubsetConfiguration(applicationProperties, PROPERTY_PREFIX);
 
         properties             = ConfigurationConverter.getProperties(kafkaConf);
@@ -138,6 +146,12 @@ public class KafkaNotification extends AbstractNotification implements Service {
 
         KafkaUtils.setKafkaJAASProperties(applicationProperties, properties);
 
+        if (AtlasConfiguration.NOTIFICATION_OUTBOX_ENABLED.getBoolean()) {
+            // entity notifications are sent without waiting for each acknowledgement; let the producer batch them
+            properties.putIfAbsent(ProducerConfig.LINGER_MS_CONFIG, kafkaConf.getString("linger.ms", "5"));
+            properties.putIfAbsent(ProducerConfig.COMPRESSION_TYPE_CONFIG, kafkaConf.getString("compression.type", "lz4"));
+        }
+
         LOG.debug("<== KafkaNotification()");
     }
 
@@ -164,6 +178,14 @@ public class KafkaNotification extends AbstractNotification implements Service {
     public void start() throws AtlasException {
         LOG.info("==> KafkaNotification.start()");
 
+        if (AtlasConfiguration.NOTIFICATION_OUTBOX_ENABLED.getBoolean() && outbox == null) {
+            outbox = new NotificationOutbox(this, applicationProperties,
+                                            AtlasConfiguration.NOTIFICATION_OUTBOX_SPOOL_DIR.getString(),
+                                            AtlasConfiguration.NOTIFICATION_OUTBOX_MAX_IN_FLIGHT.getInt(),
+                                            AtlasConfiguration.NOTIFICATION_OUTBOX_MAX_BLOCK_MS.getLong(),
+                                            MetricUtils.getMeterRegistry());
+        }
+
         LOG.info("<== KafkaNotification.start()");
     }
 
@@ -171,6 +193,8 @@ public class KafkaNotification extends AbstractNotification implements Service {
     public void stop() {
         LOG.info("==> KafkaNotification.stop()");
 
+        closeOutbox();
+
         LOG.info("<== KafkaNotification.stop()");
     }
 
@@ -244,6 +268,8 @@ public class KafkaNotification extends AbstractNotification implements Service {
     public void close() {
         LOG.info("==> KafkaNotification.close()");
 
+        closeOutbox();
+
         for (KafkaProducer producer : producers.values()) {
             if (producer != null) {
                 try {
@@ -260,6 +286,62 @@ public class KafkaNotification extends AbstractNotification implements Service {
     }
 
 
+    @Override
+    public <T> void send(NotificationType type, List<T> messages, MessageSource source) throws NotificationException {
+        if (type == NotificationType.HOOK) {
+            super.send(type, messages, source);
+
+            return;
+        }
+
+        List<String> strMessages = new ArrayList<>(messages.size());
+        List<String> keys        = new ArrayList<>(messages.size());
+
+        for (T message : messages) {
+            String key = getMessageKey(message);
+
+            createNotificationMessages(message, strMessages, source);
+
+            // a message split into parts gets the same key for all parts, so that the parts stay in one partition
+            while (keys.size() < strMessages.size()) {
+                keys.add(key);
+            }
+        }
+
+        if (outbox != null) {
+            outbox.send(type, strMessages, keys);
+        } else {
+            sendInternalToProducer(getOrCreateProducer(type), type, strMessages, keys);
+        }
+    }
+
+    /**
+     * Key under which the notification is published: notifications of an entity (or relationship) land in the
+     * same partition, so consumers see them in the order they were sent.
+     */
+    @VisibleForTesting
+    static String getMessageKey(Object message) {
+        String ret = null;
+
+        if (message instanceof EntityNotificationV2) {
+            EntityNotificationV2 notification = (EntityNotificationV2) message;
+
+            if (notification.getEntity() != null) {
+                ret = notification.getEntity().getGuid();
+            } else if (notification.getRelationship() != null) {
+                ret = notification.getRelationship().getGuid();
+            }
+        } else if (message instanceof EntityNotificationV1) {
+            EntityNotificationV1 notification = (EntityNotificationV1) message;
+
+            if (notification.getEntity() != null && notification.getEntity().getId() != null) {
+                ret = notification.getEntity().getId()._getId();
+            }
+        }
+
+        return ret;
+    }
+
     // ----- AbstractNotification --------------------------------------------
     @Override
     public void sendInternal(NotificationType notificationType, List<String> messages) throws NotificationException {
@@ -270,11 +352,17 @@ public class KafkaNotification extends AbstractNotification implements Service {
 
     @VisibleForTesting
     void sendInternalToProducer(Producer p, NotificationType notificationType, List<String> messages) throws NotificationException {
+        sendInternalToProducer(p, notificationType, messages, null);
+    }
+
+    void sendInternalToProducer(Producer p, NotificationType notificationType, List<String> messages, List<String> keys) throws NotificationException {
         String               topic           = PRODUCER_TOPIC_MAP.get(notificationType);
         List<MessageContext> messageContexts = new ArrayList<>();
 
-        for (String message : messages) {
-            ProducerRecord record = new ProducerRecord(topic, message);
+        for (int i = 0; i < messages.size(); i++) {
+            String         message = messages.get(i);
+            String         key     = keys != null ? keys.get(i) : null;
+            ProducerRecord record  = key != null ? new ProducerRecord(topic, key, message) : new ProducerRecord(topic, message);
 
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Sending message for topic {}: {}", topic, message);
@@ -347,7 +435,7 @@ public class KafkaNotification extends AbstractNotification implements Service {
         return ret;
     }
 
-    private KafkaProducer getOrCreateProducer(NotificationType notificationType) {
+    KafkaProducer getOrCreateProducer(NotificationType notificationType) {
         LOG.debug("==> KafkaNotification.getOrCreateProducer()");
 
         KafkaProducer ret = producers.get(notificationType);
@@ -369,6 +457,20 @@ public class KafkaNotification extends AbstractNotification implements Service {
         return ret;
     }
 
+    private void closeOutbox() {
+        NotificationOutbox outbox = this.outbox;
+
+        if (outbox != null) {
+            this.outbox = null;
+
+            try {
+                outbox.close();
+            } catch (Throwable t) {
+                LOG.error("failed to close notification outbox. Ignoring", t);
+            }
+        }
+    }
+
     public static String[] trimAndPurge(String[] strings)  {
         List<String> ret = new ArrayList<>();
 
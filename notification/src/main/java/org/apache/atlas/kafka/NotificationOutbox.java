@@ -0,0 +1,359 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.kafka;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.apache.atlas.AtlasException;
+import org.apache.atlas.notification.AbstractNotification;
+import org.apache.atlas.notification.NotificationConsumer;
+import org.apache.atlas.notification.NotificationException;
+import org.apache.atlas.notification.spool.IndexManagement;
+import org.apache.atlas.notification.spool.Publisher;
+import org.apache.atlas.notification.spool.SpoolConfiguration;
+import org.apache.atlas.notification.spool.Spooler;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.lang.StringUtils;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.atlas.notification.NotificationInterface.NotificationType;
+
+/**
+ * Asynchronous sender of entity and relationship notifications.
+ *
+ * Records are handed to the Kafka producer without waiting for their acknowledgements; at most maxInFlight records
+ * are left unacknowledged at any time. A record that Kafka fails, or for which no in-flight slot frees up within
+ * maxBlockMs, is written to a local spool - as are all later records of the same type, until the spool has been
+ * replayed to Kafka, in order, by a publisher thread. Records are written to the spool by a thread of the outbox,
+ * so that records failed by Kafka don't hold up the producer's I/O thread.
+ */
+public class NotificationOutbox {
+    private static final Logger LOG = LoggerFactory.getLogger(NotificationOutbox.class);
+
+    static final String KEY_SEPARATOR = "\t";
+
+    private final KafkaNotification                  kafka;
+    private final Semaphore                          inFlight;
+    private final int                                maxInFlight;
+    private final long                               maxBlockMs;
+    private final Map<NotificationType, TypeOutbox>  outboxes = new EnumMap<>(NotificationType.class);
+
+    public NotificationOutbox(KafkaNotification kafka, Configuration configuration, String spoolDir, int maxInFlight, long maxBlockMs, MeterRegistry meterRegistry) throws AtlasException {
+        this.kafka       = kafka;
+        this.maxInFlight = maxInFlight;
+        this.maxBlockMs  = maxBlockMs;
+        this.inFlight    = new Semaphore(maxInFlight);
+
+        for (NotificationType type : new NotificationType[] { NotificationType.ENTITIES, NotificationType.RELATIONSHIPS }) {
+            outboxes.put(type, new TypeOutbox(type, configuration, spoolDir, meterRegistry));
+        }
+
+        Gauge.builder("notification_outbox_in_flight", inFlight, s -> this.maxInFlight - s.availablePermits()).register(meterRegistry);
+
+        LOG.info("NotificationOutbox: started. spoolDir={}, maxInFlight={}, maxBlockMs={}", spoolDir, maxInFlight, maxBlockMs);
+    }
+
+    public void send(NotificationType type, List<String> messages, List<String> keys) throws NotificationException {
+        TypeOutbox outbox = outboxes.get(type);
+
+        if (outbox == null) {
+            kafka.sendInternalToProducer(kafka.getOrCreateProducer(type), type, messages, keys);
+        } else {
+            outbox.send(messages, keys);
+        }
+    }
+
+    public void close() {
+        for (TypeOutbox outbox : outboxes.values()) {
+            outbox.close();
+        }
+    }
+
+    @VisibleForTesting
+    boolean isSpooling(NotificationType type) {
+        return outboxes.get(type).isSpooling();
+    }
+
+    @VisibleForTesting
+    static String toSpoolLine(String key, String message) {
+        // JSON messages never contain a raw tab, so the first tab of the line separates the key
+        return StringUtils.defaultString(key) + KEY_SEPARATOR + message;
+    }
+
+    @VisibleForTesting
+    static String getKey(String spoolLine) {
+        int idx = spoolLine.indexOf(KEY_SEPARATOR);
+
+        return idx > 0 ? spoolLine.substring(0, idx) : null;
+    }
+
+    @VisibleForTesting
+    static String getMessage(String spoolLine) {
+        int idx = spoolLine.indexOf(KEY_SEPARATOR);
+
+        return idx >= 0 ? spoolLine.substring(idx + 1) : spoolLine;
+    }
+
+    private class TypeOutbox {
+        private final NotificationType type;
+        private final String           topic;
+        private final String           source;
+        private final IndexManagement  indexManagement;
+        private final Spooler          spooler;
+        private final Publisher        publisher;
+        private final Thread           publisherThread;
+        private final ExecutorService  spoolExecutor;
+        private final Counter          sentCounter;
+        private final Counter          failedCounter;
+        private final Counter          spooledCounter;
+        private final Counter          replayedCounter;
+
+        TypeOutbox(NotificationType type, Configuration configuration, String spoolDir, MeterRegistry meterRegistry) throws AtlasException {
+            SpoolConfiguration config = new SpoolConfiguration(configuration, KafkaNotification.class.getSimpleName());
+
+            config.setSource("atlas-outbox-" + type.name().toLowerCase(), System.getProperty("user.name"));
+            config.setSpoolDir(spoolDir);
+
+            this.type            = type;
+            this.topic           = kafka.getProducerTopicName(type);
+            this.source          = config.getSourceName();
+            this.indexManagement = new IndexManagement(config);
+
+            try {
+                indexManagement.init();
+            } catch (IOException e) {
+                throw new AtlasException(e);
+            }
+
+            this.spooler   = new Spooler(config, indexManagement);
+            this.publisher = new Publisher(config, indexManagement, new Replayer(type), type, false);
+
+            Tags tags = Tags.of("type", type.name());
+
+            this.sentCounter     = Counter.builder("notification_outbox_sent").tags(tags).register(meterRegistry);
+            this.failedCounter   = Counter.builder("notification_outbox_failed").tags(tags).register(meterRegistry);
+            this.spooledCounter  = Counter.builder("notification_outbox_spooled").tags(tags).register(meterRegistry);
+            this.replayedCounter = Counter.builder("notification_outbox_replayed").tags(tags).register(meterRegistry);
+
+            Gauge.builder("notification_outbox_spool_files", indexManagement, IndexManagement::getQueueSize).tags(tags).register(meterRegistry);
+
+            this.spoolExecutor   = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("notification-outbox-spooler-" + type.name().toLowerCase()).setDaemon(true).build());
+            this.publisherThread = new Thread(publisher, "notification-outbox-" + type.name().toLowerCase());
+
+            publisherThread.setDaemon(true);
+            publisherThread.setContextClassLoader(this.getClass().getClassLoader());
+            publisherThread.start();
+        }
+
+        boolean isSpooling() {
+            return indexManagement.isPending() || publisher.isDestinationDown();
+        }
+
+        void send(List<String> messages, List<String> keys) {
+            if (isSpooling()) {
+                spool(messages, keys, 0);
+
+                return;
+            }
+
+            Producer producer = kafka.getOrCreateProducer(type);
+
+            for (int i = 0; i < messages.size(); i++) {
+                if (!acquireSlot()) {
+                    LOG.warn("NotificationOutbox.send(source={}): {} records in flight for over {} ms; spooling", source, maxInFlight, maxBlockMs);
+
+                    publisher.setDestinationDown();
+
+                    spool(messages, keys, i);
+
+                    return;
+                }
+
+                final String message = messages.get(i);
+                final String key     = keys.get(i);
+
+                try {
+                    producer.send(new ProducerRecord(topic, key, message), (metadata, exception) -> onCompletion(key, message, exception));
+                } catch (Exception e) {
+                    inFlight.release();
+
+                    LOG.warn("NotificationOutbox.send(source={}): failed to send to Kafka; spooling", source, e);
+
+                    publisher.setDestinationDown();
+
+                    spool(messages, keys, i);
+
+                    return;
+                }
+            }
+        }
+
+        void close() {
+            spoolExecutor.shutdown();
+
+            try {
+                if (!spoolExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    LOG.error("NotificationOutbox.close(source={}): timed out waiting for notifications to be spooled", source);
+                }
+            } catch (InterruptedException e) {
+                LOG.error("NotificationOutbox.close(source={}): interrupted", source, e);
+
+                Thread.currentThread().interrupt();
+            }
+
+            spooler.setDrain();
+            publisher.setDrain();
+            indexManagement.stop();
+
+            try {
+                publisherThread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                LOG.error("NotificationOutbox.close(source={}): interrupted", source, e);
+
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private boolean acquireSlot() {
+            try {
+                return inFlight.tryAcquire(maxBlockMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                return false;
+            }
+        }
+
+        private void onCompletion(String key, String message, Exception exception) {
+            inFlight.release();
+
+            if (exception == null) {
+                sentCounter.increment();
+            } else {
+                failedCounter.increment();
+
+                LOG.warn("NotificationOutbox(source={}): Kafka failed record with key {}; spooling", source, key, exception);
+
+                publisher.setDestinationDown();
+
+                submitSpool(Collections.singletonList(toSpoolLine(key, message)));
+            }
+        }
+
+        // waits for the lines to be spooled, behind the records failed by Kafka that are yet to be spooled
+        private void spool(List<String> messages, List<String> keys, int fromIndex) {
+            List<String> lines = new ArrayList<>(messages.size() - fromIndex);
+
+            for (int i = fromIndex; i < messages.size(); i++) {
+                lines.add(toSpoolLine(keys.get(i), messages.get(i)));
+            }
+
+            Future<?> future = submitSpool(lines);
+
+            if (future != null) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    LOG.error("NotificationOutbox(source={}): failed to spool {} notifications", source, lines.size(), e.getCause());
+                }
+            }
+        }
+
+        private Future<?> submitSpool(List<String> lines) {
+            try {
+                return spoolExecutor.submit(() -> spoolLines(lines));
+            } catch (RejectedExecutionException e) {
+                LOG.error("NotificationOutbox(source={}): closed; dropping {} notifications", source, lines.size());
+
+                return null;
+            }
+        }
+
+        private void spoolLines(List<String> lines) {
+            if (spooler.spool(lines)) {
+                spooledCounter.increment(lines.size());
+            } else {
+                LOG.error("NotificationOutbox(source={}): failed to spool {} notifications", source, lines.size());
+            }
+        }
+
+        /**
+         * Replays spooled lines to Kafka, waiting for the acknowledgements so that the publisher moves past a
+         * spool file only once all its records are in Kafka.
+         */
+        private class Replayer extends AbstractNotification {
+            private final NotificationType type;
+
+            Replayer(NotificationType type) {
+                this.type = type;
+            }
+
+            @Override
+            public void sendInternal(NotificationType notificationType, List<String> lines) throws NotificationException {
+                List<String> messages = new ArrayList<>(lines.size());
+                List<String> keys     = new ArrayList<>(lines.size());
+
+                for (String line : lines) {
+                    keys.add(getKey(line));
+                    messages.add(getMessage(line));
+                }
+
+                kafka.sendInternalToProducer(kafka.getOrCreateProducer(type), type, messages, keys);
+
+                replayedCounter.increment(lines.size());
+            }
+
+            @Override
+            public boolean isReady(NotificationType notificationType) {
+                return kafka.isReady(notificationType);
+            }
+
+            @Override
+            public <T> List<NotificationConsumer<T>> createConsumers(NotificationType notificationType, int numConsumers) {
+                return null;
+            }
+
+            @Override
+            public void close() {
+            }
+        }
+    }
+}
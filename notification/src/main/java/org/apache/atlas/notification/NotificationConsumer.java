@@ -17,8 +17,10 @@
  */
 package org.apache.atlas.notification;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.apache.kafka.common.TopicPartition;
 import org.apache.atlas.kafka.AtlasKafkaMessage;
@@ -63,4 +65,23 @@ public interface NotificationConsumer<T> {
      * @return List containing kafka message and partionId and offset.
      */
     List<AtlasKafkaMessage<T>> receiveWithCheckedCommit(Map<TopicPartition, Long> lastCommittedPartitionOffset);
+
+    /**
+     * Stops fetching from the assigned partitions, until resume() is called: receive() returns no messages, while
+     * the consumer remains in its group. Partitions assigned afterwards in a rebalance are not paused.
+     */
+    default void pause() {
+    }
+
+    /**
+     * Resumes fetching from the partitions paused with pause().
+     */
+    default void resume() {
+    }
+
+    /**
+     * @param listener called from receive(), before partitions are revoked in a rebalance
+     */
+    default void setPartitionsRevokedListener(Consumer<Collection<TopicPartition>> listener) {
+    }
 }
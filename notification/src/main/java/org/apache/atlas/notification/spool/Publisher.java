@@ -20,7 +20,7 @@ package org.apache.atlas.notification.spool;
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.atlas.notification.AbstractNotification;
 import org.apache.atlas.notification.NotificationException;
-import org.apache.atlas.notification.NotificationInterface;
+import org.apache.atlas.notification.NotificationInterface.NotificationType;
 import org.apache.atlas.notification.spool.models.IndexRecord;
 import org.apache.atlas.notification.spool.utils.local.FileLockedReadWrite;
 import org.slf4j.Logger;
@@ -40,6 +40,8 @@ public class Publisher implements Runnable {
     private final SpoolConfiguration   configuration;
     private final IndexManagement      indexManagement;
     private final AbstractNotification notificationHandler;
+    private final NotificationType     notificationType;
+    private final boolean              pauseBeforeSend;
     private final String               notificationHandlerName;
     private final int                  retryDestinationMS;
     private final int                  messageBatchSize;
@@ -48,9 +50,16 @@ public class Publisher implements Runnable {
     private       boolean              isDestDown;
 
     public Publisher(SpoolConfiguration configuration, IndexManagement indexManagement, AbstractNotification notificationHandler) {
+        this(configuration, indexManagement, notificationHandler, NotificationType.HOOK, true);
+    }
+
+    public Publisher(SpoolConfiguration configuration, IndexManagement indexManagement, AbstractNotification notificationHandler,
+                     NotificationType notificationType, boolean pauseBeforeSend) {
         this.configuration           = configuration;
         this.indexManagement         = indexManagement;
         this.notificationHandler     = notificationHandler;
+        this.notificationType        = notificationType;
+        this.pauseBeforeSend         = pauseBeforeSend;
         this.notificationHandlerName = notificationHandler.getClass().getSimpleName();
         this.retryDestinationMS      = configuration.getRetryDestinationMS();
         this.messageBatchSize        = configuration.getMessageBatchSize();
@@ -107,7 +116,7 @@ public class Publisher implements Runnable {
     }
 
     private void checkAndWaitIfDestinationDown() throws InterruptedException {
-        isDestDown = !notificationHandler.isReady(NotificationInterface.NotificationType.HOOK);
+        isDestDown = !notificationHandler.isReady(notificationType);
         if (isDestDown) {
             LOG.info("Publisher.waitIfDestinationDown(source={}): {}: Destination is down. Sleeping for: {} ms. Queue: {} items",
                      this.source, notificationHandlerName, retryDestinationMS, indexManagement.getQueueSize());
@@ -196,7 +205,7 @@ public class Publisher implements Runnable {
         try {
             pauseBeforeSend();
 
-            notificationHandler.sendInternal(NotificationInterface.NotificationType.HOOK, messages);
+            notificationHandler.sendInternal(notificationType, messages);
 
             if (isDestDown) {
                 LOG.info("Publisher.dispatch(source={}): consumer={}: destination is now up. file={}", this.source, notificationHandlerName, filePath);
@@ -229,7 +238,7 @@ public class Publisher implements Runnable {
      * @throws InterruptedException
      */
     private void pauseBeforeSend() throws InterruptedException {
-        if (!configuration.isHiveMetaStore()) {
+        if (pauseBeforeSend && !configuration.isHiveMetaStore()) {
             int waitMs = configuration.getPauseBeforeSendSec() * 1000;
             LOG.info("Waiting before dispatch: {}", waitMs);
             Thread.sleep(waitMs);
@@ -64,10 +64,21 @@ public class Spooler extends AbstractNotification {
             messages.set(i, AtlasType.toV1Json(e));
         }
 
-        boolean ret = write(messages);
+        spool(messages);
+    }
+
+    /**
+     * Writes the lines to the spool as they are; lines that can't be written go to the failed messages log.
+     *
+     * @return true if the lines were written to the spool
+     */
+    public boolean spool(List<String> lines) {
+        boolean ret = write(lines);
         if (failedMessagesLogger != null && !ret) {
-            writeToFailedMessages(messages);
+            writeToFailedMessages(lines);
         }
+
+        return ret;
     }
 
     @Override
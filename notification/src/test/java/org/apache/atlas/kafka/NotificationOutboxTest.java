@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.kafka;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.atlas.model.instance.AtlasEntityHeader;
+import org.apache.atlas.model.notification.EntityNotification.EntityNotificationV2;
+import org.apache.atlas.model.notification.EntityNotification.EntityNotificationV2.OperationType;
+import org.apache.atlas.notification.NotificationInterface.NotificationType;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Future;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class NotificationOutboxTest {
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEntityNotificationsAreKeyedByGuid() throws Exception {
+        KafkaProducer producer = mock(KafkaProducer.class);
+        Future        future   = mock(Future.class);
+
+        when(producer.send(any(ProducerRecord.class))).thenReturn(future);
+        when(future.get()).thenReturn(mock(RecordMetadata.class));
+
+        KafkaNotification kafka = new TestKafkaNotification(producer);
+
+        kafka.send(NotificationType.ENTITIES, Arrays.asList(newNotification("guid-1"), newNotification("guid-2")));
+
+        ArgumentCaptor<ProducerRecord> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+
+        verify(producer, times(2)).send(captor.capture());
+
+        List<ProducerRecord> records = captor.getAllValues();
+
+        assertEquals(records.get(0).key(), "guid-1");
+        assertEquals(records.get(1).key(), "guid-2");
+        assertEquals(records.get(0).topic(), KafkaNotification.ATLAS_ENTITIES_TOPIC);
+    }
+
+    @Test
+    public void testSpoolLineRoundTrip() {
+        String message = "{\"message\":{\"entity\":{\"guid\":\"guid-1\"}}}";
+        String line    = NotificationOutbox.toSpoolLine("guid-1", message);
+
+        assertEquals(NotificationOutbox.getKey(line), "guid-1");
+        assertEquals(NotificationOutbox.getMessage(line), message);
+
+        line = NotificationOutbox.toSpoolLine(null, message);
+
+        assertNull(NotificationOutbox.getKey(line));
+        assertEquals(NotificationOutbox.getMessage(line), message);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFailedRecordsAreSpooled() throws Exception {
+        KafkaProducer producer = mock(KafkaProducer.class);
+
+        doAnswer(invocation -> {
+            ((Callback) invocation.getArguments()[1]).onCompletion(null, new TimeoutException("broker unavailable"));
+
+            return null;
+        }).when(producer).send(any(ProducerRecord.class), any(Callback.class));
+
+        File                    spoolDir      = Files.createTempDirectory("atlas-outbox").toFile();
+        PropertiesConfiguration configuration = new PropertiesConfiguration();
+        SimpleMeterRegistry     meterRegistry = new SimpleMeterRegistry();
+
+        configuration.setProperty("atlas.hook.spool.destination.retry.ms", 100);
+
+        KafkaNotification  kafka  = new TestKafkaNotification(producer);
+        NotificationOutbox outbox = new NotificationOutbox(kafka, configuration, spoolDir.getAbsolutePath(), 10, 100, meterRegistry);
+
+        try {
+            assertFalse(outbox.isSpooling(NotificationType.ENTITIES));
+
+            outbox.send(NotificationType.ENTITIES, Collections.singletonList("message-1"), Collections.singletonList("guid-1"));
+
+            assertTrue(outbox.isSpooling(NotificationType.ENTITIES));
+            assertEquals(meterRegistry.get("notification_outbox_failed").tag("type", "ENTITIES").counter().count(), 1.0);
+            assertEquals(meterRegistry.get("notification_outbox_in_flight").gauge().value(), 0.0);
+
+            // later records of the type go straight to the spool, behind the failed one
+            outbox.send(NotificationType.ENTITIES, Collections.singletonList("message-2"), Collections.singletonList("guid-1"));
+
+            verify(producer, times(1)).send(any(ProducerRecord.class), any(Callback.class));
+            assertEquals(meterRegistry.get("notification_outbox_spooled").tag("type", "ENTITIES").counter().count(), 2.0);
+        } finally {
+            outbox.close();
+        }
+    }
+
+    private static EntityNotificationV2 newNotification(String guid) {
+        AtlasEntityHeader entity = new AtlasEntityHeader("Table");
+
+        entity.setGuid(guid);
+
+        return new EntityNotificationV2(entity, OperationType.ENTITY_UPDATE);
+    }
+
+    private static class TestKafkaNotification extends KafkaNotification {
+        private final KafkaProducer producer;
+
+        TestKafkaNotification(KafkaProducer producer) {
+            super(new Properties());
+
+            this.producer = producer;
+        }
+
+        @Override
+        KafkaProducer getOrCreateProducer(NotificationType notificationType) {
+            return producer;
+        }
+    }
+}
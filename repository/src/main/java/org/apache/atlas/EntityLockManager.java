@@ -0,0 +1,430 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.atlas;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.service.metrics.MetricUtils;
+import org.apache.atlas.service.redis.RedisService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Entity locks of a thread, held until released together at the end of its graph transaction.
+ *
+ * The map of locks is striped, so that threads locking different entities don't contend on a single monitor.
+ * Locks are acquired with a timeout (atlas.entity.lock.timeout.ms; 0 to wait indefinitely), failing with
+ * FAILED_TO_OBTAIN_ENTITY_LOCK. Wait and hold times are recorded per caller - the entry point of the transaction -
+ * and locks held longer than atlas.entity.lock.long.hold.threshold.ms are reported. When a RedisService is set,
+ * a lease in Redis additionally excludes threads of other Atlas instances; leases of held locks are renewed
+ * periodically, so that they don't expire while a long transaction is in progress.
+ */
+public class EntityLockManager {
+    private static final Logger LOG = LoggerFactory.getLogger(EntityLockManager.class);
+
+    static final String REDIS_LOCK_KEY_PREFIX = "atlas:entity:lock:";
+
+    private static final String UNKNOWN_CALLER          = "unknown";
+    private static final long   REDIS_RETRY_INTERVAL_MS = 50;
+    private static final long   MIN_SCAN_INTERVAL_MS    = 1000;
+
+    private final List<Map<String, EntityLock>> stripes;
+    private final Map<String, EntityLock>       heldLocks   = new ConcurrentHashMap<>();
+    private final AtomicInteger                 longHolders = new AtomicInteger();
+    private final ThreadLocal<List<String>>     lockedGuids = ThreadLocal.withInitial(ArrayList::new);
+    private final ThreadLocal<String>           caller      = ThreadLocal.withInitial(() -> UNKNOWN_CALLER);
+    private final long                          timeoutMs;
+    private final long                          longHoldThresholdMs;
+    private final long                          redisLeaseMs;
+    private final MeterRegistry                 meterRegistry;
+    private final String                        nodeId;
+    private volatile RedisService               redisService;
+
+    public EntityLockManager() {
+        this(AtlasConfiguration.ENTITY_LOCK_STRIPES.getInt(), AtlasConfiguration.ENTITY_LOCK_TIMEOUT_MS.getLong(),
+             AtlasConfiguration.ENTITY_LOCK_LONG_HOLD_THRESHOLD_MS.getLong(), AtlasConfiguration.ENTITY_LOCK_REDIS_LEASE_MS.getLong(),
+             MetricUtils.getMeterRegistry());
+    }
+
+    EntityLockManager(int stripeCount, long timeoutMs, long longHoldThresholdMs, long redisLeaseMs, MeterRegistry meterRegistry) {
+        this.stripes             = new ArrayList<>(Math.max(1, stripeCount));
+        this.timeoutMs           = timeoutMs;
+        this.longHoldThresholdMs = longHoldThresholdMs;
+        this.redisLeaseMs        = redisLeaseMs;
+        this.meterRegistry       = meterRegistry;
+        this.nodeId              = getHostName() + ":" + UUID.randomUUID();
+
+        for (int i = 0; i < Math.max(1, stripeCount); i++) {
+            stripes.add(new HashMap<>());
+        }
+
+        Gauge.builder("entity_lock_long_holders", longHolders, AtomicInteger::get).register(meterRegistry);
+
+        if (longHoldThresholdMs > 0 || redisLeaseMs > 0) {
+            ScheduledExecutorService scanner = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("entity-lock-monitor-%d").setDaemon(true).build());
+
+            if (longHoldThresholdMs > 0) {
+                long scanIntervalMs = Math.max(MIN_SCAN_INTERVAL_MS, longHoldThresholdMs / 4);
+
+                scanner.scheduleWithFixedDelay(this::detectLongHolders, scanIntervalMs, scanIntervalMs, TimeUnit.MILLISECONDS);
+            }
+
+            if (redisLeaseMs > 0) {
+                long renewIntervalMs = Math.max(1, redisLeaseMs / 3);
+
+                scanner.scheduleWithFixedDelay(this::renewLeases, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Enables locking across Atlas instances, with leases in Redis.
+     */
+    public void setRedisService(RedisService redisService) {
+        this.redisService = redisService;
+    }
+
+    /**
+     * Sets the name the locks of the current thread are recorded under, until cleared.
+     */
+    public void setCaller(String name) {
+        caller.set(name);
+    }
+
+    public void clearCaller() {
+        caller.remove();
+    }
+
+    public void lockObject(final List<?> guids) throws AtlasBaseException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("==> lockObject(): guids: {}", guids);
+        }
+
+        // a consistent order across threads avoids deadlocks between overlapping lists
+        List<String> sortedGuids = new ArrayList<>((List<String>) guids);
+
+        Collections.sort(sortedGuids);
+
+        for (String guid : sortedGuids) {
+            lockObject(guid);
+        }
+    }
+
+    public void lockObject(final String guid) throws AtlasBaseException {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("==> lockObject(): guid: {}", guid);
+        }
+
+        long       startNanos = System.nanoTime();
+        EntityLock lock       = getOrCreateObjectLock(guid);
+        boolean    isLocked   = false;
+
+        try {
+            if (timeoutMs > 0) {
+                isLocked = lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS);
+            } else {
+                lock.lock();
+
+                isLocked = true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (isLocked && lock.getHoldCount() == 1) {
+            if (redisService != null && !acquireLease(guid, startNanos)) {
+                lock.unlock();
+
+                isLocked = false;
+            } else {
+                lock.onAcquired(caller.get(), redisService != null ? getLeaseOwner() : null);
+
+                heldLocks.put(guid, lock);
+            }
+        }
+
+        if (!isLocked) {
+            releaseObjectLockReference(guid, lock);
+
+            recordWait(startNanos, "timeout");
+
+            LOG.warn("lockObject(): failed to lock {} within {} ms, caller={}", guid, timeoutMs, caller.get());
+
+            throw new AtlasBaseException(AtlasErrorCode.FAILED_TO_OBTAIN_ENTITY_LOCK, guid, String.valueOf(timeoutMs));
+        }
+
+        recordWait(startNanos, "acquired");
+
+        lockedGuids.get().add(guid);
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<== lockObject(): guid: {}", guid);
+        }
+    }
+
+    public void releaseLockedObjects() {
+        List<String> guids = lockedGuids.get();
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("==> releaseLockedObjects(): lockedGuids.size: {}", guids.size());
+        }
+
+        for (String guid : guids) {
+            releaseObjectLock(guid);
+        }
+
+        guids.clear();
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("<== releaseLockedObjects()");
+        }
+    }
+
+    /**
+     * @return number of locks held longer than the threshold; each is logged once per hold
+     */
+    int detectLongHolders() {
+        int  ret = 0;
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<String, EntityLock> entry : heldLocks.entrySet()) {
+            EntityLock lock     = entry.getValue();
+            long       heldTime = lock.getHeldTime(now);
+
+            if (longHoldThresholdMs > 0 && heldTime >= longHoldThresholdMs) {
+                ret++;
+
+                if (lock.markReported()) {
+                    LOG.warn("entity lock on {} held for {} ms by thread {}, caller={}", entry.getKey(), heldTime, lock.getHolderName(), lock.getCaller());
+
+                    Counter.builder("entity_lock_long_holds").tag("caller", lock.getCaller()).register(meterRegistry).increment();
+                }
+            }
+        }
+
+        longHolders.set(ret);
+
+        return ret;
+    }
+
+    /**
+     * @return number of held locks whose Redis lease could not be renewed
+     */
+    int renewLeases() {
+        RedisService redisService = this.redisService;
+        int          ret          = 0;
+
+        if (redisService == null) {
+            return ret;
+        }
+
+        for (Map.Entry<String, EntityLock> entry : heldLocks.entrySet()) {
+            EntityLock lock = entry.getValue();
+
+            if (!lock.renewLease(redisService, REDIS_LOCK_KEY_PREFIX + entry.getKey(), redisLeaseMs)) {
+                ret++;
+
+                LOG.warn("entity lock on {}: failed to renew the Redis lease; another instance may lock it once the lease expires, thread {}, caller={}", entry.getKey(), lock.getHolderName(), lock.getCaller());
+
+                Counter.builder("entity_lock_lease_renewal_failures").tag("caller", lock.getCaller()).register(meterRegistry).increment();
+            }
+        }
+
+        return ret;
+    }
+
+    private Map<String, EntityLock> getStripe(String guid) {
+        return stripes.get((guid.hashCode() & Integer.MAX_VALUE) % stripes.size());
+    }
+
+    private EntityLock getOrCreateObjectLock(String guid) {
+        Map<String, EntityLock> stripe = getStripe(guid);
+
+        synchronized (stripe) {
+            EntityLock ret = stripe.computeIfAbsent(guid, k -> new EntityLock());
+
+            ret.increment();
+
+            return ret;
+        }
+    }
+
+    private void releaseObjectLockReference(String guid, EntityLock lock) {
+        Map<String, EntityLock> stripe = getStripe(guid);
+
+        synchronized (stripe) {
+            if (lock.decrement() == 0) {
+                stripe.remove(guid);
+            }
+        }
+    }
+
+    private void releaseObjectLock(String guid) {
+        Map<String, EntityLock> stripe = getStripe(guid);
+        EntityLock              lock;
+
+        synchronized (stripe) {
+            lock = stripe.get(guid);
+        }
+
+        if (lock == null || !lock.isHeldByCurrentThread()) {
+            LOG.warn("releaseLockedObjects: {} Attempting to release a lock not held by current thread.", guid);
+
+            return;
+        }
+
+        if (lock.getHoldCount() == 1) {
+            heldLocks.remove(guid, lock);
+
+            Timer.builder("entity_lock_hold_duration").tag("caller", lock.getCaller()).publishPercentileHistogram()
+                 .register(meterRegistry).record(lock.getHeldTime(System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+
+            lock.releaseLease(redisService, REDIS_LOCK_KEY_PREFIX + guid);
+        }
+
+        synchronized (stripe) {
+            if (lock.decrement() == 0) {
+                stripe.remove(guid);
+            }
+
+            lock.unlock();
+        }
+    }
+
+    private boolean acquireLease(String guid, long startNanos) {
+        String key   = REDIS_LOCK_KEY_PREFIX + guid;
+        String owner = getLeaseOwner();
+
+        while (!redisService.acquireLease(key, owner, redisLeaseMs)) {
+            if (timeoutMs > 0 && System.nanoTime() - startNanos >= TimeUnit.MILLISECONDS.toNanos(timeoutMs)) {
+                return false;
+            }
+
+            try {
+                Thread.sleep(REDIS_RETRY_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private String getLeaseOwner() {
+        return nodeId + ":" + Thread.currentThread().getId();
+    }
+
+    private void recordWait(long startNanos, String outcome) {
+        Timer.builder("entity_lock_wait_duration").tag("caller", caller.get()).tag("outcome", outcome).publishPercentileHistogram()
+             .register(meterRegistry).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String getHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "localhost";
+        }
+    }
+
+    private static class EntityLock extends ReentrantLock {
+        private final Object     leaseMonitor = new Object();
+        private int              refCount; // guarded by the stripe
+        private String           leaseOwner; // guarded by leaseMonitor
+        private volatile long    heldSince;
+        private volatile String  holderName;
+        private volatile String  caller = UNKNOWN_CALLER;
+        private volatile boolean isReported;
+
+        int increment() {
+            return ++refCount;
+        }
+
+        int decrement() {
+            return --refCount;
+        }
+
+        void onAcquired(String caller, String leaseOwner) {
+            this.heldSince  = System.currentTimeMillis();
+            this.holderName = Thread.currentThread().getName();
+            this.caller     = caller;
+            this.isReported = false;
+
+            synchronized (leaseMonitor) {
+                this.leaseOwner = leaseOwner;
+            }
+        }
+
+        // renewal and release are serialized, so that a renewal racing with the release doesn't take the lease again
+        boolean renewLease(RedisService redisService, String key, long leaseMs) {
+            synchronized (leaseMonitor) {
+                return leaseOwner == null || redisService.acquireLease(key, leaseOwner, leaseMs);
+            }
+        }
+
+        void releaseLease(RedisService redisService, String key) {
+            synchronized (leaseMonitor) {
+                if (leaseOwner != null) {
+                    redisService.releaseLease(key, leaseOwner);
+
+                    leaseOwner = null;
+                }
+            }
+        }
+
+        long getHeldTime(long now) {
+            return now - heldSince;
+        }
+
+        String getHolderName() {
+            return holderName;
+        }
+
+        String getCaller() {
+            return caller;
+        }
+
+        boolean markReported() {
+            boolean ret = !isReported;
+
+            isReported = true;
+
+            return ret;
+        }
+    }
+}
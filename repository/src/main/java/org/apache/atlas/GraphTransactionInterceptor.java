@@ -17,7 +17,6 @@
 
 package org.apache.atlas;
 
-import com.google.common.annotations.VisibleForTesting;
 import org.aopalliance.intercept.MethodInterceptor;
 import org.aopalliance.intercept.MethodInvocation;
 import org.apache.atlas.annotation.GraphTransaction;
@@ -26,6 +25,7 @@ import org.apache.atlas.exception.NotFoundException;
 import org.apache.atlas.model.instance.AtlasEntity;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.service.redis.RedisService;
 import org.apache.atlas.utils.AtlasPerfMetrics.MetricRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,20 +35,17 @@ import javax.inject.Inject;
 import javax.ws.rs.core.Response;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
 
 @Component
 public class GraphTransactionInterceptor implements MethodInterceptor {
     private static final Logger LOG = LoggerFactory.getLogger(GraphTransactionInterceptor.class);
 
-    @VisibleForTesting
-    private static final ObjectUpdateSynchronizer               OBJECT_UPDATE_SYNCHRONIZER = new ObjectUpdateSynchronizer();
+    private static final EntityLockManager                      ENTITY_LOCK_MANAGER        = new EntityLockManager();
     private static final ThreadLocal<List<PostTransactionHook>> postTransactionHooks       = new ThreadLocal<>();
+    private static final ThreadLocal<List<PreCommitHook>>       preCommitHooks             = new ThreadLocal<>();
     private static final ThreadLocal<Boolean>                   isTxnOpen                  = ThreadLocal.withInitial(() -> Boolean.FALSE);
     private static final ThreadLocal<Boolean>                   innerFailure               = ThreadLocal.withInitial(() -> Boolean.FALSE);
     private static final ThreadLocal<Map<String, AtlasVertex>>  guidVertexCache            = ThreadLocal.withInitial(() -> new HashMap<>());
@@ -79,11 +76,19 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
                 }
             };
 
-    @Inject
     public GraphTransactionInterceptor(AtlasGraph graph) {
         this.graph          = graph;
     }
 
+    @Inject
+    public GraphTransactionInterceptor(AtlasGraph graph, RedisService redisService) {
+        this(graph);
+
+        if (AtlasConfiguration.ENTITY_LOCK_REDIS_ENABLED.getBoolean()) {
+            ENTITY_LOCK_MANAGER.setRedisService(redisService);
+        }
+    }
+
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
         Method        method            = invocation.getMethod();
@@ -99,6 +104,10 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
             LOG.debug("Txn entry-point {}.{} is inner txn. Commit/Rollback will be ignored", invokingClass, invokedMethodName);
         }
 
+        if (!isInnerTxn) {
+            ENTITY_LOCK_MANAGER.setCaller(invokingClass + "." + invokedMethodName);
+        }
+
         boolean isSuccess = false;
         MetricRecorder metric = null;
 
@@ -146,6 +155,7 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
                 // Reset the boolean flags
                 isTxnOpen.set(Boolean.FALSE);
                 innerFailure.set(Boolean.FALSE);
+                preCommitHooks.remove();
                 clearCache();
 
                 List<PostTransactionHook> trxHooks = postTransactionHooks.get();
@@ -167,7 +177,11 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
                 }
             }
 
-            OBJECT_UPDATE_SYNCHRONIZER.releaseLockedObjects();
+            ENTITY_LOCK_MANAGER.releaseLockedObjects();
+
+            if (!isInnerTxn) {
+                ENTITY_LOCK_MANAGER.clearCaller();
+            }
         }
     }
 
@@ -187,7 +201,7 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
 
 
 
-    private void doCommitOrRollback(final String invokingClass, final String invokedMethodName) {
+    private void doCommitOrRollback(final String invokingClass, final String invokedMethodName) throws AtlasBaseException {
         if (innerFailure.get()) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Inner/Nested call threw exception. Rollback on txn entry-point, {}.{}", invokingClass, invokedMethodName);
@@ -198,7 +212,17 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
         }
     }
 
-    private void doCommit(final String invokingClass, final String invokedMethodName) {
+    private void doCommit(final String invokingClass, final String invokedMethodName) throws AtlasBaseException {
+        List<PreCommitHook> hooks = preCommitHooks.get();
+
+        if (hooks != null) {
+            preCommitHooks.remove();
+
+            for (PreCommitHook hook : hooks) {
+                hook.beforeCommit();
+            }
+        }
+
         graph.commit();
 
         if (LOG.isDebugEnabled()) {
@@ -218,12 +242,16 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
         graph.rollback();
     }
 
-    public static void lockObjectAndReleasePostCommit(final String guid) {
-        OBJECT_UPDATE_SYNCHRONIZER.lockObject(guid);
+    public static boolean isTransactionOpen() {
+        return isTxnOpen.get();
     }
 
-    public static void lockObjectAndReleasePostCommit(final List<String> guids) {
-        OBJECT_UPDATE_SYNCHRONIZER.lockObject(guids);
+    public static void lockObjectAndReleasePostCommit(final String guid) throws AtlasBaseException {
+        ENTITY_LOCK_MANAGER.lockObject(guid);
+    }
+
+    public static void lockObjectAndReleasePostCommit(final List<String> guids) throws AtlasBaseException {
+        ENTITY_LOCK_MANAGER.lockObject(guids);
     }
 
     public static void addToVertexCache(String guid, AtlasVertex vertex) {
@@ -343,106 +371,24 @@ public class GraphTransactionInterceptor implements MethodInterceptor {
         public abstract void onComplete(boolean isSuccess);
     }
 
-    private static class RefCountedReentrantLock extends ReentrantLock {
-        private int refCount;
-
-        public RefCountedReentrantLock() {
-            this.refCount = 0;
-        }
-
-        public int increment() {
-            return ++refCount;
-        }
-
-        public int decrement() {
-            return --refCount;
-        }
-
-        public int getRefCount() { return refCount; }
-    }
-
-
-    public static class ObjectUpdateSynchronizer {
-        private final Map<String, RefCountedReentrantLock> guidLockMap = new ConcurrentHashMap<>();
-        private final ThreadLocal<List<String>>  lockedGuids = new ThreadLocal<List<String>>() {
-            @Override
-            protected List<String> initialValue() {
-                return new ArrayList<>();
-            }
-        };
-
-        public void lockObject(final List<?> guids) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("==> lockObject(): guids: {}", guids);
-            }
-
-            Collections.sort((List<String>) guids);
-            for (String g : (List<String>) guids) {
-                lockObject(g);
-            }
-        }
-
-        private void lockObject(final String guid) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("==> lockObject(): guid: {}, guidLockMap.size: {}", guid, guidLockMap.size());
-            }
-
-            ReentrantLock lock = getOrCreateObjectLock(guid);
-            lock.lock();
+    /**
+     * Hook called before the outermost transaction is committed; an exception thrown by the hook rolls back the
+     * transaction. Not called when the transaction is rolled back; onComplete() is called in either case.
+     */
+    public static abstract class PreCommitHook extends PostTransactionHook {
+        protected PreCommitHook() {
+            super();
 
-            lockedGuids.get().add(guid);
+            List<PreCommitHook> hooks = preCommitHooks.get();
 
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("<== lockObject(): guid: {}, guidLockMap.size: {}", guid, guidLockMap.size());
-            }
-        }
-
-        public void releaseLockedObjects() {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("==> releaseLockedObjects(): lockedGuids.size: {}", lockedGuids.get().size());
-            }
-
-            for (String guid : lockedGuids.get()) {
-                releaseObjectLock(guid);
+            if (hooks == null) {
+                hooks = new ArrayList<>();
+                preCommitHooks.set(hooks);
             }
 
-            lockedGuids.get().clear();
-
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("<== releaseLockedObjects(): lockedGuids.size: {}", lockedGuids.get().size());
-            }
-        }
-
-        private RefCountedReentrantLock getOrCreateObjectLock(String guid) {
-            synchronized (guidLockMap) {
-                RefCountedReentrantLock ret = guidLockMap.get(guid);
-                if (ret == null) {
-                    ret = new RefCountedReentrantLock();
-                    guidLockMap.put(guid, ret);
-                }
-
-                ret.increment();
-                return ret;
-            }
+            hooks.add(this);
         }
 
-        private RefCountedReentrantLock releaseObjectLock(String guid) {
-            synchronized (guidLockMap) {
-                RefCountedReentrantLock lock = guidLockMap.get(guid);
-                if (lock != null && lock.isHeldByCurrentThread()) {
-                    int refCount = lock.decrement();
-
-                    if (refCount == 0) {
-                        guidLockMap.remove(guid);
-                    }
-
-                    lock.unlock();
-                } else {
-                    LOG.warn("releaseLockedObjects: {} Attempting to release a lock not held by current thread.", guid);
-                }
-
-                return lock;
-            }
-        }
+        public abstract void beforeCommit() throws AtlasBaseException;
     }
 }
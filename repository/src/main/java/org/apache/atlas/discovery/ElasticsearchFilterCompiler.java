@@ -0,0 +1,665 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.discovery;
+
+import org.apache.atlas.SortOrder;
+import org.apache.atlas.model.discovery.SearchParameters;
+import org.apache.atlas.model.discovery.SearchParameters.FilterCriteria;
+import org.apache.atlas.model.discovery.SearchParameters.FilterCriteria.Condition;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.typedef.AtlasBaseTypeDef;
+import org.apache.atlas.model.typedef.AtlasStructDef.AtlasAttributeDef;
+import org.apache.atlas.type.AtlasClassificationType;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasEnumType;
+import org.apache.atlas.type.AtlasStructType;
+import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
+import org.apache.atlas.type.AtlasType;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang.StringUtils;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.apache.atlas.discovery.SearchContext.MATCH_ALL_CLASSIFICATION_TYPES;
+import static org.apache.atlas.discovery.SearchContext.MATCH_ALL_CLASSIFIED;
+import static org.apache.atlas.discovery.SearchContext.MATCH_ALL_ENTITY_TYPES;
+import static org.apache.atlas.discovery.SearchContext.MATCH_ALL_NOT_CLASSIFIED;
+import static org.apache.atlas.discovery.SearchContext.MATCH_ALL_WILDCARD_CLASSIFICATION;
+import static org.apache.atlas.model.discovery.SearchParameters.WILDCARD_CLASSIFICATIONS;
+import static org.apache.atlas.repository.Constants.ATTRIBUTE_VALUE_DELIMITER;
+import static org.apache.atlas.repository.Constants.CLASSIFICATION_NAMES_KEY;
+import static org.apache.atlas.repository.Constants.CLASSIFICATION_NAME_DELIMITER;
+import static org.apache.atlas.repository.Constants.CREATED_BY_KEY;
+import static org.apache.atlas.repository.Constants.CUSTOM_ATTRIBUTES_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.GUID_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.LABELS_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.MODIFIED_BY_KEY;
+import static org.apache.atlas.repository.Constants.PROPAGATED_CLASSIFICATION_NAMES_KEY;
+import static org.apache.atlas.repository.Constants.PROPAGATED_TRAIT_NAMES_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.STATE_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.TRAIT_NAMES_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.TYPE_NAME_PROPERTY_KEY;
+
+/**
+ * Compiles a basic search on entity types - entity types and their sub-types, classification and propagated
+ * classification names, state, entity filter criteria and sort - into a single Elasticsearch query on the vertex index.
+ *
+ * A criteria is compiled only when the query matches the same entities as the in-memory predicates of
+ * EntitySearchProcessor; for example, filters on tokenized text fields are not compiled, as a query on the tokens
+ * can't tell an exact value from one that contains the same words. Criteria not compiled are listed in the result,
+ * with the reason, and the search then runs through the search processors with in-memory filtering.
+ *
+ * Classification names are matched on __traitNames/__propagatedTraitNames, which hold the names in
+ * __classificationNames/__propagatedClassificationNames as keywords. Names of a wildcard classification search are
+ * matched regardless of the case, like the in-memory regex on the pipe-delimited names; a wildcard within a name
+ * isn't compiled, as the regex can match it across names. Type names are matched on __typeName.keyword,
+ * like other queries in the repository; the keyword is normalized to lower case, and type names are unique
+ * regardless of the case.
+ */
+public class ElasticsearchFilterCompiler {
+    private static final String KEYWORD_FIELD_SUFFIX = ".keyword";
+    private static final String KEYWORD_FIELD_NAME   = "keyword";
+    private static final String ES_TYPE              = "type";
+    private static final String ES_TYPE_KEYWORD      = "keyword";
+    private static final String ES_NORMALIZER        = "normalizer";
+
+    // system attributes indexed as keyword: attribute name -> field with the value
+    private static final Map<String, String> SYSTEM_KEYWORD_FIELDS      = new HashMap<>();
+    // pipe-delimited system attributes with classification names: attribute name -> keyword field with the names
+    private static final Map<String, String> CLASSIFICATION_NAME_FIELDS = new HashMap<>();
+
+    static {
+        SYSTEM_KEYWORD_FIELDS.put(GUID_PROPERTY_KEY, GUID_PROPERTY_KEY);
+        SYSTEM_KEYWORD_FIELDS.put(STATE_PROPERTY_KEY, STATE_PROPERTY_KEY);
+        SYSTEM_KEYWORD_FIELDS.put(CREATED_BY_KEY, CREATED_BY_KEY);
+        SYSTEM_KEYWORD_FIELDS.put(MODIFIED_BY_KEY, MODIFIED_BY_KEY);
+        SYSTEM_KEYWORD_FIELDS.put(TYPE_NAME_PROPERTY_KEY, TYPE_NAME_PROPERTY_KEY + KEYWORD_FIELD_SUFFIX);
+
+        CLASSIFICATION_NAME_FIELDS.put(CLASSIFICATION_NAMES_KEY, TRAIT_NAMES_PROPERTY_KEY);
+        CLASSIFICATION_NAME_FIELDS.put(PROPAGATED_CLASSIFICATION_NAMES_KEY, PROPAGATED_TRAIT_NAMES_PROPERTY_KEY);
+    }
+
+    // classification names hold letters, digits, space and underscore; wildcards at the ends match within a name
+    private static final Pattern COMPILABLE_WILDCARD_CLASSIFICATION = Pattern.compile("\\**[\\w ]+\\**");
+
+    private enum FieldType { KEYWORD, INTEGER, DECIMAL, BOOLEAN }
+
+    private final SearchContext context;
+
+    public ElasticsearchFilterCompiler(SearchContext context) {
+        this.context = context;
+    }
+
+    public CompiledQuery compile() {
+        SearchParameters searchParameters = context.getSearchParameters();
+        BoolQueryBuilder query            = QueryBuilders.boolQuery();
+        List<String>     inMemoryCriteria = new ArrayList<>();
+
+        if (StringUtils.isNotEmpty(searchParameters.getQuery())) {
+            inMemoryCriteria.add("query '" + searchParameters.getQuery() + "': full-text search runs on its own query");
+        }
+
+        if (StringUtils.isNotEmpty(searchParameters.getTermName())) {
+            inMemoryCriteria.add("termName '" + searchParameters.getTermName() + "': entities assigned to the term are read from the graph");
+        }
+
+        if (context.hasAttributeFilter(searchParameters.getTagFilters())) {
+            inMemoryCriteria.add("tagFilters: classification attributes are stored in classification vertices");
+        }
+
+        if (CollectionUtils.isEmpty(context.getEntityTypes())) {
+            inMemoryCriteria.add("typeName: classification search without entity types runs on classification vertices");
+        } else {
+            query.filter(compileTypeFilter());
+        }
+
+        QueryBuilder classificationFilter = compileClassificationFilter(inMemoryCriteria);
+
+        if (classificationFilter != null) {
+            query.filter(classificationFilter);
+        }
+
+        if (searchParameters.getExcludeDeletedEntities()) {
+            query.filter(QueryBuilders.termQuery(STATE_PROPERTY_KEY, AtlasEntity.Status.ACTIVE.name()));
+        }
+
+        if (CollectionUtils.isNotEmpty(context.getEntityTypes()) && context.hasAttributeFilter(searchParameters.getEntityFilters())) {
+            QueryBuilder filterQuery = compileCriteria(context.getEntityTypes(), searchParameters.getEntityFilters(), inMemoryCriteria);
+
+            if (filterQuery != null) {
+                query.filter(filterQuery);
+            }
+        }
+
+        String sortField = null;
+
+        if (CollectionUtils.isNotEmpty(context.getEntityTypes()) && StringUtils.isNotEmpty(searchParameters.getSortBy())) {
+            sortField = getSortField(searchParameters.getSortBy(), inMemoryCriteria);
+        }
+
+        return new CompiledQuery(query, sortField, searchParameters.getSortOrder(), inMemoryCriteria);
+    }
+
+    private QueryBuilder compileTypeFilter() {
+        final Collection<String> typeNames;
+
+        if (context.getEntityTypes().iterator().next() == MATCH_ALL_ENTITY_TYPES) {
+            // same as the in-memory check for entity vertices: any entity type, other than internal types
+            typeNames = context.getTypeRegistry().getAllEntityTypes().stream()
+                               .filter(entityType -> !entityType.isInternalType())
+                               .map(AtlasEntityType::getTypeName)
+                               .collect(Collectors.toList());
+        } else {
+            typeNames = context.getEntityTypeNames();
+        }
+
+        return QueryBuilders.termsQuery(TYPE_NAME_PROPERTY_KEY + KEYWORD_FIELD_SUFFIX, typeNames);
+    }
+
+    private QueryBuilder compileClassificationFilter(List<String> inMemoryCriteria) {
+        Set<AtlasClassificationType> classificationTypes = context.getClassificationTypes();
+
+        // names like 'pii*' resolve to no classification type, but still filter
+        if (CollectionUtils.isEmpty(classificationTypes) && !context.isWildCardSearch()) {
+            return null;
+        }
+
+        AtlasClassificationType classificationType = CollectionUtils.isEmpty(classificationTypes) ? null : classificationTypes.iterator().next();
+        BoolQueryBuilder        ret                = QueryBuilders.boolQuery();
+
+        if (classificationType == MATCH_ALL_NOT_CLASSIFIED) {
+            ret.mustNot(QueryBuilders.existsQuery(TRAIT_NAMES_PROPERTY_KEY))
+               .mustNot(QueryBuilders.existsQuery(PROPAGATED_TRAIT_NAMES_PROPERTY_KEY));
+        } else if (classificationType == MATCH_ALL_CLASSIFICATION_TYPES || classificationType == MATCH_ALL_CLASSIFIED || classificationType == MATCH_ALL_WILDCARD_CLASSIFICATION) {
+            ret.should(QueryBuilders.existsQuery(TRAIT_NAMES_PROPERTY_KEY))
+               .should(QueryBuilders.existsQuery(PROPAGATED_TRAIT_NAMES_PROPERTY_KEY))
+               .minimumShouldMatch(1);
+        } else if (context.isWildCardSearch()) {
+            // names are matched as given, without sub-types; wildcards only at the ends match within a single name
+            for (String classificationName : context.getClassificationNames()) {
+                if (!COMPILABLE_WILDCARD_CLASSIFICATION.matcher(classificationName).matches()) {
+                    inMemoryCriteria.add("classification '" + classificationName + "': wildcard can match across classification names");
+
+                    return null;
+                }
+
+                for (String field : new String[] { TRAIT_NAMES_PROPERTY_KEY, PROPAGATED_TRAIT_NAMES_PROPERTY_KEY }) {
+                    if (classificationName.contains(WILDCARD_CLASSIFICATIONS)) {
+                        ret.should(QueryBuilders.wildcardQuery(field, classificationName).caseInsensitive(true));
+                    } else {
+                        ret.should(QueryBuilders.termQuery(field, classificationName).caseInsensitive(true));
+                    }
+                }
+            }
+
+            ret.minimumShouldMatch(1);
+        } else {
+            ret.should(QueryBuilders.termsQuery(TRAIT_NAMES_PROPERTY_KEY, context.getClassificationTypeNames()))
+               .should(QueryBuilders.termsQuery(PROPAGATED_TRAIT_NAMES_PROPERTY_KEY, context.getClassificationTypeNames()))
+               .minimumShouldMatch(1);
+        }
+
+        return ret;
+    }
+
+    // returns null for an empty criteria and for criteria not compiled; the latter are added to inMemoryCriteria
+    private QueryBuilder compileCriteria(Set<? extends AtlasStructType> structTypes, FilterCriteria criteria, List<String> inMemoryCriteria) {
+        Condition condition = criteria.getCondition();
+
+        if (condition != null && CollectionUtils.isNotEmpty(criteria.getCriterion())) {
+            BoolQueryBuilder ret = QueryBuilders.boolQuery();
+
+            for (FilterCriteria nestedCriteria : criteria.getCriterion()) {
+                QueryBuilder nestedQuery = compileCriteria(structTypes, nestedCriteria, inMemoryCriteria);
+
+                if (nestedQuery != null) {
+                    if (condition == Condition.AND) {
+                        ret.filter(nestedQuery);
+                    } else {
+                        ret.should(nestedQuery);
+                    }
+                }
+            }
+
+            if (!ret.hasClauses()) {
+                return null;
+            }
+
+            if (condition == Condition.OR) {
+                ret.minimumShouldMatch(1);
+            }
+
+            return ret;
+        } else if (StringUtils.isNotEmpty(criteria.getAttributeName())) {
+            try {
+                return compileAttributeCriteria(structTypes, criteria);
+            } catch (NotCompilableException e) {
+                inMemoryCriteria.add(criteria.getAttributeName() + " " + criteria.getOperator() + " '" + criteria.getAttributeValue() + "': " + e.getMessage());
+            }
+        }
+
+        return null;
+    }
+
+    private QueryBuilder compileAttributeCriteria(Set<? extends AtlasStructType> structTypes, FilterCriteria criteria) throws NotCompilableException {
+        SearchProcessor.processIsIncompleteFilter(criteria);
+
+        if (criteria.getOperator() == SearchParameters.Operator.TIME_RANGE) {
+            criteria = SearchProcessor.processDateRange(criteria);
+        }
+
+        // an attribute can be stored in a different vertex property in each type; the criteria then matches any of them
+        Map<String, QueryBuilder> queries = new LinkedHashMap<>();
+
+        for (AtlasStructType structType : structTypes) {
+            AtlasAttribute attribute = structType.getAttribute(criteria.getAttributeName());
+
+            if (attribute == null) {
+                throw new NotCompilableException("attribute not found in type " + structType.getTypeName());
+            }
+
+            if (!queries.containsKey(attribute.getVertexPropertyName())) {
+                queries.put(attribute.getVertexPropertyName(), compileAttributeCriteria(attribute, criteria.getOperator(), criteria.getAttributeValue()));
+            }
+        }
+
+        if (queries.size() == 1) {
+            return queries.values().iterator().next();
+        }
+
+        BoolQueryBuilder ret = QueryBuilders.boolQuery().minimumShouldMatch(1);
+
+        queries.values().forEach(ret::should);
+
+        return ret;
+    }
+
+    private QueryBuilder compileAttributeCriteria(AtlasAttribute attribute, SearchParameters.Operator operator, String value) throws NotCompilableException {
+        String vertexPropertyName  = attribute.getVertexPropertyName();
+        String classificationField = CLASSIFICATION_NAME_FIELDS.get(vertexPropertyName);
+
+        if (operator == null) {
+            throw new NotCompilableException("no operator");
+        }
+
+        if (classificationField != null) {
+            return compileClassificationNameCriteria(classificationField, operator, value);
+        }
+
+        if (StringUtils.equals(vertexPropertyName, LABELS_PROPERTY_KEY) || StringUtils.equals(vertexPropertyName, CUSTOM_ATTRIBUTES_PROPERTY_KEY)) {
+            throw new NotCompilableException("pipe-delimited values are indexed as text");
+        }
+
+        if (context.getIndexedKeys() == null || !context.getIndexedKeys().contains(vertexPropertyName)) {
+            throw new NotCompilableException("attribute is not indexed");
+        }
+
+        FieldType fieldType = getFieldType(attribute);
+
+        if (fieldType == FieldType.KEYWORD) {
+            String field = getKeywordField(attribute, false);
+
+            if (field == null) {
+                throw new NotCompilableException("attribute is indexed as tokenized text");
+            }
+
+            return compileKeywordCriteria(field, operator, value);
+        }
+
+        try {
+            return compileValueCriteria(vertexPropertyName, fieldType, operator, value);
+        } catch (NumberFormatException e) {
+            throw new NotCompilableException("invalid value for a " + attribute.getTypeName() + " attribute");
+        }
+    }
+
+    private QueryBuilder compileKeywordCriteria(String field, SearchParameters.Operator operator, String value) throws NotCompilableException {
+        switch (operator) {
+            case IS_NULL:
+                return QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery(field));
+
+            case NOT_NULL:
+                return QueryBuilders.existsQuery(field);
+
+            case NOT_EMPTY:
+                return QueryBuilders.boolQuery().filter(QueryBuilders.existsQuery(field)).mustNot(QueryBuilders.termQuery(field, ""));
+        }
+
+        if (value == null) {
+            throw new NotCompilableException("no value");
+        }
+
+        switch (operator) {
+            case EQ:
+                return QueryBuilders.termQuery(field, value);
+
+            case NEQ:
+                return QueryBuilders.boolQuery().mustNot(QueryBuilders.termQuery(field, value));
+
+            case LT:
+                return QueryBuilders.rangeQuery(field).lt(value);
+
+            case LTE:
+                return QueryBuilders.rangeQuery(field).lte(value);
+
+            case GT:
+                return QueryBuilders.rangeQuery(field).gt(value);
+
+            case GTE:
+                return QueryBuilders.rangeQuery(field).gte(value);
+
+            case STARTS_WITH:
+                return QueryBuilders.prefixQuery(field, value);
+
+            case ENDS_WITH:
+                return QueryBuilders.wildcardQuery(field, "*" + escapeWildcard(value));
+
+            case CONTAINS:
+                return QueryBuilders.wildcardQuery(field, "*" + escapeWildcard(value) + "*");
+
+            case NOT_CONTAINS:
+                return QueryBuilders.boolQuery().mustNot(QueryBuilders.wildcardQuery(field, "*" + escapeWildcard(value) + "*"));
+        }
+
+        throw new NotCompilableException("operator is not supported for keyword attributes");
+    }
+
+    private QueryBuilder compileValueCriteria(String field, FieldType fieldType, SearchParameters.Operator operator, String value) throws NotCompilableException {
+        switch (operator) {
+            case IS_NULL:
+                return QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery(field));
+
+            case NOT_NULL:
+            case NOT_EMPTY:
+                return QueryBuilders.existsQuery(field);
+        }
+
+        if (StringUtils.isEmpty(value)) {
+            throw new NotCompilableException("no value");
+        }
+
+        switch (operator) {
+            case EQ:
+                return QueryBuilders.termQuery(field, parseValue(fieldType, value));
+
+            case NEQ:
+                return QueryBuilders.boolQuery().mustNot(QueryBuilders.termQuery(field, parseValue(fieldType, value)));
+        }
+
+        if (fieldType == FieldType.BOOLEAN) {
+            throw new NotCompilableException("operator is not supported for boolean attributes");
+        }
+
+        switch (operator) {
+            case LT:
+                return QueryBuilders.rangeQuery(field).lt(parseValue(fieldType, value));
+
+            case LTE:
+                return QueryBuilders.rangeQuery(field).lte(parseValue(fieldType, value));
+
+            case GT:
+                return QueryBuilders.rangeQuery(field).gt(parseValue(fieldType, value));
+
+            case GTE:
+                return QueryBuilders.rangeQuery(field).gte(parseValue(fieldType, value));
+
+            case TIME_RANGE: {
+                String[] range = value.split(ATTRIBUTE_VALUE_DELIMITER);
+
+                if (range.length != 2) {
+                    throw new NotCompilableException("invalid time range");
+                }
+
+                return QueryBuilders.rangeQuery(field).gte(parseValue(fieldType, range[0].trim())).lte(parseValue(fieldType, range[1].trim()));
+            }
+        }
+
+        throw new NotCompilableException("operator is not supported for " + fieldType.name().toLowerCase() + " attributes");
+    }
+
+    // same as the in-memory predicate on the pipe-delimited names, like '|PII|Confidential|', but on the keyword field with the names
+    private QueryBuilder compileClassificationNameCriteria(String field, SearchParameters.Operator operator, String value) throws NotCompilableException {
+        switch (operator) {
+            case IS_NULL:
+                return QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery(field));
+
+            case NOT_NULL:
+            case NOT_EMPTY:
+                return QueryBuilders.existsQuery(field);
+        }
+
+        if (StringUtils.isEmpty(value) || value.contains(CLASSIFICATION_NAME_DELIMITER)) {
+            throw new NotCompilableException("value can match across classification names");
+        }
+
+        switch (operator) {
+            case EQ:
+                return QueryBuilders.termQuery(field, value);
+
+            case NEQ:
+                return QueryBuilders.boolQuery().mustNot(QueryBuilders.termQuery(field, value));
+
+            case STARTS_WITH:
+                return QueryBuilders.prefixQuery(field, value);
+
+            case ENDS_WITH:
+                return QueryBuilders.wildcardQuery(field, "*" + escapeWildcard(value));
+
+            case CONTAINS:
+                return QueryBuilders.wildcardQuery(field, "*" + escapeWildcard(value) + "*");
+
+            case NOT_CONTAINS:
+                return QueryBuilders.boolQuery().mustNot(QueryBuilders.wildcardQuery(field, "*" + escapeWildcard(value) + "*"));
+        }
+
+        throw new NotCompilableException("operator is not supported for classification names");
+    }
+
+    private String getSortField(String sortBy, List<String> inMemoryCriteria) {
+        AtlasAttribute attribute = context.getEntityTypes().iterator().next().getAttribute(sortBy);
+
+        if (attribute == null) { // ignored by the search processors as well
+            return null;
+        }
+
+        FieldType fieldType = getFieldType(attribute);
+        String    ret       = null;
+
+        if (fieldType == FieldType.KEYWORD) {
+            // a normalized keyword changes only the order of values that differ in case
+            ret = getKeywordField(attribute, true);
+        } else if (fieldType != null) {
+            ret = attribute.getVertexPropertyName();
+        }
+
+        if (ret == null || context.getIndexedKeys() == null || !context.getIndexedKeys().contains(attribute.getVertexPropertyName())) {
+            inMemoryCriteria.add("sortBy '" + sortBy + "': attribute is not indexed as a sortable field");
+
+            ret = null;
+        }
+
+        return ret;
+    }
+
+    private static FieldType getFieldType(AtlasAttribute attribute) {
+        AtlasType attributeType = attribute.getAttributeType();
+
+        if (attributeType instanceof AtlasEnumType) {
+            return FieldType.KEYWORD;
+        }
+
+        switch (attributeType.getTypeName()) {
+            case AtlasBaseTypeDef.ATLAS_TYPE_STRING:
+                return FieldType.KEYWORD;
+
+            case AtlasBaseTypeDef.ATLAS_TYPE_BYTE:
+            case AtlasBaseTypeDef.ATLAS_TYPE_SHORT:
+            case AtlasBaseTypeDef.ATLAS_TYPE_INT:
+            case AtlasBaseTypeDef.ATLAS_TYPE_LONG:
+            case AtlasBaseTypeDef.ATLAS_TYPE_DATE:
+                return FieldType.INTEGER;
+
+            case AtlasBaseTypeDef.ATLAS_TYPE_FLOAT:
+            case AtlasBaseTypeDef.ATLAS_TYPE_DOUBLE:
+                return FieldType.DECIMAL;
+
+            case AtlasBaseTypeDef.ATLAS_TYPE_BOOLEAN:
+                return FieldType.BOOLEAN;
+        }
+
+        return null;
+    }
+
+    /**
+     * @param allowNormalized use a keyword sub-field with a normalizer, which matches values that differ in case
+     * @return field with the untokenized value of a string attribute; null if the attribute is indexed only as text
+     */
+    private static String getKeywordField(AtlasAttribute attribute, boolean allowNormalized) {
+        String vertexPropertyName = attribute.getVertexPropertyName();
+
+        if (SYSTEM_KEYWORD_FIELDS.containsKey(vertexPropertyName)) {
+            return SYSTEM_KEYWORD_FIELDS.get(vertexPropertyName);
+        }
+
+        AtlasAttributeDef attributeDef = attribute.getAttributeDef();
+
+        if (attributeDef == null) {
+            return null;
+        }
+
+        Map<String, Object> esConfig = attributeDef.getIndexTypeESConfig();
+
+        if (attributeDef.getIndexType() == AtlasAttributeDef.IndexType.STRING ||
+            (MapUtils.isNotEmpty(esConfig) && ES_TYPE_KEYWORD.equals(esConfig.get(ES_TYPE)) && (allowNormalized || !esConfig.containsKey(ES_NORMALIZER)))) {
+            return vertexPropertyName;
+        }
+
+        Map<String, HashMap<String, Object>> esFields     = attributeDef.getIndexTypeESFields();
+        Map<String, Object>                  keywordField = esFields != null ? esFields.get(KEYWORD_FIELD_NAME) : null;
+
+        if (MapUtils.isNotEmpty(keywordField) && ES_TYPE_KEYWORD.equals(keywordField.get(ES_TYPE)) && (allowNormalized || !keywordField.containsKey(ES_NORMALIZER))) {
+            return vertexPropertyName + KEYWORD_FIELD_SUFFIX;
+        }
+
+        return null;
+    }
+
+    private static Object parseValue(FieldType fieldType, String value) {
+        switch (fieldType) {
+            case INTEGER:
+                return Long.parseLong(value);
+
+            case DECIMAL:
+                return Double.parseDouble(value);
+
+            case BOOLEAN:
+                return Boolean.parseBoolean(value);
+        }
+
+        return value;
+    }
+
+    private static String escapeWildcard(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+
+        for (char c : value.toCharArray()) {
+            if (c == '*' || c == '?' || c == '\\') {
+                sb.append('\\');
+            }
+
+            sb.append(c);
+        }
+
+        return sb.toString();
+    }
+
+    public static class CompiledQuery {
+        private final QueryBuilder query;
+        private final String       sortField;
+        private final SortOrder    sortOrder;
+        private final List<String> inMemoryCriteria;
+
+        CompiledQuery(QueryBuilder query, String sortField, SortOrder sortOrder, List<String> inMemoryCriteria) {
+            this.query            = query;
+            this.sortField        = sortField;
+            this.sortOrder        = sortOrder;
+            this.inMemoryCriteria = Collections.unmodifiableList(inMemoryCriteria);
+        }
+
+        /**
+         * @return true if the query matches all criteria of the search, without in-memory filtering
+         */
+        public boolean isComplete() {
+            return inMemoryCriteria.isEmpty();
+        }
+
+        /**
+         * @return criteria not compiled into the query, with the reason
+         */
+        public List<String> getInMemoryCriteria() {
+            return inMemoryCriteria;
+        }
+
+        public QueryBuilder getQuery() {
+            return query;
+        }
+
+        public SearchSourceBuilder toSourceBuilder() {
+            // only ids of the hits are read, to load the vertices
+            SearchSourceBuilder ret = new SearchSourceBuilder().query(query).fetchSource(false).trackTotalHits(true);
+
+            if (sortField != null) {
+                ret.sort(sortField, sortOrder == SortOrder.DESCENDING ? org.elasticsearch.search.sort.SortOrder.DESC : org.elasticsearch.search.sort.SortOrder.ASC);
+            }
+
+            return ret;
+        }
+
+        public String explain() {
+            StringBuilder sb = new StringBuilder();
+
+            if (isComplete()) {
+                sb.append("all criteria compiled to the index query");
+            } else {
+                sb.append("criteria requiring in-memory evaluation: ").append(StringUtils.join(inMemoryCriteria, "; "));
+            }
+
+            return sb.append("; index query: ").append(toSourceBuilder()).toString();
+        }
+    }
+
+    private static class NotCompilableException extends Exception {
+        NotCompilableException(String reason) {
+            super(reason);
+        }
+    }
+}
@@ -1083,6 +1083,9 @@ public class EntityDiscoveryService implements AtlasDiscoveryService {
                 return;
             }
 
+            List<Result>      results  = new ArrayList<>();
+            List<AtlasVertex> vertices = new ArrayList<>();
+
             while (iterator.hasNext()) {
                 Result result = iterator.next();
                 AtlasVertex vertex = result.getVertex();
@@ -1092,7 +1095,17 @@ public class EntityDiscoveryService implements AtlasDiscoveryService {
                     continue;
                 }
 
-                AtlasEntityHeader header = entityRetriever.toAtlasEntityHeader(vertex, resultAttributes);
+                results.add(result);
+                vertices.add(vertex);
+            }
+
+            List<AtlasEntityHeader> headers = entityRetriever.toAtlasEntityHeaders(vertices, resultAttributes);
+
+            for (int i = 0; i < results.size(); i++) {
+                Result            result = results.get(i);
+                AtlasVertex       vertex = vertices.get(i);
+                AtlasEntityHeader header = headers.get(i);
+
                 if(RequestContext.get().includeClassifications()){
                     header.setClassifications(entityRetriever.getAllClassifications(vertex));
                 }
@@ -51,12 +51,30 @@ public class EntitySearchProcessor extends SearchProcessor {
 
     private final AtlasIndexQuery indexQuery;
     private final AtlasGraphQuery graphQuery;
+    private final boolean         isNativeQuery;
     private       Predicate       graphQueryPredicate;
     private       Predicate       filterGraphQueryPredicate;
 
+    /**
+     * Search with all criteria compiled into a single index query: results need no in-memory filtering, so each page
+     * is read with one query at the requested offset.
+     */
+    public EntitySearchProcessor(SearchContext context, ElasticsearchFilterCompiler.CompiledQuery nativeQuery) {
+        super(context);
+
+        // captures the entity attributes in the filter, to be included in the search result
+        processSearchAttributes(context.getEntityTypes(), context.getSearchParameters().getEntityFilters(), new HashSet<>(), new HashSet<>(), new HashSet<>());
+
+        this.indexQuery    = context.getGraph().elasticsearchQuery(Constants.VERTEX_INDEX, nativeQuery.toSourceBuilder());
+        this.graphQuery    = null;
+        this.isNativeQuery = true;
+    }
+
     public EntitySearchProcessor(SearchContext context) {
         super(context);
 
+        this.isNativeQuery = false;
+
         final Set<AtlasEntityType> entityTypes      = context.getEntityTypes();
         final FilterCriteria  filterCriteria  = context.getSearchParameters().getEntityFilters();
         final Set<String>     indexAttributes = new HashSet<>();
@@ -225,6 +243,10 @@ public class EntitySearchProcessor extends SearchProcessor {
 
     }
 
+    boolean isNativeQuery() {
+        return isNativeQuery;
+    }
+
     @Override
     public List<AtlasVertex> execute() {
         if (LOG.isDebugEnabled()) {
@@ -271,7 +293,12 @@ public class EntitySearchProcessor extends SearchProcessor {
 
                 final boolean isLastResultPage;
 
-                if (indexQuery != null) {
+                if (isNativeQuery) {
+                    // sort is part of the compiled query
+                    Iterator<AtlasIndexQuery.Result> idxQueryResult = indexQuery.vertices(qryOffset, limit);
+                    offsetEntityVertexMap = getVerticesFromIndexQueryResult(idxQueryResult, offsetEntityVertexMap, qryOffset);
+
+                } else if (indexQuery != null) {
                     Iterator<AtlasIndexQuery.Result> idxQueryResult = executeIndexQuery(context, indexQuery, qryOffset, limit);
                     offsetEntityVertexMap = getVerticesFromIndexQueryResult(idxQueryResult, offsetEntityVertexMap, qryOffset);
 
@@ -281,6 +308,12 @@ public class EntitySearchProcessor extends SearchProcessor {
                 }
 
                 isLastResultPage = offsetEntityVertexMap.size() < limit;
+
+                if (isNativeQuery) {
+                    // skip hits for vertices not found in the graph, which the in-memory predicates drop otherwise
+                    offsetEntityVertexMap.values().removeIf(Objects::isNull);
+                }
+
                 // Do in-memory filtering
                 offsetEntityVertexMap = super.filter(offsetEntityVertexMap, inMemoryPredicate);
 
@@ -19,6 +19,7 @@ package org.apache.atlas.discovery;
 
 
 import com.google.common.annotations.VisibleForTesting;
+import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.AtlasErrorCode;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.exception.AtlasBaseException;
@@ -206,28 +207,36 @@ public class SearchContext {
         this.typeAndSubTypes       = typeAndSubTypes;
         this.typeAndSubTypesQryStr = typeAndSubTypesQryStr;
 
-        if (glossaryTermVertex != null) {
-            addProcessor(new TermSearchProcessor(this, getAssignedEntities(glossaryTermVertex)));
-        }
+        ElasticsearchFilterCompiler.CompiledQuery nativeQuery = compileNativeQuery();
 
-        if (needFullTextProcessor()) {
-            if (AtlasRepositoryConfiguration.isFreeTextSearchEnabled()) {
-                LOG.debug("Using Free Text index based search.");
+        if (nativeQuery != null && nativeQuery.isComplete() && AtlasConfiguration.SEARCH_BASIC_NATIVE_QUERY_ENABLED.getBoolean()) {
+            LOG.debug("Using native index query for all search criteria.");
 
-                addProcessor(new FreeTextSearchProcessor(this));
-            } else {
-                LOG.debug("Using Full Text index based search.");
+            addProcessor(new EntitySearchProcessor(this, nativeQuery));
+        } else {
+            if (glossaryTermVertex != null) {
+                addProcessor(new TermSearchProcessor(this, getAssignedEntities(glossaryTermVertex)));
+            }
+
+            if (needFullTextProcessor()) {
+                if (AtlasRepositoryConfiguration.isFreeTextSearchEnabled()) {
+                    LOG.debug("Using Free Text index based search.");
 
-                addProcessor(new FullTextSearchProcessor(this));
+                    addProcessor(new FreeTextSearchProcessor(this));
+                } else {
+                    LOG.debug("Using Full Text index based search.");
+
+                    addProcessor(new FullTextSearchProcessor(this));
+                }
             }
-        }
 
-        if (needClassificationProcessor()) {
-            addProcessor(new ClassificationSearchProcessor(this));
-        }
+            if (needClassificationProcessor()) {
+                addProcessor(new ClassificationSearchProcessor(this));
+            }
 
-        if (needEntityProcessor()) {
-            addProcessor(new EntitySearchProcessor(this));
+            if (needEntityProcessor()) {
+                addProcessor(new EntitySearchProcessor(this));
+            }
         }
     }
 
@@ -365,6 +374,24 @@ public class SearchContext {
                (CollectionUtils.isNotEmpty(filterCriteria.getCriterion()) || StringUtils.isNotEmpty(filterCriteria.getAttributeName()));
     }
 
+    // compiles the search into a single index query, when enabled; with explain enabled, logs the criteria that require in-memory evaluation
+    private ElasticsearchFilterCompiler.CompiledQuery compileNativeQuery() {
+        boolean isNativeQueryEnabled = AtlasConfiguration.SEARCH_BASIC_NATIVE_QUERY_ENABLED.getBoolean();
+        boolean isExplainEnabled     = AtlasConfiguration.SEARCH_BASIC_EXPLAIN_ENABLED.getBoolean();
+
+        if (!needEntityProcessor() || !(isNativeQueryEnabled || isExplainEnabled)) {
+            return null;
+        }
+
+        ElasticsearchFilterCompiler.CompiledQuery ret = new ElasticsearchFilterCompiler(this).compile();
+
+        if (isExplainEnabled) {
+            LOG.info("explain basic search ({}): {}", searchParameters, ret.explain());
+        }
+
+        return ret;
+    }
+
     private void addProcessor(SearchProcessor processor) {
         if (searchProcessor == null) {
             searchProcessor = processor;
@@ -274,39 +274,7 @@ public abstract class SearchProcessor {
         } else if (StringUtils.isNotEmpty(filterCriteria.getAttributeName())) {
             String attributeName = filterCriteria.getAttributeName();
 
-            if (StringUtils.equals(attributeName, Constants.IS_INCOMPLETE_PROPERTY_KEY)) {
-                // when entity is incomplete (i.e. shell entity):
-                //   vertex property IS_INCOMPLETE_PROPERTY_KEY will be set to INCOMPLETE_ENTITY_VALUE
-                // when entity is not incomplete (i.e. not a shell entity):
-                //   vertex property IS_INCOMPLETE_PROPERTY_KEY will not be set
-
-                String attributeValue = filterCriteria.getAttributeValue();
-
-                switch (filterCriteria.getOperator()) {
-                    case EQ:
-                        if (attributeValue == null || StringUtils.equals(attributeValue, "0") || StringUtils.equalsIgnoreCase(attributeValue, "false")) {
-                            filterCriteria.setOperator(SearchParameters.Operator.IS_NULL);
-                        } else {
-                            filterCriteria.setOperator(SearchParameters.Operator.EQ);
-                            filterCriteria.setAttributeValue(Constants.INCOMPLETE_ENTITY_VALUE.toString());
-                        }
-                    break;
-
-                    case NEQ:
-                        if (attributeValue == null || StringUtils.equals(attributeValue, "0") || StringUtils.equalsIgnoreCase(attributeValue, "false")) {
-                            filterCriteria.setOperator(SearchParameters.Operator.EQ);
-                            filterCriteria.setAttributeValue(Constants.INCOMPLETE_ENTITY_VALUE.toString());
-                        } else {
-                            filterCriteria.setOperator(SearchParameters.Operator.IS_NULL);
-                        }
-                    break;
-
-                    case NOT_NULL:
-                        filterCriteria.setOperator(SearchParameters.Operator.EQ);
-                        filterCriteria.setAttributeValue(Constants.INCOMPLETE_ENTITY_VALUE.toString());
-                    break;
-                }
-            }
+            processIsIncompleteFilter(filterCriteria);
 
             try {
                 for (AtlasStructType structType : structTypes) {
@@ -332,6 +300,44 @@ public abstract class SearchProcessor {
         }
     }
 
+    static void processIsIncompleteFilter(FilterCriteria filterCriteria) {
+        if (!StringUtils.equals(filterCriteria.getAttributeName(), Constants.IS_INCOMPLETE_PROPERTY_KEY) || filterCriteria.getOperator() == null) {
+            return;
+        }
+
+        // when entity is incomplete (i.e. shell entity):
+        //   vertex property IS_INCOMPLETE_PROPERTY_KEY will be set to INCOMPLETE_ENTITY_VALUE
+        // when entity is not incomplete (i.e. not a shell entity):
+        //   vertex property IS_INCOMPLETE_PROPERTY_KEY will not be set
+
+        String attributeValue = filterCriteria.getAttributeValue();
+
+        switch (filterCriteria.getOperator()) {
+            case EQ:
+                if (attributeValue == null || StringUtils.equals(attributeValue, "0") || StringUtils.equalsIgnoreCase(attributeValue, "false")) {
+                    filterCriteria.setOperator(SearchParameters.Operator.IS_NULL);
+                } else {
+                    filterCriteria.setOperator(SearchParameters.Operator.EQ);
+                    filterCriteria.setAttributeValue(Constants.INCOMPLETE_ENTITY_VALUE.toString());
+                }
+            break;
+
+            case NEQ:
+                if (attributeValue == null || StringUtils.equals(attributeValue, "0") || StringUtils.equalsIgnoreCase(attributeValue, "false")) {
+                    filterCriteria.setOperator(SearchParameters.Operator.EQ);
+                    filterCriteria.setAttributeValue(Constants.INCOMPLETE_ENTITY_VALUE.toString());
+                } else {
+                    filterCriteria.setOperator(SearchParameters.Operator.IS_NULL);
+                }
+            break;
+
+            case NOT_NULL:
+                filterCriteria.setOperator(SearchParameters.Operator.EQ);
+                filterCriteria.setAttributeValue(Constants.INCOMPLETE_ENTITY_VALUE.toString());
+            break;
+        }
+    }
+
     //
     // If filterCriteria contains any non-indexed attribute inside OR condition:
     //    Index+Graph can't be used. Need to use only Graph query filter for all attributes. Examples:
@@ -654,7 +660,7 @@ public abstract class SearchProcessor {
     }
 
     @VisibleForTesting
-    public FilterCriteria processDateRange(FilterCriteria criteria) {
+    public static FilterCriteria processDateRange(FilterCriteria criteria) {
         String attrName = criteria.getAttributeName();
         SearchParameters.Operator op = criteria.getOperator();
         String attrVal = criteria.getAttributeValue();
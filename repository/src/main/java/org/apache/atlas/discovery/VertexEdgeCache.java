@@ -1,30 +1,116 @@
 package org.apache.atlas.discovery;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.RequestContext;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
 import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.service.metrics.MetricUtils;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import static com.google.common.collect.Lists.newArrayList;
 
+/**
+ * Caches the edges of vertices visited while computing lineage.
+ *
+ * The cache lives in the RequestContext, so it is dropped when the request completes, and holds at most
+ * atlas.lineage.edge.cache.max.edges edges; least recently used entries are evicted beyond that.
+ */
 @Component
 public class VertexEdgeCache {
+    static final String REQUEST_CACHE_NAME = "lineageVertexEdgeCache";
 
-    private final ThreadLocal<Map<CachedVertexEdgesKey, List<AtlasEdge>>> edgeCache = ThreadLocal.withInitial(HashMap::new);
+    private final long    maxEdges;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public VertexEdgeCache() {
+        this(AtlasConfiguration.LINEAGE_EDGE_CACHE_MAX_EDGES.getLong(), MetricUtils.getMeterRegistry());
+    }
+
+    VertexEdgeCache(long maxEdges, MeterRegistry meterRegistry) {
+        this.maxEdges  = maxEdges;
+        this.hits      = Counter.builder("lineage_edge_cache_requests").tag("result", "hit").register(meterRegistry);
+        this.misses    = Counter.builder("lineage_edge_cache_requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("lineage_edge_cache_evictions").register(meterRegistry);
+    }
 
     public List<AtlasEdge> getEdges(AtlasVertex vertex, AtlasEdgeDirection direction, String edgeLabel) {
-        CachedVertexEdgesKey key = new CachedVertexEdgesKey(vertex.getId(), direction, edgeLabel);
-        Map<CachedVertexEdgesKey, List<AtlasEdge>> cache = edgeCache.get();
-        if (cache.containsKey(key)) {
-            return cache.get(key);
+        if (maxEdges <= 0) {
+            return newArrayList(vertex.getEdges(direction, edgeLabel));
+        }
+
+        CachedVertexEdgesKey key   = new CachedVertexEdgesKey(vertex.getId(), direction, edgeLabel);
+        RequestEdgeCache     cache = RequestContext.get().getRequestScopedCache(REQUEST_CACHE_NAME, RequestEdgeCache::new);
+        List<AtlasEdge>      ret   = cache.get(key);
+
+        if (ret != null) {
+            hits.increment();
         } else {
-            List<AtlasEdge> edges = newArrayList(vertex.getEdges(direction, edgeLabel));
-            cache.put(key, edges);
-            return edges;
+            misses.increment();
+
+            ret = newArrayList(vertex.getEdges(direction, edgeLabel));
+
+            evictions.increment(cache.put(key, ret, maxEdges));
+        }
+
+        return ret;
+    }
+
+    static class RequestEdgeCache {
+        private final LinkedHashMap<CachedVertexEdgesKey, List<AtlasEdge>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private       long                                                  edgeCount;
+
+        List<AtlasEdge> get(CachedVertexEdgesKey key) {
+            return entries.get(key);
+        }
+
+        /**
+         * @return number of entries evicted to keep the cache within maxEdges
+         */
+        int put(CachedVertexEdgesKey key, List<AtlasEdge> edges, long maxEdges) {
+            if (edges.size() > maxEdges) {
+                return 0;
+            }
+
+            List<AtlasEdge> replaced = entries.put(key, edges);
+
+            edgeCount += edges.size() - (replaced != null ? replaced.size() : 0);
+
+            Iterator<Map.Entry<CachedVertexEdgesKey, List<AtlasEdge>>> iter = entries.entrySet().iterator();
+            int                                                        ret  = 0;
+
+            while (edgeCount > maxEdges && iter.hasNext()) {
+                Map.Entry<CachedVertexEdgesKey, List<AtlasEdge>> eldest = iter.next();
+
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+
+                edgeCount -= eldest.getValue().size();
+
+                iter.remove();
+
+                ret++;
+            }
+
+            return ret;
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        long edgeCount() {
+            return edgeCount;
         }
     }
 }
@@ -17,6 +17,7 @@
  */
 package org.apache.atlas.repository.audit;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
@@ -30,7 +31,10 @@ import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.model.audit.EntityAuditEventV2;
 import org.apache.atlas.model.audit.EntityAuditSearchResult;
 import org.apache.atlas.model.instance.AtlasEntityHeader;
+import org.apache.atlas.service.metrics.MetricUtils;
 import org.apache.atlas.type.AtlasType;
+import org.apache.atlas.utils.AtlasJson;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang.NotImplementedException;
@@ -42,6 +46,7 @@ import org.apache.http.nio.entity.NStringEntity;
 import org.apache.http.util.EntityUtils;
 import org.elasticsearch.client.Request;
 import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.slf4j.Logger;
@@ -54,11 +59,11 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.text.MessageFormat;
 import java.util.*;
 
 import static java.nio.charset.Charset.defaultCharset;
@@ -87,18 +92,20 @@ public class ESBasedAuditRepository extends AbstractStorageBasedAuditRepository
     private static final String USER = "user";
     private static final String DETAIL = "detail";
     private static final String ENTITY = "entity";
-    private static final String bulkMetadata = String.format("{ \"index\" : { \"_index\" : \"%s\" } }%n", INDEX_NAME);
+    private static final String HEADERS = "headers";
     private static final Set<String> ALLOWED_LINKED_ATTRIBUTES = new HashSet<>(Arrays.asList(DOMAIN_GUIDS));
 
     /*
     *    created   → event creation time
          timestamp → entity modified timestamp
          eventKey  → entityId:timestamp
+         _id       → eventKey:<md5 of the document>, so that an event written again (by a retry or a spool replay) is written only once
     * */
 
     private RestClient lowLevelClient;
     private final Configuration configuration;
     private EntityGraphRetriever entityGraphRetriever;
+    private EntityAuditBulkWriter bulkWriter;
 
     @Inject
     public ESBasedAuditRepository(Configuration configuration, EntityGraphRetriever entityGraphRetriever) {
@@ -120,54 +127,17 @@ public class ESBasedAuditRepository extends AbstractStorageBasedAuditRepository
     public void putEventsV2(List<EntityAuditEventV2> events) throws AtlasBaseException {
         try {
             if (events != null && events.size() > 0) {
-
                 Map<String, String> requestContextHeaders = RequestContext.get().getRequestContextHeaders();
-                String entityPayloadTemplate = getQueryTemplate(requestContextHeaders);
+                List<String>        bulkItems             = new ArrayList<>(events.size());
 
-                StringBuilder bulkRequestBody = new StringBuilder();
                 for (EntityAuditEventV2 event : events) {
-                    String created = String.format("%s", event.getTimestamp());
-                    String auditDetailPrefix = EntityAuditListenerV2.getV2AuditPrefix(event.getAction());
-                    String details = event.getDetails().substring(auditDetailPrefix.length());
-
-                    String bulkItem = MessageFormat.format(entityPayloadTemplate,
-                            event.getEntityId(),
-                            event.getAction(),
-                            details,
-                            event.getUser(),
-                            event.getEntityId() + ":" + event.getEntity().getUpdateTime().getTime(),
-                            event.getEntityQualifiedName(),
-                            event.getEntity().getTypeName(),
-                            created,
-                            "" + event.getEntity().getUpdateTime().getTime());
-
-                    bulkRequestBody.append(bulkMetadata);
-                    bulkRequestBody.append(bulkItem);
-                    bulkRequestBody.append("\n");
-                }
-                String endpoint = INDEX_NAME + "/_bulk";
-                HttpEntity entity = new NStringEntity(bulkRequestBody.toString(), ContentType.APPLICATION_JSON);
-                Request request = new Request("POST", endpoint);
-                request.setEntity(entity);
-                Response response = lowLevelClient.performRequest(request);
-                int statusCode = response.getStatusLine().getStatusCode();
-                if (statusCode != 200) {
-                    throw new AtlasException("Unable to push entity audits to ES");
+                    bulkItems.add(toBulkItem(event, requestContextHeaders));
                 }
-                String responseString = EntityUtils.toString(response.getEntity());
-                Map<String, Object> responseMap = AtlasType.fromJson(responseString, Map.class);
-                if ((boolean) responseMap.get("errors")) {
-                    List<String> errors = new ArrayList<>();
-                    List<Map<String, Object>> resultItems = (List<Map<String, Object>>) responseMap.get("items");
-                    for (Map<String, Object> resultItem : resultItems) {
-                        if (resultItem.get("index") != null) {
-                            Map<String, Object> resultIndex = (Map<String, Object>) resultItem.get("index");
-                            if (resultIndex.get("error") != null) {
-                                errors.add(resultIndex.get("error").toString());
-                            }
-                        }
-                    }
-                    throw new AtlasException(errors.toString());
+
+                if (bulkWriter != null) {
+                    bulkWriter.submit(bulkItems);
+                } else {
+                    sendBulkRequest(bulkItems);
                 }
             }
         } catch (Exception e) {
@@ -175,23 +145,133 @@ public class ESBasedAuditRepository extends AbstractStorageBasedAuditRepository
         }
     }
 
-    private String getQueryTemplate(Map<String, String> requestContextHeaders) {
-        StringBuilder template = new StringBuilder();
+    /**
+     * @return the _bulk action and document lines for the given event, each terminated by a newline
+     */
+    @VisibleForTesting
+    static String toBulkItem(EntityAuditEventV2 event, Map<String, String> requestContextHeaders) throws IOException {
+        String        auditDetailPrefix = EntityAuditListenerV2.getV2AuditPrefix(event.getAction());
+        String        details           = event.getDetails().substring(auditDetailPrefix.length());
+        long          updateTime        = event.getEntity().getUpdateTime().getTime();
+        String        eventKey          = event.getEntityId() + ":" + updateTime;
+        StringWriter  doc               = new StringWriter();
+        StringWriter  ret               = new StringWriter();
+
+        try (JsonGenerator generator = AtlasJson.getMapper().getFactory().createGenerator(doc)) {
+            generator.writeStartObject();
+            generator.writeStringField(ENTITYID, event.getEntityId());
+            generator.writeStringField(ACTION, String.valueOf(event.getAction()));
+            writeRawField(generator, DETAIL, details);
+            generator.writeStringField(USER, event.getUser());
+            generator.writeStringField(EVENT_KEY, eventKey);
+            writeRawField(generator, ENTITY_QUALIFIED_NAME, event.getEntityQualifiedName()); // already serialized by EntityAuditListenerV2
+            generator.writeStringField(TYPE_NAME, event.getEntity().getTypeName());
+            generator.writeNumberField(CREATED, event.getTimestamp());
+            generator.writeNumberField(TIMESTAMP, updateTime);
+
+            if (MapUtils.isNotEmpty(requestContextHeaders)) {
+                generator.writeObjectFieldStart(HEADERS);
+
+                for (Map.Entry<String, String> header : requestContextHeaders.entrySet()) {
+                    generator.writeStringField(header.getKey(), header.getValue());
+                }
+
+                generator.writeEndObject();
+            }
+
+            generator.writeEndObject();
+        }
+
+        // eventKey alone is not unique: events of an entity in the same request share its update time
+        try (JsonGenerator generator = AtlasJson.getMapper().getFactory().createGenerator(ret)) {
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("index");
+            generator.writeStringField("_index", INDEX_NAME);
+            generator.writeStringField("_id", eventKey + ":" + DigestUtils.md5Hex(doc.toString()));
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+
+        ret.append('\n').append(doc.toString()).append('\n');
 
-        template.append("'{'\"entityId\":\"{0}\",\"action\":\"{1}\",\"detail\":{2},\"user\":\"{3}\", \"eventKey\":\"{4}\", " +
-                        "\"entityQualifiedName\": {5}, \"typeName\": \"{6}\",\"created\":{7}, \"timestamp\":{8}");
+        return ret.toString();
+    }
 
-        if (MapUtils.isNotEmpty(requestContextHeaders)) {
-            template.append(",")
-                    .append("\"").append("headers").append("\"")
-                    .append(":")
-                    .append(AtlasType.toJson(requestContextHeaders).replaceAll("\\{", "'{").replaceAll("\\}", "'}"));
+    private static void writeRawField(JsonGenerator generator, String fieldName, String json) throws IOException {
+        generator.writeFieldName(fieldName);
 
+        if (StringUtils.isEmpty(json)) {
+            generator.writeNull();
+        } else {
+            generator.writeRawValue(json);
         }
+    }
 
-        template.append("'}'");
+    private void sendBulkRequest(List<String> bulkItems) throws Exception {
+        EntityAuditBulkWriter.BulkResult result = sendBulkItems(bulkItems);
 
-        return template.toString();
+        if (!result.isSuccess()) {
+            throw new AtlasException(result.getErrors().toString());
+        }
+    }
+
+    /**
+     * @throws IOException if Elasticsearch is not available
+     * @throws AtlasException if Elasticsearch rejected the request
+     */
+    private EntityAuditBulkWriter.BulkResult sendBulkItems(List<String> bulkItems) throws IOException, AtlasException {
+        String endpoint = INDEX_NAME + "/_bulk";
+        HttpEntity entity = new NStringEntity(String.join("", bulkItems), ContentType.APPLICATION_JSON);
+        Request request = new Request("POST", endpoint);
+        request.setEntity(entity);
+        Response response;
+        try {
+            response = lowLevelClient.performRequest(request);
+        } catch (ResponseException e) {
+            if (isRetryable(e.getResponse().getStatusLine().getStatusCode())) {
+                throw e;
+            }
+            throw new AtlasException("Entity audits rejected by ES", e);
+        }
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode != 200) {
+            throw new IOException("Unable to push entity audits to ES: status=" + statusCode);
+        }
+        return toBulkResult(bulkItems, EntityUtils.toString(response.getEntity()));
+    }
+
+    /**
+     * @return items of the request that failed, by the result of each item in the _bulk response
+     */
+    @VisibleForTesting
+    static EntityAuditBulkWriter.BulkResult toBulkResult(List<String> bulkItems, String responseString) {
+        Map<String, Object> responseMap = AtlasType.fromJson(responseString, Map.class);
+        if (!Boolean.TRUE.equals(responseMap.get("errors"))) {
+            return EntityAuditBulkWriter.BulkResult.SUCCESS;
+        }
+        List<String> retryable = new ArrayList<>();
+        List<String> rejected = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        List<Map<String, Object>> resultItems = (List<Map<String, Object>>) responseMap.get("items");
+        // items of the response are in the order of the request
+        for (int i = 0; i < resultItems.size() && i < bulkItems.size(); i++) {
+            Map<String, Object> resultIndex = (Map<String, Object>) resultItems.get(i).get("index");
+            if (resultIndex == null || resultIndex.get("error") == null) {
+                continue;
+            }
+            Object status = resultIndex.get("status");
+            if (status instanceof Number && isRetryable(((Number) status).intValue())) {
+                retryable.add(bulkItems.get(i));
+            } else {
+                rejected.add(bulkItems.get(i));
+            }
+            errors.add(resultIndex.get("error").toString());
+        }
+        return new EntityAuditBulkWriter.BulkResult(retryable, rejected, errors);
+    }
+
+    private static boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
     }
 
     @Override
@@ -276,7 +356,7 @@ public class ESBasedAuditRepository extends AbstractStorageBasedAuditRepository
                 }
             }
 
-            event.setHeaders((Map<String, String>) source.get("headers"));
+            event.setHeaders((Map<String, String>) source.get(HEADERS));
 
             event.setEventKey(eventKey);
             entityAudits.add(event);
@@ -325,6 +405,42 @@ public class ESBasedAuditRepository extends AbstractStorageBasedAuditRepository
     @VisibleForTesting
     void startInternal() throws AtlasException {
         createSession();
+        startBulkWriter();
+    }
+
+    private void startBulkWriter() throws AtlasException {
+        if (!AtlasConfiguration.ENTITY_AUDIT_ASYNC_ENABLED.getBoolean() || bulkWriter != null) {
+            return;
+        }
+
+        try {
+            bulkWriter = new EntityAuditBulkWriter(this::sendBulkItems,
+                                                   AtlasConfiguration.ENTITY_AUDIT_ASYNC_QUEUE_SIZE.getInt(),
+                                                   AtlasConfiguration.ENTITY_AUDIT_ASYNC_BATCH_SIZE.getInt(),
+                                                   AtlasConfiguration.ENTITY_AUDIT_ASYNC_FLUSH_INTERVAL_MS.getLong(),
+                                                   AtlasConfiguration.ENTITY_AUDIT_ASYNC_MAX_RETRIES.getInt(),
+                                                   AtlasConfiguration.ENTITY_AUDIT_ASYNC_RETRY_BACKOFF_MS.getLong(),
+                                                   AtlasConfiguration.ENTITY_AUDIT_ASYNC_SPOOL_MAX_REPLAY_ATTEMPTS.getInt(),
+                                                   getSpoolDirectory(),
+                                                   MetricUtils.getMeterRegistry());
+
+            bulkWriter.start();
+        } catch (IOException e) {
+            LOG.error("Failed to start async entity audit writer", e);
+            throw new AtlasException(e);
+        }
+    }
+
+    private File getSpoolDirectory() {
+        String spoolDir = AtlasConfiguration.ENTITY_AUDIT_ASYNC_SPOOL_DIR.getString();
+
+        if (StringUtils.isNotEmpty(spoolDir)) {
+            return new File(spoolDir);
+        }
+
+        String atlasHomeDir = System.getProperty("atlas.home");
+        String atlasHome = StringUtils.isEmpty(atlasHomeDir) ? "." : atlasHomeDir;
+        return Paths.get(atlasHome, "data", "entity-audit-spool").toFile();
     }
 
     void createSession() throws AtlasException {
@@ -454,6 +570,10 @@ public class ESBasedAuditRepository extends AbstractStorageBasedAuditRepository
     public void stop() throws AtlasException {
         try {
             LOG.info("ESBasedAuditRepo - stop!");
+            if (bulkWriter != null) {
+                bulkWriter.stop(AtlasConfiguration.ENTITY_AUDIT_ASYNC_SHUTDOWN_TIMEOUT_MS.getLong());
+                bulkWriter = null;
+            }
             if (lowLevelClient != null) {
                 lowLevelClient.close();
                 lowLevelClient = null;
@@ -0,0 +1,472 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes entity-audit bulk items to Elasticsearch from a background thread.
+ *
+ * Items are queued in a bounded in-memory queue and sent in one _bulk request once batchSize items are
+ * queued or flushIntervalMs elapsed since the first of them was queued. Only the items of a request that failed
+ * with a retryable error are sent again, with exponential backoff; items that still could not be sent, and items
+ * that do not fit in the queue, are written to the EntityAuditSpool and replayed once Elasticsearch accepts requests
+ * again. Items carry their document _id, so that an item sent more than once is written only once.
+ *
+ * Items Elasticsearch rejected (for example with a mapping error) are moved to the dead-letter directory of the
+ * spool, as is a spool file that still has failed items after maxReplayAttempts replays - so that it doesn't hold
+ * back the replay of newer files.
+ */
+class EntityAuditBulkWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(EntityAuditBulkWriter.class);
+
+    private static final long MAX_POLL_WAIT_MS = 100; // to notice stop() while waiting for items
+
+    interface BulkSender {
+        /**
+         * @return the items that failed
+         * @throws IOException if Elasticsearch is not available; the items are sent again
+         * @throws Exception if Elasticsearch rejected the request; the items are moved to the dead-letter directory
+         */
+        BulkResult send(List<String> items) throws Exception;
+    }
+
+    static class BulkResult {
+        static final BulkResult SUCCESS = new BulkResult(Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+
+        private final List<String> retryable;
+        private final List<String> rejected;
+        private final List<String> errors;
+
+        /**
+         * @param retryable items that failed with a retryable error, like a rejected execution
+         * @param rejected items that failed with an error that is not retryable, like a mapping error
+         * @param errors errors of the failed items
+         */
+        BulkResult(List<String> retryable, List<String> rejected, List<String> errors) {
+            this.retryable = retryable;
+            this.rejected  = rejected;
+            this.errors    = errors;
+        }
+
+        List<String> getRetryable() {
+            return retryable;
+        }
+
+        List<String> getRejected() {
+            return rejected;
+        }
+
+        List<String> getErrors() {
+            return errors;
+        }
+
+        boolean isSuccess() {
+            return retryable.isEmpty() && rejected.isEmpty();
+        }
+    }
+
+    private final BlockingQueue<String> queue;
+    private final BulkSender            sender;
+    private final EntityAuditSpool      spool;
+    private final int                   batchSize;
+    private final long                  flushIntervalMs;
+    private final int                   maxRetries;
+    private final long                  retryBackoffMs;
+    private final int                   maxReplayAttempts;
+    private final Map<String, Integer>  replayFailures = new HashMap<>(); // accessed only by the flusher thread
+    private final Thread                flusher;
+    private final Timer                 flushSuccess;
+    private final Timer                 flushFailure;
+    private final Counter               flushed;
+    private final Counter               spooled;
+    private final Counter               replayed;
+    private final Counter               dropped;
+    private final Counter               rejected;
+    private final Counter               deadLettered;
+    private long                        nextReplayTime; // accessed only by the flusher thread
+    private volatile boolean            stopped;
+
+    EntityAuditBulkWriter(BulkSender sender, int queueSize, int batchSize, long flushIntervalMs, int maxRetries, long retryBackoffMs,
+                          int maxReplayAttempts, File spoolDirectory, MeterRegistry meterRegistry) throws IOException {
+        this.queue             = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.sender            = sender;
+        this.spool             = spoolDirectory != null ? new EntityAuditSpool(spoolDirectory) : null;
+        this.batchSize         = Math.max(1, batchSize);
+        this.flushIntervalMs   = Math.max(1, flushIntervalMs);
+        this.maxRetries        = Math.max(0, maxRetries);
+        this.retryBackoffMs    = Math.max(0, retryBackoffMs);
+        this.maxReplayAttempts = Math.max(1, maxReplayAttempts);
+        this.flusher           = new Thread(this::run, "entity-audit-writer");
+        this.flushSuccess      = Timer.builder("entity_audit_flush_duration").tag("outcome", "success").register(meterRegistry);
+        this.flushFailure      = Timer.builder("entity_audit_flush_duration").tag("outcome", "failure").register(meterRegistry);
+        this.flushed           = Counter.builder("entity_audit_events").tag("result", "flushed").register(meterRegistry);
+        this.spooled           = Counter.builder("entity_audit_events").tag("result", "spooled").register(meterRegistry);
+        this.replayed          = Counter.builder("entity_audit_spool_files_replayed").register(meterRegistry);
+        this.dropped           = Counter.builder("entity_audit_events").tag("result", "dropped").register(meterRegistry);
+        this.rejected          = Counter.builder("entity_audit_events").tag("result", "rejected").register(meterRegistry);
+        this.deadLettered      = Counter.builder("entity_audit_spool_files_dead_lettered").register(meterRegistry);
+
+        Gauge.builder("entity_audit_queue_depth", queue, BlockingQueue::size).register(meterRegistry);
+
+        if (spool != null) {
+            Gauge.builder("entity_audit_spool_files", spool, EntityAuditSpool::getFileCount).register(meterRegistry);
+        }
+
+        flusher.setDaemon(true);
+    }
+
+    void start() {
+        flusher.start();
+
+        LOG.info("Entity audit writer started: queueSize={}, batchSize={}, flushIntervalMs={}, maxRetries={}, maxReplayAttempts={}, spool={}",
+                 queue.remainingCapacity(), batchSize, flushIntervalMs, maxRetries, maxReplayAttempts, spool != null);
+    }
+
+    /**
+     * Queues the given bulk items; items that do not fit in the queue are spooled to disk.
+     *
+     * @throws IOException if items could neither be queued nor spooled
+     */
+    void submit(List<String> items) throws IOException {
+        if (stopped) {
+            throw new IOException("Entity audit writer is stopped");
+        }
+
+        List<String> overflow = null;
+
+        for (String item : items) {
+            if (!queue.offer(item)) {
+                if (overflow == null) {
+                    overflow = new ArrayList<>();
+                }
+
+                overflow.add(item);
+            }
+        }
+
+        if (overflow != null) {
+            if (spool == null) {
+                throw new IOException("Entity audit queue is full; " + overflow.size() + " audit events not written");
+            }
+
+            spool.append(overflow);
+
+            spooled.increment(overflow.size());
+        }
+    }
+
+    int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting items, and waits up to timeoutMs for queued items to be sent; items still queued
+     * after that are spooled.
+     */
+    void stop(long timeoutMs) {
+        stopped = true;
+
+        try {
+            flusher.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (flusher.isAlive()) {
+            LOG.warn("Entity audit writer did not complete in {}ms; {} queued audit events will be spooled", timeoutMs, queue.size());
+
+            flusher.interrupt();
+        }
+
+        List<String> remaining = new ArrayList<>();
+
+        queue.drainTo(remaining);
+
+        if (!remaining.isEmpty()) {
+            spoolOrDrop(remaining);
+        }
+    }
+
+    private void run() {
+        while (!stopped || !queue.isEmpty()) {
+            try {
+                List<String> batch   = nextBatch();
+                boolean      success = true;
+
+                if (!batch.isEmpty()) {
+                    success = flush(batch);
+                }
+
+                if (success && !stopped) {
+                    replayOldestSpoolFile();
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Throwable t) {
+                LOG.error("Entity audit writer: unexpected error", t);
+            }
+        }
+
+        LOG.info("Entity audit writer stopped");
+    }
+
+    // waits up to flushIntervalMs for the first item, then until the batch is full or flushIntervalMs elapsed
+    private List<String> nextBatch() throws InterruptedException {
+        List<String> ret      = new ArrayList<>(batchSize);
+        long         deadline = System.currentTimeMillis() + flushIntervalMs;
+
+        while (ret.isEmpty()) {
+            long   remaining = deadline - System.currentTimeMillis();
+            String first     = remaining > 0 ? queue.poll(Math.min(remaining, MAX_POLL_WAIT_MS), TimeUnit.MILLISECONDS) : null;
+
+            if (first != null) {
+                ret.add(first);
+            } else if (remaining <= 0 || stopped) {
+                return ret;
+            }
+        }
+
+        deadline = System.currentTimeMillis() + flushIntervalMs;
+
+        while (ret.size() < batchSize) {
+            queue.drainTo(ret, batchSize - ret.size());
+
+            long remaining = deadline - System.currentTimeMillis();
+
+            if (ret.size() >= batchSize || remaining <= 0 || stopped) {
+                break;
+            }
+
+            String item = queue.poll(Math.min(remaining, MAX_POLL_WAIT_MS), TimeUnit.MILLISECONDS);
+
+            if (item != null) {
+                ret.add(item);
+            }
+        }
+
+        return ret;
+    }
+
+    private boolean flush(List<String> batch) throws InterruptedException {
+        List<String> pending = batch;
+
+        for (int attempt = 0; ; attempt++) {
+            long   start = System.nanoTime();
+            Object error;
+
+            try {
+                BulkResult result = sender.send(pending);
+
+                flushed.increment(pending.size() - result.getRetryable().size() - result.getRejected().size());
+
+                deadLetter(result.getRejected(), result.getErrors());
+
+                if (result.getRetryable().isEmpty()) {
+                    flushSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                    return true;
+                }
+
+                flushFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                pending = result.getRetryable();
+                error   = result.getErrors();
+            } catch (InterruptedException e) {
+                spoolOrDrop(pending);
+
+                throw e;
+            } catch (IOException e) {
+                flushFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                error = e;
+            } catch (Exception e) {
+                flushFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+                deadLetter(pending, Collections.singletonList(e.toString()));
+
+                return true;
+            }
+
+            if (attempt >= maxRetries || stopped) {
+                LOG.warn("Entity audit writer: failed to write {} audit events after {} attempts: {}", pending.size(), attempt + 1, error);
+
+                break;
+            }
+
+            LOG.debug("Entity audit writer: attempt {} to write {} audit events failed: {}", attempt + 1, pending.size(), error);
+
+            try {
+                Thread.sleep(getBackoffMs(attempt));
+            } catch (InterruptedException ie) {
+                spoolOrDrop(pending);
+
+                throw ie;
+            }
+        }
+
+        spoolOrDrop(pending);
+
+        return false;
+    }
+
+    private void replayOldestSpoolFile() {
+        File file = spool != null && System.currentTimeMillis() >= nextReplayTime ? spool.peek() : null;
+
+        if (file == null) {
+            return;
+        }
+
+        List<String> items;
+        BulkResult   result;
+
+        try {
+            items = spool.read(file);
+        } catch (IOException e) {
+            LOG.error("Entity audit writer: failed to read spool file {}", file, e);
+
+            moveToDeadLetter(file);
+
+            return;
+        }
+
+        try {
+            result = sender.send(items);
+        } catch (IOException e) { // Elasticsearch is not available: not counted as a failed replay of this file
+            LOG.debug("Entity audit writer: failed to replay spool file {}", file, e);
+
+            return;
+        } catch (Exception e) {
+            LOG.error("Entity audit writer: spool file {} was rejected", file, e);
+
+            moveToDeadLetter(file);
+
+            return;
+        }
+
+        deadLetter(result.getRejected(), result.getErrors());
+
+        if (result.getRetryable().isEmpty()) {
+            spool.remove(file);
+
+            replayFailures.remove(file.getName());
+            replayed.increment();
+
+            nextReplayTime = 0;
+
+            LOG.info("Entity audit writer: replayed spool file {}; {} files pending", file.getName(), spool.getFileCount());
+
+            return;
+        }
+
+        int failureCount = replayFailures.merge(file.getName(), 1, Integer::sum);
+
+        LOG.warn("Entity audit writer: replay {} of spool file {} failed for {} audit events: {}", failureCount, file.getName(), result.getRetryable().size(), result.getErrors());
+
+        try {
+            spool.replace(file, result.getRetryable());
+        } catch (IOException e) {
+            LOG.warn("Entity audit writer: failed to update spool file {}; the file will be replayed in full", file, e);
+        }
+
+        if (failureCount >= maxReplayAttempts) {
+            moveToDeadLetter(file);
+        } else {
+            nextReplayTime = System.currentTimeMillis() + getBackoffMs(failureCount - 1);
+        }
+    }
+
+    private void moveToDeadLetter(File file) {
+        replayFailures.remove(file.getName());
+
+        nextReplayTime = 0;
+
+        try {
+            spool.moveToDeadLetter(file);
+
+            deadLettered.increment();
+
+            LOG.error("Entity audit writer: moved spool file {} to {}", file.getName(), spool.getDeadLetterDirectory());
+        } catch (IOException e) {
+            // skipped until the next start, so that it doesn't hold back the replay of newer files
+            spool.skip(file);
+
+            LOG.error("Entity audit writer: failed to move spool file {} to {}; file skipped", file.getName(), spool.getDeadLetterDirectory(), e);
+        }
+    }
+
+    private void deadLetter(List<String> items, List<String> errors) {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        rejected.increment(items.size());
+
+        if (spool != null) {
+            try {
+                spool.appendDeadLetter(items);
+
+                LOG.error("Entity audit writer: {} audit events were rejected and moved to {}: {}", items.size(), spool.getDeadLetterDirectory(), errors);
+
+                return;
+            } catch (IOException e) {
+                LOG.error("Entity audit writer: failed to write {} rejected audit events to {}", items.size(), spool.getDeadLetterDirectory(), e);
+            }
+        }
+
+        LOG.error("Entity audit writer: dropped {} rejected audit events: {}", items.size(), errors);
+    }
+
+    private long getBackoffMs(int attempt) {
+        return retryBackoffMs << Math.min(attempt, 10);
+    }
+
+    private void spoolOrDrop(List<String> items) {
+        if (spool != null) {
+            try {
+                spool.append(items);
+
+                spooled.increment(items.size());
+
+                return;
+            } catch (IOException e) {
+                LOG.error("Entity audit writer: failed to spool {} audit events", items.size(), e);
+            }
+        }
+
+        LOG.error("Entity audit writer: dropped {} audit events", items.size());
+
+        dropped.increment(items.size());
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Append-only local spool of entity-audit bulk items that could not be written to Elasticsearch.
+ *
+ * Every append creates a new file holding the bulk request lines of the given items; a file is written
+ * under a temporary name and renamed once complete, so a crash never leaves a partial file to replay.
+ * Files are replayed oldest first and deleted once Elasticsearch accepted them. Items Elasticsearch
+ * rejected, and files that could not be replayed, are moved to the dead-letter sub-directory, which is
+ * never replayed.
+ */
+class EntityAuditSpool {
+    private static final Logger LOG = LoggerFactory.getLogger(EntityAuditSpool.class);
+
+    private static final String FILE_PREFIX          = "audits-";
+    private static final String FILE_SUFFIX          = ".ndjson";
+    private static final String TMP_SUFFIX           = ".tmp";
+    private static final String DEAD_LETTER_DIR_NAME = "dead-letter";
+    private static final int    LINES_PER_ITEM       = 2; // _bulk action line and document line
+
+    private final File        directory;
+    private final File        deadLetterDirectory;
+    private final Deque<File> files = new ArrayDeque<>();
+    private       long        sequence;
+
+    EntityAuditSpool(File directory) throws IOException {
+        this.directory           = directory;
+        this.deadLetterDirectory = new File(directory, DEAD_LETTER_DIR_NAME);
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create entity audit spool directory " + directory);
+        }
+
+        if (!deadLetterDirectory.isDirectory() && !deadLetterDirectory.mkdirs()) {
+            throw new IOException("Unable to create entity audit dead-letter directory " + deadLetterDirectory);
+        }
+
+        File[] existing = directory.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+
+        if (existing != null) {
+            Arrays.sort(existing);
+
+            files.addAll(Arrays.asList(existing));
+        }
+
+        if (!files.isEmpty()) {
+            LOG.info("Entity audit spool {}: {} files pending replay", directory, files.size());
+        }
+    }
+
+    synchronized void append(List<String> items) throws IOException {
+        files.addLast(writeNewFile(directory, items));
+    }
+
+    synchronized void appendDeadLetter(List<String> items) throws IOException {
+        writeNewFile(deadLetterDirectory, items);
+    }
+
+    synchronized File peek() {
+        return files.peekFirst();
+    }
+
+    /**
+     * @return the bulk items in the given file, each terminated by a newline
+     */
+    List<String> read(File file) throws IOException {
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+
+        if (lines.size() % LINES_PER_ITEM != 0) {
+            throw new IOException("Entity audit spool file " + file + " is not complete: " + lines.size() + " lines");
+        }
+
+        List<String> ret = new ArrayList<>(lines.size() / LINES_PER_ITEM);
+
+        for (int i = 0; i < lines.size(); i += LINES_PER_ITEM) {
+            ret.add(lines.get(i) + '\n' + lines.get(i + 1) + '\n');
+        }
+
+        return ret;
+    }
+
+    /**
+     * Replaces the content of the given spool file with the given items, i.e. the items that still need to be replayed.
+     */
+    synchronized void replace(File file, List<String> items) throws IOException {
+        File tmp = new File(directory, file.getName() + TMP_SUFFIX);
+
+        write(tmp, items);
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    synchronized void moveToDeadLetter(File file) throws IOException {
+        files.remove(file);
+
+        Files.move(file.toPath(), new File(deadLetterDirectory, file.getName()).toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    synchronized void remove(File file) {
+        files.remove(file);
+
+        if (!file.delete()) {
+            LOG.warn("Unable to delete replayed entity audit spool file {}", file);
+        }
+    }
+
+    /**
+     * Removes the given file from the replay queue without deleting it; it is replayed after the next start.
+     */
+    synchronized void skip(File file) {
+        files.remove(file);
+    }
+
+    synchronized int getFileCount() {
+        return files.size();
+    }
+
+    File getDeadLetterDirectory() {
+        return deadLetterDirectory;
+    }
+
+    private File writeNewFile(File dir, List<String> items) throws IOException {
+        String name = String.format("%s%013d-%06d%s", FILE_PREFIX, System.currentTimeMillis(), sequence++ % 1000000, FILE_SUFFIX);
+        File   file = new File(dir, name);
+        File   tmp  = new File(dir, name + TMP_SUFFIX);
+
+        write(tmp, items);
+
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        return file;
+    }
+
+    private static void write(File file, List<String> items) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            write(out, items);
+
+            out.getFD().sync();
+        }
+    }
+
+    private static void write(OutputStream out, List<String> items) throws IOException {
+        for (String item : items) {
+            out.write(item.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
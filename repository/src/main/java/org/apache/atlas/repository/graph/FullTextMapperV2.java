@@ -170,6 +170,22 @@ public class FullTextMapperV2 implements IFullTextMapper {
         return ret;
     }
 
+    @Override
+    public String getClassificationText(AtlasClassification classification) throws AtlasBaseException {
+        StringBuilder sb = new StringBuilder();
+
+        if (classification != null) {
+            final AtlasClassificationType classificationType              = typeRegistry.getClassificationTypeByName(classification.getTypeName());
+            final Set<String>             excludeClassificationAttributes = getExcludeAttributesForIndexText(classification.getTypeName());
+
+            sb.append(classification.getTypeName()).append(FULL_TEXT_DELIMITER);
+
+            mapAttributes(classificationType, classification.getAttributes(), null, sb, new HashSet<String>(), excludeClassificationAttributes, true);
+        }
+
+        return sb.toString();
+    }
+
     private void map(AtlasEntity entity, AtlasEntityExtInfo entityExtInfo, StringBuilder sb, Set<String> processedGuids, boolean isClassificationOnly) throws AtlasBaseException {
         if (entity == null || processedGuids.contains(entity.getGuid())) {
             return;
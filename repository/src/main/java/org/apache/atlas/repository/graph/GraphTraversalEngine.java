@@ -0,0 +1,267 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.cursors.LongCursor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.service.metrics.MetricUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Breadth-first traversal over vertex ids, shared by all graph traversals that need to visit
+ * large neighbourhoods (e.g. tag propagation).
+ *
+ * Each level of the traversal is split into chunks of atlas.graph.traverse.batch.size vertices; every
+ * chunk is expanded with a single call to the supplied FrontierExpander, which is expected to fetch
+ * the adjacency of the whole chunk in a batch. In parallel mode chunks are expanded on a long-lived
+ * work-stealing pool; the visited set is only ever touched by the thread running the traversal.
+ */
+public final class GraphTraversalEngine {
+    private static final Logger LOG = LoggerFactory.getLogger(GraphTraversalEngine.class);
+
+    private static final String METRIC_TAG_TRAVERSAL = "traversal";
+
+    private static volatile GraphTraversalEngine INSTANCE;
+
+    public interface FrontierExpander {
+        /**
+         * Returns ids of vertices adjacent to the given frontier vertices; may include already visited ids.
+         * In parallel mode this is called concurrently from pool threads for different chunks.
+         */
+        LongArrayList expand(LongArrayList frontier);
+    }
+
+    public static class TraversalAbortedException extends RuntimeException {
+        public TraversalAbortedException(String message) {
+            super(message);
+        }
+    }
+
+    private final ForkJoinPool  pool;
+    private final int           batchSize;
+    private final long          defaultMaxVertices;
+    private final MeterRegistry meterRegistry;
+
+    GraphTraversalEngine(int parallelism, int batchSize, long defaultMaxVertices, MeterRegistry meterRegistry) {
+        this.pool               = new ForkJoinPool(Math.max(1, parallelism), GraphTraversalEngine::newWorkerThread, null, true);
+        this.batchSize          = Math.max(1, batchSize);
+        this.defaultMaxVertices = defaultMaxVertices;
+        this.meterRegistry      = meterRegistry;
+
+        if (meterRegistry != null) {
+            Gauge.builder("graph_traversal_pool_active_threads", pool, ForkJoinPool::getActiveThreadCount).register(meterRegistry);
+            Gauge.builder("graph_traversal_pool_queued_tasks", pool, p -> p.getQueuedSubmissionCount() + p.getQueuedTaskCount()).register(meterRegistry);
+        }
+    }
+
+    public static GraphTraversalEngine getInstance() {
+        GraphTraversalEngine ret = INSTANCE;
+
+        if (ret == null) {
+            synchronized (GraphTraversalEngine.class) {
+                ret = INSTANCE;
+
+                if (ret == null) {
+                    ret = new GraphTraversalEngine(AtlasConfiguration.GRAPH_TRAVERSAL_PARALLELISM.getInt(),
+                                                   AtlasConfiguration.GRAPH_TRAVERSAL_BATCH_SIZE.getInt(),
+                                                   AtlasConfiguration.GRAPH_TRAVERSAL_MAX_VERTICES.getLong(),
+                                                   MetricUtils.getMeterRegistry());
+
+                    INSTANCE = ret;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    public Traversal newTraversal(String name, FrontierExpander expander) {
+        return new Traversal(name, expander);
+    }
+
+    private static ForkJoinWorkerThread newWorkerThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread ret = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+
+        ret.setName("Tasks-BFS-" + ret.getPoolIndex());
+        ret.setDaemon(true);
+
+        return ret;
+    }
+
+    public final class Traversal {
+        private final String           name;
+        private final FrontierExpander expander;
+        private       boolean          parallel    = true;
+        private       long             maxVertices = defaultMaxVertices;
+        private volatile boolean       cancelled   = false;
+
+        private Traversal(String name, FrontierExpander expander) {
+            this.name     = name;
+            this.expander = expander;
+        }
+
+        /**
+         * When false, chunks are expanded on the calling thread, e.g. to see uncommitted changes of its transaction.
+         */
+        public Traversal parallel(boolean parallel) {
+            this.parallel = parallel;
+
+            return this;
+        }
+
+        /**
+         * Maximum number of vertices the traversal may visit before it is aborted; zero or negative for no limit.
+         */
+        public Traversal maxVertices(long maxVertices) {
+            this.maxVertices = maxVertices;
+
+            return this;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * @return ids of all vertices reachable from the start vertices, excluding the start vertices
+         * @throws TraversalAbortedException if the traversal was cancelled or exceeded its vertex budget
+         */
+        public LongHashSet run(long... startVertexIds) {
+            Timer.Sample  sample   = meterRegistry != null ? Timer.start(meterRegistry) : null;
+            LongHashSet   visited  = new LongHashSet();
+            LongHashSet   reached  = new LongHashSet();
+            LongArrayList frontier = new LongArrayList();
+            int           levels   = 0;
+            String        outcome  = "completed";
+
+            for (long startVertexId : startVertexIds) {
+                if (visited.add(startVertexId)) {
+                    frontier.add(startVertexId);
+                }
+            }
+
+            try {
+                while (!frontier.isEmpty()) {
+                    checkCancelled();
+
+                    LongArrayList nextLevel = new LongArrayList();
+
+                    for (LongArrayList adjacentIds : expandLevel(frontier)) {
+                        for (LongCursor cursor : adjacentIds) {
+                            if (visited.add(cursor.value)) {
+                                reached.add(cursor.value);
+                                nextLevel.add(cursor.value);
+                            }
+                        }
+                    }
+
+                    if (maxVertices > 0 && visited.size() > maxVertices) {
+                        throw new TraversalAbortedException(String.format("%s visited more than %d vertices at level %d", name, maxVertices, levels + 1));
+                    }
+
+                    frontier = nextLevel;
+                    levels++;
+                }
+            } catch (TraversalAbortedException e) {
+                outcome = "aborted";
+
+                throw e;
+            } finally {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("{}: {} vertices visited in {} levels ({})", name, visited.size(), levels, outcome);
+                }
+
+                if (meterRegistry != null) {
+                    sample.stop(Timer.builder("graph_traversal_duration").tag(METRIC_TAG_TRAVERSAL, name).tag("outcome", outcome).register(meterRegistry));
+                    Counter.builder("graph_traversal_visited_vertices").tag(METRIC_TAG_TRAVERSAL, name).register(meterRegistry).increment(visited.size());
+                }
+            }
+
+            return reached;
+        }
+
+        private List<LongArrayList> expandLevel(LongArrayList frontier) {
+            List<LongArrayList> chunks = new ArrayList<>((frontier.size() + batchSize - 1) / batchSize);
+
+            for (int start = 0; start < frontier.size(); start += batchSize) {
+                int           end   = Math.min(start + batchSize, frontier.size());
+                LongArrayList chunk = new LongArrayList(end - start);
+
+                for (int i = start; i < end; i++) {
+                    chunk.add(frontier.get(i));
+                }
+
+                chunks.add(chunk);
+            }
+
+            List<LongArrayList> ret = new ArrayList<>(chunks.size());
+
+            if (!parallel) {
+                for (LongArrayList chunk : chunks) {
+                    checkCancelled();
+
+                    ret.add(expander.expand(chunk));
+                }
+
+                return ret;
+            }
+
+            List<CompletableFuture<LongArrayList>> futures = new ArrayList<>(chunks.size());
+
+            for (LongArrayList chunk : chunks) {
+                futures.add(CompletableFuture.supplyAsync(() -> cancelled ? new LongArrayList() : expander.expand(chunk), pool));
+            }
+
+            try {
+                for (CompletableFuture<LongArrayList> future : futures) {
+                    ret.add(future.join());
+                }
+            } catch (CompletionException e) {
+                futures.forEach(future -> future.cancel(false));
+
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+
+                throw e;
+            }
+
+            return ret;
+        }
+
+        private void checkCancelled() {
+            if (cancelled || Thread.currentThread().isInterrupted()) {
+                throw new TraversalAbortedException(name + " was cancelled");
+            }
+        }
+    }
+}
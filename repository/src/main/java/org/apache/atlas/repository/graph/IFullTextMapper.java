@@ -37,6 +37,12 @@ public interface IFullTextMapper {
 
     String getClassificationTextForEntity(AtlasEntity entity) throws AtlasBaseException;
 
+    /**
+     * @return classification text of a single classification; classification text of an entity is the
+     *         concatenation of this text for each of its classifications
+     */
+    String getClassificationText(AtlasClassification classification) throws AtlasBaseException;
+
     AtlasEntity getAndCacheEntity(String guid) throws AtlasBaseException;
 
     AtlasEntity  getAndCacheEntity(String guid, boolean includeReferences) throws AtlasBaseException;
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.impexp;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.authorize.AtlasAuthorizationUtils;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.store.graph.v2.EntityGraphRetriever;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Retrieves and serializes entities to export on a pool of worker threads, ahead of ExportService processing them.
+ *
+ * ExportService still processes entities one at a time and in the same order, so the exported entities, their order
+ * and the export order are the same as with retrieval on the calling thread. At most lookahead entities are retrieved
+ * ahead; with parallelism of 1 or less, entities are retrieved on the calling thread when needed.
+ */
+class ExportEntityRetriever {
+    private static final Logger LOG = LoggerFactory.getLogger(ExportEntityRetriever.class);
+
+    private final EntityGraphRetriever                 entityGraphRetriever;
+    private final AtlasGraph                           graph;
+    private final ExecutorService                      executor;
+    private final int                                  lookahead;
+    private final Map<String, Future<RetrievedEntity>> pending = new LinkedHashMap<>();
+    private       long                                 prefetchedCount;
+    private       long                                 waitTimeMs;
+
+    ExportEntityRetriever(EntityGraphRetriever entityGraphRetriever, AtlasGraph graph, int parallelism, int lookahead) {
+        this.entityGraphRetriever = entityGraphRetriever;
+        this.graph                = graph;
+        this.executor             = parallelism > 1 ? Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder().setNameFormat("export-retriever-%d").setDaemon(true).build()) : null;
+        this.lookahead            = Math.max(lookahead, 1);
+    }
+
+    /**
+     * Starts retrieval of the first entities in the given guids that aren't processed yet, up to lookahead entities
+     * in total; retrievals of entities processed since are cancelled.
+     */
+    void prefetch(List<String> guids, Set<String> guidsProcessed) {
+        if (executor == null) {
+            return;
+        }
+
+        for (Iterator<Map.Entry<String, Future<RetrievedEntity>>> iter = pending.entrySet().iterator(); iter.hasNext(); ) {
+            Map.Entry<String, Future<RetrievedEntity>> entry = iter.next();
+
+            if (guidsProcessed.contains(entry.getKey())) {
+                entry.getValue().cancel(false);
+
+                iter.remove();
+            }
+        }
+
+        for (int i = 0; i < guids.size() && i < lookahead && pending.size() < lookahead; i++) {
+            String guid = guids.get(i);
+
+            if (!guidsProcessed.contains(guid) && !pending.containsKey(guid)) {
+                pending.put(guid, executor.submit(AtlasAuthorizationUtils.withCurrentContext(() -> retrieveInWorker(guid))));
+
+                prefetchedCount++;
+            }
+        }
+    }
+
+    RetrievedEntity get(String guid) throws AtlasBaseException {
+        Future<RetrievedEntity> future = pending.remove(guid);
+
+        if (future == null) {
+            return new RetrievedEntity(entityGraphRetriever.toAtlasEntityWithExtInfo(guid), null);
+        }
+
+        long startTime = System.currentTimeMillis();
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new AtlasBaseException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AtlasBaseException) {
+                throw (AtlasBaseException) e.getCause();
+            }
+
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new AtlasBaseException(e.getCause());
+        } finally {
+            waitTimeMs += System.currentTimeMillis() - startTime;
+        }
+    }
+
+    long getWaitTimeMs() {
+        return waitTimeMs;
+    }
+
+    void close() {
+        if (executor != null) {
+            pending.values().forEach(future -> future.cancel(false));
+            pending.clear();
+
+            executor.shutdown();
+
+            LOG.info("export(): {} entities retrieved ahead, waited {} ms for retrievals", prefetchedCount, waitTimeMs);
+        }
+    }
+
+    private RetrievedEntity retrieveInWorker(String guid) throws AtlasBaseException {
+        try {
+            AtlasEntityWithExtInfo entityWithExtInfo = entityGraphRetriever.toAtlasEntityWithExtInfo(guid);
+
+            return new RetrievedEntity(entityWithExtInfo, ZipSink.toJsonBytes(entityWithExtInfo));
+        } finally {
+            // pool threads are long-lived: don't carry their read transaction, nor their request context - which would
+            // hold back RequestContext.earliestActiveRequestTime() and hence change markers - over to the next entity
+            graph.rollback();
+
+            RequestContext.clear();
+        }
+    }
+
+    static class RetrievedEntity {
+        final AtlasEntityWithExtInfo entityWithExtInfo;
+        final byte[]                 json; // entityWithExtInfo as written to the zip; null if not serialized yet
+
+        RetrievedEntity(AtlasEntityWithExtInfo entityWithExtInfo, byte[] json) {
+            this.entityWithExtInfo = entityWithExtInfo;
+            this.json              = json;
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package org.apache.atlas.repository.impexp;
 
 import com.google.common.annotations.VisibleForTesting;
+import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.glossary.GlossaryService;
@@ -61,6 +62,7 @@ public class ExportService {
     private static final Logger LOG = LoggerFactory.getLogger(ExportService.class);
 
     private final AtlasTypeRegistry         typeRegistry;
+    private final AtlasGraph                graph;
     private final StartEntityFetchByExportRequest startEntityFetchByExportRequest;
     private final EntitiesExtractor         entitiesExtractor;
     private       AuditsWriter              auditsWriter;
@@ -74,6 +76,7 @@ public class ExportService {
                          AuditsWriter auditsWriter, HdfsPathEntityCreator hdfsPathEntityCreator,
                          GlossaryService glossaryService) {
         this.typeRegistry         = typeRegistry;
+        this.graph                = graph;
         this.entityGraphRetriever = new EntityGraphRetriever(graph, this.typeRegistry);
         this.auditsWriter         = auditsWriter;
         this.hdfsPathEntityCreator = hdfsPathEntityCreator;
@@ -90,6 +93,8 @@ public class ExportService {
 
         ExportContext context = new ExportContext(result, exportSink);
         exportTypeProcessor = new ExportTypeProcessor(typeRegistry, glossaryService);
+        context.entityRetriever = new ExportEntityRetriever(entityGraphRetriever, graph, AtlasConfiguration.EXPORT_RETRIEVAL_PARALLELISM.getInt(),
+                                                            AtlasConfiguration.EXPORT_RETRIEVAL_LOOKAHEAD.getInt());
 
         try {
             LOG.info("==> export(user={}, from={})", userName, requestingIP);
@@ -103,6 +108,7 @@ public class ExportService {
             LOG.error("Operation failed: ", ex);
         } finally {
             entitiesExtractor.close();
+            context.entityRetriever.close();
 
             LOG.info("<== export(user={}, from={}): status {}: changeMarker: {}",
                     userName, requestingIP, context.result.getOperationStatus(), context.result.getChangeMarker());
@@ -214,13 +220,18 @@ public class ExportService {
 
             entitiesExtractor.setExtractor(typeRegistry.getEntityDefByName(item.getTypeName()));
 
-            for (String guid : entityGuids) {
-                processEntityGuid(guid, context);
+            for (int i = 0; i < entityGuids.size(); i++) {
+                context.entityRetriever.prefetch(entityGuids.subList(i + 1, entityGuids.size()), context.guidsProcessed);
+
+                processEntityGuid(entityGuids.get(i), context);
             }
 
             while (!context.guidsToProcess.isEmpty()) {
                 while (!context.guidsToProcess.isEmpty()) {
                     String guid = context.guidsToProcess.remove(0);
+
+                    context.entityRetriever.prefetch(context.guidsToProcess.getList(), context.guidsProcessed);
+
                     processEntityGuid(guid, context);
                 }
 
@@ -260,21 +271,25 @@ public class ExportService {
             return;
         }
 
-        AtlasEntityWithExtInfo entityWithExtInfo = entityGraphRetriever.toAtlasEntityWithExtInfo(guid);
+        ExportEntityRetriever.RetrievedEntity retrieved = context.entityRetriever.get(guid);
 
-        processEntity(entityWithExtInfo, context);
+        processEntity(retrieved.entityWithExtInfo, context, retrieved.json);
         if (LOG.isDebugEnabled()) {
             LOG.debug("<== processEntityGuid({})", guid);
         }
     }
 
     public void processEntity(AtlasEntityWithExtInfo entityWithExtInfo, ExportContext context) throws AtlasBaseException {
+        processEntity(entityWithExtInfo, context, null);
+    }
+
+    private void processEntity(AtlasEntityWithExtInfo entityWithExtInfo, ExportContext context, byte[] json) throws AtlasBaseException {
         exportTypeProcessor.addTypes(entityWithExtInfo.getEntity(), context);
         if (MapUtils.isNotEmpty(context.termsGlossary)) {
             addGlossaryEntities(context);
         }
 
-        addEntity(entityWithExtInfo, context);
+        addEntity(entityWithExtInfo, context, json);
 
         context.guidsProcessed.add(entityWithExtInfo.getEntity().getGuid());
         entitiesExtractor.get(entityWithExtInfo.getEntity(), context);
@@ -296,12 +311,12 @@ public class ExportService {
                     String glossaryGuid = context.termsGlossary.get(termGuid);
                     if (!context.sink.hasEntity(glossaryGuid)) {
                         AtlasEntity glossary = entityGraphRetriever.toAtlasEntity(glossaryGuid);
-                        addEntity(new AtlasEntityWithExtInfo(glossary), context);
+                        addEntity(new AtlasEntityWithExtInfo(glossary), context, null);
                     }
 
                     if (!context.sink.hasEntity(termGuid)) {
                         AtlasEntity term = entityGraphRetriever.toAtlasEntity(termGuid);
-                        addEntity(new AtlasEntityWithExtInfo(term), context);
+                        addEntity(new AtlasEntityWithExtInfo(term), context, null);
                     }
                 } catch (AtlasBaseException exception) {
                     LOG.error("Error fetching Glossary for term: {}", termGuid);
@@ -312,13 +327,14 @@ public class ExportService {
         }
     }
 
-    private void addEntity(AtlasEntityWithExtInfo entityWithExtInfo, ExportContext context) throws AtlasBaseException {
+    // json: entityWithExtInfo serialized by ExportEntityRetriever; null if not serialized yet
+    private void addEntity(AtlasEntityWithExtInfo entityWithExtInfo, ExportContext context, byte[] json) throws AtlasBaseException {
         if(context.sink.hasEntity(entityWithExtInfo.getEntity().getGuid())) {
             return;
         }
 
         if(context.doesTimestampQualify(entityWithExtInfo.getEntity())) {
-            context.addToSink(entityWithExtInfo);
+            context.addToSink(entityWithExtInfo, json);
 
             context.result.incrementMeticsCounter(String.format("entity:%s", entityWithExtInfo.getEntity().getTypeName()));
             if (entityWithExtInfo.getReferredEntities() != null) {
@@ -390,6 +406,8 @@ public class ExportService {
 
         final AtlasExportResult               result;
         private final ZipSink                 sink;
+        private final long                    startTime = System.currentTimeMillis();
+        ExportEntityRetriever                 entityRetriever;
 
         final ExportFetchType             fetchType;
         final boolean                     skipLineage;
@@ -472,7 +490,11 @@ public class ExportService {
             if ((guidsProcessed.size() - progressReportCount) > REPORTING_THREASHOLD) {
                 progressReportCount = guidsProcessed.size();
 
-                LOG.info("export(): in progress.. number of entities exported: {}", this.guidsProcessed.size());
+                long elapsedMs = Math.max(System.currentTimeMillis() - startTime, 1);
+
+                LOG.info("export(): in progress.. number of entities exported: {}, {} entities/sec, {} bytes written, {} ms waited for retrievals",
+                         this.guidsProcessed.size(), this.guidsProcessed.size() * 1000L / elapsedMs, sink.getBytesWritten(),
+                         entityRetriever != null ? entityRetriever.getWaitTimeMs() : 0);
             }
         }
 
@@ -489,8 +511,12 @@ public class ExportService {
         }
 
         public void addToSink(AtlasEntityWithExtInfo entityWithExtInfo) throws AtlasBaseException {
+            addToSink(entityWithExtInfo, null);
+        }
+
+        void addToSink(AtlasEntityWithExtInfo entityWithExtInfo, byte[] json) throws AtlasBaseException {
             addToEntityCreationOrder(entityWithExtInfo.getEntity().getGuid());
-            sink.add(entityWithExtInfo);
+            sink.add(entityWithExtInfo, json);
         }
 
         public boolean isHiveDBIncrementalSkipLineage() {
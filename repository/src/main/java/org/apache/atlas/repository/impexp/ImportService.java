@@ -265,6 +265,12 @@ public class ImportService {
                 return getZipDirectEntityImportStream(request, inputStream);
             }
 
+            if (AtlasConfiguration.IMPORT_STREAMING_ENABLED.getBoolean() || (request.getOptions().containsKey(AtlasImportRequest.OPTION_KEY_FORMAT) &&
+                    request.getOptions().get(AtlasImportRequest.OPTION_KEY_FORMAT).equals(AtlasImportRequest.OPTION_KEY_FORMAT_ZIP_STREAMING))) {
+                LOG.info("ZipSource Format: ZipStreaming: Window: {}", AtlasConfiguration.IMPORT_STREAMING_WINDOW_SIZE.getInt());
+                return new ZipSourceStreaming(inputStream, configuredTemporaryDirectory, AtlasConfiguration.IMPORT_STREAMING_WINDOW_SIZE.getInt());
+            }
+
             if (StringUtils.isEmpty(configuredTemporaryDirectory)) {
                 return new ZipSource(inputStream);
             }
@@ -22,7 +22,6 @@ import org.apache.atlas.model.impexp.AtlasExportResult;
 import org.apache.atlas.model.instance.AtlasEntity;
 import org.apache.atlas.model.typedef.AtlasTypesDef;
 import org.apache.atlas.type.AtlasType;
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,19 +31,50 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+/**
+ * Writes exported entities, types and export details to a zip.
+ *
+ * With a queue size greater than 0, entries are compressed and written on a writer thread, in the order they are
+ * added; add() blocks while queueSize entries are waiting to be written. close() waits for all entries to be written,
+ * and fails if any of them failed to be written.
+ */
 public class ZipSink {
     private static final Logger LOG = LoggerFactory.getLogger(ZipSink.class);
 
     private static String FILE_EXTENSION_JSON = ".json";
 
+    private static final ZipSinkEntry END_OF_ENTRIES = new ZipSinkEntry(null, null);
+
     private ZipOutputStream zipOutputStream;
     final Set<String>       guids = new HashSet<>();
 
+    private final BlockingQueue<ZipSinkEntry> queue;
+    private final Thread                      writer;
+    private volatile IOException              writeError;
+    private volatile long                     bytesWritten;
+
     public ZipSink(OutputStream outputStream) {
+        this(outputStream, 0);
+    }
+
+    public ZipSink(OutputStream outputStream, int queueSize) {
         zipOutputStream = new ZipOutputStream(outputStream);
+
+        if (queueSize > 0) {
+            queue  = new ArrayBlockingQueue<>(queueSize);
+            writer = new Thread(this::writeEntries, "export-zip-writer");
+
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            queue  = null;
+            writer = null;
+        }
     }
 
     public void add(AtlasEntity entity) throws AtlasBaseException {
@@ -54,11 +84,28 @@ public class ZipSink {
     }
 
     public void add(AtlasEntity.AtlasEntityWithExtInfo entityWithExtInfo) throws AtlasBaseException {
-        String jsonData = convertToJSON(entityWithExtInfo);
-        saveToZip(entityWithExtInfo.getEntity().getGuid(), jsonData);
+        add(entityWithExtInfo, null);
+    }
+
+    /**
+     * @param json entityWithExtInfo serialized with toJsonBytes(); null to serialize it here
+     */
+    public void add(AtlasEntity.AtlasEntityWithExtInfo entityWithExtInfo, byte[] json) throws AtlasBaseException {
+        saveToZip(entityWithExtInfo.getEntity().getGuid(), json != null ? json : toJsonBytes(entityWithExtInfo));
         recordAddedEntityGuids(entityWithExtInfo);
     }
 
+    /**
+     * @return the given entity as written to the zip
+     */
+    public static byte[] toJsonBytes(AtlasEntity.AtlasEntityWithExtInfo entityWithExtInfo) {
+        return AtlasType.toJson(entityWithExtInfo).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
     public void setResult(AtlasExportResult result) throws AtlasBaseException {
         String jsonData = convertToJSON(result);
         saveToZip(ZipExportFileNames.ATLAS_EXPORT_INFO_NAME, jsonData);
@@ -74,14 +121,44 @@ public class ZipSink {
         saveToZip(ZipExportFileNames.ATLAS_EXPORT_ORDER_NAME, jsonData);
     }
 
-    public void close() {
-        try {
-            if(zipOutputStream != null) {
-                zipOutputStream.close();
-                zipOutputStream = null;
+    /**
+     * Waits for queued entries to be written, and closes the zip; calls after the first are ignored.
+     *
+     * @throws AtlasBaseException if an entry or the zip failed to be written, hence the zip is incomplete
+     */
+    public void close() throws AtlasBaseException {
+        if (zipOutputStream == null) {
+            return;
+        }
+
+        if (writer != null && writer.isAlive()) {
+            try {
+                queue.put(END_OF_ENTRIES);
+
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                LOG.error("Interrupted while writing Zip file", e);
             }
+        }
+
+        IOException error = writeError;
+
+        try {
+            zipOutputStream.close();
         } catch (IOException e) {
             LOG.error("Error closing Zip file", e);
+
+            if (error == null) {
+                error = e;
+            }
+        } finally {
+            zipOutputStream = null;
+        }
+
+        if (error != null) {
+            throw new AtlasBaseException("Error writing Zip file", error);
         }
     }
 
@@ -94,23 +171,56 @@ public class ZipSink {
     }
 
     private void saveToZip(String fileName, String jsonData) throws AtlasBaseException {
+        saveToZip(fileName, jsonData.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void saveToZip(String fileName, byte[] payload) throws AtlasBaseException {
+        String entryName = fileName + FILE_EXTENSION_JSON;
+
         try {
-            addToZipStream(fileName.toString() + FILE_EXTENSION_JSON, jsonData);
+            if (writer == null) {
+                addToZipStream(entryName, payload);
+            } else {
+                if (writeError != null) {
+                    throw writeError;
+                }
+
+                queue.put(new ZipSinkEntry(entryName, payload));
+            }
         } catch (IOException e) {
             throw new AtlasBaseException(String.format("Error writing file %s.", fileName), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new AtlasBaseException(String.format("Interrupted writing file %s.", fileName), e);
         }
     }
 
-    private void addToZipStream(String entryName, String payload) throws IOException {
+    private void addToZipStream(String entryName, byte[] payload) throws IOException {
 
         ZipEntry e = new ZipEntry(entryName);
         zipOutputStream.putNextEntry(e);
-        writeBytes(payload);
+        zipOutputStream.write(payload);
         zipOutputStream.closeEntry();
+
+        bytesWritten += payload.length;
     }
 
-    private void writeBytes(String payload) throws IOException {
-        IOUtils.copy(IOUtils.toInputStream(payload, StandardCharsets.UTF_8), zipOutputStream);
+    // runs on the writer thread; after an error, remaining entries are dropped so that add() doesn't block
+    private void writeEntries() {
+        try {
+            for (ZipSinkEntry entry = queue.take(); entry != END_OF_ENTRIES; entry = queue.take()) {
+                if (writeError == null) {
+                    try {
+                        addToZipStream(entry.name, entry.payload);
+                    } catch (IOException e) {
+                        writeError = e;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Zip writer interrupted");
+        }
     }
 
     public boolean hasEntity(String guid) {
@@ -127,4 +237,14 @@ public class ZipSink {
     private void recordAddedEntityGuids(AtlasEntity entity) {
         guids.add(entity.getGuid());
     }
+
+    private static class ZipSinkEntry {
+        private final String name;
+        private final byte[] payload;
+
+        ZipSinkEntry(String name, byte[] payload) {
+            this.name    = name;
+            this.payload = payload;
+        }
+    }
 }
@@ -0,0 +1,489 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.impexp;
+
+import org.apache.atlas.entitytransform.BaseEntityHandler;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.impexp.AtlasExportResult;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
+import org.apache.atlas.model.typedef.AtlasTypesDef;
+import org.apache.atlas.repository.store.graph.v2.EntityImportStream;
+import org.apache.atlas.type.AtlasType;
+import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.apache.atlas.AtlasErrorCode.IMPORT_ATTEMPTING_EMPTY_ZIP;
+
+/**
+ * Import source that reads entities from the export zip as they are imported, with a bounded heap budget:
+ * - the zip is copied to a temporary file; its central directory is the index used to read an entity by guid
+ * - a prefetch thread reads and parses entities in creation order, up to windowSize entities ahead of the import
+ * - up to windowSize recently used entities are kept transformed, for references resolved by getByGuid(); they are
+ *   kept as JSON, so that each call returns an instance of its own that the caller is free to modify
+ *
+ * Unlike ZipSource, entity JSON isn't held in memory; unlike ZipSourceWithBackingDirectory, the zip isn't extracted.
+ */
+public class ZipSourceStreaming implements EntityImportStream {
+    private static final Logger LOG = LoggerFactory.getLogger(ZipSourceStreaming.class);
+
+    private static final String TEMPORARY_FILE_PREFIX = "atlas-import-";
+    private static final String TEMPORARY_FILE_SUFFIX = ".zip";
+    private static final String EXT_JSON              = ".json";
+
+    private final File                zipFileCopy;
+    private final ZipFile             zipFile;
+    private final int                 windowSize;
+    private final Map<String, String> window;
+    private final Set<String>         importedGuids = new HashSet<>();
+
+    private ImportTransforms        importTransform;
+    private List<BaseEntityHandler> entityHandlers;
+    private List<String>            creationOrder = new ArrayList<>();
+    private int                     currentPosition;
+    private Prefetcher              prefetcher;
+    private long                    entriesRead;
+    private long                    windowHits;
+
+    public ZipSourceStreaming(InputStream inputStream, String backingDirectory, int windowSize) throws IOException, AtlasBaseException {
+        this.windowSize  = Math.max(windowSize, 1);
+        this.window      = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > ZipSourceStreaming.this.windowSize;
+            }
+        };
+        this.zipFileCopy = copyToTemporaryFile(inputStream, backingDirectory);
+
+        try {
+            this.zipFile = new ZipFile(zipFileCopy);
+        } catch (IOException excp) {
+            deleteTemporaryFile();
+
+            throw excp;
+        }
+
+        if (zipFile.size() == 0) {
+            close();
+
+            throw new AtlasBaseException(IMPORT_ATTEMPTING_EMPTY_ZIP, "Attempting to import empty ZIP.");
+        }
+
+        setupIterator();
+    }
+
+    @Override
+    public ImportTransforms getImportTransform() { return this.importTransform; }
+
+    @Override
+    public void setImportTransform(ImportTransforms importTransform) {
+        this.importTransform = importTransform;
+    }
+
+    @Override
+    public List<BaseEntityHandler> getEntityHandlers() {
+        return entityHandlers;
+    }
+
+    @Override
+    public void setEntityHandlers(List<BaseEntityHandler> entityHandlers) {
+        this.entityHandlers = entityHandlers;
+    }
+
+    @Override
+    public AtlasTypesDef getTypesDef() throws AtlasBaseException {
+        return getJsonFromEntry(ZipExportFileNames.ATLAS_TYPESDEF_NAME.toEntryFileName(), AtlasTypesDef.class);
+    }
+
+    @Override
+    public AtlasExportResult getExportResult() throws AtlasBaseException {
+        return getJsonFromEntry(ZipExportFileNames.ATLAS_EXPORT_INFO_NAME.toEntryFileName(), AtlasExportResult.class);
+    }
+
+    @Override
+    public List<String> getCreationOrder() {
+        return creationOrder;
+    }
+
+    @Override
+    public int getPosition() {
+        return currentPosition;
+    }
+
+    @Override
+    public int size() {
+        return creationOrder.size();
+    }
+
+    @Override
+    public AtlasEntityWithExtInfo getEntityWithExtInfo(String guid) throws AtlasBaseException {
+        if (importedGuids.contains(guid)) {
+            return null;
+        }
+
+        AtlasEntityWithExtInfo ret = getFromWindow(guid);
+
+        if (ret == null) {
+            ret = readEntity(guid);
+
+            if (ret != null) {
+                ret = transform(ret);
+
+                window.put(guid, AtlasType.toJson(ret));
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return currentPosition < creationOrder.size();
+    }
+
+    @Override
+    public AtlasEntity next() {
+        AtlasEntityWithExtInfo entityWithExtInfo = getNextEntityWithExtInfo();
+
+        return entityWithExtInfo != null ? entityWithExtInfo.getEntity() : null;
+    }
+
+    @Override
+    public AtlasEntityWithExtInfo getNextEntityWithExtInfo() {
+        if (!hasNext()) {
+            return null;
+        }
+
+        int    position = currentPosition++;
+        String guid     = creationOrder.get(position);
+
+        try {
+            Prefetched prefetched = takePrefetched(position);
+
+            if (importedGuids.contains(guid)) {
+                return null;
+            }
+
+            AtlasEntityWithExtInfo ret = getFromWindow(guid);
+
+            if (ret == null) {
+                if (prefetched.error != null) {
+                    throw prefetched.error;
+                }
+
+                if (prefetched.entity != null) {
+                    ret = transform(prefetched.entity);
+
+                    window.put(guid, AtlasType.toJson(ret));
+                }
+            }
+
+            return ret;
+        } catch (AtlasBaseException e) {
+            LOG.error("getNextEntityWithExtInfo", e);
+
+            return null;
+        }
+    }
+
+    @Override
+    public void reset() {
+        currentPosition = 0;
+    }
+
+    @Override
+    public AtlasEntity getByGuid(String guid) {
+        try {
+            AtlasEntityWithExtInfo extInfo = getEntityWithExtInfo(guid);
+
+            return (extInfo != null) ? extInfo.getEntity() : null;
+        } catch (AtlasBaseException e) {
+            LOG.error("getByGuid: {} failed!", guid, e);
+
+            return null;
+        }
+    }
+
+    @Override
+    public void onImportComplete(String guid) {
+        importedGuids.add(guid);
+        window.remove(guid);
+    }
+
+    @Override
+    public void setPosition(int index) {
+        reset();
+
+        for (int i = 0; i < creationOrder.size() && i <= index; i++) {
+            onImportComplete(creationOrder.get(currentPosition++));
+        }
+    }
+
+    @Override
+    public void setPositionUsingEntityGuid(String guid) {
+        if (StringUtils.isEmpty(guid)) {
+            return;
+        }
+
+        int index = creationOrder.indexOf(guid);
+
+        if (index != -1) {
+            currentPosition = index;
+        }
+    }
+
+    @Override
+    public void close() {
+        stopPrefetcher();
+
+        LOG.info("Import: {} entities read from zip, {} found in window of {}", entriesRead, windowHits, windowSize);
+
+        window.clear();
+        importedGuids.clear();
+
+        try {
+            zipFile.close();
+        } catch (IOException e) {
+            LOG.error("Import: Error closing: {}", zipFileCopy, e);
+        }
+
+        deleteTemporaryFile();
+    }
+
+    private static File copyToTemporaryFile(InputStream inputStream, String backingDirectory) throws IOException {
+        File directory = StringUtils.isEmpty(backingDirectory) ? null : new File(backingDirectory);
+        File ret       = File.createTempFile(TEMPORARY_FILE_PREFIX, TEMPORARY_FILE_SUFFIX, directory);
+
+        LOG.info("Import: Temporary file: {}", ret);
+
+        try {
+            Files.copy(inputStream, ret.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            ret.delete();
+
+            throw excp;
+        } finally {
+            inputStream.close();
+        }
+
+        return ret;
+    }
+
+    private void deleteTemporaryFile() {
+        if (!zipFileCopy.delete()) {
+            LOG.warn("Import: Error deleting: {}", zipFileCopy);
+        }
+    }
+
+    private void setupIterator() {
+        try {
+            creationOrder = getJsonFromEntry(ZipExportFileNames.ATLAS_EXPORT_ORDER_NAME.toEntryFileName(), ArrayList.class);
+        } catch (AtlasBaseException e) {
+            LOG.error("Error fetching: {}. Error generating order.", ZipExportFileNames.ATLAS_EXPORT_ORDER_NAME.toString(), e);
+        }
+
+        reset();
+    }
+
+    private <T> T getJsonFromEntry(String entryName, Class<T> clazz) throws AtlasBaseException {
+        ZipEntry entry = zipFile.getEntry(entryName);
+
+        if (entry == null) {
+            throw new AtlasBaseException(entryName + " not found!");
+        }
+
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            return AtlasType.fromJson(inputStream, clazz);
+        } catch (Exception e) {
+            throw new AtlasBaseException("Error converting file to JSON.", e);
+        }
+    }
+
+    // a copy of the transformed entity in the window, if any
+    private AtlasEntityWithExtInfo getFromWindow(String guid) {
+        String json = window.get(guid);
+
+        if (json == null) {
+            return null;
+        }
+
+        windowHits++;
+
+        return AtlasType.fromJson(json, AtlasEntityWithExtInfo.class);
+    }
+
+    // may be called by the prefetch thread; ZipFile supports concurrent reads of entries
+    private AtlasEntityWithExtInfo readEntity(String guid) throws AtlasBaseException {
+        ZipEntry entry = zipFile.getEntry(guid + EXT_JSON);
+
+        if (entry == null) {
+            return null;
+        }
+
+        synchronized (this) {
+            entriesRead++;
+        }
+
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            return AtlasType.fromJson(inputStream, AtlasEntityWithExtInfo.class);
+        } catch (Exception e) {
+            throw new AtlasBaseException("Error converting file to JSON.", e);
+        }
+    }
+
+    private AtlasEntityWithExtInfo transform(AtlasEntityWithExtInfo entityWithExtInfo) throws AtlasBaseException {
+        if (importTransform != null) {
+            entityWithExtInfo = importTransform.apply(entityWithExtInfo);
+        }
+
+        if (entityHandlers != null) {
+            applyTransformers(entityWithExtInfo);
+        }
+
+        return entityWithExtInfo;
+    }
+
+    private void applyTransformers(AtlasEntityWithExtInfo entityWithExtInfo) {
+        if (entityWithExtInfo == null) {
+            return;
+        }
+
+        transform(entityWithExtInfo.getEntity());
+
+        if (MapUtils.isNotEmpty(entityWithExtInfo.getReferredEntities())) {
+            for (AtlasEntity e : entityWithExtInfo.getReferredEntities().values()) {
+                transform(e);
+            }
+        }
+    }
+
+    private void transform(AtlasEntity e) {
+        for (BaseEntityHandler handler : entityHandlers) {
+            handler.transform(e);
+        }
+    }
+
+    // the prefetcher reads entities from the given position on; it is restarted when the position is moved elsewhere
+    private Prefetched takePrefetched(int position) throws AtlasBaseException {
+        if (prefetcher == null || prefetcher.nextPosition != position) {
+            stopPrefetcher();
+
+            prefetcher = new Prefetcher(position);
+
+            prefetcher.start();
+        }
+
+        try {
+            Prefetched ret = prefetcher.queue.take();
+
+            prefetcher.nextPosition++;
+
+            return ret;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new AtlasBaseException("Import: interrupted while reading entity at position " + position, e);
+        }
+    }
+
+    private void stopPrefetcher() {
+        if (prefetcher != null) {
+            prefetcher.stop();
+
+            prefetcher = null;
+        }
+    }
+
+    private static class Prefetched {
+        private final AtlasEntityWithExtInfo entity;
+        private final AtlasBaseException     error;
+
+        Prefetched(AtlasEntityWithExtInfo entity, AtlasBaseException error) {
+            this.entity = entity;
+            this.error  = error;
+        }
+    }
+
+    // reads entities in creation order into a queue of windowSize entries; blocks while the queue is full
+    private class Prefetcher implements Runnable {
+        private final BlockingQueue<Prefetched> queue = new ArrayBlockingQueue<>(windowSize);
+        private final List<String>              guids = creationOrder;
+        private final int                       startPosition;
+        private final Thread                    thread;
+        private       int                       nextPosition;
+        private volatile boolean                isStopped;
+
+        Prefetcher(int startPosition) {
+            this.startPosition = startPosition;
+            this.nextPosition  = startPosition;
+            this.thread        = new Thread(this, "zip-source-prefetch-" + startPosition);
+
+            thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void stop() {
+            isStopped = true;
+
+            thread.interrupt();
+            queue.clear();
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = startPosition; i < guids.size() && !isStopped; i++) {
+                    Prefetched prefetched;
+
+                    try {
+                        prefetched = new Prefetched(readEntity(guids.get(i)), null);
+                    } catch (AtlasBaseException e) {
+                        prefetched = new Prefetched(null, e);
+                    } catch (Throwable t) {
+                        prefetched = new Prefetched(null, new AtlasBaseException("Import: error reading entity " + guids.get(i), t));
+                    }
+
+                    queue.put(prefetched);
+                }
+            } catch (InterruptedException e) {
+                LOG.debug("Import: prefetch from position {} stopped", startPosition);
+            }
+        }
+    }
+}
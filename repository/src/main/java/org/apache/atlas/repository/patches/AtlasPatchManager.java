@@ -18,6 +18,7 @@
 
 package org.apache.atlas.repository.patches;
 
+import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.model.patches.AtlasPatch.AtlasPatches;
 import org.apache.atlas.model.patches.AtlasPatch.PatchStatus;
 import org.apache.atlas.repository.graph.GraphBackedSearchIndexer;
@@ -90,6 +91,10 @@ public class AtlasPatchManager {
         // register all java patches here
         handlers.add(new UpdateCompositeIndexStatusPatch(context));
 
+        if (AtlasConfiguration.LIST_PROPERTY_FORMAT_PATCH_ENABLED.getBoolean()) {
+            handlers.add(new ListPropertyFormatPatch(context));
+        }
+
         LOG.info("<== AtlasPatchManager.init()");
     }
 
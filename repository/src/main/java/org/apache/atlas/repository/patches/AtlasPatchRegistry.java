@@ -112,6 +112,37 @@ public class AtlasPatchRegistry {
         }
     }
 
+    public String getCheckpoint(String patchId) {
+        try {
+            AtlasVertex patchVertex = findByPatchId(patchId);
+
+            return patchVertex != null ? getEncodedProperty(patchVertex, PATCH_CHECKPOINT_PROPERTY_KEY, String.class) : null;
+        } finally {
+            graph.commit();
+        }
+    }
+
+    /**
+     * @param checkpoint progress of the patch, to resume it after a restart; null to remove the checkpoint
+     */
+    public void updateCheckpoint(String patchId, String checkpoint) {
+        try {
+            AtlasVertex patchVertex = findByPatchId(patchId);
+
+            if (patchVertex != null) {
+                if (checkpoint != null) {
+                    setEncodedProperty(patchVertex, PATCH_CHECKPOINT_PROPERTY_KEY, checkpoint);
+                } else {
+                    patchVertex.removeProperty(PATCH_CHECKPOINT_PROPERTY_KEY);
+                }
+            } else {
+                LOG.warn("updateCheckpoint(patchId={}): patch not registered", patchId);
+            }
+        } finally {
+            graph.commit();
+        }
+    }
+
     private static String getId(String incomingId, String patchFile, int index) {
         String patchId = incomingId;
 
@@ -37,6 +37,7 @@ import java.util.Iterator;
 import java.util.Set;
 
 import static org.apache.atlas.model.patches.AtlasPatch.PatchStatus.APPLIED;
+import static org.apache.atlas.model.patches.AtlasPatch.PatchStatus.FAILED;
 
 public class ClassificationTextPatch extends AtlasPatchHandler {
     private static final Logger LOG = LoggerFactory.getLogger(ClassificationTextPatch.class);
@@ -56,9 +57,10 @@ public class ClassificationTextPatch extends AtlasPatchHandler {
     public void apply() throws AtlasBaseException {
         ConcurrentPatchProcessor patchProcessor = new ClassificationTextPatchProcessor(context);
 
+        patchProcessor.setCheckpoint(GraphScanCheckpoint.forPatch(context.getPatchRegistry(), PATCH_ID));
         patchProcessor.apply();
 
-        setStatus(APPLIED);
+        setStatus(patchProcessor.isComplete() ? APPLIED : FAILED);
 
         LOG.info("ClassificationTextPatch.apply(): patchId={}, status={}", getPatchId(), getStatus());
     }
@@ -74,6 +76,11 @@ public class ClassificationTextPatch extends AtlasPatchHandler {
             //do nothing
         }
 
+        @Override
+        protected boolean isFullScanSupported() {
+            return true;
+        }
+
         @Override
         public void submitVerticesToUpdate(WorkItemManager manager) {
             AtlasTypeRegistry typeRegistry = getTypeRegistry();
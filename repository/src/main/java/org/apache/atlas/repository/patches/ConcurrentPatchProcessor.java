@@ -18,6 +18,7 @@
 package org.apache.atlas.repository.patches;
 
 import org.apache.atlas.ApplicationProperties;
+import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.exception.AtlasBaseException;
 import org.apache.atlas.model.instance.AtlasEntity;
 import org.apache.atlas.pc.WorkItemBuilder;
@@ -50,6 +51,8 @@ public abstract class ConcurrentPatchProcessor {
     private final AtlasGraph               graph;
     private final GraphBackedSearchIndexer indexer;
     private final AtlasTypeRegistry        typeRegistry;
+    private       GraphScanCheckpoint      checkpoint;
+    private       boolean                  isComplete = true;
 
     static {
         int numWorkers = 3;
@@ -93,9 +96,36 @@ public abstract class ConcurrentPatchProcessor {
         return typeRegistry;
     }
 
+    /**
+     * @param checkpoint storage to resume a full scan after a restart, with atlas.patch.full.scan.enabled
+     */
+    public void setCheckpoint(GraphScanCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * @return false if a full scan failed to process some of the vertices; these are processed by the next apply()
+     */
+    public boolean isComplete() {
+        return isComplete;
+    }
+
     public void apply() throws AtlasBaseException {
         prepareForExecution();
-        execute();
+
+        if (isFullScanSupported() && AtlasConfiguration.PATCH_FULL_SCAN_ENABLED.getBoolean()) {
+            executeFullScan();
+        } else {
+            execute();
+        }
+    }
+
+    /**
+     * @return true if processVertexItem() handles any entity vertex, so the patch can scan all vertices instead of
+     *         those submitted by submitVerticesToUpdate()
+     */
+    protected boolean isFullScanSupported() {
+        return false;
     }
 
     protected abstract void prepareForExecution() throws AtlasBaseException;
@@ -119,6 +149,42 @@ public abstract class ConcurrentPatchProcessor {
         }
     }
 
+    // scans all vertices in the graph in parallel ranges, instead of vertices submitted by submitVerticesToUpdate()
+    private void executeFullScan() {
+        GraphScanProcessor.ScanResult result = new GraphScanProcessor(graph, WORKER_NAME_PREFIX, checkpoint).scan(vertices -> {
+            for (AtlasVertex vertex : vertices) {
+                processVertex(Long.valueOf(vertex.getIdForDisplay()), vertex);
+            }
+        });
+
+        isComplete = result.isComplete();
+    }
+
+    /**
+     * @return true if the vertex is an entity vertex, and was processed by processVertexItem()
+     */
+    private boolean processVertex(Long vertexId, AtlasVertex vertex) {
+        if (AtlasGraphUtilsV2.isTypeVertex(vertex)) {
+            return false;
+        }
+
+        String          typeName   = AtlasGraphUtilsV2.getTypeName(vertex);
+        AtlasEntityType entityType = typeRegistry.getEntityTypeByName(typeName);
+        if (entityType == null) {
+            return false;
+        }
+
+        try {
+            processVertexItem(vertexId, vertex, typeName, entityType);
+
+            return true;
+        } catch (AtlasBaseException e) {
+            LOG.error("Error processing: {}", vertexId, e);
+
+            return false;
+        }
+    }
+
     private static class ConsumerBuilder implements WorkItemBuilder<Consumer, Long> {
         private final AtlasTypeRegistry typeRegistry;
         private final AtlasGraph graph;
@@ -200,21 +266,8 @@ public abstract class ConcurrentPatchProcessor {
                 return;
             }
 
-            if (AtlasGraphUtilsV2.isTypeVertex(vertex)) {
-                return;
-            }
-
-            String          typeName   = AtlasGraphUtilsV2.getTypeName(vertex);
-            AtlasEntityType entityType = typeRegistry.getEntityTypeByName(typeName);
-            if (entityType == null) {
-                return;
-            }
-
-            try {
-                individualItemProcessor.processVertexItem(vertexId, vertex, typeName, entityType);
+            if (individualItemProcessor.processVertex(vertexId, vertex)) {
                 doCommit();
-            } catch (AtlasBaseException e) {
-                LOG.error("Error processing: {}", vertexId, e);
             }
         }
     }
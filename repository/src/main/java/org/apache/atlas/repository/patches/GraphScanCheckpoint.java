@@ -0,0 +1,50 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.patches;
+
+/**
+ * Storage for the progress of a GraphScanProcessor scan, to resume the scan after a restart.
+ */
+public interface GraphScanCheckpoint {
+    /**
+     * @return checkpoint last saved; null if none
+     */
+    String load();
+
+    /**
+     * @param checkpoint checkpoint to save; null to remove the checkpoint, once the scan is complete
+     */
+    void save(String checkpoint);
+
+    /**
+     * Checkpoint stored in the vertex of a patch.
+     */
+    static GraphScanCheckpoint forPatch(AtlasPatchRegistry patchRegistry, String patchId) {
+        return new GraphScanCheckpoint() {
+            @Override
+            public String load() {
+                return patchRegistry.getCheckpoint(patchId);
+            }
+
+            @Override
+            public void save(String checkpoint) {
+                patchRegistry.updateCheckpoint(patchId, checkpoint);
+            }
+        };
+    }
+}
@@ -0,0 +1,331 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.patches;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasGraphScanner;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scans all vertices in the graph: the keyspace of the storage backend is split into ranges (see AtlasGraphScanner)
+ * that are scanned in parallel by a pool of workers, with vertices handed to the handler in batches. Each batch is
+ * committed after the handler processes it.
+ *
+ * Ranges completed are saved in the checkpoint, so that a scan interrupted by a restart resumes with the ranges it
+ * did not complete; a range that fails is retried by the next scan. The checkpoint is removed once all ranges are
+ * complete. Ranges are resumed only with the same number of ranges, as ranges of a different count don't line up.
+ * A patch that runs a full scan is thus marked FAILED while some ranges are not complete: AtlasPatchManager applies
+ * failed patches again on the next start, which resumes the scan from the checkpoint.
+ *
+ * Ids of vertices in a range are read before the vertices are processed, so that a slow handler or throttling
+ * doesn't hold the backend scanner open; increase the number of ranges for large graphs.
+ */
+public class GraphScanProcessor {
+    private static final Logger LOG = LoggerFactory.getLogger(GraphScanProcessor.class);
+
+    private static final int MAX_COMMIT_RETRY_COUNT = 3;
+
+    public interface VertexBatchHandler {
+        void process(List<AtlasVertex> vertices) throws AtlasBaseException;
+    }
+
+    private final AtlasGraph          graph;
+    private final String              scanName;
+    private final GraphScanCheckpoint checkpoint;
+    private final int                 rangeCount;
+    private final int                 numWorkers;
+    private final int                 batchSize;
+    private final RateLimiter         rateLimiter;
+    private final Set<Integer>        completedRanges = new TreeSet<>();
+    private final AtomicLong          vertexCount     = new AtomicLong();
+
+    public GraphScanProcessor(AtlasGraph graph, String scanName, GraphScanCheckpoint checkpoint) {
+        this(graph, scanName, checkpoint, AtlasConfiguration.GRAPH_SCAN_RANGES.getInt(), AtlasConfiguration.GRAPH_SCAN_NUM_WORKERS.getInt(),
+             AtlasConfiguration.GRAPH_SCAN_BATCH_SIZE.getInt(), AtlasConfiguration.GRAPH_SCAN_MAX_VERTICES_PER_SECOND.getInt());
+    }
+
+    /**
+     * @param checkpoint storage for the ranges completed; null to not resume the scan after a restart
+     * @param maxVerticesPerSecond limit on vertices processed per second, across all workers; 0 for no limit
+     */
+    public GraphScanProcessor(AtlasGraph graph, String scanName, GraphScanCheckpoint checkpoint, int rangeCount, int numWorkers, int batchSize, int maxVerticesPerSecond) {
+        this.graph       = graph;
+        this.scanName    = scanName;
+        this.checkpoint  = checkpoint;
+        this.rangeCount  = Math.max(rangeCount, 1);
+        this.numWorkers  = Math.max(numWorkers, 1);
+        this.batchSize   = Math.max(batchSize, 1);
+        this.rateLimiter = maxVerticesPerSecond > 0 ? RateLimiter.create(maxVerticesPerSecond) : null;
+    }
+
+    public ScanResult scan(VertexBatchHandler handler) {
+        AtlasGraphScanner scanner   = graph.getScanner(rangeCount);
+        int               count     = scanner.getRangeCount();
+        long              startTime = System.currentTimeMillis();
+
+        completedRanges.clear();
+        completedRanges.addAll(loadCheckpoint(count));
+        vertexCount.set(0);
+
+        int             skippedCount = completedRanges.size();
+        List<Integer>   failedRanges = new ArrayList<>();
+        List<Future<?>> futures      = new ArrayList<>();
+        ExecutorService executor     = Executors.newFixedThreadPool(numWorkers, new ThreadFactoryBuilder().setNameFormat("graph-scan-" + scanName + "-%d").setDaemon(true).build());
+
+        LOG.info("{}: scanning {} ranges with {} workers; {} ranges completed earlier", scanName, count, numWorkers, skippedCount);
+
+        try {
+            for (int range = 0; range < count; range++) {
+                if (!completedRanges.contains(range)) {
+                    final int r = range;
+
+                    futures.add(executor.submit(() -> scanRange(scanner, r, count, handler)));
+                }
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    LOG.error("{}: scan failed", scanName, e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    LOG.warn("{}: interrupted; completed ranges will be resumed", scanName);
+
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        synchronized (completedRanges) {
+            for (int range = 0; range < count; range++) {
+                if (!completedRanges.contains(range)) {
+                    failedRanges.add(range);
+                }
+            }
+
+            if (failedRanges.isEmpty() && checkpoint != null) {
+                checkpoint.save(null);
+            }
+        }
+
+        ScanResult ret = new ScanResult(count, skippedCount, failedRanges, vertexCount.get(), System.currentTimeMillis() - startTime);
+
+        LOG.info("{}: {}", scanName, ret);
+
+        return ret;
+    }
+
+    private void scanRange(AtlasGraphScanner scanner, int range, int count, VertexBatchHandler handler) {
+        long startTime = System.currentTimeMillis();
+
+        try {
+            List<String> vertexIds = new ArrayList<>();
+
+            scanner.scanVertexIds(range, vertexIds::add);
+
+            for (int i = 0; i < vertexIds.size(); i += batchSize) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                processBatch(vertexIds.subList(i, Math.min(i + batchSize, vertexIds.size())), handler);
+            }
+
+            rangeCompleted(range, count);
+
+            LOG.info("{}: range {} ({}) completed: {} vertices in {} ms", scanName, range, scanner.getRangeDescription(range), vertexIds.size(), System.currentTimeMillis() - startTime);
+        } catch (Throwable t) {
+            LOG.error("{}: range {} ({}) failed; it will be retried by the next scan", scanName, range, scanner.getRangeDescription(range), t);
+        } finally {
+            graph.rollback();
+
+            RequestContext.clear();
+        }
+    }
+
+    private void processBatch(List<String> vertexIds, VertexBatchHandler handler) throws AtlasBaseException {
+        if (rateLimiter != null) {
+            rateLimiter.acquire(vertexIds.size());
+        }
+
+        Map<String, AtlasVertex> vertices = graph.getVertices(vertexIds);
+
+        if (!vertices.isEmpty()) {
+            handler.process(new ArrayList<>(vertices.values()));
+
+            attemptCommit();
+        }
+
+        vertexCount.addAndGet(vertices.size());
+    }
+
+    private void attemptCommit() {
+        for (int retryCount = 1; retryCount <= MAX_COMMIT_RETRY_COUNT; retryCount++) {
+            try {
+                graph.commit();
+
+                return;
+            } catch (Exception ex) {
+                LOG.error("{}: commit failed: retryCount={}", scanName, retryCount, ex);
+
+                if (retryCount == MAX_COMMIT_RETRY_COUNT) {
+                    throw ex;
+                }
+
+                try {
+                    Thread.sleep(300 * retryCount);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private void rangeCompleted(int range, int count) {
+        // saved under the lock, so that a checkpoint never overwrites a later one
+        synchronized (completedRanges) {
+            completedRanges.add(range);
+
+            if (checkpoint != null) {
+                try {
+                    checkpoint.save(toCheckpoint(count, completedRanges));
+                } catch (Exception e) {
+                    LOG.warn("{}: failed to save checkpoint", scanName, e);
+                }
+            }
+        }
+    }
+
+    private Set<Integer> loadCheckpoint(int count) {
+        String value = null;
+
+        try {
+            value = checkpoint != null ? checkpoint.load() : null;
+        } catch (Exception e) {
+            LOG.warn("{}: failed to load checkpoint; scanning all ranges", scanName, e);
+        }
+
+        Set<Integer> ret = fromCheckpoint(value, count);
+
+        if (ret == null) {
+            LOG.warn("{}: checkpoint {} is not for {} ranges; scanning all ranges", scanName, value, count);
+
+            ret = Collections.emptySet();
+        }
+
+        return ret;
+    }
+
+    // checkpoint format: <rangeCount>:<completedRange>,<completedRange>,...
+    static String toCheckpoint(int rangeCount, Set<Integer> completedRanges) {
+        return rangeCount + ":" + StringUtils.join(completedRanges, ',');
+    }
+
+    /**
+     * @return ranges completed; null if the checkpoint is invalid or for a different number of ranges
+     */
+    static Set<Integer> fromCheckpoint(String checkpoint, int rangeCount) {
+        Set<Integer> ret = new TreeSet<>();
+
+        if (StringUtils.isEmpty(checkpoint)) {
+            return ret;
+        }
+
+        String[] parts = checkpoint.split(":", 2);
+
+        try {
+            if (parts.length != 2 || Integer.parseInt(parts[0]) != rangeCount) {
+                return null;
+            }
+
+            for (String range : StringUtils.split(parts[1], ',')) {
+                int value = Integer.parseInt(range.trim());
+
+                if (value < 0 || value >= rangeCount) {
+                    return null;
+                }
+
+                ret.add(value);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        return ret;
+    }
+
+    public static class ScanResult {
+        private final int           rangeCount;
+        private final int           skippedRangeCount;
+        private final List<Integer> failedRanges;
+        private final long          vertexCount;
+        private final long          timeTakenMs;
+
+        ScanResult(int rangeCount, int skippedRangeCount, List<Integer> failedRanges, long vertexCount, long timeTakenMs) {
+            this.rangeCount        = rangeCount;
+            this.skippedRangeCount = skippedRangeCount;
+            this.failedRanges      = failedRanges;
+            this.vertexCount       = vertexCount;
+            this.timeTakenMs       = timeTakenMs;
+        }
+
+        public boolean isComplete() {
+            return failedRanges.isEmpty();
+        }
+
+        public List<Integer> getFailedRanges() {
+            return failedRanges;
+        }
+
+        public long getVertexCount() {
+            return vertexCount;
+        }
+
+        @Override
+        public String toString() {
+            return "ranges=" + rangeCount + ", skipped=" + skippedRangeCount + ", failed=" + failedRanges.size() + ", vertices=" + vertexCount +
+                   ", timeTakenMs=" + timeTakenMs + ", verticesPerSecond=" + (timeTakenMs > 0 ? vertexCount * 1000 / timeTakenMs : vertexCount);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.patches;
+
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.TypeCategory;
+import org.apache.atlas.pc.WorkItemManager;
+import org.apache.atlas.repository.Constants;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.graphdb.janus.AtlasJanusGraphDatabase;
+import org.apache.atlas.type.AtlasArrayType;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
+import org.apache.atlas.type.AtlasType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.apache.atlas.model.patches.AtlasPatch.PatchStatus.APPLIED;
+import static org.apache.atlas.model.patches.AtlasPatch.PatchStatus.FAILED;
+import static org.apache.atlas.repository.store.graph.v2.AtlasGraphUtilsV2.isReference;
+
+/**
+ * Rewrites list-valued vertex properties, so that values stored with Java serialization are stored again in the
+ * compact format of the graph's list serializer. Values in either format are read, so the patch only reduces
+ * storage and read cost; enable it with atlas.patch.list.property.format.enabled. The patch fails, to be applied on a
+ * later start, until the graph is migrated to the list serializer (see atlas.graphstore.list.serializer.migrate).
+ */
+public class ListPropertyFormatPatch extends AtlasPatchHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(ListPropertyFormatPatch.class);
+
+    private static final String PATCH_ID          = "JAVA_PATCH_0000_011";
+    private static final String PATCH_DESCRIPTION = "Rewrites list-valued attributes of entities in the compact list format.";
+
+    private final PatchContext context;
+
+    public ListPropertyFormatPatch(PatchContext context) {
+        super(context.getPatchRegistry(), PATCH_ID, PATCH_DESCRIPTION);
+
+        this.context = context;
+    }
+
+    @Override
+    public void apply() throws AtlasBaseException {
+        if (!AtlasJanusGraphDatabase.isListSerializerInUse()) { // values would be written again with the stored serializer
+            LOG.error("ListPropertyFormatPatch: graph doesn't use the list serializer; migrate it with {}=true. patchId={}", AtlasConfiguration.GRAPHSTORE_LIST_SERIALIZER_MIGRATE.getPropertyName(), getPatchId());
+
+            setStatus(FAILED);
+
+            return;
+        }
+
+        ConcurrentPatchProcessor patchProcessor = new ListPropertyFormatPatchProcessor(context);
+
+        patchProcessor.apply();
+
+        setStatus(APPLIED);
+
+        LOG.info("ListPropertyFormatPatch.apply(): patchId={}, status={}", getPatchId(), getStatus());
+    }
+
+    public static class ListPropertyFormatPatchProcessor extends ConcurrentPatchProcessor {
+        // vertex property names of list-valued attributes, by entity-type
+        private final Map<String, List<String>> listProperties = new ConcurrentHashMap<>();
+
+        public ListPropertyFormatPatchProcessor(PatchContext context) {
+            super(context);
+        }
+
+        @Override
+        protected void prepareForExecution() {
+            for (AtlasEntityType entityType : getTypeRegistry().getAllEntityTypes()) {
+                List<String> propertyNames = new ArrayList<>();
+
+                for (AtlasAttribute attribute : entityType.getAllAttributes().values()) {
+                    if (isListValued(attribute)) {
+                        propertyNames.add(attribute.getVertexPropertyName());
+                    }
+                }
+
+                if (!propertyNames.isEmpty()) {
+                    listProperties.put(entityType.getTypeName(), propertyNames);
+                }
+            }
+
+            LOG.info("ListPropertyFormatPatch: {} entity-types have list-valued attributes", listProperties.size());
+        }
+
+        @Override
+        public void submitVerticesToUpdate(WorkItemManager manager) {
+            AtlasGraph graph = getGraph();
+
+            for (String typeName : listProperties.keySet()) {
+                LOG.info("finding entities of type {}", typeName);
+
+                Iterable<Object> iterable = graph.query().has(Constants.ENTITY_TYPE_PROPERTY_KEY, typeName).vertexIds();
+                int              count    = 0;
+
+                for (Iterator<Object> iter = iterable.iterator(); iter.hasNext(); ) {
+                    manager.checkProduce((Long) iter.next());
+
+                    count++;
+                }
+
+                LOG.info("found {} entities of type {}", count, typeName);
+            }
+        }
+
+        @Override
+        protected void processVertexItem(Long vertexId, AtlasVertex vertex, String typeName, AtlasEntityType entityType) {
+            List<String> propertyNames = listProperties.get(typeName);
+
+            if (propertyNames == null) {
+                return;
+            }
+
+            for (String propertyName : propertyNames) {
+                Object value = vertex.getProperty(propertyName, Object.class);
+
+                if (value instanceof ArrayList) {
+                    vertex.removeProperty(propertyName);
+                    vertex.setProperty(propertyName, value);
+                }
+            }
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("processVertexItem(typeName={}, vertexId={}): Done!", typeName, vertexId);
+            }
+        }
+
+        // as in EntityGraphMapper.setArrayElementsProperty(): arrays of primitives and enums are multi-valued properties
+        private static boolean isListValued(AtlasAttribute attribute) {
+            AtlasType attributeType = attribute.getAttributeType();
+
+            if (attributeType.getTypeCategory() != TypeCategory.ARRAY) {
+                return false;
+            }
+
+            AtlasType    elementType = ((AtlasArrayType) attributeType).getElementType();
+            TypeCategory category    = elementType.getTypeCategory();
+
+            if (category == TypeCategory.PRIMITIVE || category == TypeCategory.ENUM) {
+                return false;
+            }
+
+            return !isReference(elementType) || attribute.getAttributeDef().isSoftReferenced();
+        }
+    }
+}
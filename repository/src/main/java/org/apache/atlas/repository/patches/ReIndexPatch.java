@@ -18,12 +18,11 @@
 package org.apache.atlas.repository.patches;
 
 import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.AtlasErrorCode;
 import org.apache.atlas.exception.AtlasBaseException;
-import org.apache.atlas.pc.WorkItemBuilder;
-import org.apache.atlas.pc.WorkItemConsumer;
-import org.apache.atlas.pc.WorkItemManager;
 import org.apache.atlas.repository.Constants;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
+import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
 import org.apache.atlas.repository.graphdb.AtlasElement;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
@@ -31,11 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.BiConsumer;
 
 import static org.apache.atlas.model.patches.AtlasPatch.PatchStatus.UNKNOWN;
 
@@ -63,8 +58,8 @@ public class ReIndexPatch extends AtlasPatchHandler {
             LOG.info("ReIndexPatch: Starting...");
             ReindexPatchProcessor reindexPatchProcessor = new ReindexPatchProcessor(context);
 
-            reindexPatchProcessor.repairVertices();
-            reindexPatchProcessor.repairEdges();
+            // resumes ranges not reindexed before a restart
+            reindexPatchProcessor.repairAll(GraphScanCheckpoint.forPatch(context.getPatchRegistry(), PATCH_ID));
         } catch (Exception exception) {
             LOG.error("Error while reindexing.", exception);
         } finally {
@@ -79,7 +74,7 @@ public class ReIndexPatch extends AtlasPatchHandler {
     public static class ReindexPatchProcessor {
         private static String[] vertexIndexNames = new String[]{ Constants.VERTEX_INDEX, Constants.FULLTEXT_INDEX };
         private static String[] edgeIndexNames = new String[]{ Constants.EDGE_INDEX };
-        private static String WORKER_PREFIX = "reindex";
+        private static String SCAN_NAME = "reindex";
 
         private PatchContext context;
 
@@ -87,115 +82,49 @@ public class ReIndexPatch extends AtlasPatchHandler {
             this.context = context;
         }
 
-        public void repairVertices() {
-            repairElements(ReindexPatchProcessor::vertices, vertexIndexNames);
-        }
-
-        public void repairEdges() {
-            repairElements(ReindexPatchProcessor::edges, edgeIndexNames);
-        }
-
-        private void repairElements(BiConsumer<WorkItemManager, AtlasGraph> action, String[] indexNames) {
-            WorkItemManager manager = new WorkItemManager(new ReindexConsumerBuilder(context.getGraph(), indexNames),
-                    WORKER_PREFIX, ConcurrentPatchProcessor.BATCH_SIZE, ConcurrentPatchProcessor.NUM_WORKERS, false);
-
-            try {
-                LOG.info("repairElements.execute(): {}: Starting...", indexNames);
-                action.accept(manager, context.getGraph());
-                manager.drain();
-            } finally {
-                try {
-                    manager.shutdown();
-                } catch (InterruptedException e) {
-                    LOG.error("repairEdges.execute(): interrupted during WorkItemManager shutdown.", e);
-                }
+        /**
+         * Reindexes all vertices, and all edges along with their out-vertex, in a single scan of the graph.
+         *
+         * @param checkpoint storage to resume the reindex after a restart; null to reindex all vertices
+         * @return true if all vertices and edges were reindexed
+         */
+        public boolean repairAll(GraphScanCheckpoint checkpoint) {
+            AtlasGraph graph = context.getGraph();
 
-                LOG.info("repairElements.execute(): {}: Done!", indexNames);
-            }
-        }
+            LOG.info("repairAll(): Starting...");
 
-        private static void edges(WorkItemManager manager, AtlasGraph graph) {
-            Iterable<AtlasEdge> iterable = graph.getEdges();
-            for (Iterator<AtlasEdge> iter = iterable.iterator(); iter.hasNext(); ) {
-                manager.checkProduce(iter.next());
-            }
-        }
+            GraphScanProcessor.ScanResult result = new GraphScanProcessor(graph, SCAN_NAME, checkpoint).scan(vertices -> {
+                List<AtlasElement> edges = new ArrayList<>();
 
-        private static void vertices(WorkItemManager manager, AtlasGraph graph) {
-            Iterable<AtlasVertex> iterable = graph.getVertices();
-            for (Iterator<AtlasVertex> iter = iterable.iterator(); iter.hasNext(); ) {
-                AtlasVertex vertex = iter.next();
-                manager.checkProduce(vertex);
-            }
-        }
-    }
+                for (AtlasVertex vertex : vertices) {
+                    Iterable<AtlasEdge> outEdges = vertex.getEdges(AtlasEdgeDirection.OUT);
 
-    private static class ReindexConsumerBuilder implements WorkItemBuilder<ReindexConsumer, AtlasElement> {
-        private AtlasGraph graph;
-        private String[] indexNames;
+                    for (AtlasEdge edge : outEdges) {
+                        edges.add(edge);
+                    }
+                }
 
-        public ReindexConsumerBuilder(AtlasGraph graph, String[] indexNames) {
-            this.graph = graph;
-            this.indexNames = indexNames;
-        }
+                reindex(graph, vertexIndexNames, new ArrayList<>(vertices));
+                reindex(graph, edgeIndexNames, edges);
+            });
 
-        @Override
-        public ReindexConsumer build(BlockingQueue queue) {
-            return new ReindexConsumer(queue, this.graph, this.indexNames);
-        }
-    }
+            LOG.info("repairAll(): Done! {}", result);
 
-    private static class ReindexConsumer extends WorkItemConsumer<AtlasElement> {
-        private final List<AtlasElement> list = new ArrayList();
-        private final String[] indexNames;
-        private final AtlasGraph graph;
-        private final AtomicLong counter;
-
-        public ReindexConsumer(BlockingQueue queue, AtlasGraph graph, String[] indexNames) {
-            super(queue);
-            this.graph = graph;
-            this.indexNames = indexNames;
-            this.counter = new AtomicLong(0);
+            return result.isComplete();
         }
 
-        @Override
-        protected void doCommit() {
-            if (list.size() >= ConcurrentPatchProcessor.BATCH_SIZE) {
-                attemptCommit();
+        private static void reindex(AtlasGraph graph, String[] indexNames, List<AtlasElement> elements) throws AtlasBaseException {
+            if (elements.isEmpty()) {
+                return;
             }
-        }
-
-        @Override
-        protected void commitDirty() {
-            attemptCommit();
 
-            LOG.info("Total: Commit: {}", counter.get());
-            super.commitDirty();
-        }
-
-        private void attemptCommit() {
             for (String indexName : indexNames) {
                 try {
-                    this.graph.getManagementSystem().reindex(indexName, list);
-                }
-                catch (IllegalStateException e) {
-                    LOG.error("IllegalStateException: Exception", e);
-                    return;
-                }
-                catch (Exception exception) {
-                    LOG.error("Exception: {}", indexName, exception);
+                    graph.getManagementSystem().reindex(indexName, elements);
+                } catch (Exception exception) {
+                    throw new AtlasBaseException(AtlasErrorCode.REPAIR_INDEX_FAILED, exception, indexName + ": " + exception);
                 }
             }
-
-            list.clear();
-            LOG.info("Processed: {}", counter.get());
-        }
-
-        @Override
-        protected void processItem(AtlasElement item) {
-            counter.incrementAndGet();
-            list.add(item);
-            commit();
         }
     }
 }
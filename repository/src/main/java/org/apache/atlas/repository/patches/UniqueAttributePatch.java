@@ -42,6 +42,7 @@ import java.util.Collection;
 import java.util.Iterator;
 
 import static org.apache.atlas.model.patches.AtlasPatch.PatchStatus.APPLIED;
+import static org.apache.atlas.model.patches.AtlasPatch.PatchStatus.FAILED;
 import static org.apache.atlas.repository.store.graph.v2.AtlasGraphUtilsV2.getIdFromVertex;
 
 public class UniqueAttributePatch extends AtlasPatchHandler {
@@ -62,9 +63,10 @@ public class UniqueAttributePatch extends AtlasPatchHandler {
     public void apply() throws AtlasBaseException {
         ConcurrentPatchProcessor patchProcessor = new UniqueAttributePatchProcessor(context);
 
+        patchProcessor.setCheckpoint(GraphScanCheckpoint.forPatch(context.getPatchRegistry(), PATCH_ID));
         patchProcessor.apply();
 
-        setStatus(APPLIED);
+        setStatus(patchProcessor.isComplete() ? APPLIED : FAILED);
 
         LOG.info("UniqueAttributePatch.apply(): patchId={}, status={}", getPatchId(), getStatus());
     }
@@ -80,6 +82,11 @@ public class UniqueAttributePatch extends AtlasPatchHandler {
             createIndexForUniqueAttributes();
         }
 
+        @Override
+        protected boolean isFullScanSupported() {
+            return true;
+        }
+
         @Override
         public void submitVerticesToUpdate(WorkItemManager manager) {
             AtlasTypeRegistry typeRegistry = getTypeRegistry();
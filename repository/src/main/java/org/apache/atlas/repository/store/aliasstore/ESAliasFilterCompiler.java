@@ -0,0 +1,282 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.aliasstore;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.apache.atlas.repository.util.AtlasEntityUtils.mapOf;
+
+/**
+ * Builds the "should" clauses of an alias filter from the terms and wildcards of access-control policies, with
+ * fewer and cheaper clauses than a clause per policy asset:
+ * - wildcards with a single, trailing '*' become prefix queries
+ * - prefixes, terms and wildcards matched by a shorter prefix on the same field are removed
+ * - qualifiedName terms, prefixes and wildcards under a qualifiedName in hierarchyField are removed
+ * - terms on a field are merged into a single terms query
+ *
+ * Clauses are generated in sorted order, so that the same policies always give the same filter.
+ */
+public class ESAliasFilterCompiler {
+    private static final String DATA_MESH_QN_PREFIX = "default/domain/";
+
+    private final String                        qualifiedNameField;
+    private final String                        hierarchyField;
+    private final Map<String, TreeSet<String>>  terms     = new TreeMap<>();
+    private final Map<String, TreeSet<String>>  prefixes  = new TreeMap<>();
+    private final Map<String, TreeSet<String>>  wildcards = new TreeMap<>();
+    private final List<Map<String, Object>>     clauses   = new ArrayList<>();
+    private       int                           inputCount;
+    private       int                           outputCount;
+
+    /**
+     * @param qualifiedNameField field with qualifiedName of entities
+     * @param hierarchyField     field with qualifiedName of the entity and of all its parents; null if not available
+     */
+    public ESAliasFilterCompiler(String qualifiedNameField, String hierarchyField) {
+        this.qualifiedNameField = qualifiedNameField;
+        this.hierarchyField     = hierarchyField;
+    }
+
+    public ESAliasFilterCompiler addTerm(String field, String value) {
+        if (value == null) {
+            return this;
+        }
+
+        inputCount++;
+
+        terms.computeIfAbsent(field, k -> new TreeSet<>()).add(value);
+
+        return this;
+    }
+
+    public ESAliasFilterCompiler addTerms(String field, Iterable<String> values) {
+        for (String value : values) {
+            addTerm(field, value);
+        }
+
+        return this;
+    }
+
+    public ESAliasFilterCompiler addWildcard(String field, String pattern) {
+        inputCount++;
+
+        int firstWildcard = indexOfWildcard(pattern);
+
+        if (firstWildcard == pattern.length() - 1 && pattern.charAt(firstWildcard) == '*') {
+            prefixes.computeIfAbsent(field, k -> new TreeSet<>()).add(pattern.substring(0, firstWildcard));
+        } else {
+            wildcards.computeIfAbsent(field, k -> new TreeSet<>()).add(pattern);
+        }
+
+        return this;
+    }
+
+    /**
+     * Adds a clause that is included in the filter as it is.
+     */
+    public ESAliasFilterCompiler addClause(Map<String, Object> clause) {
+        inputCount++;
+
+        clauses.add(clause);
+
+        return this;
+    }
+
+    /**
+     * Adds the terms, wildcards and clauses of the given compiler, which isn't modified.
+     */
+    public ESAliasFilterCompiler add(ESAliasFilterCompiler other) {
+        inputCount += other.inputCount;
+
+        merge(terms, other.terms);
+        merge(prefixes, other.prefixes);
+        merge(wildcards, other.wildcards);
+        clauses.addAll(other.clauses);
+
+        return this;
+    }
+
+    public List<Map<String, Object>> compile() {
+        List<Map<String, Object>> ret          = new ArrayList<>();
+        Set<String>               hierarchyQNs = getIndexedHierarchyQNs();
+
+        for (Map.Entry<String, TreeSet<String>> entry : prefixes.entrySet()) {
+            removeNestedPrefixes(entry.getValue());
+        }
+
+        for (Map.Entry<String, TreeSet<String>> entry : wildcards.entrySet()) {
+            TreeSet<String> fieldPrefixes = prefixes.get(entry.getKey());
+
+            entry.getValue().removeIf(pattern -> {
+                String literalPrefix = pattern.substring(0, indexOfWildcard(pattern));
+
+                return isUnderPrefix(literalPrefix, fieldPrefixes) || isUnderHierarchy(entry.getKey(), literalPrefix, false, hierarchyQNs);
+            });
+        }
+
+        for (Map.Entry<String, TreeSet<String>> entry : terms.entrySet()) {
+            TreeSet<String> fieldPrefixes = prefixes.get(entry.getKey());
+
+            entry.getValue().removeIf(term -> isUnderPrefix(term, fieldPrefixes) || isUnderHierarchy(entry.getKey(), term, true, hierarchyQNs));
+        }
+
+        for (Map.Entry<String, TreeSet<String>> entry : prefixes.entrySet()) {
+            entry.getValue().removeIf(prefix -> isUnderHierarchy(entry.getKey(), prefix, false, hierarchyQNs));
+        }
+
+        for (Map.Entry<String, TreeSet<String>> entry : terms.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                ret.add(mapOf("terms", mapOf(entry.getKey(), new ArrayList<>(entry.getValue()))));
+            }
+        }
+
+        for (Map.Entry<String, TreeSet<String>> entry : prefixes.entrySet()) {
+            for (String prefix : entry.getValue()) {
+                ret.add(mapOf("prefix", mapOf(entry.getKey(), prefix)));
+            }
+        }
+
+        for (Map.Entry<String, TreeSet<String>> entry : wildcards.entrySet()) {
+            for (String pattern : entry.getValue()) {
+                ret.add(mapOf("wildcard", mapOf(entry.getKey(), pattern)));
+            }
+        }
+
+        ret.addAll(clauses);
+
+        outputCount = count(terms) + count(prefixes) + count(wildcards) + clauses.size();
+
+        return ret;
+    }
+
+    /**
+     * @return counts of the clauses given and generated by the last compile()
+     */
+    public Map<String, Integer> getComplexity() {
+        Map<String, Integer> ret = new LinkedHashMap<>();
+
+        ret.put("input", inputCount);
+        ret.put("output", outputCount);
+        ret.put("terms", count(terms));
+        ret.put("prefix", count(prefixes));
+        ret.put("wildcard", count(wildcards));
+        ret.put("other", clauses.size());
+
+        return ret;
+    }
+
+    // prefixes are sorted: all values starting with a prefix follow it, before any other value
+    private static void removeNestedPrefixes(TreeSet<String> prefixes) {
+        String last = null;
+
+        for (Iterator<String> iter = prefixes.iterator(); iter.hasNext(); ) {
+            String prefix = iter.next();
+
+            if (last != null && prefix.startsWith(last)) {
+                iter.remove();
+            } else {
+                last = prefix;
+            }
+        }
+    }
+
+    // prefixes don't nest, so only the greatest prefix not after value can be a prefix of value
+    private static boolean isUnderPrefix(String value, TreeSet<String> prefixes) {
+        String floor = prefixes != null ? prefixes.floor(value) : null;
+
+        return floor != null && value.startsWith(floor);
+    }
+
+    // hierarchy terms that are surely in hierarchyField of entities they match, as set by
+    // AtlasEntityStoreV2.createQualifiedNameHierarchyField(): the first 2 parts of qualifiedName (3 for DataDomain and
+    // DataProduct, whose names start with default/domain/) aren't included, nor paths ending in domain or product
+    private Set<String> getIndexedHierarchyQNs() {
+        Set<String> hierarchyTerms = hierarchyField != null ? terms.get(hierarchyField) : null;
+        Set<String> ret            = new HashSet<>();
+
+        if (hierarchyTerms != null) {
+            for (String qualifiedName : hierarchyTerms) {
+                String[] parts      = qualifiedName.split("/");
+                boolean  isDataMesh = qualifiedName.startsWith(DATA_MESH_QN_PREFIX);
+                String   lastPart   = parts[parts.length - 1];
+
+                if (isDataMesh ? (parts.length > 3 && !lastPart.equals("domain") && !lastPart.equals("product")) : parts.length > 2) {
+                    ret.add(qualifiedName);
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    // a hierarchy qualifiedName matches itself and qualifiedNames starting with it followed by '/'
+    private boolean isUnderHierarchy(String field, String value, boolean matchSelf, Set<String> hierarchyQNs) {
+        if (hierarchyQNs.isEmpty() || !qualifiedNameField.equals(field)) {
+            return false;
+        }
+
+        if (matchSelf && hierarchyQNs.contains(value)) {
+            return true;
+        }
+
+        for (int i = value.indexOf('/'); i != -1; i = value.indexOf('/', i + 1)) {
+            if (hierarchyQNs.contains(value.substring(0, i))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // index of the first '*' or '?'; length of the pattern if it has neither. An escape gives the index of the '\'
+    private static int indexOfWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+
+            if (c == '*' || c == '?' || c == '\\') {
+                return i;
+            }
+        }
+
+        return pattern.length();
+    }
+
+    private static void merge(Map<String, TreeSet<String>> to, Map<String, TreeSet<String>> from) {
+        for (Map.Entry<String, TreeSet<String>> entry : from.entrySet()) {
+            to.computeIfAbsent(entry.getKey(), k -> new TreeSet<>()).addAll(entry.getValue());
+        }
+    }
+
+    private static int count(Map<String, TreeSet<String>> values) {
+        int ret = 0;
+
+        for (TreeSet<String> fieldValues : values.values()) {
+            ret += fieldValues.size();
+        }
+
+        return ret;
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.atlas.repository.store.aliasstore;
 
 import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.GraphTransactionInterceptor;
 import org.apache.atlas.ESAliasRequestBuilder;
 import org.apache.atlas.ESAliasRequestBuilder.AliasAction;
 import org.apache.atlas.exception.AtlasBaseException;
@@ -27,7 +28,11 @@ import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.janus.AtlasElasticsearchDatabase;
 import org.apache.atlas.repository.store.graph.v2.EntityGraphRetriever;
 import org.apache.atlas.service.FeatureFlagStore;
+import org.apache.atlas.type.AtlasType;
+import org.apache.atlas.type.AtlasTypeUtil;
+import org.apache.atlas.utils.LruCache;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
 import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
 import org.elasticsearch.client.GetAliasesResponse;
@@ -54,6 +59,7 @@ import static org.apache.atlas.repository.util.AccessControlUtils.ACCESS_READ_PE
 import static org.apache.atlas.repository.util.AccessControlUtils.ACCESS_READ_PERSONA_GLOSSARY;
 import static org.apache.atlas.repository.util.AccessControlUtils.ACCESS_READ_PERSONA_PRODUCT;
 import static org.apache.atlas.repository.util.AccessControlUtils.ACCESS_READ_PERSONA_SUB_DOMAIN;
+import static org.apache.atlas.repository.util.AccessControlUtils.ATTR_POLICY_TYPE;
 import static org.apache.atlas.repository.util.AccessControlUtils.getConnectionQualifiedNameFromPolicyAssets;
 import static org.apache.atlas.repository.util.AccessControlUtils.getESAliasName;
 import static org.apache.atlas.repository.util.AccessControlUtils.getIsAllowPolicy;
@@ -61,6 +67,7 @@ import static org.apache.atlas.repository.util.AccessControlUtils.getPolicies;
 import static org.apache.atlas.repository.util.AccessControlUtils.getPolicyActions;
 import static org.apache.atlas.repository.util.AccessControlUtils.getPolicyAssets;
 import static org.apache.atlas.repository.util.AccessControlUtils.getPolicyConnectionQN;
+import static org.apache.atlas.repository.util.AccessControlUtils.getPolicyResources;
 import static org.apache.atlas.repository.util.AccessControlUtils.getPurposeTags;
 import static org.apache.atlas.repository.util.AtlasEntityUtils.mapOf;
 import static org.apache.atlas.type.Constants.GLOSSARY_PROPERTY_KEY;
@@ -77,6 +84,9 @@ public class ESAliasStore implements IndexAliasStore {
 
     private final int assetsMaxLimit = AtlasConfiguration.PERSONA_POLICY_ASSET_MAX_LIMIT.getInt();
 
+    private final Map<String, PolicyClauses>  policyClausesCache = Collections.synchronizedMap(new LruCache<>(AtlasConfiguration.PERSONA_POLICY_CLAUSE_CACHE_SIZE.getInt(), 0));
+    private final ThreadLocal<AliasUpdateHook> aliasUpdateHook    = new ThreadLocal<>();
+
     @Inject
     public ESAliasStore(AtlasGraph graph,
                         EntityGraphRetriever entityRetriever) {
@@ -91,7 +101,7 @@ public class ESAliasStore implements IndexAliasStore {
         ESAliasRequestBuilder requestBuilder = new ESAliasRequestBuilder();
 
         if (PERSONA_ENTITY_TYPE.equals(entity.getTypeName())) {
-            requestBuilder.addAction(ADD, new AliasAction(getIndexNameFromAliasIfExists(VERTEX_INDEX_NAME), aliasName, getFilterForPersona(null, null)));
+            requestBuilder.addAction(ADD, new AliasAction(getIndexNameFromAliasIfExists(VERTEX_INDEX_NAME), aliasName, getFilterForPersona(null, null, Collections.emptyList())));
         } else {
             requestBuilder.addAction(ADD, new AliasAction(getIndexNameFromAliasIfExists(VERTEX_INDEX_NAME), aliasName, getFilterForPurpose(entity)));
         }
@@ -122,14 +132,23 @@ public class ESAliasStore implements IndexAliasStore {
         return aliasIndexName;
     }
 
+    /**
+     * Within a graph transaction, the alias is written once before the transaction commits, with the filter computed
+     * by the last update; this includes policies created by earlier updates in the same transaction. Aliases updated
+     * in the transaction are written in a single request, and a failure rolls back the transaction. The alias isn't
+     * written when the transaction is rolled back, or when its current filter is the same as the new one.
+     */
     @Override
     public boolean updateAlias(AtlasEntity.AtlasEntityWithExtInfo accessControl, AtlasEntity policy) throws AtlasBaseException {
-        String aliasName = getAliasName(accessControl.getEntity());
+        String          aliasName = getAliasName(accessControl.getEntity());
+        AliasUpdateHook hook      = GraphTransactionInterceptor.isTransactionOpen() ? getAliasUpdateHook() : null;
 
         Map<String, Object> filter;
 
         if (PERSONA_ENTITY_TYPE.equals(accessControl.getEntity().getTypeName())) {
-            filter = getFilterForPersona(accessControl, policy);
+            List<AtlasEntity> createdPolicies = hook != null ? hook.getCreatedPolicies(aliasName) : Collections.emptyList();
+
+            filter = getFilterForPersona(accessControl, policy, createdPolicies);
             if (filter == null || filter.isEmpty()) {
                 filter = getEmptyFilter();
             }
@@ -137,21 +156,98 @@ public class ESAliasStore implements IndexAliasStore {
             filter = getFilterForPurpose(accessControl.getEntity());
         }
 
-        ESAliasRequestBuilder requestBuilder = new ESAliasRequestBuilder();
-        requestBuilder.addAction(ADD, new AliasAction(getIndexNameFromAliasIfExists(VERTEX_INDEX_NAME), aliasName, filter));
-
-        graph.createOrUpdateESAlias(requestBuilder);
+        if (hook != null) {
+            hook.addUpdate(aliasName, filter, policy);
+        } else {
+            writeAliasFilter(aliasName, filter);
+        }
 
         return true;
     }
 
     @Override
     public boolean deleteAlias(String aliasName) throws AtlasBaseException {
+        AliasUpdateHook hook = aliasUpdateHook.get();
+
+        if (hook != null) {
+            hook.removeUpdate(aliasName);
+        }
+
         graph.deleteESAlias(getIndexNameFromAliasIfExists(VERTEX_INDEX_NAME), aliasName);
         return true;
     }
 
-    private Map<String, Object> getFilterForPersona(AtlasEntity.AtlasEntityWithExtInfo persona, AtlasEntity policy) throws AtlasBaseException {
+    private AliasUpdateHook getAliasUpdateHook() {
+        AliasUpdateHook ret = aliasUpdateHook.get();
+
+        if (ret == null) {
+            ret = new AliasUpdateHook();
+
+            aliasUpdateHook.set(ret);
+        }
+
+        return ret;
+    }
+
+    private void writeAliasFilter(String aliasName, Map<String, Object> filter) throws AtlasBaseException {
+        writeAliasFilters(Collections.singletonMap(aliasName, filter));
+    }
+
+    private void writeAliasFilters(Map<String, Map<String, Object>> filters) throws AtlasBaseException {
+        String                           indexName      = getIndexNameFromAliasIfExists(VERTEX_INDEX_NAME);
+        Map<String, Map<String, Object>> currentFilters = getAliasFilters(indexName, filters.keySet());
+        ESAliasRequestBuilder            requestBuilder = new ESAliasRequestBuilder();
+        int                              actionCount    = 0;
+
+        for (Map.Entry<String, Map<String, Object>> entry : filters.entrySet()) {
+            String              aliasName = entry.getKey();
+            Map<String, Object> filter    = entry.getValue();
+
+            if (currentFilters.containsKey(aliasName) && Objects.equals(MapUtils.isEmpty(filter) ? null : filter, currentFilters.get(aliasName))) {
+                LOG.info("filter of alias {} is unchanged; skipped update", aliasName);
+
+                continue;
+            }
+
+            requestBuilder.addAction(ADD, new AliasAction(indexName, aliasName, filter));
+
+            actionCount++;
+        }
+
+        if (actionCount > 0) {
+            graph.createOrUpdateESAlias(requestBuilder);
+        }
+    }
+
+    /**
+     * @return current filters of the given aliases that exist, with null for an alias that has no filter. If the filters
+     * couldn't be read, an empty map is returned, so that all aliases are written.
+     */
+    private Map<String, Map<String, Object>> getAliasFilters(String indexName, Set<String> aliasNames) {
+        Map<String, Map<String, Object>> ret = new HashMap<>();
+
+        try {
+            RestHighLevelClient esClient = AtlasElasticsearchDatabase.getClient();
+            GetAliasesRequest aliasesRequest = new GetAliasesRequest(aliasNames.toArray(new String[0])).indices(indexName);
+            GetAliasesResponse aliasesResponse = esClient.indices().getAlias(aliasesRequest, RequestOptions.DEFAULT);
+
+            for (Set<AliasMetadata> aliasMetadataList : aliasesResponse.getAliases().values()) {
+                for (AliasMetadata aliasMetadata : aliasMetadataList) {
+                    if (aliasNames.contains(aliasMetadata.alias())) {
+                        ret.put(aliasMetadata.alias(), aliasMetadata.filter() != null ? AtlasType.fromJson(aliasMetadata.filter().string(), Map.class) : null);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            LOG.warn("Error while fetching filters of aliases {}; aliases will be updated", aliasNames, e);
+
+            ret.clear();
+        }
+
+        return ret;
+    }
+
+    private Map<String, Object> getFilterForPersona(AtlasEntity.AtlasEntityWithExtInfo persona, AtlasEntity policy, List<AtlasEntity> createdPolicies) throws AtlasBaseException {
         List<Map<String, Object>> allowClauseList = new ArrayList<>();
 
         if (policy == null && persona == null){
@@ -159,6 +255,11 @@ public class ESAliasStore implements IndexAliasStore {
         }
 
         List<AtlasEntity> policies = getPolicies(persona);
+        for (AtlasEntity createdPolicy : createdPolicies) {
+            if (createdPolicy != policy && policies.stream().noneMatch(p -> Objects.equals(p.getGuid(), createdPolicy.getGuid()))) {
+                policies.add(createdPolicy);
+            }
+        }
         if (policy != null) {
             policies.add(policy);
         }
@@ -182,103 +283,134 @@ public class ESAliasStore implements IndexAliasStore {
 
     private void personaPolicyToESDslClauses(List<AtlasEntity> policies,
                                              List<Map<String, Object>> allowClauseList, boolean useHierarchicalQualifiedNameFilter) throws AtlasBaseException {
-        Set<String> terms = new HashSet<>();
-        Set<String> glossaryQualifiedNames =new HashSet<>();
-        Set<String> metadataPolicyQualifiedNames = new HashSet<>();
-        
+        Set<String>           terms    = new HashSet<>();
+        ESAliasFilterCompiler compiler = new ESAliasFilterCompiler(QUALIFIED_NAME, useHierarchicalQualifiedNameFilter ? QUALIFIED_NAME_HIERARCHY_PROPERTY_KEY : null);
+        int                   cacheHits = 0;
+
         for (AtlasEntity policy: policies) {
+            String         fingerprint   = getPolicyFingerprint(policy, useHierarchicalQualifiedNameFilter);
+            boolean        isStableGuid  = AtlasTypeUtil.isAssignedGuid(policy.getGuid()); // a new policy can still have a temporary guid
+            PolicyClauses  policyClauses = isStableGuid ? policyClausesCache.get(policy.getGuid()) : null;
 
-            if (policy.getStatus() == null || AtlasEntity.Status.ACTIVE.equals(policy.getStatus())) {
-                List<String> assets = getPolicyAssets(policy);
+            if (policyClauses != null && policyClauses.fingerprint.equals(fingerprint)) {
+                cacheHits++;
+            } else {
+                policyClauses = personaPolicyToClauses(policy, fingerprint, useHierarchicalQualifiedNameFilter);
 
-                if (!getIsAllowPolicy(policy)) {
-                    continue;
+                if (isStableGuid && policyClauses.isCacheable) {
+                    policyClausesCache.put(policy.getGuid(), policyClauses);
                 }
-                
-                if (getPolicyActions(policy).contains(ACCESS_READ_PERSONA_METADATA)) {
+            }
 
-                    String connectionQName = getPolicyConnectionQN(policy);
-                    if (StringUtils.isEmpty(connectionQName)) {
-                        connectionQName = getConnectionQualifiedNameFromPolicyAssets(entityRetriever, assets);
-                    }
+            terms.addAll(policyClauses.terms);
+            compiler.add(policyClauses.compiler);
 
-                    for (String asset : assets) {
-                        /*
-                        * We are introducing a hierarchical filter for qualifiedName.
-                        * This requires a migration of existing data to have a hierarchical qualifiedName.
-                        * So this will only work if migration is done, upon migration completion we will set the feature flag to true
-                        * This will be dictated by the feature flag ENABLE_PERSONA_HIERARCHY_FILTER
-                        */
-
-                        // If asset resource ends with /* then add it in hierarchical filter
-                        boolean isHierarchical = asset.endsWith("/*");
-                        if (isHierarchical) {
-                            asset = asset.substring(0, asset.length() - 2);
-                        }
-                        boolean isWildcard = asset.contains("*") || asset.contains("?");
-                        if (isWildcard) {
-                            allowClauseList.add(mapOf("wildcard", mapOf(QUALIFIED_NAME, asset)));
-                        } else if (useHierarchicalQualifiedNameFilter) {
-                            metadataPolicyQualifiedNames.add(asset);
-                        } else {
-                            terms.add(asset);
-                        }
-
-                        if (!useHierarchicalQualifiedNameFilter || isWildcard) {
-                            allowClauseList.add(mapOf("wildcard", mapOf(QUALIFIED_NAME, asset + "/*")));
-                        }
-                    }
+            if (terms.size() > assetsMaxLimit) {
+                throw new AtlasBaseException(AtlasErrorCode.PERSONA_POLICY_ASSETS_LIMIT_EXCEEDED, String.valueOf(assetsMaxLimit), String.valueOf(terms.size()));
+            }
+        }
+
+        compiler.addTerms(QUALIFIED_NAME, terms);
+
+        allowClauseList.addAll(compiler.compile());
+
+        LOG.info("persona alias filter: policies={}, cachedPolicies={}, clauses={}", policies.size(), cacheHits, compiler.getComplexity());
+    }
+
+    // clauses of a single policy; the qualifiedName terms are kept separately, to enforce assetsMaxLimit on all policies
+    private PolicyClauses personaPolicyToClauses(AtlasEntity policy, String fingerprint, boolean useHierarchicalQualifiedNameFilter) throws AtlasBaseException {
+        PolicyClauses         ret      = new PolicyClauses(fingerprint, useHierarchicalQualifiedNameFilter);
+        Set<String>           terms    = ret.terms;
+        ESAliasFilterCompiler compiler = ret.compiler;
+
+        if (policy.getStatus() == null || AtlasEntity.Status.ACTIVE.equals(policy.getStatus())) {
+            List<String> assets = getPolicyAssets(policy);
+
+            if (!getIsAllowPolicy(policy)) {
+                return ret;
+            }
+            
+            if (getPolicyActions(policy).contains(ACCESS_READ_PERSONA_METADATA)) {
+
+                String connectionQName = getPolicyConnectionQN(policy);
+                if (StringUtils.isEmpty(connectionQName)) {
+                    connectionQName = getConnectionQualifiedNameFromPolicyAssets(entityRetriever, assets);
 
-                    terms.add(connectionQName);
+                    // connection might be created later
+                    ret.isCacheable = connectionQName != null;
+                }
 
-                } else if (getPolicyActions(policy).contains(ACCESS_READ_PERSONA_GLOSSARY)) {
-                    if (CollectionUtils.isNotEmpty(assets)) {
-                        terms.addAll(assets);
-                        glossaryQualifiedNames.addAll(assets);
+                for (String asset : assets) {
+                    /*
+                    * We are introducing a hierarchical filter for qualifiedName.
+                    * This requires a migration of existing data to have a hierarchical qualifiedName.
+                    * So this will only work if migration is done, upon migration completion we will set the feature flag to true
+                    * This will be dictated by the feature flag ENABLE_PERSONA_HIERARCHY_FILTER
+                    */
+
+                    // If asset resource ends with /* then add it in hierarchical filter
+                    boolean isHierarchical = asset.endsWith("/*");
+                    if (isHierarchical) {
+                        asset = asset.substring(0, asset.length() - 2);
                     }
-                } else if (getPolicyActions(policy).contains(ACCESS_READ_PERSONA_DOMAIN)) {
-                    for (String asset : assets) {
-                        if(!isAllDomain(asset)) {
-                            terms.add(asset);
-                        } else {
-                            asset = NEW_WILDCARD_DOMAIN_SUPER;
-                        }
-                        allowClauseList.add(mapOf("wildcard", mapOf(QUALIFIED_NAME, asset + "*")));
+                    boolean isWildcard = asset.contains("*") || asset.contains("?");
+                    if (isWildcard) {
+                        compiler.addWildcard(QUALIFIED_NAME, asset);
+                    } else if (useHierarchicalQualifiedNameFilter) {
+                        compiler.addTerm(QUALIFIED_NAME_HIERARCHY_PROPERTY_KEY, asset);
+                    } else {
+                        terms.add(asset);
                     }
 
-                } else if (getPolicyActions(policy).contains(ACCESS_READ_PERSONA_SUB_DOMAIN)) {
-                    for (String asset : assets) {
-                        //terms.add(asset);
-                        List<Map<String, Object>> mustMap = new ArrayList<>();
-                        mustMap.add(mapOf("wildcard", mapOf(QUALIFIED_NAME, asset + "/*domain/*")));
-                        mustMap.add(mapOf("term", mapOf("__typeName.keyword", "DataDomain")));
-                        allowClauseList.add(mapOf("bool", mapOf("must", mustMap)));
+                    if (!useHierarchicalQualifiedNameFilter || isWildcard) {
+                        compiler.addWildcard(QUALIFIED_NAME, asset + "/*");
                     }
+                }
+
+                terms.add(connectionQName);
 
-                } else if (getPolicyActions(policy).contains(ACCESS_READ_PERSONA_PRODUCT)) {
-                    for (String asset : assets) {
-                        //terms.add(asset);
-                        List<Map<String, Object>> mustMap = new ArrayList<>();
-                        mustMap.add(mapOf("wildcard", mapOf(QUALIFIED_NAME, asset + "/*product/*")));
-                        mustMap.add(mapOf("term", mapOf("__typeName.keyword", "DataProduct")));
-                        allowClauseList.add(mapOf("bool", mapOf("must", mustMap)));
+            } else if (getPolicyActions(policy).contains(ACCESS_READ_PERSONA_GLOSSARY)) {
+                if (CollectionUtils.isNotEmpty(assets)) {
+                    terms.addAll(assets);
+                    compiler.addTerms(GLOSSARY_PROPERTY_KEY, assets);
+                }
+            } else if (getPolicyActions(policy).contains(ACCESS_READ_PERSONA_DOMAIN)) {
+                for (String asset : assets) {
+                    if(!isAllDomain(asset)) {
+                        terms.add(asset);
+                    } else {
+                        asset = NEW_WILDCARD_DOMAIN_SUPER;
                     }
+                    compiler.addWildcard(QUALIFIED_NAME, asset + "*");
                 }
-            }
 
-            if (terms.size() > assetsMaxLimit) {
-                throw new AtlasBaseException(AtlasErrorCode.PERSONA_POLICY_ASSETS_LIMIT_EXCEEDED, String.valueOf(assetsMaxLimit), String.valueOf(terms.size()));
+            } else if (getPolicyActions(policy).contains(ACCESS_READ_PERSONA_SUB_DOMAIN)) {
+                for (String asset : assets) {
+                    //terms.add(asset);
+                    List<Map<String, Object>> mustMap = new ArrayList<>();
+                    mustMap.add(mapOf("wildcard", mapOf(QUALIFIED_NAME, asset + "/*domain/*")));
+                    mustMap.add(mapOf("term", mapOf("__typeName.keyword", "DataDomain")));
+                    compiler.addClause(mapOf("bool", mapOf("must", mustMap)));
+                }
+
+            } else if (getPolicyActions(policy).contains(ACCESS_READ_PERSONA_PRODUCT)) {
+                for (String asset : assets) {
+                    //terms.add(asset);
+                    List<Map<String, Object>> mustMap = new ArrayList<>();
+                    mustMap.add(mapOf("wildcard", mapOf(QUALIFIED_NAME, asset + "/*product/*")));
+                    mustMap.add(mapOf("term", mapOf("__typeName.keyword", "DataProduct")));
+                    compiler.addClause(mapOf("bool", mapOf("must", mustMap)));
+                }
             }
         }
 
-        allowClauseList.add(mapOf("terms", mapOf(QUALIFIED_NAME, new ArrayList<>(terms))));
-        if (CollectionUtils.isNotEmpty(metadataPolicyQualifiedNames)) {
-            allowClauseList.add(mapOf("terms", mapOf(QUALIFIED_NAME_HIERARCHY_PROPERTY_KEY, new ArrayList<>(metadataPolicyQualifiedNames))));
-        }
-        
-        if (CollectionUtils.isNotEmpty(glossaryQualifiedNames)) {
-            allowClauseList.add(mapOf("terms", mapOf(GLOSSARY_PROPERTY_KEY, new ArrayList<>(glossaryQualifiedNames))));
-        }
+        return ret;
+    }
+
+    // attributes of the policy used in personaPolicyToClauses()
+    private static String getPolicyFingerprint(AtlasEntity policy, boolean useHierarchicalQualifiedNameFilter) throws AtlasBaseException {
+        return StringUtils.join(new Object[] { policy.getStatus(), policy.getAttribute(ATTR_POLICY_TYPE), getPolicyActions(policy),
+                                               getPolicyResources(policy), getPolicyConnectionQN(policy), useHierarchicalQualifiedNameFilter }, '|');
     }
 
     private boolean isAllDomain(String asset) {
@@ -303,4 +435,54 @@ public class ESAliasStore implements IndexAliasStore {
         clauseList.add(mapOf("terms", mapOf(TRAIT_NAMES_PROPERTY_KEY, tags)));
         clauseList.add(mapOf("terms", mapOf(PROPAGATED_TRAIT_NAMES_PROPERTY_KEY, tags)));
     }
+
+    private static class PolicyClauses {
+        private final String                fingerprint;
+        private final Set<String>           terms = new HashSet<>();
+        private final ESAliasFilterCompiler compiler;
+        private       boolean               isCacheable = true;
+
+        // compiler is shared by all personas of the policy, hence must not be compiled
+        PolicyClauses(String fingerprint, boolean useHierarchicalQualifiedNameFilter) {
+            this.fingerprint = fingerprint;
+            this.compiler    = new ESAliasFilterCompiler(QUALIFIED_NAME, useHierarchicalQualifiedNameFilter ? QUALIFIED_NAME_HIERARCHY_PROPERTY_KEY : null);
+        }
+    }
+
+    // filters of aliases updated in a transaction, written before the transaction commits
+    private class AliasUpdateHook extends GraphTransactionInterceptor.PreCommitHook {
+        private final Map<String, Map<String, Object>> filters         = new LinkedHashMap<>();
+        private final Map<String, List<AtlasEntity>>   createdPolicies = new HashMap<>();
+
+        List<AtlasEntity> getCreatedPolicies(String aliasName) {
+            return createdPolicies.getOrDefault(aliasName, Collections.emptyList());
+        }
+
+        void addUpdate(String aliasName, Map<String, Object> filter, AtlasEntity createdPolicy) {
+            filters.put(aliasName, filter);
+
+            if (createdPolicy != null) {
+                createdPolicies.computeIfAbsent(aliasName, k -> new ArrayList<>()).add(createdPolicy);
+            }
+        }
+
+        void removeUpdate(String aliasName) {
+            filters.remove(aliasName);
+            createdPolicies.remove(aliasName);
+        }
+
+        @Override
+        public void beforeCommit() throws AtlasBaseException {
+            aliasUpdateHook.remove();
+
+            if (!filters.isEmpty()) {
+                writeAliasFilters(filters);
+            }
+        }
+
+        @Override
+        public void onComplete(boolean isSuccess) {
+            aliasUpdateHook.remove();
+        }
+    }
 }
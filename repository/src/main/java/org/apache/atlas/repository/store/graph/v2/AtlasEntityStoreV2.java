@@ -768,6 +768,7 @@ public class AtlasEntityStoreV2 implements AtlasEntityStore {
         String cacheKey = generateCacheKey(entityGuid, entityId, entityType);
         entityHeader = RequestContext.get().getCachedEntityHeader(cacheKey);
         if(Objects.nonNull(entityHeader)){
+            RequestContext.get().endMetricRecord(metric);
             return entityHeader;
         }
         if (StringUtils.isNotEmpty(entityGuid)) {
@@ -793,74 +794,148 @@ public class AtlasEntityStoreV2 implements AtlasEntityStore {
 
     @Override
     public List<AtlasEvaluatePolicyResponse> evaluatePolicies(List<AtlasEvaluatePolicyRequest> entities) throws AtlasBaseException {
-        List<AtlasEvaluatePolicyResponse> response = new ArrayList<>();
-        HashMap<String, AtlasEntityHeader> atlasEntityHeaderCache = new HashMap<>();
-        for (AtlasEvaluatePolicyRequest entity : entities) {
-            String action = entity.getAction();
+        AtlasPerfMetrics.MetricRecorder metric = RequestContext.get().startMetricRecord("evaluatePolicies");
 
-            if (action == null) {
-                throw new AtlasBaseException(BAD_REQUEST, "action is null");
-            }
-            AtlasEntityHeader entityHeader = null;
+        try {
+            Map<String, String[]> entityRefs   = new LinkedHashMap<>();
+            List<List<String>>    decisionKeys = new ArrayList<>(entities.size());
 
-            if (ENTITY_READ.name().equals(action) || ENTITY_CREATE.name().equals(action) || ENTITY_UPDATE.name().equals(action)
-                    || ENTITY_DELETE.name().equals(action) || ENTITY_UPDATE_BUSINESS_METADATA.name().equals(action)) {
+            for (AtlasEvaluatePolicyRequest entity : entities) {
+                String action = entity.getAction();
 
-                try {
-                    entityHeader = getAtlasEntityHeader(entity.getEntityGuid(), entity.getEntityId(), entity.getTypeName());
-                    AtlasEntityAccessRequest.AtlasEntityAccessRequestBuilder requestBuilder = new AtlasEntityAccessRequest.AtlasEntityAccessRequestBuilder(typeRegistry, AtlasPrivilege.valueOf(entity.getAction()), entityHeader);
-                    if (entity.getBusinessMetadata() != null) {
-                        requestBuilder.setBusinessMetadata(entity.getBusinessMetadata());
+                if (action == null) {
+                    throw new AtlasBaseException(BAD_REQUEST, "action is null");
+                }
+
+                if (isEntityPolicyAction(action)) {
+                    decisionKeys.add(Arrays.asList(action, addEntityRef(entityRefs, entity.getEntityGuid(), entity.getEntityId(), entity.getTypeName()), null, null, entity.getBusinessMetadata()));
+                } else if (isClassificationPolicyAction(action)) {
+                    if (entity.getClassification() == null) {
+                        throw new AtlasBaseException(BAD_REQUEST, "classification needed for " + action + " authorization");
                     }
 
-                    AtlasEntityAccessRequest entityAccessRequest = requestBuilder.build();
+                    decisionKeys.add(Arrays.asList(action, addEntityRef(entityRefs, entity.getEntityGuid(), entity.getEntityId(), entity.getTypeName()), null, entity.getClassification(), null));
+                } else if (isRelationshipPolicyAction(action)) {
+                    if (entity.getRelationShipTypeName() == null) {
+                        throw new AtlasBaseException(BAD_REQUEST, "RelationShip TypeName needed for " + action + " authorization");
+                    }
 
-                    AtlasAuthorizationUtils.verifyAccess(entityAccessRequest, entity.getAction() + "guid=" + entity.getEntityGuid());
-                    response.add(new AtlasEvaluatePolicyResponse(entity.getTypeName(), entity.getEntityGuid(), entity.getAction(), entity.getEntityId(), true, null , entity.getBusinessMetadata()));
-                } catch (AtlasBaseException e) {
-                    AtlasErrorCode code = e.getAtlasErrorCode();
-                    String errorCode = code.getErrorCode();
-                    response.add(new AtlasEvaluatePolicyResponse(entity.getTypeName(), entity.getEntityGuid(), entity.getAction(), entity.getEntityId(), false, errorCode, entity.getBusinessMetadata()));
+                    decisionKeys.add(Arrays.asList(action, addEntityRef(entityRefs, entity.getEntityGuidEnd1(), entity.getEntityIdEnd1(), entity.getEntityTypeEnd1()),
+                                                   addEntityRef(entityRefs, entity.getEntityGuidEnd2(), entity.getEntityIdEnd2(), entity.getEntityTypeEnd2()),
+                                                   entity.getRelationShipTypeName(), null));
+                } else {
+                    decisionKeys.add(null);
                 }
+            }
 
-            } else if (ENTITY_REMOVE_CLASSIFICATION.name().equals(action) || ENTITY_ADD_CLASSIFICATION.name().equals(action) || ENTITY_UPDATE_CLASSIFICATION.name().equals(action)) {
+            Map<String, BatchAuthorizationEvaluator.Result<AtlasEntityHeader>> entityHeaders = loadEntityHeaders(entityRefs);
+            Map<List<String>, BatchAuthorizationEvaluator.Result<Boolean>>     decisions     = BatchAuthorizationEvaluator.getInstance().evaluate(
+                    decisionKeys.stream().filter(Objects::nonNull).collect(Collectors.toList()), key -> evaluatePolicy(key, entityHeaders));
 
-                if (entity.getClassification() == null) {
-                    throw new AtlasBaseException(BAD_REQUEST, "classification needed for " + action + " authorization");
-                }
-                try {
-                    entityHeader = getAtlasEntityHeader(entity.getEntityGuid(), entity.getEntityId(), entity.getTypeName());
+            List<AtlasEvaluatePolicyResponse> response = new ArrayList<>(entities.size());
 
-                    AtlasAuthorizationUtils.verifyAccess(new AtlasEntityAccessRequest(typeRegistry, AtlasPrivilege.valueOf(entity.getAction()), entityHeader, new AtlasClassification(entity.getClassification())));
-                    response.add(new AtlasEvaluatePolicyResponse(entity.getTypeName(), entity.getEntityGuid(), entity.getAction(), entity.getEntityId(), entity.getClassification(), true, null));
+            for (int i = 0; i < entities.size(); i++) {
+                AtlasEvaluatePolicyRequest entity      = entities.get(i);
+                List<String>               decisionKey = decisionKeys.get(i);
 
-                } catch (AtlasBaseException e) {
-                    AtlasErrorCode code = e.getAtlasErrorCode();
-                    String errorCode = code.getErrorCode();
-                    response.add(new AtlasEvaluatePolicyResponse(entity.getTypeName(), entity.getEntityGuid(), entity.getAction(), entity.getEntityId(), entity.getClassification(), false, errorCode));
+                if (decisionKey == null) {
+                    continue;
                 }
 
-            }    else if (RELATIONSHIP_ADD.name().equals(action) || RELATIONSHIP_REMOVE.name().equals(action) || RELATIONSHIP_UPDATE.name().equals(action)) {
+                AtlasBaseException error     = decisions.get(decisionKey).getError();
+                boolean            allowed   = error == null;
+                String             errorCode = allowed ? null : error.getAtlasErrorCode().getErrorCode();
+                String             action    = entity.getAction();
 
-                if (entity.getRelationShipTypeName() == null) {
-                    throw new AtlasBaseException(BAD_REQUEST, "RelationShip TypeName needed for " + action + " authorization");
+                if (isEntityPolicyAction(action)) {
+                    response.add(new AtlasEvaluatePolicyResponse(entity.getTypeName(), entity.getEntityGuid(), action, entity.getEntityId(), allowed, errorCode, entity.getBusinessMetadata()));
+                } else if (isClassificationPolicyAction(action)) {
+                    response.add(new AtlasEvaluatePolicyResponse(entity.getTypeName(), entity.getEntityGuid(), action, entity.getEntityId(), entity.getClassification(), allowed, errorCode));
+                } else {
+                    response.add(new AtlasEvaluatePolicyResponse(action, entity.getRelationShipTypeName(), entity.getEntityTypeEnd1(), entity.getEntityGuidEnd1(), entity.getEntityIdEnd1(), entity.getEntityTypeEnd2(), entity.getEntityGuidEnd2(), entity.getEntityIdEnd2(), allowed, errorCode));
                 }
+            }
 
-                try {
-                    AtlasEntityHeader end1Entity = getAtlasEntityHeader(entity.getEntityGuidEnd1(), entity.getEntityIdEnd1(), entity.getEntityTypeEnd1());
+            return response;
+        } finally {
+            RequestContext.get().endMetricRecord(metric);
+        }
+    }
 
-                    AtlasEntityHeader end2Entity = getAtlasEntityHeader(entity.getEntityGuidEnd2(), entity.getEntityIdEnd2(), entity.getEntityTypeEnd2());
+    private static boolean isEntityPolicyAction(String action) {
+        return ENTITY_READ.name().equals(action) || ENTITY_CREATE.name().equals(action) || ENTITY_UPDATE.name().equals(action)
+                || ENTITY_DELETE.name().equals(action) || ENTITY_UPDATE_BUSINESS_METADATA.name().equals(action);
+    }
 
-                    AtlasAuthorizationUtils.verifyAccess(new AtlasRelationshipAccessRequest(typeRegistry, AtlasPrivilege.valueOf(action), entity.getRelationShipTypeName(), end1Entity, end2Entity));
-                    response.add(new AtlasEvaluatePolicyResponse(action, entity.getRelationShipTypeName(), entity.getEntityTypeEnd1(), entity.getEntityGuidEnd1(), entity.getEntityIdEnd1(), entity.getEntityTypeEnd2(), entity.getEntityGuidEnd2(), entity.getEntityIdEnd2(), true, null));
-                } catch (AtlasBaseException e) {
-                    AtlasErrorCode code = e.getAtlasErrorCode();
-                    String errorCode = code.getErrorCode();
-                    response.add(new AtlasEvaluatePolicyResponse(action, entity.getRelationShipTypeName(), entity.getEntityTypeEnd1(), entity.getEntityGuidEnd1(), entity.getEntityIdEnd1(), entity.getEntityTypeEnd2(), entity.getEntityGuidEnd2(), entity.getEntityIdEnd2(), false, errorCode));
-                }
+    private static boolean isClassificationPolicyAction(String action) {
+        return ENTITY_REMOVE_CLASSIFICATION.name().equals(action) || ENTITY_ADD_CLASSIFICATION.name().equals(action) || ENTITY_UPDATE_CLASSIFICATION.name().equals(action);
+    }
+
+    private static boolean isRelationshipPolicyAction(String action) {
+        return RELATIONSHIP_ADD.name().equals(action) || RELATIONSHIP_REMOVE.name().equals(action) || RELATIONSHIP_UPDATE.name().equals(action);
+    }
+
+    // decisionKey: action, entity (or end1) ref, end2 ref, classification or relationship type, business metadata
+    private Boolean evaluatePolicy(List<String> decisionKey, Map<String, BatchAuthorizationEvaluator.Result<AtlasEntityHeader>> entityHeaders) throws AtlasBaseException {
+        String         action    = decisionKey.get(0);
+        AtlasPrivilege privilege = AtlasPrivilege.valueOf(action);
+
+        if (isEntityPolicyAction(action)) {
+            AtlasEntityAccessRequest.AtlasEntityAccessRequestBuilder requestBuilder = new AtlasEntityAccessRequest.AtlasEntityAccessRequestBuilder(typeRegistry, privilege, entityHeaders.get(decisionKey.get(1)).get());
+
+            if (decisionKey.get(4) != null) {
+                requestBuilder.setBusinessMetadata(decisionKey.get(4));
             }
+
+            AtlasAuthorizationUtils.verifyAccess(requestBuilder.build(), action + "guid=" + decisionKey.get(1));
+        } else if (isClassificationPolicyAction(action)) {
+            AtlasAuthorizationUtils.verifyAccess(new AtlasEntityAccessRequest(typeRegistry, privilege, entityHeaders.get(decisionKey.get(1)).get(), new AtlasClassification(decisionKey.get(3))));
+        } else {
+            AtlasEntityHeader end1Entity = entityHeaders.get(decisionKey.get(1)).get();
+            AtlasEntityHeader end2Entity = entityHeaders.get(decisionKey.get(2)).get();
+
+            AtlasAuthorizationUtils.verifyAccess(new AtlasRelationshipAccessRequest(typeRegistry, privilege, decisionKey.get(3), end1Entity, end2Entity));
         }
-        return response;
+
+        return Boolean.TRUE;
+    }
+
+    private String addEntityRef(Map<String, String[]> entityRefs, String guid, String id, String typeName) {
+        String ret = generateCacheKey(guid, id, typeName);
+
+        entityRefs.putIfAbsent(ret, new String[] { guid, id, typeName });
+
+        return ret;
+    }
+
+    /**
+     * Loads the header of each referenced entity once; vertices of all referenced guids are looked up together.
+     */
+    private Map<String, BatchAuthorizationEvaluator.Result<AtlasEntityHeader>> loadEntityHeaders(Map<String, String[]> entityRefs) {
+        Map<String, BatchAuthorizationEvaluator.Result<AtlasEntityHeader>> ret   = new HashMap<>(entityRefs.size());
+        Set<String>                                                         guids = new HashSet<>();
+
+        for (String[] entityRef : entityRefs.values()) {
+            if (StringUtils.isNotEmpty(entityRef[0])) {
+                guids.add(entityRef[0]);
+            }
+        }
+
+        if (guids.size() > 1) {
+            AtlasGraphUtilsV2.findByGuids(graph, guids);
+        }
+
+        for (Map.Entry<String, String[]> entry : entityRefs.entrySet()) {
+            String[] entityRef = entry.getValue();
+
+            try {
+                ret.put(entry.getKey(), BatchAuthorizationEvaluator.Result.of(getAtlasEntityHeader(entityRef[0], entityRef[1], entityRef[2])));
+            } catch (AtlasBaseException e) {
+                ret.put(entry.getKey(), BatchAuthorizationEvaluator.Result.failed(e));
+            }
+        }
+
+        return ret;
     }
 
     private String generateCacheKey(String guid, String id, String typeName) {
@@ -2324,94 +2399,166 @@ public class AtlasEntityStoreV2 implements AtlasEntityStore {
 
     @Override
     public List<AtlasAccessorResponse> getAccessors(List<AtlasAccessorRequest> atlasAccessorRequestList) throws AtlasBaseException {
-        List<AtlasAccessorResponse> ret = new ArrayList<>();
+        AtlasPerfMetrics.MetricRecorder metric = RequestContext.get().startMetricRecord("getAccessors");
 
-        for (AtlasAccessorRequest accessorRequest : atlasAccessorRequestList) {
-            try {
-                AtlasAccessorResponse result = null;
-                AtlasPrivilege action = AtlasPrivilege.valueOf(accessorRequest.getAction());;
-
-                switch (action) {
-                    case ENTITY_READ:
-                    case ENTITY_CREATE:
-                    case ENTITY_UPDATE:
-                    case ENTITY_DELETE:
-                        AtlasEntityAccessRequestBuilder entityAccessRequestBuilder = getEntityAccessRequest(accessorRequest, action);
-                        result = AtlasAuthorizationUtils.getAccessors(entityAccessRequestBuilder.build());
-                        break;
+        try {
+            Map<List<String>, AtlasEntityHeader> entityHeaders = new HashMap<>();
+            Map<List<String>, AtlasAccessRequest> requests     = new LinkedHashMap<>();
+            List<List<String>>                    requestKeys  = new ArrayList<>(atlasAccessorRequestList.size());
+            Set<String>                           guids        = new HashSet<>();
 
-                    case ENTITY_READ_CLASSIFICATION:
-                    case ENTITY_ADD_CLASSIFICATION:
-                    case ENTITY_UPDATE_CLASSIFICATION:
-                    case ENTITY_REMOVE_CLASSIFICATION:
-                        entityAccessRequestBuilder = getEntityAccessRequest(accessorRequest, action);
-                        entityAccessRequestBuilder.setClassification(new AtlasClassification(accessorRequest.getClassification()));
-                        result = AtlasAuthorizationUtils.getAccessors(entityAccessRequestBuilder.build());
-                        break;
+            for (AtlasAccessorRequest accessorRequest : atlasAccessorRequestList) {
+                Collections.addAll(guids, accessorRequest.getGuid(), accessorRequest.getEntityGuidEnd1(), accessorRequest.getEntityGuidEnd2());
+            }
 
-                    case ENTITY_ADD_LABEL:
-                    case ENTITY_REMOVE_LABEL:
-                        entityAccessRequestBuilder = getEntityAccessRequest(accessorRequest, action);
-                        entityAccessRequestBuilder.setLabel(accessorRequest.getLabel());
-                        result = AtlasAuthorizationUtils.getAccessors(entityAccessRequestBuilder.build());
-                        break;
+            guids.remove(null);
 
-                    case ENTITY_UPDATE_BUSINESS_METADATA:
-                        entityAccessRequestBuilder = getEntityAccessRequest(accessorRequest, action);
-                        entityAccessRequestBuilder.setBusinessMetadata(accessorRequest.getBusinessMetadata());
-                        result = AtlasAuthorizationUtils.getAccessors(entityAccessRequestBuilder.build());
-                        break;
+            if (guids.size() > 1) {
+                AtlasGraphUtilsV2.findByGuids(graph, guids);
+            }
 
+            for (AtlasAccessorRequest accessorRequest : atlasAccessorRequestList) {
+                List<String> requestKey = toAccessorRequestKey(accessorRequest);
 
-                    case RELATIONSHIP_ADD:
-                    case RELATIONSHIP_UPDATE:
-                    case RELATIONSHIP_REMOVE:
-                        AtlasEntityHeader end1EntityHeader = extractEntityHeader(accessorRequest.getEntityGuidEnd1(), accessorRequest.getEntityQualifiedNameEnd1(), accessorRequest.getEntityTypeEnd1());
-                        AtlasEntityHeader end2EntityHeader = extractEntityHeader(accessorRequest.getEntityGuidEnd2(), accessorRequest.getEntityQualifiedNameEnd2(), accessorRequest.getEntityTypeEnd2());
+                requestKeys.add(requestKey);
 
-                        AtlasRelationshipAccessRequest relAccessRequest = new AtlasRelationshipAccessRequest(typeRegistry,
-                                action, accessorRequest.getRelationshipTypeName(), end1EntityHeader, end2EntityHeader);
+                if (!requests.containsKey(requestKey)) {
+                    try {
+                        requests.put(requestKey, toAccessRequest(accessorRequest, entityHeaders));
+                    } catch (AtlasBaseException e) {
+                        e.getErrorDetailsMap().put("accessorRequest", AtlasType.toJson(accessorRequest));
+                        throw e;
+                    }
+                }
+            }
 
-                        result = AtlasAuthorizationUtils.getAccessors(relAccessRequest);
-                        break;
+            Map<List<String>, BatchAuthorizationEvaluator.Result<AtlasAccessorResponse>> results = BatchAuthorizationEvaluator.getInstance().evaluate(requests.keySet(), key -> {
+                AtlasAccessRequest    request = requests.get(key);
+                AtlasAccessorResponse ret     = null;
 
+                if (request instanceof AtlasEntityAccessRequest) {
+                    ret = AtlasAuthorizationUtils.getAccessors((AtlasEntityAccessRequest) request);
+                } else if (request instanceof AtlasRelationshipAccessRequest) {
+                    ret = AtlasAuthorizationUtils.getAccessors((AtlasRelationshipAccessRequest) request);
+                } else if (request instanceof AtlasTypeAccessRequest) {
+                    ret = AtlasAuthorizationUtils.getAccessors((AtlasTypeAccessRequest) request);
+                }
 
-                    case TYPE_READ:
-                    case TYPE_CREATE:
-                    case TYPE_UPDATE:
-                    case TYPE_DELETE:
-                        AtlasBaseTypeDef typeDef = typeRegistry.getTypeDefByName(accessorRequest.getTypeName());
-                        AtlasTypeAccessRequest typeAccessRequest = new AtlasTypeAccessRequest(action, typeDef);
+                if (ret == null) {
+                    throw new AtlasBaseException();
+                }
 
-                        result = AtlasAuthorizationUtils.getAccessors(typeAccessRequest);
-                        break;
+                return ret;
+            });
 
+            List<AtlasAccessorResponse> ret = new ArrayList<>(atlasAccessorRequestList.size());
 
-                    default:
-                        LOG.error("No implementation found for action: {}", accessorRequest.getAction());
-                }
+            for (int i = 0; i < atlasAccessorRequestList.size(); i++) {
+                AtlasAccessorRequest accessorRequest = atlasAccessorRequestList.get(i);
 
-                if (result == null) {
-                    throw new AtlasBaseException();
-                }
-                result.populateRequestDetails(accessorRequest);
-                ret.add(result);
+                try {
+                    // responses are copied, as the same result may be shared by identical requests
+                    AtlasAccessorResponse result = new AtlasAccessorResponse(results.get(requestKeys.get(i)).get());
 
-            } catch (AtlasBaseException e) {
-                e.getErrorDetailsMap().put("accessorRequest", AtlasType.toJson(accessorRequest));
-                throw e;
+                    result.populateRequestDetails(accessorRequest);
+                    ret.add(result);
+                } catch (AtlasBaseException e) {
+                    e.getErrorDetailsMap().put("accessorRequest", AtlasType.toJson(accessorRequest));
+                    throw e;
+                }
             }
+
+            return ret;
+        } finally {
+            RequestContext.get().endMetricRecord(metric);
+        }
+    }
+
+    private static List<String> toAccessorRequestKey(AtlasAccessorRequest request) {
+        return Arrays.asList(request.getAction(), request.getGuid(), request.getTypeName(), request.getQualifiedName(), request.getLabel(),
+                             request.getClassification(), request.getBusinessMetadata(), request.getRelationshipTypeName(),
+                             request.getEntityGuidEnd1(), request.getEntityQualifiedNameEnd1(), request.getEntityTypeEnd1(),
+                             request.getEntityGuidEnd2(), request.getEntityQualifiedNameEnd2(), request.getEntityTypeEnd2());
+    }
+
+    /**
+     * @return the access request to get accessors for; null if the action is not supported
+     */
+    private AtlasAccessRequest toAccessRequest(AtlasAccessorRequest accessorRequest, Map<List<String>, AtlasEntityHeader> entityHeaders) throws AtlasBaseException {
+        AtlasAccessRequest ret    = null;
+        AtlasPrivilege     action = AtlasPrivilege.valueOf(accessorRequest.getAction());
+
+        switch (action) {
+            case ENTITY_READ:
+            case ENTITY_CREATE:
+            case ENTITY_UPDATE:
+            case ENTITY_DELETE:
+                ret = getEntityAccessRequest(accessorRequest, action, entityHeaders).build();
+                break;
+
+            case ENTITY_READ_CLASSIFICATION:
+            case ENTITY_ADD_CLASSIFICATION:
+            case ENTITY_UPDATE_CLASSIFICATION:
+            case ENTITY_REMOVE_CLASSIFICATION:
+                ret = getEntityAccessRequest(accessorRequest, action, entityHeaders).setClassification(new AtlasClassification(accessorRequest.getClassification())).build();
+                break;
+
+            case ENTITY_ADD_LABEL:
+            case ENTITY_REMOVE_LABEL:
+                ret = getEntityAccessRequest(accessorRequest, action, entityHeaders).setLabel(accessorRequest.getLabel()).build();
+                break;
+
+            case ENTITY_UPDATE_BUSINESS_METADATA:
+                ret = getEntityAccessRequest(accessorRequest, action, entityHeaders).setBusinessMetadata(accessorRequest.getBusinessMetadata()).build();
+                break;
+
+
+            case RELATIONSHIP_ADD:
+            case RELATIONSHIP_UPDATE:
+            case RELATIONSHIP_REMOVE:
+                AtlasEntityHeader end1EntityHeader = extractEntityHeader(accessorRequest.getEntityGuidEnd1(), accessorRequest.getEntityQualifiedNameEnd1(), accessorRequest.getEntityTypeEnd1(), entityHeaders);
+                AtlasEntityHeader end2EntityHeader = extractEntityHeader(accessorRequest.getEntityGuidEnd2(), accessorRequest.getEntityQualifiedNameEnd2(), accessorRequest.getEntityTypeEnd2(), entityHeaders);
+
+                ret = new AtlasRelationshipAccessRequest(typeRegistry, action, accessorRequest.getRelationshipTypeName(), end1EntityHeader, end2EntityHeader);
+                break;
+
+
+            case TYPE_READ:
+            case TYPE_CREATE:
+            case TYPE_UPDATE:
+            case TYPE_DELETE:
+                AtlasBaseTypeDef typeDef = typeRegistry.getTypeDefByName(accessorRequest.getTypeName());
+
+                ret = new AtlasTypeAccessRequest(action, typeDef);
+                break;
+
+
+            default:
+                LOG.error("No implementation found for action: {}", accessorRequest.getAction());
         }
 
         return ret;
     }
 
-    private AtlasEntityAccessRequestBuilder getEntityAccessRequest(AtlasAccessorRequest element, AtlasPrivilege action) throws AtlasBaseException {
-        AtlasEntityHeader entityHeader = extractEntityHeader(element.getGuid(), element.getQualifiedName(), element.getTypeName());
+    private AtlasEntityAccessRequestBuilder getEntityAccessRequest(AtlasAccessorRequest element, AtlasPrivilege action, Map<List<String>, AtlasEntityHeader> entityHeaders) throws AtlasBaseException {
+        AtlasEntityHeader entityHeader = extractEntityHeader(element.getGuid(), element.getQualifiedName(), element.getTypeName(), entityHeaders);
 
         return new AtlasEntityAccessRequestBuilder(typeRegistry, action, entityHeader);
     }
 
+    private AtlasEntityHeader extractEntityHeader(String guid, String qualifiedName, String typeName, Map<List<String>, AtlasEntityHeader> entityHeaders) throws AtlasBaseException {
+        List<String>      key = Arrays.asList(guid, qualifiedName, typeName);
+        AtlasEntityHeader ret = entityHeaders.get(key);
+
+        if (ret == null) {
+            ret = extractEntityHeader(guid, qualifiedName, typeName);
+
+            entityHeaders.put(key, ret);
+        }
+
+        return ret;
+    }
+
     private AtlasEntityHeader extractEntityHeader(String guid, String qualifiedName, String typeName) throws AtlasBaseException {
         AtlasEntityHeader entityHeader = null;
 
@@ -2633,8 +2780,11 @@ public class AtlasEntityStoreV2 implements AtlasEntityStore {
             PatchContext context = new PatchContext(graph, typeRegistry, null, entityGraphMapper);
             ReIndexPatch.ReindexPatchProcessor reindexPatchProcessor = new ReIndexPatch.ReindexPatchProcessor(context);
 
-            reindexPatchProcessor.repairVertices();
-            reindexPatchProcessor.repairEdges();
+            if (!reindexPatchProcessor.repairAll(null)) {
+                throw new AtlasBaseException(AtlasErrorCode.REPAIR_INDEX_FAILED, "some ranges of the graph failed to reindex; see logs");
+            }
+        } catch (AtlasBaseException exception) {
+            throw exception;
         } catch (Exception exception) {
             LOG.error("Error while reindexing.", exception);
             throw new AtlasBaseException(AtlasErrorCode.REPAIR_INDEX_FAILED, exception.toString());
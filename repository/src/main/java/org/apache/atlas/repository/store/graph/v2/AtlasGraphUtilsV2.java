@@ -421,6 +421,48 @@ public class AtlasGraphUtilsV2 {
         return ret;
     }
 
+    /**
+     * Looks up vertices of the given guids with a single graph query, and adds them to the guid-vertex cache
+     * so that subsequent findByGuid() calls for these guids don't query the graph.
+     *
+     * @return vertices by guid; guids without a vertex are not included
+     */
+    public static Map<String, AtlasVertex> findByGuids(AtlasGraph graph, Collection<String> guids) {
+        AtlasPerfMetrics.MetricRecorder metric = RequestContext.get().startMetricRecord("findByGuids");
+
+        Map<String, AtlasVertex> ret      = new HashMap<>();
+        Set<String>              toLookup = new HashSet<>();
+
+        for (String guid : guids) {
+            AtlasVertex vertex = guid != null ? GraphTransactionInterceptor.getVertexFromCache(guid) : null;
+
+            if (vertex != null) {
+                ret.put(guid, vertex);
+            } else if (guid != null) {
+                toLookup.add(guid);
+            }
+        }
+
+        if (!toLookup.isEmpty()) {
+            Iterator<AtlasVertex> results = graph.query().in(Constants.GUID_PROPERTY_KEY, toLookup).vertices().iterator();
+
+            while (results.hasNext()) {
+                AtlasVertex vertex = results.next();
+                String      guid   = vertex.getProperty(Constants.GUID_PROPERTY_KEY, String.class);
+
+                if (guid != null && !ret.containsKey(guid)) {
+                    ret.put(guid, vertex);
+
+                    GraphTransactionInterceptor.addToVertexCache(guid, vertex);
+                }
+            }
+        }
+
+        RequestContext.get().endMetricRecord(metric);
+
+        return ret;
+    }
+
     public static AtlasVertex findDeletedByGuid(AtlasGraph graph, String guid) {
         AtlasVertex ret = GraphTransactionInterceptor.getVertexFromCache(guid);
 
@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.authorize.AtlasAuthorizationUtils;
+import org.apache.atlas.exception.AtlasBaseException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates a batch of independent authorization checks, each distinct key exactly once.
+ *
+ * Batches with at least atlas.authorizer.batch.evaluation.parallel.threshold distinct keys are evaluated on a
+ * shared pool, with the security and request context of the calling thread; smaller batches on the calling thread.
+ * Evaluations must not touch the graph, as pool threads don't share the transaction of the calling thread.
+ */
+final class BatchAuthorizationEvaluator {
+    private static volatile BatchAuthorizationEvaluator INSTANCE;
+
+    interface Evaluation<K, V> {
+        V evaluate(K key) throws AtlasBaseException;
+    }
+
+    static final class Result<V> {
+        private final V                  value;
+        private final AtlasBaseException error;
+
+        private Result(V value, AtlasBaseException error) {
+            this.value = value;
+            this.error = error;
+        }
+
+        static <V> Result<V> of(V value) {
+            return new Result<>(value, null);
+        }
+
+        static <V> Result<V> failed(AtlasBaseException error) {
+            return new Result<>(null, error);
+        }
+
+        /**
+         * @throws AtlasBaseException the exception the evaluation failed with
+         */
+        V get() throws AtlasBaseException {
+            if (error != null) {
+                throw error;
+            }
+
+            return value;
+        }
+
+        AtlasBaseException getError() {
+            return error;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final int             parallelThreshold;
+
+    BatchAuthorizationEvaluator(int parallelism, int parallelThreshold) {
+        this.executor          = parallelism > 1 ? Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder().setNameFormat("authz-batch-eval-%d").setDaemon(true).build()) : null;
+        this.parallelThreshold = Math.max(2, parallelThreshold);
+    }
+
+    static BatchAuthorizationEvaluator getInstance() {
+        BatchAuthorizationEvaluator ret = INSTANCE;
+
+        if (ret == null) {
+            synchronized (BatchAuthorizationEvaluator.class) {
+                ret = INSTANCE;
+
+                if (ret == null) {
+                    ret = new BatchAuthorizationEvaluator(AtlasConfiguration.AUTHORIZER_BATCH_EVALUATION_PARALLELISM.getInt(),
+                                                          AtlasConfiguration.AUTHORIZER_BATCH_EVALUATION_PARALLEL_THRESHOLD.getInt());
+
+                    INSTANCE = ret;
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return result of the evaluation of each distinct key
+     */
+    <K, V> Map<K, Result<V>> evaluate(Collection<K> keys, Evaluation<K, V> evaluation) throws AtlasBaseException {
+        List<K>           distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        Map<K, Result<V>> ret          = new HashMap<>(distinctKeys.size());
+
+        if (executor == null || distinctKeys.size() < parallelThreshold) {
+            for (K key : distinctKeys) {
+                ret.put(key, evaluate(key, evaluation));
+            }
+
+            return ret;
+        }
+
+        List<Future<Result<V>>> futures = new ArrayList<>(distinctKeys.size());
+
+        try {
+            for (K key : distinctKeys) {
+                futures.add(executor.submit(AtlasAuthorizationUtils.withCurrentContext(() -> evaluate(key, evaluation))));
+            }
+
+            for (int i = 0; i < distinctKeys.size(); i++) {
+                ret.put(distinctKeys.get(i), futures.get(i).get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+
+            Thread.currentThread().interrupt();
+
+            throw new AtlasBaseException(e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+
+            throw new AtlasBaseException(e.getCause());
+        }
+
+        return ret;
+    }
+
+    private static <K, V> Result<V> evaluate(K key, Evaluation<K, V> evaluation) {
+        try {
+            return Result.of(evaluation.evaluate(key));
+        } catch (AtlasBaseException e) {
+            return Result.failed(e);
+        }
+    }
+}
@@ -82,6 +82,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import static org.apache.atlas.AtlasConfiguration.CLASSIFICATION_TEXT_INCREMENTAL_UPDATE_ENABLED;
 import static org.apache.atlas.AtlasConfiguration.LABEL_MAX_LENGTH;
 import static org.apache.atlas.AtlasConfiguration.STORE_DIFFERENTIAL_AUDITS;
 import static org.apache.atlas.model.TypeCategory.ARRAY;
@@ -3166,7 +3167,12 @@ public class EntityGraphMapper {
                         List<AtlasVertex> entityVertices = currentAssetVerticesBatch.subList(offset, toIndex);
                         for (AtlasVertex vertex : entityVertices) {
                             List<AtlasClassification> deletedClassifications = new ArrayList<>();
-                            GraphTransactionInterceptor.lockObjectAndReleasePostCommit(graphHelper.getGuid(vertex));
+                            try {
+                                GraphTransactionInterceptor.lockObjectAndReleasePostCommit(graphHelper.getGuid(vertex));
+                            } catch (AtlasBaseException e) {
+                                LOG.warn("Skipping clean up of tag {} from entity {}: {}", classificationName, graphHelper.getGuid(vertex), e.getMessage());
+                                continue;
+                            }
                             List<AtlasEdge> classificationEdges = GraphHelper.getClassificationEdges(vertex, null, classificationName);
                             classificationEdgeCount += classificationEdges.size();
                             int batchSize = CHUNK_SIZE;
@@ -4622,6 +4628,10 @@ public class EntityGraphMapper {
     }
 
     List<AtlasEntity> updateClassificationText(AtlasClassification classification, Collection<AtlasVertex> propagatedVertices) throws AtlasBaseException {
+        if (CLASSIFICATION_TEXT_INCREMENTAL_UPDATE_ENABLED.getBoolean()) {
+            return updateClassificationTextIncrementally(propagatedVertices);
+        }
+
         List<AtlasEntity> propagatedEntities = new ArrayList<>();
         AtlasPerfMetrics.MetricRecorder metricRecorder = RequestContext.get().startMetricRecord("updateClassificationText");
 
@@ -4653,6 +4663,56 @@ public class EntityGraphMapper {
         return propagatedEntities;
     }
 
+    /**
+     * Rebuilds classification text of the vertices from their classification edges, without mapping the entities:
+     * the text of each classification vertex is computed once for the batch - the propagated classification is
+     * shared by all the vertices. Returned entities carry only what change notifications read.
+     */
+    private List<AtlasEntity> updateClassificationTextIncrementally(Collection<AtlasVertex> propagatedVertices) throws AtlasBaseException {
+        List<AtlasEntity> propagatedEntities = new ArrayList<>();
+        AtlasPerfMetrics.MetricRecorder metricRecorder = RequestContext.get().startMetricRecord("updateClassificationTextIncrementally");
+
+        if (CollectionUtils.isNotEmpty(propagatedVertices)) {
+            Map<Object, AtlasClassification> classifications     = new HashMap<>();
+            Map<Object, String>              classificationTexts = new HashMap<>();
+
+            for (AtlasVertex vertex : propagatedVertices) {
+                List<AtlasClassification> entityClassifications = new ArrayList<>();
+                StringBuilder             classificationText    = new StringBuilder();
+
+                for (AtlasEdge edge : GraphHelper.getAllClassificationEdges(vertex)) {
+                    AtlasVertex         classificationVertex = edge.getInVertex();
+                    Object              classificationId     = classificationVertex.getId();
+                    AtlasClassification entityClassification = classifications.get(classificationId);
+
+                    if (entityClassification == null && !classifications.containsKey(classificationId)) {
+                        entityClassification = entityRetriever.toAtlasClassification(classificationVertex);
+
+                        classifications.put(classificationId, entityClassification);
+                        classificationTexts.put(classificationId, entityClassification != null ? fullTextMapperV2.getClassificationText(entityClassification) : null);
+                    }
+
+                    if (entityClassification != null) {
+                        String text = classificationTexts.get(classificationId);
+
+                        entityClassifications.add(entityClassification);
+
+                        if (text != null) {
+                            classificationText.append(text);
+                        }
+                    }
+                }
+
+                vertex.setProperty(CLASSIFICATION_TEXT_KEY, classificationText.toString());
+
+                propagatedEntities.add(entityRetriever.toAtlasEntityForNotification(vertex, entityClassifications.isEmpty() ? null : entityClassifications));
+            }
+        }
+
+        RequestContext.get().endMetricRecord(metricRecorder);
+        return propagatedEntities;
+    }
+
 
 
     private void updateLabels(AtlasVertex vertex, Set<String> labels) {
@@ -17,8 +17,11 @@
  */
 package org.apache.atlas.repository.store.graph.v2;
 
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongContainer;
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.cursors.LongCursor;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.AtlasErrorCode;
 import org.apache.atlas.RequestContext;
@@ -44,12 +47,14 @@ import org.apache.atlas.model.typedef.AtlasRelationshipEndDef;
 import org.apache.atlas.model.typedef.AtlasStructDef.AtlasAttributeDef;
 import org.apache.atlas.repository.Constants;
 import org.apache.atlas.repository.graph.GraphHelper;
+import org.apache.atlas.repository.graph.GraphTraversalEngine;
 import org.apache.atlas.repository.graphdb.AtlasEdge;
 import org.apache.atlas.repository.graphdb.AtlasEdgeDirection;
 import org.apache.atlas.repository.graphdb.AtlasElement;
 import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
 import org.apache.atlas.repository.graphdb.janus.AtlasJanusEdge;
+import org.apache.atlas.repository.graphdb.janus.AtlasJanusGraph;
 import org.apache.atlas.repository.graphdb.janus.AtlasJanusVertex;
 import org.apache.atlas.repository.util.AccessControlUtils;
 import org.apache.atlas.type.AtlasArrayType;
@@ -70,8 +75,13 @@ import org.apache.atlas.v1.model.instance.Id;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.VertexProperty;
 import org.janusgraph.core.Cardinality;
+import org.janusgraph.core.JanusGraph;
+import org.janusgraph.core.JanusGraphEdge;
+import org.janusgraph.core.JanusGraphVertex;
+import org.janusgraph.core.JanusGraphVertexProperty;
 import org.janusgraph.graphdb.relations.CacheVertexProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -81,10 +91,7 @@ import javax.inject.Inject;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static org.apache.atlas.glossary.GlossaryUtils.TERM_ASSIGNMENT_ATTR_CONFIDENCE;
@@ -218,6 +225,48 @@ public class EntityGraphRetriever {
         return atlasVertex != null ? mapVertexToAtlasEntityHeader(atlasVertex, attributes) : null;
     }
 
+    /**
+     * Maps a page of vertices to entity headers. When janus optimisation is enabled, properties and
+     * active edges of all the vertices are loaded with batched backend queries before mapping.
+     *
+     * @return headers in the same order as the given vertices
+     */
+    public List<AtlasEntityHeader> toAtlasEntityHeaders(List<AtlasVertex> vertices, Set<String> attributes) throws AtlasBaseException {
+        List<AtlasEntityHeader> ret = new ArrayList<>(vertices.size());
+
+        boolean shouldPrefetchInBatch = vertices.size() > 1
+                && graph instanceof AtlasJanusGraph
+                && !isPolicyAttribute(attributes)
+                && AtlasConfiguration.ATLAS_INDEXSEARCH_ENABLE_JANUS_OPTIMISATION.getBoolean()
+                && AtlasConfiguration.ATLAS_INDEXSEARCH_ENABLE_BATCH_PREFETCH.getBoolean();
+
+        if (!shouldPrefetchInBatch) {
+            for (AtlasVertex vertex : vertices) {
+                ret.add(toAtlasEntityHeader(vertex, attributes));
+            }
+
+            return ret;
+        }
+
+        AtlasPerfMetrics.MetricRecorder metricRecorder = RequestContext.get().startMetricRecord("toAtlasEntityHeadersInBatch");
+
+        try {
+            List<Map<String, Object>> properties = preloadProperties(vertices, attributes);
+
+            for (int i = 0; i < vertices.size(); i++) {
+                AtlasVertex         vertex           = vertices.get(i);
+                Map<String, Object> vertexProperties = properties.get(i);
+                String              typeName         = (String) vertexProperties.get(Constants.TYPE_NAME_PROPERTY_KEY);
+
+                ret.add(mapVertexToAtlasEntityHeaderWithPrefetch(vertex, typeName, attributes, vertexProperties));
+            }
+        } finally {
+            RequestContext.get().endMetricRecord(metricRecorder);
+        }
+
+        return ret;
+    }
+
     public AtlasEntityHeader toAtlasEntityHeaderWithClassifications(String guid) throws AtlasBaseException {
         return toAtlasEntityHeaderWithClassifications(getEntityVertex(guid), Collections.emptySet());
     }
@@ -234,6 +283,38 @@ public class EntityGraphRetriever {
         return ret;
     }
 
+    /**
+     * Maps the vertex to an entity with only what change notifications and audits read: system attributes,
+     * unique, header and includeInNotification attributes and the given classifications.
+     */
+    public AtlasEntity toAtlasEntityForNotification(AtlasVertex entityVertex, List<AtlasClassification> classifications) throws AtlasBaseException {
+        AtlasPerfMetrics.MetricRecorder metricRecorder = RequestContext.get().startMetricRecord("toAtlasEntityForNotification");
+        AtlasEntity                     ret            = new AtlasEntity();
+
+        mapSystemAttributes(entityVertex, ret);
+
+        AtlasEntityType entityType = typeRegistry.getEntityTypeByName(ret.getTypeName());
+
+        if (entityType != null) {
+            for (AtlasAttribute attribute : entityType.getAllAttributes().values()) {
+                if (entityType.getHeaderAttributes().containsKey(attribute.getName()) || attribute.getAttributeDef().getIncludeInNotification() ||
+                        QUALIFIED_NAME.equals(attribute.getName())) {
+                    Object attrValue = getVertexAttribute(entityVertex, attribute);
+
+                    if (attrValue != null) {
+                        ret.setAttribute(attribute.getName(), attrValue);
+                    }
+                }
+            }
+        }
+
+        ret.setClassifications(classifications);
+
+        RequestContext.get().endMetricRecord(metricRecorder);
+
+        return ret;
+    }
+
     public Map<String, Map<String, Object>> getBusinessMetadata(AtlasVertex entityVertex) throws AtlasBaseException {
         Map<String, Map<String, Object>>                         ret             = null;
         String                                                   entityTypeName  = getTypeName(entityVertex);
@@ -425,6 +506,11 @@ public class EntityGraphRetriever {
     public AtlasEntitiesWithExtInfo toAtlasEntitiesWithExtInfo(List<String> guids, boolean isMinExtInfo) throws AtlasBaseException {
         AtlasEntitiesWithExtInfo ret = new AtlasEntitiesWithExtInfo();
 
+        if (guids.size() > 1) {
+            // look up the vertices, and load their properties, in batches; getEntityVertex() then finds them in the cache
+            graph.prefetchProperties(AtlasGraphUtilsV2.findByGuids(graph, guids).values());
+        }
+
         for (String guid : guids) {
             AtlasVertex vertex = getEntityVertex(guid);
 
@@ -651,254 +737,253 @@ public class EntityGraphRetriever {
     private void traverseImpactedVertices(final AtlasVertex entityVertexStart, final String relationshipGuidToExclude,
                                           final String classificationId, final List<AtlasVertex> result, List<String> edgeLabelsToCheck,Boolean toExclude) {
         AtlasPerfMetrics.MetricRecorder metricRecorder = RequestContext.get().startMetricRecord("traverseImpactedVertices");
-        Set<String>              visitedVertices = new HashSet<>();
-        Queue<AtlasVertex>       queue           = new ArrayDeque<>();
-        Map<String, AtlasVertex> resultsMap      = new HashMap<>();
-        RequestContext requestContext = RequestContext.get();
 
-        if (entityVertexStart != null) {
-            queue.add(entityVertexStart);
+        try {
+            if (entityVertexStart == null) {
+                return;
+            }
+
+            // expanded on the caller's thread, so that the traversal sees changes made in the current transaction
+            LongHashSet impactedVerticesIds = newImpactedVerticesTraversal("traverseImpactedVertices", relationshipGuidToExclude, classificationId,
+                                                                           edgeLabelsToCheck, toExclude, null, false)
+                                                  .run(Long.parseLong(entityVertexStart.getIdForDisplay()));
+
+            result.addAll(getVerticesById(toVertexIds(impactedVerticesIds)));
+        } finally {
+            RequestContext.get().endMetricRecord(metricRecorder);
         }
+    }
 
-        while (!queue.isEmpty()) {
-            AtlasVertex entityVertex   = queue.poll();
-            String      entityVertexId = entityVertex.getIdForDisplay();
+    private void traverseImpactedVerticesByLevel(final AtlasVertex entityVertexStart, final String relationshipGuidToExclude,
+                                          final String classificationId, final List<String> result, List<String> edgeLabelsToCheck,Boolean toExclude, List<String> verticesWithoutClassification) {
+        AtlasPerfMetrics.MetricRecorder metricRecorder                 = RequestContext.get().startMetricRecord("traverseImpactedVerticesByLevel");
+        Set<String>                     verticesWithOutClassification  = verticesWithoutClassification == null ? null : ConcurrentHashMap.newKeySet();
 
-            if (visitedVertices.contains(entityVertexId)) {
-                LOG.info("Already visited: {}", entityVertexId);
+        /*
+            Each level of the BFS is split into chunks that are expanded in parallel on the shared traversal pool.
+            For every chunk the vertices, their type names and their tag-propagation edges are fetched in batches;
+            the visited set is owned by the calling thread, which merges the adjacent vertices of all chunks
+            into the next level.
+         */
+        try {
+            if (entityVertexStart != null) {
+                LongHashSet impactedVerticesIds = newImpactedVerticesTraversal("traverseImpactedVerticesByLevel", relationshipGuidToExclude, classificationId,
+                                                                               edgeLabelsToCheck, toExclude, verticesWithOutClassification, true)
+                                                      .run(Long.parseLong(entityVertexStart.getIdForDisplay()));
 
-                continue;
+                result.addAll(toVertexIds(impactedVerticesIds));
             }
 
-            visitedVertices.add(entityVertexId);
+            if (verticesWithoutClassification != null) {
+                verticesWithoutClassification.addAll(verticesWithOutClassification);
+            }
+        } finally {
+            RequestContext.get().endMetricRecord(metricRecorder);
+        }
+    }
 
-            AtlasEntityType entityType          = typeRegistry.getEntityTypeByName(getTypeName(entityVertex));
-            String[]        tagPropagationEdges = entityType != null ? entityType.getTagPropagationEdgesArray() : null;
+    private GraphTraversalEngine.Traversal newImpactedVerticesTraversal(String name, String relationshipGuidToExclude, String classificationId,
+                                                                        List<String> edgeLabelsToCheck, Boolean toExclude,
+                                                                        Set<String> verticesWithoutClassification, boolean parallel) {
+        RequestContext requestContext = RequestContext.get();
+        // pool threads have their own RequestContext, so capture the edges deleted by the current task up front
+        Set<String>    deletedEdgeIds = requestContext.getCurrentTask() != null ? new HashSet<>(requestContext.getDeletedEdgesIds()) : Collections.emptySet();
 
-            if (tagPropagationEdges == null) {
-                continue;
-            }
-            // Main Crux of toExclude over here
-            if (edgeLabelsToCheck != null && !edgeLabelsToCheck.isEmpty()) {
-                if (toExclude) {
-                    tagPropagationEdges = Arrays.stream(tagPropagationEdges)
-                            .filter(x -> !edgeLabelsToCheck.contains(x))
-                            .toArray(String[]::new);
-                } else {
-                    tagPropagationEdges = Arrays.stream(tagPropagationEdges)
-                            .filter(edgeLabelsToCheck::contains)
-                            .toArray(String[]::new);
+        GraphTraversalEngine.FrontierExpander expander = frontier -> {
+            try {
+                return getAdjacentVerticesIds(frontier, classificationId, relationshipGuidToExclude, edgeLabelsToCheck, toExclude, deletedEdgeIds, verticesWithoutClassification);
+            } finally {
+                if (parallel) {
+                    // pool threads are long-lived: don't carry their read transaction or request context over to the next chunk
+                    graph.rollback();
+                    RequestContext.clear();
                 }
             }
+        };
 
+        return GraphTraversalEngine.getInstance().newTraversal(name, expander).parallel(parallel);
+    }
 
-            Iterator<AtlasEdge> propagationEdges = entityVertex.getEdges(AtlasEdgeDirection.BOTH, tagPropagationEdges).iterator();
-
-            while (propagationEdges.hasNext()) {
-                AtlasEdge propagationEdge = propagationEdges.next();
+    private LongArrayList getAdjacentVerticesIds(LongArrayList frontier, final String classificationId, final String relationshipGuidToExclude,
+                                                 List<String> edgeLabelsToCheck, Boolean toExclude, Set<String> deletedEdgeIds,
+                                                 Set<String> verticesWithoutClassification) {
+        LongArrayList     ret                  = new LongArrayList();
+        List<AtlasVertex> vertices             = getVerticesById(toVertexIds(frontier));
+        AtlasVertex       classificationVertex = verticesWithoutClassification != null ? graph.getVertex(classificationId) : null;
 
-                if (getEdgeStatus(propagationEdge) != ACTIVE && !(requestContext.getCurrentTask() != null && requestContext.getDeletedEdgesIds().contains(propagationEdge.getIdForDisplay())) ) {
-                    continue;
+        if (classificationVertex != null) {
+            // If we want to store vertices without classification attached
+            // Check if vertices has classification attached or not using function isClassificationAttached
+            for (AtlasVertex vertex : vertices) {
+                if (!GraphHelper.isClassificationAttached(vertex, classificationVertex)) {
+                    verticesWithoutClassification.add(vertex.getIdForDisplay());
                 }
+            }
+        }
 
-                PropagateTags tagPropagation = getPropagateTags(propagationEdge);
+        List<Iterable<AtlasEdge>> propagationEdges = getTagPropagationEdges(vertices, edgeLabelsToCheck, toExclude);
 
-                if (tagPropagation == null || tagPropagation == NONE) {
-                    continue;
-                } else if (tagPropagation == TWO_TO_ONE) {
-                    if (isOutVertex(entityVertex, propagationEdge)) {
-                        continue;
-                    }
-                } else if (tagPropagation == ONE_TO_TWO) {
-                    if (!isOutVertex(entityVertex, propagationEdge)) {
-                        continue;
-                    }
-                }
+        for (int i = 0; i < vertices.size(); i++) {
+            AtlasVertex         entityVertex = vertices.get(i);
+            Iterable<AtlasEdge> edges        = propagationEdges.get(i);
 
-                if (relationshipGuidToExclude != null) {
-                    if (StringUtils.equals(getRelationshipGuid(propagationEdge), relationshipGuidToExclude)) {
-                        continue;
-                    }
+            if (edges == null) {
+                continue;
+            }
+
+            for (AtlasEdge propagationEdge : edges) {
+                if (isTagPropagationEdgeTraversable(entityVertex, propagationEdge, classificationId, relationshipGuidToExclude, deletedEdgeIds)) {
+                    ret.add(Long.parseLong(getOtherVertexId(propagationEdge, entityVertex)));
                 }
+            }
+        }
 
-                if (classificationId != null) {
-                    List<String> blockedClassificationIds = getBlockedClassificationIds(propagationEdge);
+        return ret;
+    }
 
-                    if (CollectionUtils.isNotEmpty(blockedClassificationIds) && blockedClassificationIds.contains(classificationId)) {
-                        continue;
-                    }
-                }
+    /**
+     * Returns, for each of the given vertices, the active-or-deleted edges with the tag-propagation labels of its
+     * entity type (null when the type has none). The type names and edges of all vertices are loaded with batched
+     * graph queries.
+     */
+    private List<Iterable<AtlasEdge>> getTagPropagationEdges(List<AtlasVertex> vertices, List<String> edgeLabelsToCheck, Boolean toExclude) {
+        List<Iterable<AtlasEdge>> ret            = new ArrayList<>(vertices.size());
+        List<Set<String>>         vertexLabels   = new ArrayList<>(vertices.size());
+        List<AtlasVertex>         edgeVertices   = new ArrayList<>(vertices.size());
+        Set<String>               allLabels      = new HashSet<>();
+        boolean                   restrictLabels = true;
 
-                AtlasVertex adjacentVertex             = getOtherVertex(propagationEdge, entityVertex);
-                String      adjacentVertexIdForDisplay = adjacentVertex.getIdForDisplay();
+        graph.prefetchProperties(vertices, TYPE_NAME_PROPERTY_KEY);
 
-                if (!visitedVertices.contains(adjacentVertexIdForDisplay) && !resultsMap.containsKey(adjacentVertexIdForDisplay)) {
-                    resultsMap.put(adjacentVertexIdForDisplay, adjacentVertex);
+        for (AtlasVertex vertex : vertices) {
+            String[] tagPropagationEdges = getTagPropagationEdgeLabels(getTypeName(vertex), edgeLabelsToCheck, toExclude);
 
-                    queue.add(adjacentVertex);
-                }
+            if (tagPropagationEdges == null) {
+                vertexLabels.add(null);
+            } else {
+                vertexLabels.add(new HashSet<>(Arrays.asList(tagPropagationEdges)));
+                allLabels.addAll(Arrays.asList(tagPropagationEdges));
+                edgeVertices.add(vertex);
+
+                // an empty label list means all edges of the vertex, as with AtlasVertex.getEdges()
+                restrictLabels &= tagPropagationEdges.length > 0;
             }
         }
 
-        result.addAll(resultsMap.values());
-        RequestContext.get().endMetricRecord(metricRecorder);
-    }
+        String[]                      labelsToGet = restrictLabels ? allLabels.toArray(new String[0]) : new String[0];
+        List<Iterable<AtlasEdge>>     edges       = edgeVertices.isEmpty() ? Collections.emptyList() : graph.getEdges(edgeVertices, AtlasEdgeDirection.BOTH, labelsToGet);
+        Iterator<Iterable<AtlasEdge>> edgesIter   = edges.iterator();
 
-    private void traverseImpactedVerticesByLevel(final AtlasVertex entityVertexStart, final String relationshipGuidToExclude,
-                                          final String classificationId, final List<String> result, List<String> edgeLabelsToCheck,Boolean toExclude, List<String> verticesWithoutClassification) {
-        AtlasPerfMetrics.MetricRecorder metricRecorder                          = RequestContext.get().startMetricRecord("traverseImpactedVerticesByLevel");
-        Set<String>                 visitedVerticesIds                          = new HashSet<>();
-        Set<String>                 verticesAtCurrentLevel                      = new HashSet<>();
-        Set<String>                 traversedVerticesIds                        = new HashSet<>();
-        Set<String>                 verticesWithOutClassification               = new HashSet<>();
-        RequestContext              requestContext                              = RequestContext.get();
-        AtlasVertex                 classificationVertex                        = graph.getVertex(classificationId);
-        boolean                     storeVerticesWithoutClassification          = verticesWithoutClassification == null ? false : true;
-
-        final ThreadFactory threadFactory = new ThreadFactoryBuilder()
-                .setNameFormat("Tasks-BFS-%d")
-                .setDaemon(true)
-                .build();
-
-        ExecutorService executorService = Executors.newFixedThreadPool(AtlasConfiguration.GRAPH_TRAVERSAL_PARALLELISM.getInt(), threadFactory);
-
-        //Add Source vertex to level 1
-        if (entityVertexStart != null) {
-            verticesAtCurrentLevel.add(entityVertexStart.getIdForDisplay());
-        }
-        /*
-            Steps in each level:
-                1. Add vertices to Visited Vertices set
-                2. Then fetch adjacent vertices of that vertex using getAdjacentVerticesIds
-                3. Use future to fetch it later as it is a Blocking call,so we want to execute it asynchronously
-                4. Then fetch the result from futures
-                5. It will return the adjacent vertices of the current level
-            After processing current level:
-                1. Add the adjacent vertices of current level to verticesToVisitNextLevel
-                2. Clear the processed vertices of current level
-                3. After that insert verticesToVisitNextLevel into current level
-           Continue the steps until all vertices are processed by checking if verticesAtCurrentLevel is empty
-         */
-        try {
-            while (!verticesAtCurrentLevel.isEmpty()) {
-                Set<String> verticesToVisitNextLevel = new HashSet<>();
-                List<CompletableFuture<Set<String>>> futures = verticesAtCurrentLevel.stream()
-                        .map(t -> {
-                            AtlasVertex entityVertex = graph.getVertex(t);
-                            visitedVerticesIds.add(entityVertex.getIdForDisplay());
-                            // If we want to store vertices without classification attached
-                            // Check if vertices has classification attached or not using function isClassificationAttached
-
-                            if(storeVerticesWithoutClassification && !GraphHelper.isClassificationAttached(entityVertex, classificationVertex)) {
-                                verticesWithOutClassification.add(entityVertex.getIdForDisplay());
-                            }
+        for (Set<String> labels : vertexLabels) {
+            if (labels == null) {
+                ret.add(null);
+
+                continue;
+            }
 
-                            return CompletableFuture.supplyAsync(() -> getAdjacentVerticesIds(entityVertex, classificationId,
-                                    relationshipGuidToExclude, edgeLabelsToCheck,toExclude, visitedVerticesIds), executorService);
-                        }).collect(Collectors.toList());
+            Iterable<AtlasEdge> vertexEdges = edgesIter.next();
 
-                futures.stream().map(CompletableFuture::join).forEach(x -> {
-                    verticesToVisitNextLevel.addAll(x);
-                    traversedVerticesIds.addAll(x);
-                });
+            if (labels.isEmpty() || (restrictLabels && labels.containsAll(allLabels))) {
+                ret.add(vertexEdges);
+            } else {
+                List<AtlasEdge> filtered = new ArrayList<>();
 
-                verticesAtCurrentLevel.clear();
-                verticesAtCurrentLevel.addAll(verticesToVisitNextLevel);
+                for (AtlasEdge edge : vertexEdges) {
+                    if (labels.contains(edge.getLabel())) {
+                        filtered.add(edge);
+                    }
+                }
+
+                ret.add(filtered);
             }
-        } finally {
-            executorService.shutdown();
         }
-        result.addAll(traversedVerticesIds);
-
-        if(storeVerticesWithoutClassification)
-            verticesWithoutClassification.addAll(verticesWithOutClassification);
 
-        requestContext.endMetricRecord(metricRecorder);
+        return ret;
     }
 
-    private Set<String> getAdjacentVerticesIds(AtlasVertex entityVertex,final String classificationId, final String relationshipGuidToExclude
-            ,List<String> edgeLabelsToCheck,Boolean toExclude, Set<String> visitedVerticesIds) {
-
-        AtlasEntityType         entityType          = typeRegistry.getEntityTypeByName(getTypeName(entityVertex));
-        String[]                tagPropagationEdges = entityType != null ? entityType.getTagPropagationEdgesArray() : null;
-        Set<String>             ret                 = new HashSet<>();
-        RequestContext          requestContext      = RequestContext.get();
+    private String[] getTagPropagationEdgeLabels(String typeName, List<String> edgeLabelsToCheck, Boolean toExclude) {
+        AtlasEntityType entityType          = typeRegistry.getEntityTypeByName(typeName);
+        String[]        tagPropagationEdges = entityType != null ? entityType.getTagPropagationEdgesArray() : null;
 
         if (tagPropagationEdges == null) {
             return null;
         }
 
+        // Main Crux of toExclude over here
         if (edgeLabelsToCheck != null && !edgeLabelsToCheck.isEmpty()) {
             if (toExclude) {
                 tagPropagationEdges = Arrays.stream(tagPropagationEdges)
                         .filter(x -> !edgeLabelsToCheck.contains(x))
-                        .collect(Collectors.toList())
-                        .toArray(new String[0]);
-            } else{
+                        .toArray(String[]::new);
+            } else {
                 tagPropagationEdges = Arrays.stream(tagPropagationEdges)
-                        .filter(x -> edgeLabelsToCheck.contains(x))
-                        .collect(Collectors.toList())
-                        .toArray(new String[0]);
+                        .filter(edgeLabelsToCheck::contains)
+                        .toArray(String[]::new);
             }
         }
 
-        Iterator<AtlasEdge> propagationEdges = entityVertex.getEdges(AtlasEdgeDirection.BOTH, tagPropagationEdges).iterator();
-
-        while (propagationEdges.hasNext()) {
-            AtlasEdge propagationEdge = propagationEdges.next();
+        return tagPropagationEdges;
+    }
 
-            if (getEdgeStatus(propagationEdge) != ACTIVE && !(requestContext.getCurrentTask() != null && requestContext.getDeletedEdgesIds().contains(propagationEdge.getIdForDisplay())) ) {
-                continue;
-            }
+    private boolean isTagPropagationEdgeTraversable(AtlasVertex entityVertex, AtlasEdge propagationEdge, String classificationId,
+                                                    String relationshipGuidToExclude, Set<String> deletedEdgeIds) {
+        if (getEdgeStatus(propagationEdge) != ACTIVE && !deletedEdgeIds.contains(propagationEdge.getIdForDisplay())) {
+            return false;
+        }
 
-            PropagateTags tagPropagation = getPropagateTags(propagationEdge);
+        PropagateTags tagPropagation = getPropagateTags(propagationEdge);
 
-            if (tagPropagation == null || tagPropagation == NONE) {
-                continue;
-            } else if (tagPropagation == TWO_TO_ONE) {
-                if (isOutVertex(entityVertex, propagationEdge)) {
-                    continue;
-                }
-            } else if (tagPropagation == ONE_TO_TWO) {
-                if (!isOutVertex(entityVertex, propagationEdge)) {
-                    continue;
-                }
+        if (tagPropagation == null || tagPropagation == NONE) {
+            return false;
+        } else if (tagPropagation == TWO_TO_ONE) {
+            if (isOutVertex(entityVertex, propagationEdge)) {
+                return false;
+            }
+        } else if (tagPropagation == ONE_TO_TWO) {
+            if (!isOutVertex(entityVertex, propagationEdge)) {
+                return false;
             }
+        }
 
-            if (relationshipGuidToExclude != null) {
-                if (StringUtils.equals(getRelationshipGuid(propagationEdge), relationshipGuidToExclude)) {
-                    continue;
-                }
+        if (relationshipGuidToExclude != null) {
+            if (StringUtils.equals(getRelationshipGuid(propagationEdge), relationshipGuidToExclude)) {
+                return false;
             }
+        }
 
-            if (classificationId != null) {
-                List<String> blockedClassificationIds = getBlockedClassificationIds(propagationEdge);
+        if (classificationId != null) {
+            List<String> blockedClassificationIds = getBlockedClassificationIds(propagationEdge);
 
-                if (CollectionUtils.isNotEmpty(blockedClassificationIds) && blockedClassificationIds.contains(classificationId)) {
-                    continue;
-                }
+            if (CollectionUtils.isNotEmpty(blockedClassificationIds) && blockedClassificationIds.contains(classificationId)) {
+                return false;
             }
+        }
 
-            AtlasVertex adjacentVertex             = getOtherVertex(propagationEdge, entityVertex);
-            String      adjacentVertexIdForDisplay = adjacentVertex.getIdForDisplay();
+        return true;
+    }
 
-            if (!visitedVerticesIds.contains(adjacentVertexIdForDisplay)) {
-                ret.add(adjacentVertexIdForDisplay);
-            }
+    private List<AtlasVertex> getVerticesById(List<String> vertexIds) {
+        return new ArrayList<>(graph.getVertices(vertexIds).values());
+    }
+
+    private static List<String> toVertexIds(LongContainer ids) {
+        List<String> ret = new ArrayList<>(ids.size());
+
+        for (LongCursor cursor : ids) {
+            ret.add(String.valueOf(cursor.value));
         }
 
         return ret;
     }
 
-    private boolean isOutVertex(AtlasVertex vertex, AtlasEdge edge) {
-        return StringUtils.equals(vertex.getIdForDisplay(), edge.getOutVertex().getIdForDisplay());
-    }
+    private String getOtherVertexId(AtlasEdge edge, AtlasVertex vertex) {
+        String outVertexId = edge.getOutVertex().getIdForDisplay();
 
-    private AtlasVertex getOtherVertex(AtlasEdge edge, AtlasVertex vertex) {
-        AtlasVertex outVertex = edge.getOutVertex();
-        AtlasVertex inVertex  = edge.getInVertex();
+        return StringUtils.equals(outVertexId, vertex.getIdForDisplay()) ? edge.getInVertex().getIdForDisplay() : outVertexId;
+    }
 
-        return StringUtils.equals(outVertex.getIdForDisplay(), vertex.getIdForDisplay()) ? inVertex : outVertex;
+    private boolean isOutVertex(AtlasVertex vertex, AtlasEdge edge) {
+        return StringUtils.equals(vertex.getIdForDisplay(), edge.getOutVertex().getIdForDisplay());
     }
 
     public AtlasVertex getEntityVertex(AtlasObjectId objId) throws AtlasBaseException {
@@ -1022,32 +1107,110 @@ public class EntityGraphRetriever {
         // Iterate through the resulting VertexProperty objects
         while (traversal.hasNext()) {
             try {
-                VertexProperty<Object> property = traversal.next();
+                addPreloadedProperty(propertiesMap, entityType, traversal.next());
+            } catch (RuntimeException e) {
+                LOG.error("Error preloading properties for entity vertex: {}", entityVertex.getId(), e);
+                throw e; // Re-throw the exception after logging it
+            }
+        }
+        return propertiesMap;
+    }
 
-                AtlasAttribute attribute = entityType.getAttribute(property.key()) != null ? entityType.getAttribute(property.key()) : null;
-                TypeCategory typeCategory = attribute != null ? attribute.getAttributeType().getTypeCategory() : null;
-                TypeCategory elementTypeCategory = attribute != null && attribute.getAttributeType().getTypeCategory() == TypeCategory.ARRAY ? ((AtlasArrayType) attribute.getAttributeType()).getElementType().getTypeCategory() : null;
+    /**
+     * Batched variant of preloadProperties: loads properties and active edges of all the given vertices
+     * with one multi-vertex query each, instead of two backend round-trips per vertex.
+     *
+     * @return property maps in the same order as the given vertices
+     */
+    private List<Map<String, Object>> preloadProperties(List<AtlasVertex> vertices, Set<String> attributes) throws AtlasBaseException {
+        AtlasPerfMetrics.MetricRecorder metricRecorder = RequestContext.get().startMetricRecord("preloadPropertiesInBatch");
+
+        try {
+            List<JanusGraphVertex> janusVertices = new ArrayList<>(vertices.size());
+
+            for (AtlasVertex vertex : vertices) {
+                janusVertices.add((JanusGraphVertex) ((AtlasJanusVertex) vertex).getWrappedElement());
+            }
 
-                if (property.isPresent()) {
+            JanusGraph                                                janusGraph     = ((AtlasJanusGraph) graph).getGraph();
+            Map<JanusGraphVertex, Iterable<JanusGraphVertexProperty>> vertexProperties = janusGraph.multiQuery(janusVertices).properties();
+            Map<JanusGraphVertex, Iterable<JanusGraphEdge>>           vertexEdges      = janusGraph.multiQuery(janusVertices)
+                                                                                                   .direction(Direction.BOTH)
+                                                                                                   .has(STATE_PROPERTY_KEY, ACTIVE_STATE_VALUE)
+                                                                                                   .edges();
 
-                    // If the attribute is not known (null)
-                    // validate if prefetched property is multi-valued
-                    boolean isMultiValuedProperty = (property instanceof CacheVertexProperty && ((CacheVertexProperty) property).propertyKey().cardinality().equals(Cardinality.SET));
+            Map<String, Map<String, Set<String>>> relationshipsLookupByType = new HashMap<>();
+            List<Map<String, Object>>             ret                       = new ArrayList<>(vertices.size());
 
-                    if (typeCategory == TypeCategory.ARRAY && elementTypeCategory == TypeCategory.PRIMITIVE) {
-                        updateAttrValue(propertiesMap, property);
-                    } else if (attribute == null && isMultiValuedProperty) {
-                        updateAttrValue(propertiesMap, property);
-                    } else if (propertiesMap.get(property.key()) == null) {
-                        propertiesMap.put(property.key(), property.value());
+            for (JanusGraphVertex janusVertex : janusVertices) {
+                Map<String, Object>                propertiesMap = new HashMap<>();
+                Iterable<JanusGraphVertexProperty> properties    = vertexProperties.get(janusVertex);
+                String                             typeName      = null;
+
+                if (properties != null) {
+                    for (JanusGraphVertexProperty property : properties) {
+                        if (TYPE_NAME_PROPERTY_KEY.equals(property.key())) {
+                            typeName = (String) property.value();
+                            break;
+                        }
                     }
                 }
-            } catch (RuntimeException e) {
-                LOG.error("Error preloading properties for entity vertex: {}", entityVertex.getId(), e);
-                throw e; // Re-throw the exception after logging it
+
+                AtlasEntityType entityType = typeRegistry.getEntityTypeByName(typeName);
+
+                if (entityType != null) {
+                    Map<String, Set<String>> relationshipsLookup = relationshipsLookupByType.computeIfAbsent(typeName, k -> fetchEdgeNames(entityType));
+                    Iterable<JanusGraphEdge> edges               = vertexEdges.get(janusVertex);
+                    List<String>             edgeLabels          = new ArrayList<>();
+                    Map<String, String>      edgesTypeName       = new HashMap<>();
+
+                    if (edges != null) {
+                        for (JanusGraphEdge edge : edges) {
+                            String label = edge.label();
+
+                            edgeLabels.add(label);
+                            edgesTypeName.putIfAbsent(label, edge.<String>property(TYPE_NAME_PROPERTY_KEY).orElse(null));
+                        }
+                    }
+
+                    mapEdgeLabelsToAttributes(edgeLabels, edgesTypeName, attributes, relationshipsLookup, propertiesMap);
+
+                    for (JanusGraphVertexProperty property : properties) {
+                        addPreloadedProperty(propertiesMap, entityType, property);
+                    }
+                }
+
+                ret.add(propertiesMap);
+            }
+
+            return ret;
+        } catch (RuntimeException e) {
+            LOG.error("Error preloading properties for {} entity vertices", vertices.size(), e);
+            throw e;
+        } finally {
+            RequestContext.get().endMetricRecord(metricRecorder);
+        }
+    }
+
+    private void addPreloadedProperty(Map<String, Object> propertiesMap, AtlasEntityType entityType, VertexProperty<Object> property) {
+        AtlasAttribute attribute = entityType.getAttribute(property.key()) != null ? entityType.getAttribute(property.key()) : null;
+        TypeCategory typeCategory = attribute != null ? attribute.getAttributeType().getTypeCategory() : null;
+        TypeCategory elementTypeCategory = attribute != null && attribute.getAttributeType().getTypeCategory() == TypeCategory.ARRAY ? ((AtlasArrayType) attribute.getAttributeType()).getElementType().getTypeCategory() : null;
+
+        if (property.isPresent()) {
+
+            // If the attribute is not known (null)
+            // validate if prefetched property is multi-valued
+            boolean isMultiValuedProperty = (property instanceof CacheVertexProperty && ((CacheVertexProperty) property).propertyKey().cardinality().equals(Cardinality.SET));
+
+            if (typeCategory == TypeCategory.ARRAY && elementTypeCategory == TypeCategory.PRIMITIVE) {
+                updateAttrValue(propertiesMap, property);
+            } else if (attribute == null && isMultiValuedProperty) {
+                updateAttrValue(propertiesMap, property);
+            } else if (propertiesMap.get(property.key()) == null) {
+                propertiesMap.put(property.key(), property.value());
             }
         }
-        return propertiesMap;
     }
 
     private Map<String, Set<String>> fetchEdgeNames(AtlasEntityType entityType){
@@ -1075,6 +1238,10 @@ public class EntityGraphRetriever {
             edgesTypeName.putIfAbsent(label, edge.getProperty(TYPE_NAME_PROPERTY_KEY, String.class));
         }
 
+        mapEdgeLabelsToAttributes(edgeLabelsDebug, edgesTypeName, attributes, relationshipsLookup, propertiesMap);
+    }
+
+    private void mapEdgeLabelsToAttributes(List<String> edgeLabelsDebug, Map<String, String> edgesTypeName, Set<String> attributes, Map<String, Set<String>> relationshipsLookup, Map<String, Object> propertiesMap) {
         Set<String> edgeLabels = new HashSet<>();
         edgeLabelsDebug.stream().filter(Objects::nonNull).forEach(edgeLabel -> attributes.forEach(attribute->{
 
@@ -1224,13 +1391,19 @@ public class EntityGraphRetriever {
     }
 
     private AtlasEntityHeader mapVertexToAtlasEntityHeaderWithPrefetch(AtlasVertex entityVertex, Set<String> attributes) throws AtlasBaseException {
+        //pre-fetching the properties
+        String typeName = entityVertex.getProperty(Constants.TYPE_NAME_PROPERTY_KEY, String.class); //properties.get returns null
+        AtlasEntityType entityType = typeRegistry.getEntityTypeByName(typeName); // this is not costly
+        Map<String, Object> properties = preloadProperties(entityVertex, entityType, attributes);
+
+        return mapVertexToAtlasEntityHeaderWithPrefetch(entityVertex, typeName, attributes, properties);
+    }
+
+    private AtlasEntityHeader mapVertexToAtlasEntityHeaderWithPrefetch(AtlasVertex entityVertex, String typeName, Set<String> attributes, Map<String, Object> properties) throws AtlasBaseException {
         AtlasPerfMetrics.MetricRecorder metricRecorder = RequestContext.get().startMetricRecord("mapVertexToAtlasEntityHeaderWithPrefetch");
         AtlasEntityHeader ret = new AtlasEntityHeader();
         try {
-            //pre-fetching the properties
-            String typeName = entityVertex.getProperty(Constants.TYPE_NAME_PROPERTY_KEY, String.class); //properties.get returns null
-            AtlasEntityType entityType = typeRegistry.getEntityTypeByName(typeName); // this is not costly
-            Map<String, Object> properties = preloadProperties(entityVertex, entityType, attributes);
+            AtlasEntityType entityType = typeRegistry.getEntityTypeByName(typeName);
 
             String guid = (String) properties.get(Constants.GUID_PROPERTY_KEY);
 
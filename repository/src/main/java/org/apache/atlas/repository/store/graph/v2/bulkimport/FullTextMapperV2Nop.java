@@ -40,6 +40,11 @@ public class FullTextMapperV2Nop implements IFullTextMapper {
         return null;
     }
 
+    @Override
+    public String getClassificationText(AtlasClassification classification) throws AtlasBaseException {
+        return null;
+    }
+
     @Override
     public AtlasEntity getAndCacheEntity(String guid) throws AtlasBaseException {
         return null;
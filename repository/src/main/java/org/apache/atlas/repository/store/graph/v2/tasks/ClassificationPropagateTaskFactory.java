@@ -22,8 +22,9 @@ import org.apache.atlas.repository.graphdb.AtlasGraph;
 import org.apache.atlas.repository.store.graph.AtlasRelationshipStore;
 import org.apache.atlas.repository.store.graph.v1.DeleteHandlerDelegate;
 import org.apache.atlas.repository.store.graph.v2.EntityGraphMapper;
+import org.apache.atlas.service.metrics.MetricUtils;
 import org.apache.atlas.tasks.TaskFactory;
-import org.apache.atlas.tasks.TaskManagement;
+import org.apache.atlas.tasks.TaskRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -75,19 +76,28 @@ public class ClassificationPropagateTaskFactory implements TaskFactory {
     private final EntityGraphMapper      entityGraphMapper;
     private final DeleteHandlerDelegate  deleteDelegate;
     private final AtlasRelationshipStore relationshipStore;
+    private final ClassificationTaskCoalescer coalescer;
 
     @Inject
-    public ClassificationPropagateTaskFactory(AtlasGraph graph, EntityGraphMapper entityGraphMapper, DeleteHandlerDelegate deleteDelegate, AtlasRelationshipStore relationshipStore) {
+    public ClassificationPropagateTaskFactory(AtlasGraph graph, EntityGraphMapper entityGraphMapper, DeleteHandlerDelegate deleteDelegate, AtlasRelationshipStore relationshipStore,
+                                              TaskRegistry taskRegistry) {
         this.graph             = graph;
         this.entityGraphMapper = entityGraphMapper;
         this.deleteDelegate    = deleteDelegate;
         this.relationshipStore = relationshipStore;
+        this.coalescer         = new ClassificationTaskCoalescer(taskRegistry, MetricUtils.getMeterRegistry());
     }
 
     public org.apache.atlas.tasks.AbstractTask create(AtlasTask task) {
         String taskType = task.getType();
         String taskGuid = task.getGuid();
 
+        AtlasTask supersedingTask = coalescer.getSupersedingTask(task);
+
+        if (supersedingTask != null) {
+            return new ClassificationPropagationTasks.Superseded(task, supersedingTask, graph, entityGraphMapper, deleteDelegate, relationshipStore);
+        }
+
         switch (taskType) {
             case CLASSIFICATION_PROPAGATION_ADD:
                 return new ClassificationPropagationTasks.Add(task, graph, entityGraphMapper, deleteDelegate, relationshipStore);
@@ -25,11 +25,15 @@ import org.apache.atlas.repository.store.graph.AtlasRelationshipStore;
 import org.apache.atlas.repository.store.graph.v1.DeleteHandlerDelegate;
 import org.apache.atlas.repository.store.graph.v2.EntityGraphMapper;
 import org.apache.atlas.type.AtlasType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.Set;
 
 public class ClassificationPropagationTasks {
+    private static final Logger LOG = LoggerFactory.getLogger(ClassificationPropagationTasks.class);
+
     public static class Add extends ClassificationTask {
         public Add(AtlasTask task, AtlasGraph graph, EntityGraphMapper entityGraphMapper, DeleteHandlerDelegate deleteDelegate, AtlasRelationshipStore relationshipStore) {
             super(task, graph, entityGraphMapper, deleteDelegate, relationshipStore);
@@ -149,4 +153,20 @@ public class ClassificationPropagationTasks {
             entityGraphMapper.cleanUpClassificationPropagation(classificationName, batchLimit);
         }
     }
+
+    // completes without any work, as a newer pending task of the entity and classification makes this one redundant
+    public static class Superseded extends ClassificationTask {
+        private final AtlasTask supersedingTask;
+
+        public Superseded(AtlasTask task, AtlasTask supersedingTask, AtlasGraph graph, EntityGraphMapper entityGraphMapper, DeleteHandlerDelegate deleteDelegate, AtlasRelationshipStore relationshipStore) {
+            super(task, graph, entityGraphMapper, deleteDelegate, relationshipStore);
+
+            this.supersedingTask = supersedingTask;
+        }
+
+        @Override
+        protected void run(Map<String, Object> parameters) {
+            LOG.info("Task {} ({}) skipped: superseded by pending task {} ({})", getTaskGuid(), getTaskType(), supersedingTask.getGuid(), supersedingTask.getType());
+        }
+    }
 }
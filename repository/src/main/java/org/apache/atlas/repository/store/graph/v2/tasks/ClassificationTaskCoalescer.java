@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2.tasks;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.atlas.AtlasConfiguration;
+import org.apache.atlas.model.tasks.AtlasTask;
+import org.apache.atlas.tasks.TaskRegistry;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.apache.atlas.repository.store.graph.v2.tasks.ClassificationPropagateTaskFactory.CLASSIFICATION_PROPAGATION_ADD;
+import static org.apache.atlas.repository.store.graph.v2.tasks.ClassificationPropagateTaskFactory.CLASSIFICATION_PROPAGATION_DELETE;
+import static org.apache.atlas.repository.store.graph.v2.tasks.ClassificationPropagateTaskFactory.CLASSIFICATION_PROPAGATION_TEXT_UPDATE;
+import static org.apache.atlas.repository.store.graph.v2.tasks.ClassificationPropagateTaskFactory.CLASSIFICATION_REFRESH_PROPAGATION;
+import static org.apache.atlas.repository.store.graph.v2.tasks.ClassificationTask.PARAM_PREVIOUS_CLASSIFICATION_RESTRICT_PROPAGATE_THROUGH_HIERARCHY;
+import static org.apache.atlas.repository.store.graph.v2.tasks.ClassificationTask.PARAM_PREVIOUS_CLASSIFICATION_RESTRICT_PROPAGATE_THROUGH_LINEAGE;
+import static org.apache.atlas.repository.store.graph.v2.tasks.ClassificationTask.PARAM_RELATIONSHIP_GUID;
+
+/**
+ * Finds classification-propagation tasks made redundant by a newer pending task of the same entity and
+ * classification vertex. Propagation tasks work on the current state of the graph, so a newer task
+ * computing the same or a wider change makes the older one a no-op:
+ *  - a DELETE supersedes any older ADD, REFRESH, TEXT_UPDATE or DELETE
+ *  - a REFRESH supersedes an older ADD or REFRESH
+ *  - a TEXT_UPDATE supersedes an older TEXT_UPDATE
+ *  - an ADD supersedes an older ADD with the same parameters
+ */
+public class ClassificationTaskCoalescer {
+    private static final Set<String> COALESCED_TYPES = new HashSet<>(Arrays.asList(CLASSIFICATION_PROPAGATION_ADD, CLASSIFICATION_PROPAGATION_DELETE,
+                                                                                   CLASSIFICATION_REFRESH_PROPAGATION, CLASSIFICATION_PROPAGATION_TEXT_UPDATE));
+
+    private final TaskRegistry  registry;
+    private final MeterRegistry meterRegistry;
+    private final boolean       enabled;
+
+    public ClassificationTaskCoalescer(TaskRegistry registry, MeterRegistry meterRegistry) {
+        this.registry      = registry;
+        this.meterRegistry = meterRegistry;
+        this.enabled       = AtlasConfiguration.TASKS_CLASSIFICATION_COALESCE_ENABLED.getBoolean();
+    }
+
+    /**
+     * @return the newer pending task that supersedes the given task; null if the task must be run
+     */
+    public AtlasTask getSupersedingTask(AtlasTask task) {
+        if (!enabled || registry == null || !COALESCED_TYPES.contains(task.getType()) ||
+                StringUtils.isEmpty(task.getEntityGuid()) || StringUtils.isEmpty(task.getClassificationId())) {
+            return null;
+        }
+
+        AtlasTask ret = getSupersedingTask(task, registry.getPendingTasks(task.getEntityGuid(), task.getClassificationId()));
+
+        if (ret != null) {
+            Counter.builder("classification_tasks_coalesced").tag("type", task.getType()).tag("superseded_by", ret.getType())
+                   .register(meterRegistry).increment();
+        }
+
+        return ret;
+    }
+
+    static AtlasTask getSupersedingTask(AtlasTask task, List<AtlasTask> pendingTasks) {
+        if (task.getCreatedTime() == null) {
+            return null;
+        }
+
+        // newest first: the latest task decides the net operation
+        for (int i = pendingTasks.size() - 1; i >= 0; i--) {
+            AtlasTask newer = pendingTasks.get(i);
+
+            if (newer == null || Objects.equals(newer.getGuid(), task.getGuid()) || newer.getCreatedTime() == null ||
+                    newer.getCreatedTime().before(task.getCreatedTime())) {
+                continue;
+            }
+
+            if (supersedes(newer, task)) {
+                return newer;
+            }
+        }
+
+        return null;
+    }
+
+    static boolean supersedes(AtlasTask newer, AtlasTask older) {
+        if (!COALESCED_TYPES.contains(newer.getType()) || !COALESCED_TYPES.contains(older.getType())) {
+            return false;
+        }
+
+        switch (newer.getType()) {
+            case CLASSIFICATION_PROPAGATION_DELETE:
+                return true;
+
+            case CLASSIFICATION_REFRESH_PROPAGATION:
+                return CLASSIFICATION_PROPAGATION_ADD.equals(older.getType()) || CLASSIFICATION_REFRESH_PROPAGATION.equals(older.getType());
+
+            case CLASSIFICATION_PROPAGATION_TEXT_UPDATE:
+                return CLASSIFICATION_PROPAGATION_TEXT_UPDATE.equals(older.getType());
+
+            case CLASSIFICATION_PROPAGATION_ADD:
+                return CLASSIFICATION_PROPAGATION_ADD.equals(older.getType()) &&
+                       Objects.equals(getParameter(newer, PARAM_RELATIONSHIP_GUID), getParameter(older, PARAM_RELATIONSHIP_GUID)) &&
+                       Objects.equals(getParameter(newer, PARAM_PREVIOUS_CLASSIFICATION_RESTRICT_PROPAGATE_THROUGH_LINEAGE), getParameter(older, PARAM_PREVIOUS_CLASSIFICATION_RESTRICT_PROPAGATE_THROUGH_LINEAGE)) &&
+                       Objects.equals(getParameter(newer, PARAM_PREVIOUS_CLASSIFICATION_RESTRICT_PROPAGATE_THROUGH_HIERARCHY), getParameter(older, PARAM_PREVIOUS_CLASSIFICATION_RESTRICT_PROPAGATE_THROUGH_HIERARCHY));
+
+            default:
+                return false;
+        }
+    }
+
+    private static Object getParameter(AtlasTask task, String name) {
+        return task.getParameters() != null ? task.getParameters().get(name) : null;
+    }
+}
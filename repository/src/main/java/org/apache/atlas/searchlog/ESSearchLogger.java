@@ -41,6 +41,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -53,43 +54,65 @@ public class ESSearchLogger implements SearchLogger, Service {
     public static final String INDEX_NAME          = "search_logs";
     public static final String MAPPINGS_FILE_NAME  = "es-search-logs-mappings.json";
     public static final String ENDPOINT_CREATE_DOC = INDEX_NAME + "/_doc";
+    public static final String ENDPOINT_BULK       = INDEX_NAME + "/_bulk";
+
+    private static final String BULK_INDEX_ACTION = "{\"index\":{}}\n";
 
     private RestClient lowLevelClient;
 
     @Override
     public void log(SearchRequestLogData searchRequestLogData) {
+        log(Collections.singletonList(searchRequestLogData));
+    }
+
+    @Override
+    public void log(List<SearchRequestLogData> searchRequestsLogData) {
+        if (searchRequestsLogData.isEmpty()) {
+            return;
+        }
+
         try {
-            searchRequestLogData.setCreatedAt(System.currentTimeMillis());
+            StringBuilder bulkRequestBody = new StringBuilder();
 
-            HttpEntity entity = new NStringEntity(AtlasType.toJson(searchRequestLogData), ContentType.APPLICATION_JSON);
+            for (SearchRequestLogData searchRequestLogData : searchRequestsLogData) {
+                if (searchRequestLogData.getCreatedAt() == 0) {
+                    searchRequestLogData.setCreatedAt(System.currentTimeMillis());
+                }
+
+                bulkRequestBody.append(BULK_INDEX_ACTION).append(AtlasType.toJson(searchRequestLogData)).append('\n');
+            }
 
-            Request request = new Request("POST", ENDPOINT_CREATE_DOC);
+            HttpEntity entity = new NStringEntity(bulkRequestBody.toString(), ContentType.APPLICATION_JSON);
+
+            Request request = new Request("POST", ENDPOINT_BULK);
             request.setEntity(entity);
 
             Response response = lowLevelClient.performRequest(request);
             int responseCode = response.getStatusLine().getStatusCode();
 
             if (responseCode != 200 && responseCode != 201) {
-                String responseString = EntityUtils.toString(response.getEntity());
-                Map<String, Object> responseMap = AtlasType.fromJson(responseString, Map.class);
-                if ((boolean) responseMap.get("errors")) {
-                    List<String> errors = new ArrayList<>();
-                    List<Map<String, Object>> resultItems = (List<Map<String, Object>>) responseMap.get("items");
-                    for (Map<String, Object> resultItem : resultItems) {
-                        if (resultItem.get("index") != null) {
-                            Map<String, Object> resultIndex = (Map<String, Object>) resultItem.get("index");
-                            if (resultIndex.get("error") != null) {
-                                errors.add(resultIndex.get("error").toString());
-                            }
+                throw new AtlasException("_bulk request failed with status " + responseCode);
+            }
+
+            // _bulk reports failures of individual documents in a 200 response
+            String responseString = EntityUtils.toString(response.getEntity());
+            Map<String, Object> responseMap = AtlasType.fromJson(responseString, Map.class);
+            if (responseMap != null && Boolean.TRUE.equals(responseMap.get("errors"))) {
+                List<String> errors = new ArrayList<>();
+                List<Map<String, Object>> resultItems = (List<Map<String, Object>>) responseMap.get("items");
+                for (Map<String, Object> resultItem : resultItems) {
+                    if (resultItem.get("index") != null) {
+                        Map<String, Object> resultIndex = (Map<String, Object>) resultItem.get("index");
+                        if (resultIndex.get("error") != null) {
+                            errors.add(resultIndex.get("error").toString());
                         }
                     }
-                    throw new AtlasException(errors.toString());
                 }
-                throw new Exception();
+                throw new AtlasException(errors.size() + " of " + searchRequestsLogData.size() + " search logs failed: " + errors);
             }
 
         } catch (Exception e) {
-            LOG.error("Unable to push search log to ES: {}", e.getMessage());
+            LOG.error("Unable to push {} search logs to ES: {}", searchRequestsLogData.size(), e.getMessage());
         }
     }
 
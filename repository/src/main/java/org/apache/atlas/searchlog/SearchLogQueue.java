@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.searchlog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.atlas.model.searchlog.SearchRequestLogData;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded, lock-free queue of search logs waiting to be written.
+ *
+ * Search threads never block on it: once the queue holds capacity items, either the oldest item is dropped to make
+ * room (DROP_OLDEST), or the new one is (SAMPLE). With SAMPLE, only samplePercent of new items are queued once the
+ * queue is half full, so that a sample of the searches is still logged while the writer can't keep up.
+ */
+class SearchLogQueue {
+    enum OverflowPolicy { DROP_OLDEST, SAMPLE }
+
+    private final Queue<SearchRequestLogData> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger               size  = new AtomicInteger();
+    private final int                         capacity;
+    private final OverflowPolicy              policy;
+    private final int                         samplePercent;
+    private final Counter                     droppedOverflow;
+    private final Counter                     droppedSampled;
+
+    SearchLogQueue(int capacity, OverflowPolicy policy, int samplePercent, MeterRegistry meterRegistry) {
+        this.capacity        = Math.max(1, capacity);
+        this.policy          = policy;
+        this.samplePercent   = Math.max(0, Math.min(100, samplePercent));
+        this.droppedOverflow = Counter.builder("search_log_dropped").tag("reason", "overflow").register(meterRegistry);
+        this.droppedSampled  = Counter.builder("search_log_dropped").tag("reason", "sampled").register(meterRegistry);
+
+        Gauge.builder("search_log_queue_depth", size, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * @return false if the item was dropped
+     */
+    boolean offer(SearchRequestLogData item) {
+        if (policy == OverflowPolicy.SAMPLE && size.get() >= capacity / 2 && ThreadLocalRandom.current().nextInt(100) >= samplePercent) {
+            droppedSampled.increment();
+
+            return false;
+        }
+
+        if (size.incrementAndGet() > capacity) {
+            if (policy == OverflowPolicy.DROP_OLDEST && queue.poll() != null) {
+                droppedOverflow.increment(); // the oldest item gave its slot to this one; size is unchanged
+            } else {
+                size.decrementAndGet();
+
+                droppedOverflow.increment();
+
+                return false;
+            }
+        }
+
+        queue.offer(item);
+
+        return true;
+    }
+
+    SearchRequestLogData poll() {
+        SearchRequestLogData ret = queue.poll();
+
+        if (ret != null) {
+            size.decrementAndGet();
+        }
+
+        return ret;
+    }
+
+    int drainTo(List<SearchRequestLogData> items, int maxItems) {
+        int ret = 0;
+
+        for (SearchRequestLogData item; ret < maxItems && (item = poll()) != null; ret++) {
+            items.add(item);
+        }
+
+        return ret;
+    }
+
+    int size() {
+        return size.get();
+    }
+}
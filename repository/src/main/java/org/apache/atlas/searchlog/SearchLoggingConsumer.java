@@ -1,26 +1,117 @@
 package org.apache.atlas.searchlog;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.atlas.model.searchlog.SearchRequestLogData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Takes search logs off the SearchLogQueue and writes them in batches: once bulkSize logs are queued, or
+ * flushIntervalMs after the first log of the batch was taken.
+ */
 public class SearchLoggingConsumer implements Runnable {
     private static final Logger LOG = LoggerFactory.getLogger(SearchLoggingConsumer.class);
 
+    private static final long MAX_PARK_MS = 100; // to notice stop() while waiting for logs
+
     private final List<SearchLogger> esSearchLoggers;
-    private final SearchRequestLogData searchRequestLogData;
+    private final SearchLogQueue     queue;
+    private final int                bulkSize;
+    private final long               flushIntervalMs;
+    private final Timer              flushTimer;
+    private final Counter            flushed;
+    private volatile boolean         stopped;
 
-    public SearchLoggingConsumer(List<SearchLogger> esSearchLoggers, SearchRequestLogData searchRequestLogData) {
+    SearchLoggingConsumer(List<SearchLogger> esSearchLoggers, SearchLogQueue queue, int bulkSize, long flushIntervalMs, MeterRegistry meterRegistry) {
         this.esSearchLoggers = esSearchLoggers;
-        this.searchRequestLogData = searchRequestLogData;
+        this.queue           = queue;
+        this.bulkSize        = Math.max(1, bulkSize);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.flushTimer      = Timer.builder("search_log_flush_duration").register(meterRegistry);
+        this.flushed         = Counter.builder("search_log_flushed").register(meterRegistry);
+    }
+
+    int getBulkSize() {
+        return bulkSize;
+    }
+
+    void stop() {
+        stopped = true;
     }
 
     @Override
     public void run() {
+        while (!stopped || queue.size() > 0) {
+            try {
+                List<SearchRequestLogData> batch = nextBatch();
+
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } catch (Throwable t) {
+                LOG.error("Search log writer: unexpected error", t);
+            }
+        }
+
+        LOG.info("Search log writer stopped");
+    }
+
+    // waits up to flushIntervalMs for the first log, then until the batch is full or flushIntervalMs elapsed
+    private List<SearchRequestLogData> nextBatch() {
+        List<SearchRequestLogData> ret      = new ArrayList<>(bulkSize);
+        long                       deadline = System.currentTimeMillis() + flushIntervalMs;
+
+        while (ret.isEmpty()) {
+            if (queue.drainTo(ret, bulkSize) > 0) {
+                break;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+
+            if (remaining <= 0 || stopped) {
+                return ret;
+            }
+
+            park(remaining);
+        }
+
+        deadline = System.currentTimeMillis() + flushIntervalMs;
+
+        while (ret.size() < bulkSize) {
+            queue.drainTo(ret, bulkSize - ret.size());
+
+            long remaining = deadline - System.currentTimeMillis();
+
+            if (ret.size() >= bulkSize || remaining <= 0 || stopped) {
+                break;
+            }
+
+            park(remaining);
+        }
+
+        return ret;
+    }
+
+    private void flush(List<SearchRequestLogData> batch) {
+        long start = System.nanoTime();
+
         for (SearchLogger esSearchLogger : esSearchLoggers) {
-            esSearchLogger.log(searchRequestLogData);
+            esSearchLogger.log(batch);
         }
+
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        flushed.increment(batch.size());
+    }
+
+    // SearchLoggingManagement unparks the writer once a full batch is queued
+    private static void park(long remainingMs) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.min(remainingMs, MAX_PARK_MS)));
     }
-}
\ No newline at end of file
+}
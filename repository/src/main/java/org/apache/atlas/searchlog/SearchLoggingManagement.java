@@ -17,41 +17,77 @@
  */
 package org.apache.atlas.searchlog;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
-import org.apache.atlas.ApplicationProperties;
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.model.searchlog.SearchRequestLogData;
-import org.apache.atlas.type.AtlasType;
+import org.apache.atlas.searchlog.SearchLogQueue.OverflowPolicy;
+import org.apache.atlas.service.metrics.MetricUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
 
 @Component
 public class SearchLoggingManagement {
     private static final Logger LOG = LoggerFactory.getLogger(SearchLoggingManagement.class);
 
-    private final List<SearchLogger> esSearchLoggers;
-    private final ExecutorService executorService;
+    private final SearchLogQueue        queue;
+    private final SearchLoggingConsumer consumer;
+    private final Thread                writer;
+    private final long                  flushIntervalMs;
 
     @Inject
     public SearchLoggingManagement(List<SearchLogger> esSearchLoggers) {
-        this.esSearchLoggers        = esSearchLoggers;
-
-        this.executorService = Executors.newFixedThreadPool(AtlasConfiguration.SEARCH_LOGGER_MAX_THREADS.getInt(),
-                new ThreadFactoryBuilder()
-                    .setDaemon(true)
-                    .setNameFormat("atlas-search-logger-%d")
-                    .build()
-        );
+        this(esSearchLoggers,
+             AtlasConfiguration.SEARCH_LOGGER_QUEUE_SIZE.getInt(),
+             OverflowPolicy.valueOf(AtlasConfiguration.SEARCH_LOGGER_OVERFLOW_POLICY.getString().toUpperCase()),
+             AtlasConfiguration.SEARCH_LOGGER_SAMPLE_PERCENT.getInt(),
+             AtlasConfiguration.SEARCH_LOGGER_BULK_SIZE.getInt(),
+             AtlasConfiguration.SEARCH_LOGGER_FLUSH_INTERVAL_MS.getLong(),
+             MetricUtils.getMeterRegistry());
+    }
+
+    @VisibleForTesting
+    SearchLoggingManagement(List<SearchLogger> esSearchLoggers, int queueSize, OverflowPolicy overflowPolicy, int samplePercent,
+                            int bulkSize, long flushIntervalMs, MeterRegistry meterRegistry) {
+        this.queue           = new SearchLogQueue(queueSize, overflowPolicy, samplePercent, meterRegistry);
+        this.consumer        = new SearchLoggingConsumer(esSearchLoggers, queue, bulkSize, flushIntervalMs, meterRegistry);
+        this.writer          = new Thread(consumer, "atlas-search-logger");
+        this.flushIntervalMs = flushIntervalMs;
+
+        writer.setDaemon(true);
+        writer.start();
+
+        LOG.info("Search log writer started: queueSize={}, overflowPolicy={}, bulkSize={}, flushIntervalMs={}", queueSize, overflowPolicy, bulkSize, flushIntervalMs);
     }
 
     public void log(SearchRequestLogData searchRequestLogData) {
-        SearchLoggingConsumer loggerConsumer = new SearchLoggingConsumer(esSearchLoggers, searchRequestLogData);
-        this.executorService.submit(loggerConsumer);
+        searchRequestLogData.setCreatedAt(System.currentTimeMillis());
+
+        if (queue.offer(searchRequestLogData) && queue.size() >= consumer.getBulkSize()) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        consumer.stop();
+
+        LockSupport.unpark(writer);
+
+        try {
+            writer.join(flushIntervalMs * 5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (writer.isAlive()) {
+            LOG.warn("Search log writer did not complete; {} queued search logs not written", queue.size());
+        }
     }
-}
\ No newline at end of file
+}
@@ -18,6 +18,7 @@
 package org.apache.atlas.tasks;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.ICuratorFactory;
 import org.apache.atlas.RequestContext;
 import org.apache.atlas.model.tasks.AtlasTask;
@@ -49,6 +50,7 @@ public class TaskExecutor {
     private final ICuratorFactory curatorFactory;
     private final boolean isActiveActiveHAEnabled;
     private final String zkRoot;
+    private final int threadCount;
 
     private TaskQueueWatcher watcher;
     private Thread watcherThread;
@@ -56,7 +58,8 @@ public class TaskExecutor {
 
     public TaskExecutor(TaskRegistry registry, Map<String, TaskFactory> taskTypeFactoryMap, TaskManagement.Statistics statistics,
                         ICuratorFactory curatorFactory, RedisService redisService, final String zkRoot, boolean isActiveActiveHAEnabled) {
-        this.taskExecutorService = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+        this.threadCount         = Math.max(1, AtlasConfiguration.TASKS_EXECUTOR_THREADS.getInt());
+        this.taskExecutorService = Executors.newFixedThreadPool(threadCount, new ThreadFactoryBuilder()
                                                                     .setDaemon(true)
                                                                     .setNameFormat(TASK_NAME_FORMAT + Thread.currentThread().getName())
                                                                     .build());
@@ -72,7 +75,7 @@ public class TaskExecutor {
 
     public Thread startWatcherThread() {
 
-        watcher = new TaskQueueWatcher(taskExecutorService, registry, taskTypeFactoryMap, statistics, curatorFactory, redisService, zkRoot, isActiveActiveHAEnabled);
+        watcher = new TaskQueueWatcher(taskExecutorService, registry, taskTypeFactoryMap, statistics, curatorFactory, redisService, zkRoot, isActiveActiveHAEnabled, threadCount);
         watcherThread = new Thread(watcher);
         watcherThread.start();
         return watcherThread;
@@ -91,17 +94,25 @@ public class TaskExecutor {
         private final TaskRegistry              registry;
         private final TaskManagement.Statistics statistics;
         private final AtlasTask                 task;
-        private CountDownLatch  latch;
+        private final Runnable                  onComplete;
 
         AtlasPerfTracer perf = null;
 
         public TaskConsumer(AtlasTask task, TaskRegistry registry, Map<String, TaskFactory> taskTypeFactoryMap, TaskManagement.Statistics statistics,
                             CountDownLatch latch) {
+            this(task, registry, taskTypeFactoryMap, statistics, latch::countDown);
+        }
+
+        /**
+         * @param onComplete run once the task completed, failed or was skipped
+         */
+        public TaskConsumer(AtlasTask task, TaskRegistry registry, Map<String, TaskFactory> taskTypeFactoryMap, TaskManagement.Statistics statistics,
+                            Runnable onComplete) {
             this.task               = task;
             this.registry           = registry;
             this.taskTypeFactoryMap = taskTypeFactoryMap;
             this.statistics         = statistics;
-            this.latch = latch;
+            this.onComplete         = onComplete;
         }
 
         @Override
@@ -165,15 +176,17 @@ public class TaskExecutor {
 
                 statistics.error();
             } finally {
-                if (task != null) {
-                    this.registry.commit();
-
-                    TASK_LOG.log(task);
+                try {
+                    if (task != null) {
+                        this.registry.commit();
+
+                        TASK_LOG.log(task);
+                    }
+                } finally {
+                    onComplete.run();
+                    RequestContext.get().clearCache();
+                    AtlasPerfTracer.log(perf);
                 }
-
-                latch.countDown();
-                RequestContext.get().clearCache();
-                AtlasPerfTracer.log(perf);
             }
         }
 
@@ -17,25 +17,39 @@
  */
 package org.apache.atlas.tasks;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.atlas.AtlasConfiguration;
-import org.apache.atlas.AtlasConstants;
 import org.apache.atlas.ICuratorFactory;
 import org.apache.atlas.model.tasks.AtlasTask;
 import org.apache.atlas.service.redis.RedisService;
-import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.PreDestroy;
-import java.util.ArrayList;
+import java.net.InetAddress;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.CountDownLatch;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Pulls pending and in-progress tasks, oldest first, and runs them on this node under a per-task lease.
+ *
+ * A task is run only by the node holding its lease; the lease is renewed while the task runs and released once it
+ * completes, so tasks of a node that died are claimed by other nodes once their leases expire. Tasks of an entity are
+ * run one at a time in creation order: a task is skipped while an older task of the same entity is pending or running.
+ * The queue is scanned again whenever a task completes, or every atlas.tasks.requeue.poll.interval.millis.
+ */
 public class TaskQueueWatcher implements Runnable {
     private static final Logger LOG = LoggerFactory.getLogger(TaskQueueWatcher.class);
     private static final TaskExecutor.TaskLogger TASK_LOG = TaskExecutor.TaskLogger.getLogger();
@@ -48,16 +62,26 @@ public class TaskQueueWatcher implements Runnable {
     private final TaskManagement.Statistics statistics;
     private final ICuratorFactory curatorFactory;
     private final RedisService redisService;
+    private final int maxRunningTasks;
+    private final String nodeId;
 
     private static long pollInterval = AtlasConfiguration.TASKS_REQUEUE_POLL_INTERVAL.getLong();
-    private static final String TASK_LOCK = "/task-lock";
-    private static final String ATLAS_TASK_LOCK = "atlas:task:lock";
+    private static final String TASK_LEASE_PREFIX = "atlas:task:lease:";
+
+    private final long leaseMs = AtlasConfiguration.TASKS_LEASE_DURATION_MS.getLong();
+    private final int scanPageSize = AtlasConfiguration.TASKS_SCAN_PAGE_SIZE.getInt();
+    private final int queueSize = AtlasConfiguration.TASKS_QUEUE_SIZE.getInt();
 
     private final AtomicBoolean shouldRun = new AtomicBoolean(false);
+    private final Map<String, String> runningTasks = new ConcurrentHashMap<>(); // task guid -> ordering key
+    private final Object monitor = new Object();
+    private boolean taskCompleted;
+    private ScheduledExecutorService heartbeat;
 
     public TaskQueueWatcher(ExecutorService executorService, TaskRegistry registry,
                             Map<String, TaskFactory> taskTypeFactoryMap, TaskManagement.Statistics statistics,
-                            ICuratorFactory curatorFactory, RedisService redisService, final String zkRoot, boolean isActiveActiveHAEnabled) {
+                            ICuratorFactory curatorFactory, RedisService redisService, final String zkRoot, boolean isActiveActiveHAEnabled,
+                            int maxRunningTasks) {
 
         this.registry = registry;
         this.executorService = executorService;
@@ -67,10 +91,17 @@ public class TaskQueueWatcher implements Runnable {
         this.redisService = redisService;
         this.zkRoot = zkRoot;
         this.isActiveActiveHAEnabled = isActiveActiveHAEnabled;
+        this.maxRunningTasks = Math.max(1, maxRunningTasks);
+        this.nodeId = getHostName() + ":" + UUID.randomUUID();
     }
 
     public void shutdown() {
         shouldRun.set(false);
+
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+
         LOG.info("TaskQueueWatcher: Shutdown");
     }
 
@@ -83,95 +114,205 @@ public class TaskQueueWatcher implements Runnable {
         }
         shouldRun.set(true);
 
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("TaskQueueWatcher: running {}:{}", Thread.currentThread().getName(), Thread.currentThread().getId());
-        }
-        while (shouldRun.get()) {
-            TasksFetcher fetcher = new TasksFetcher(registry);
-            try {
-                if (!redisService.acquireDistributedLock(ATLAS_TASK_LOCK)) {
-                    Thread.sleep(AtlasConstants.TASK_WAIT_TIME_MS);
-                    continue;
+        LOG.info("TaskQueueWatcher: running as {}, maxRunningTasks={}, leaseMs={}", nodeId, maxRunningTasks, leaseMs);
+
+        startHeartbeat();
+
+        try {
+            while (shouldRun.get()) {
+                try {
+                    int claimed = scanAndClaim();
+
+                    if (claimed > 0) {
+                        LOG.info("TaskQueueWatcher: Submitted {} tasks, {} running", claimed, runningTasks.size());
+                    }
+
+                    awaitNextScan();
+                } catch (InterruptedException interruptedException) {
+                    LOG.error("TaskQueueWatcher: Interrupted: thread is terminated, new tasks will not be loaded into the queue until next restart");
+                    break;
+                } catch (Exception e) {
+                    LOG.error("TaskQueueWatcher: Exception occurred " + e.getMessage(), e);
+
+                    try {
+                        Thread.sleep(pollInterval);
+                    } catch (InterruptedException interruptedException) {
+                        break;
+                    }
                 }
-                LOG.info("TaskQueueWatcher: Acquired distributed lock: {}", ATLAS_TASK_LOCK);
-
-                List<AtlasTask> tasks = fetcher.getTasks();
-                if (CollectionUtils.isNotEmpty(tasks)) {
-                    final CountDownLatch latch = new CountDownLatch(tasks.size());
-                    submitAll(tasks, latch);
-                    LOG.info("Submitted {} tasks to the queue", tasks.size());
-                    waitForTasksToComplete(latch);
-                } else {
-                    redisService.releaseDistributedLock(ATLAS_TASK_LOCK);
+            }
+        } finally {
+            stopHeartbeat();
+        }
+    }
+
+    /**
+     * Claims and submits tasks until maxRunningTasks run on this node, or queueSize tasks were scanned.
+     *
+     * @return number of tasks submitted
+     */
+    int scanAndClaim() throws Exception {
+        int capacity = maxRunningTasks - runningTasks.size();
+
+        if (capacity <= 0) {
+            return 0;
+        }
+
+        Set<String>  blockedKeys = new HashSet<>(runningTasks.values());
+        List<Object> searchAfter = null;
+        int          scanned     = 0;
+        int          ret         = 0;
+
+        do {
+            TaskRegistry.TaskPage page = registry.getTasksForReQueuePage(searchAfter, scanPageSize);
+
+            for (AtlasTask task : page.getTasks()) {
+                scanned++;
+
+                AtlasTask claimed = claim(task, blockedKeys);
+
+                if (claimed != null && submit(claimed) && ++ret >= capacity) {
+                    return ret;
                 }
-                Thread.sleep(pollInterval);
-            } catch (InterruptedException interruptedException) {
-                LOG.error("TaskQueueWatcher: Interrupted: thread is terminated, new tasks will not be loaded into the queue until next restart");
-                break;
-            } catch (Exception e) {
-                LOG.error("TaskQueueWatcher: Exception occurred " + e.getMessage(), e);
-            } finally {
-                redisService.releaseDistributedLock(ATLAS_TASK_LOCK);
-                fetcher.clearTasks();
             }
+
+            searchAfter = page.getSearchAfter();
+        } while (searchAfter != null && scanned < queueSize && shouldRun.get());
+
+        return ret;
+    }
+
+    Set<String> getRunningTasks() {
+        return runningTasks.keySet();
+    }
+
+    // returns the current state of the task if this node acquired its lease, null if the task must not be run now
+    private AtlasTask claim(AtlasTask task, Set<String> blockedKeys) {
+        if (task == null) {
+            return null;
+        }
+
+        String orderingKey = getOrderingKey(task);
+
+        // even when not claimed, an older task of the entity blocks the newer ones
+        if (!blockedKeys.add(orderingKey) || runningTasks.containsKey(task.getGuid()) || !acquireLease(task.getGuid())) {
+            return null;
         }
+
+        // the index can lag behind the graph: another node may have completed the task already
+        AtlasTask ret = registry.getById(task.getGuid());
+
+        if (ret == null || (ret.getStatus() != AtlasTask.Status.PENDING && ret.getStatus() != AtlasTask.Status.IN_PROGRESS)) {
+            releaseLease(task.getGuid());
+
+            blockedKeys.remove(orderingKey);
+
+            return null;
+        }
+
+        return ret;
     }
 
-    private void waitForTasksToComplete(final CountDownLatch latch) throws InterruptedException {
-        if (latch.getCount() != 0) {
-            LOG.info("TaskQueueWatcher: Waiting on Latch, current count: {}", latch.getCount());
-            latch.await();
-            LOG.info("TaskQueueWatcher: Waiting completed on Latch, current count: {}", latch.getCount());
+    private boolean submit(AtlasTask task) {
+        String guid = task.getGuid();
+
+        runningTasks.put(guid, getOrderingKey(task));
+
+        TASK_LOG.log(task);
+
+        try {
+            executorService.submit(new TaskExecutor.TaskConsumer(task, registry, taskTypeFactoryMap, statistics, () -> onTaskCompleted(guid)));
+        } catch (RejectedExecutionException e) {
+            LOG.warn("TaskQueueWatcher: task {} rejected by executor", guid, e);
+
+            runningTasks.remove(guid);
+            releaseLease(guid);
+
+            return false;
         }
+
+        return true;
     }
 
-    private void submitAll(List<AtlasTask> tasks, CountDownLatch latch) {
-        if (CollectionUtils.isNotEmpty(tasks)) {
+    private void onTaskCompleted(String guid) {
+        runningTasks.remove(guid);
+
+        releaseLease(guid);
+
+        synchronized (monitor) {
+            taskCompleted = true;
+
+            monitor.notifyAll();
+        }
+    }
 
-            for (AtlasTask task : tasks) {
-                if (task != null) {
-                    TASK_LOG.log(task);
+    private void awaitNextScan() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + pollInterval;
+
+        synchronized (monitor) {
+            while (shouldRun.get() && !taskCompleted) {
+                long remaining = deadline - System.currentTimeMillis();
+
+                if (remaining <= 0) {
+                    break;
                 }
 
-                this.executorService.submit(new TaskExecutor.TaskConsumer(task, this.registry, this.taskTypeFactoryMap, this.statistics, latch));
+                monitor.wait(remaining);
             }
 
-            LOG.info("TasksFetcher: Submitted {} tasks to the queue", tasks.size());
-        } else {
-            LOG.info("TasksFetcher: No task to queue");
+            taskCompleted = false;
         }
     }
 
-    static class TasksFetcher {
-        private TaskRegistry registry;
-        private List<AtlasTask> tasks = new ArrayList<>();
+    private void startHeartbeat() {
+        long interval = Math.max(1, leaseMs / 3);
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("atlas-task-lease-heartbeat").build());
+
+        heartbeat.scheduleWithFixedDelay(this::renewLeases, interval, interval, TimeUnit.MILLISECONDS);
+    }
 
-        public TasksFetcher(TaskRegistry registry) {
-            this.registry = registry;
+    private void stopHeartbeat() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
         }
+    }
 
-        public void run() {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("TasksFetcher: Fetching tasks for queuing");
+    private void renewLeases() {
+        for (String guid : runningTasks.keySet()) {
+            if (!acquireLease(guid)) {
+                LOG.warn("TaskQueueWatcher: lost lease of running task {}; it may be run by another node as well", guid);
             }
-
-            this.tasks = registry.getTasksForReQueue();
         }
+    }
 
-        public List<AtlasTask> getTasks() {
-            run();
-            return tasks;
+    private boolean acquireLease(String taskGuid) {
+        return redisService == null || redisService.acquireLease(TASK_LEASE_PREFIX + taskGuid, nodeId, leaseMs);
+    }
+
+    private void releaseLease(String taskGuid) {
+        if (redisService != null) {
+            redisService.releaseLease(TASK_LEASE_PREFIX + taskGuid, nodeId);
         }
+    }
+
+    private static String getOrderingKey(AtlasTask task) {
+        return StringUtils.isNotEmpty(task.getEntityGuid()) ? task.getEntityGuid() : task.getGuid();
+    }
 
-        public void clearTasks() {
-            this.tasks.clear();
+    private static String getHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
         }
     }
 
     @PreDestroy
     public void cleanUp() {
+        stopHeartbeat();
+
         if (!Objects.isNull(this.executorService)) {
-            this.redisService.releaseDistributedLock(ATLAS_TASK_LOCK);
             this.executorService.shutdownNow();
             try {
                 this.executorService.awaitTermination(1, TimeUnit.SECONDS);
@@ -179,5 +320,9 @@ public class TaskQueueWatcher implements Runnable {
                 Thread.currentThread().interrupt();
             }
         }
+
+        for (String guid : runningTasks.keySet()) {
+            releaseLease(guid);
+        }
     }
 }
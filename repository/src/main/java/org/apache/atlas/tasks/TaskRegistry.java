@@ -68,6 +68,10 @@ public class TaskRegistry {
     public static final List<Map<String, Object>> SORT_ARRAY = Collections.singletonList(mapOf(Constants.TASK_CREATED_TIME, mapOf("order", "asc")));
     public static final String JANUSGRAPH_VERTEX_INDEX = "janusgraph_vertex_index";
 
+    // the unique task guid breaks ties between tasks created in the same millisecond, so that search_after doesn't skip them
+    private static final List<Map<String, Object>> REQUEUE_SORT_ARRAY = Arrays.asList(mapOf(Constants.TASK_CREATED_TIME, mapOf("order", "asc")),
+                                                                                      mapOf(TASK_GUID + ".keyword", getKeywordSortOrder()));
+
     private AtlasGraph graph;
     private TaskService taskService;
     private int queueSize;
@@ -116,6 +120,41 @@ public class TaskRegistry {
         return ret;
     }
 
+    /**
+     * @return pending tasks created for the given entity and classification vertex, oldest first
+     */
+    public List<AtlasTask> getPendingTasks(String entityGuid, String classificationId) {
+        List<AtlasTask> ret = new ArrayList<>();
+
+        try {
+            AtlasGraphQuery query = graph.query()
+                                         .has(Constants.TASK_TYPE_PROPERTY_KEY, Constants.TASK_TYPE_NAME)
+                                         .has(Constants.TASK_ENTITY_GUID, entityGuid)
+                                         .has(Constants.TASK_CLASSIFICATION_ID, classificationId)
+                                         .has(Constants.TASK_STATUS, AtlasTask.Status.PENDING)
+                                         .orderBy(Constants.TASK_CREATED_TIME, AtlasGraphQuery.SortOrder.ASC);
+
+            Iterator<AtlasVertex> results = query.vertices().iterator();
+
+            while (results.hasNext()) {
+                AtlasVertex vertex = results.next();
+
+                if (vertex != null) {
+                    AtlasTask task = toAtlasTask(vertex);
+
+                    // index may lag behind the graph
+                    if (task.getStatus() == AtlasTask.Status.PENDING) {
+                        ret.add(task);
+                    }
+                }
+            }
+        } catch (Exception exception) {
+            LOG.error("Error fetching pending tasks of entity {}, classification {}", entityGuid, classificationId, exception);
+        }
+
+        return ret;
+    }
+
     public List<AtlasTask> getInProgressTasks() {
         List<AtlasTask> ret = new ArrayList<>();
 
@@ -383,12 +422,48 @@ public class TaskRegistry {
     }
 
     public List<AtlasTask> getTasksForReQueueIndexSearch() {
-        DirectIndexQueryResult indexQueryResult = null;
-        List<AtlasTask> ret = new ArrayList<>();
+        List<AtlasTask> ret         = new ArrayList<>();
+        List<Object>    searchAfter = null;
 
-        int size = 1000;
-        int from = 0;
+        while (ret.size() < queueSize) {
+            TaskPage page;
+
+            try {
+                page = getTasksForReQueueIndexSearchPage(searchAfter, Math.min(TASK_FETCH_BATCH_SIZE, queueSize - ret.size()));
+            } catch (Exception e) {
+                LOG.error("Failed to fetch pending/in-progress task vertices to re-queue", e);
+                break;
+            }
+
+            ret.addAll(page.getTasks());
+
+            searchAfter = page.getSearchAfter();
+
+            if (searchAfter == null) {
+                break;
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Returns the next page of pending and in-progress tasks, oldest first.
+     *
+     * @param searchAfter sort values of the last task of the previous page, from TaskPage.getSearchAfter(); null for the first page
+     */
+    public TaskPage getTasksForReQueuePage(List<Object> searchAfter, int size) throws AtlasBaseException {
+        if (useGraphQuery) { // graph query can't resume after a task: return up to queueSize tasks in one page
+            return new TaskPage(searchAfter == null ? getTasksForReQueueGraphQuery() : Collections.emptyList(), null);
+        }
+
+        return getTasksForReQueueIndexSearchPage(searchAfter, size);
+    }
 
+    private TaskPage getTasksForReQueueIndexSearchPage(List<Object> searchAfter, int size) throws AtlasBaseException {
+        List<AtlasTask>   tasks             = new ArrayList<>();
+        List<Object>      lastSort          = null;
+        int               fetched           = 0;
         IndexSearchParams indexSearchParams = new IndexSearchParams();
 
         List statusClauseList = new ArrayList();
@@ -396,68 +471,84 @@ public class TaskRegistry {
         statusClauseList.add(mapOf("match", mapOf(TASK_STATUS, AtlasTask.Status.PENDING.toString())));
 
         Map<String, Object> dsl = mapOf("query", mapOf("bool", mapOf("should", statusClauseList)));
-        dsl.put("sort", Collections.singletonList(mapOf(Constants.TASK_CREATED_TIME, mapOf("order", "asc"))));
+        dsl.put("sort", REQUEUE_SORT_ARRAY);
         dsl.put("size", size);
-        int totalFetched = 0;
-        while (true) {
-            int fetched = 0;
-            try {
-                if (totalFetched + size > queueSize) {
-                    size = queueSize - totalFetched;
-                }
 
-                dsl.put("from", from);
-                dsl.put("size", size);
+        if (searchAfter != null) {
+            dsl.put("search_after", searchAfter);
+        }
 
-                indexSearchParams.setDsl(dsl);
+        indexSearchParams.setDsl(dsl);
 
-                AtlasIndexQuery indexQuery = graph.elasticsearchQuery(Constants.VERTEX_INDEX, indexSearchParams);
+        AtlasIndexQuery        indexQuery       = graph.elasticsearchQuery(Constants.VERTEX_INDEX, indexSearchParams);
+        DirectIndexQueryResult indexQueryResult = indexQuery.vertices(indexSearchParams);
 
-                try {
-                    indexQueryResult = indexQuery.vertices(indexSearchParams);
-                } catch (AtlasBaseException e) {
-                    LOG.error("Failed to fetch pending/in-progress task vertices to re-que");
-                    e.printStackTrace();
-                    break;
+        if (indexQueryResult != null) {
+            Iterator<AtlasIndexQuery.Result> iterator = indexQueryResult.getIterator();
+            List<AtlasIndexQuery.Result>     results  = new ArrayList<>(size);
+            List<AtlasVertex>                vertices = new ArrayList<>(size);
+
+            while (iterator.hasNext()) {
+                AtlasIndexQuery.Result result = iterator.next();
+                AtlasVertex            vertex = result.getVertex();
+
+                results.add(result);
+
+                if (vertex != null) {
+                    vertices.add(vertex);
                 }
+            }
 
-                if (indexQueryResult != null) {
-                    Iterator<AtlasIndexQuery.Result> iterator = indexQueryResult.getIterator();
-
-                    while (iterator.hasNext()) {
-                        AtlasVertex vertex = iterator.next().getVertex();
-
-                        if (vertex != null) {
-                            AtlasTask atlasTask = toAtlasTask(vertex);
-                            if (atlasTask.getStatus().equals(AtlasTask.Status.PENDING) ||
-                                    atlasTask.getStatus().equals(AtlasTask.Status.IN_PROGRESS) ){
-                                LOG.info(String.format("Fetched task from index search: %s", atlasTask.toString()));
-                                ret.add(atlasTask);
-                            } else {
-                                LOG.warn("Status mismatch for task with guid: {}. Expected PENDING/IN_PROGRESS but found: {}",
-                                        atlasTask.getGuid(), atlasTask.getStatus());
-                                String docId = LongEncoding.encode(Long.parseLong(vertex.getIdForDisplay()));
-                                repairMismatchedTask(atlasTask, docId);
-                            }
-                        } else {
-                            LOG.warn("Null vertex while re-queuing tasks at index {}", fetched);
-                        }
-
-                        fetched++;
+            // load the properties of all task vertices of the page together, rather than per property of each task
+            graph.prefetchProperties(vertices);
+
+            for (AtlasIndexQuery.Result result : results) {
+                AtlasVertex vertex = result.getVertex();
+
+                lastSort = result.getSort();
+
+                if (vertex != null) {
+                    AtlasTask atlasTask = toAtlasTask(vertex);
+                    if (atlasTask.getStatus().equals(AtlasTask.Status.PENDING) ||
+                            atlasTask.getStatus().equals(AtlasTask.Status.IN_PROGRESS) ){
+                        LOG.info(String.format("Fetched task from index search: %s", atlasTask.toString()));
+                        tasks.add(atlasTask);
+                    } else {
+                        LOG.warn("Status mismatch for task with guid: {}. Expected PENDING/IN_PROGRESS but found: {}",
+                                atlasTask.getGuid(), atlasTask.getStatus());
+                        String docId = LongEncoding.encode(Long.parseLong(vertex.getIdForDisplay()));
+                        repairMismatchedTask(atlasTask, docId);
                     }
+                } else {
+                    LOG.warn("Null vertex while re-queuing tasks at index {}", fetched);
                 }
 
-                totalFetched += fetched;
-                from += size;
-                if (fetched < size || totalFetched >= queueSize) {
-                    break;
-                }
-            } catch (Exception e){
-                break;
+                fetched++;
             }
         }
 
-        return ret;
+        return new TaskPage(tasks, fetched < size || CollectionUtils.isEmpty(lastSort) ? null : lastSort);
+    }
+
+    public static class TaskPage {
+        private final List<AtlasTask> tasks;
+        private final List<Object>    searchAfter;
+
+        public TaskPage(List<AtlasTask> tasks, List<Object> searchAfter) {
+            this.tasks       = tasks;
+            this.searchAfter = searchAfter;
+        }
+
+        public List<AtlasTask> getTasks() {
+            return tasks;
+        }
+
+        /**
+         * @return position to fetch the next page from; null if this is the last page
+         */
+        public List<Object> getSearchAfter() {
+            return searchAfter;
+        }
     }
 
     private void repairMismatchedTask(AtlasTask atlasTask, String docId) {
@@ -621,6 +712,15 @@ public class TaskRegistry {
         return taskService.createTaskVertex(task);
     }
 
+    // indexes created before __task_guid got its keyword sub-field don't have it: sort these without failing the query
+    private static Map<String, Object> getKeywordSortOrder() {
+        Map<String, Object> ret = mapOf("order", "asc");
+
+        ret.put("unmapped_type", "keyword");
+
+        return ret;
+    }
+
     private static Map<String, Object> mapOf(String key, Object value) {
         Map<String, Object> map = new HashMap<>();
         map.put(key, value);
@@ -15,9 +15,11 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.apache.atlas.utils;
+package org.apache.atlas;
 
-import org.apache.atlas.GraphTransactionInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.service.redis.RedisService;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.RandomStringUtils;
 import org.springframework.util.CollectionUtils;
@@ -25,15 +27,27 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
 
-public class ObjectUpdateSynchronizerTest {
-    private static final GraphTransactionInterceptor.ObjectUpdateSynchronizer objectUpdateSynchronizer = new GraphTransactionInterceptor.ObjectUpdateSynchronizer();
+public class EntityLockManagerTest {
+    private static final EntityLockManager objectUpdateSynchronizer = new EntityLockManager(4, 0, 0, 0, new SimpleMeterRegistry());
 
-    private final List<Integer> outputList = new ArrayList<>();
+    private final List<Integer>        outputList = new ArrayList<>();
+    private final List<AtlasErrorCode> failures   = new ArrayList<>();
     private final int MAX_COUNT = 10;
 
     class CounterThread extends Thread {
@@ -48,7 +62,12 @@ public class ObjectUpdateSynchronizerTest {
         }
 
         public void run() {
-            objectUpdateSynchronizer.lockObject(CollectionUtils.arrayToList(ids));
+            try {
+                objectUpdateSynchronizer.lockObject(CollectionUtils.arrayToList(ids));
+            } catch (AtlasBaseException e) {
+                throw new RuntimeException(e);
+            }
+
             for (int i = 0; i < MAX_COUNT; i++) {
                 outputList.add(i);
                 RandomStringUtils.randomAlphabetic(20);
@@ -61,6 +80,7 @@ public class ObjectUpdateSynchronizerTest {
     @BeforeMethod
     public void clearOutputList() {
         outputList.clear();
+        failures.clear();
     }
 
     @Test
@@ -166,6 +186,131 @@ public class ObjectUpdateSynchronizerTest {
         assertArrayEquals(populateExpectedArrayOutput(th.length));
     }
 
+    @Test
+    public void lockTimesOutWhileHeldByAnotherThread() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        EntityLockManager   lockManager   = new EntityLockManager(4, 100, 0, 0, meterRegistry);
+
+        lockManager.lockObject("1");
+
+        Thread waiter = new Thread(() -> {
+            try {
+                lockManager.lockObject("1");
+            } catch (AtlasBaseException e) {
+                failures.add(e.getAtlasErrorCode());
+            } finally {
+                lockManager.releaseLockedObjects();
+            }
+        });
+
+        waiter.start();
+        waiter.join();
+
+        assertEquals(failures, Collections.singletonList(AtlasErrorCode.FAILED_TO_OBTAIN_ENTITY_LOCK));
+        assertEquals(meterRegistry.get("entity_lock_wait_duration").tag("outcome", "timeout").timer().count(), 1);
+
+        lockManager.releaseLockedObjects();
+
+        // released locks can be taken again
+        waiter = new Thread(() -> {
+            try {
+                lockManager.lockObject("1");
+            } catch (AtlasBaseException e) {
+                failures.add(e.getAtlasErrorCode());
+            } finally {
+                lockManager.releaseLockedObjects();
+            }
+        });
+
+        waiter.start();
+        waiter.join();
+
+        assertEquals(failures.size(), 1);
+        assertEquals(meterRegistry.get("entity_lock_hold_duration").timer().count(), 2);
+    }
+
+    @Test
+    public void reportsLongHolders() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        EntityLockManager   lockManager   = new EntityLockManager(4, 0, 1, 0, meterRegistry);
+
+        lockManager.setCaller("test");
+        lockManager.lockObject(Arrays.asList("1", "2"));
+
+        Thread.sleep(5);
+
+        assertEquals(lockManager.detectLongHolders(), 2);
+        assertEquals(lockManager.detectLongHolders(), 2);
+        assertEquals(meterRegistry.get("entity_lock_long_holds").tag("caller", "test").counter().count(), 2.0);
+
+        lockManager.releaseLockedObjects();
+        lockManager.clearCaller();
+
+        assertEquals(lockManager.detectLongHolders(), 0);
+    }
+
+    @Test
+    public void takesRedisLeaseOncePerEntity() throws Exception {
+        EntityLockManager lockManager  = new EntityLockManager(4, 100, 0, 60000, new SimpleMeterRegistry());
+        RedisService      redisService = mock(RedisService.class);
+
+        when(redisService.acquireLease(anyString(), anyString(), anyLong())).thenReturn(true);
+        when(redisService.acquireLease(eq(EntityLockManager.REDIS_LOCK_KEY_PREFIX + "2"), anyString(), anyLong())).thenReturn(false);
+
+        lockManager.setRedisService(redisService);
+
+        lockManager.lockObject("1");
+        lockManager.lockObject("1");
+
+        try {
+            lockManager.lockObject("2");
+
+            fail("lock held by another instance must not be acquired");
+        } catch (AtlasBaseException e) {
+            assertEquals(e.getAtlasErrorCode(), AtlasErrorCode.FAILED_TO_OBTAIN_ENTITY_LOCK);
+        }
+
+        lockManager.releaseLockedObjects();
+
+        verify(redisService, times(1)).acquireLease(eq(EntityLockManager.REDIS_LOCK_KEY_PREFIX + "1"), anyString(), eq(60000L));
+        verify(redisService, times(1)).releaseLease(eq(EntityLockManager.REDIS_LOCK_KEY_PREFIX + "1"), anyString());
+        verify(redisService, never()).releaseLease(eq(EntityLockManager.REDIS_LOCK_KEY_PREFIX + "2"), anyString());
+    }
+
+    @Test
+    public void renewsRedisLeasesOfHeldLocks() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        EntityLockManager   lockManager   = new EntityLockManager(4, 100, 0, 60000, meterRegistry);
+        RedisService        redisService  = mock(RedisService.class);
+
+        when(redisService.acquireLease(anyString(), anyString(), anyLong())).thenReturn(true);
+
+        lockManager.setRedisService(redisService);
+        lockManager.setCaller("test");
+        lockManager.lockObject(Arrays.asList("1", "2"));
+
+        assertEquals(lockManager.renewLeases(), 0);
+
+        verify(redisService, times(2)).acquireLease(eq(EntityLockManager.REDIS_LOCK_KEY_PREFIX + "1"), anyString(), eq(60000L));
+        verify(redisService, times(2)).acquireLease(eq(EntityLockManager.REDIS_LOCK_KEY_PREFIX + "2"), anyString(), eq(60000L));
+
+        // lease taken over by another instance
+        when(redisService.acquireLease(eq(EntityLockManager.REDIS_LOCK_KEY_PREFIX + "2"), anyString(), anyLong())).thenReturn(false);
+
+        assertEquals(lockManager.renewLeases(), 1);
+        assertEquals(meterRegistry.get("entity_lock_lease_renewal_failures").tag("caller", "test").counter().count(), 1.0);
+
+        lockManager.releaseLockedObjects();
+        lockManager.clearCaller();
+
+        // released leases are not renewed
+        assertEquals(lockManager.renewLeases(), 0);
+
+        verify(redisService, times(3)).acquireLease(eq(EntityLockManager.REDIS_LOCK_KEY_PREFIX + "1"), anyString(), anyLong());
+        verify(redisService, times(1)).releaseLease(eq(EntityLockManager.REDIS_LOCK_KEY_PREFIX + "1"), anyString());
+        verify(redisService, times(1)).releaseLease(eq(EntityLockManager.REDIS_LOCK_KEY_PREFIX + "2"), anyString());
+    }
+
     private void verifyMultipleThreadRun(int limit) throws InterruptedException {
         CounterThread[] th = getCounterThreads(limit);
         startCounterThreads(th);
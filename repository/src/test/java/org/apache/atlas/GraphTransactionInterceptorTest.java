@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+public class GraphTransactionInterceptorTest {
+    @Test
+    public void testPreCommitHookRunsBeforeCommit() throws Throwable {
+        AtlasGraph   graph  = mock(AtlasGraph.class);
+        List<String> events = new ArrayList<>();
+
+        doAnswer(invocation -> events.add("commit")).when(graph).commit();
+
+        new GraphTransactionInterceptor(graph).invoke(invocation(() -> new RecordingHook(events, false)));
+
+        verify(graph, never()).rollback();
+
+        assertEquals(events, Arrays.asList("beforeCommit", "commit", "onComplete:true"));
+    }
+
+    @Test
+    public void testFailedPreCommitHookRollsBackTransaction() throws Throwable {
+        AtlasGraph   graph  = mock(AtlasGraph.class);
+        List<String> events = new ArrayList<>();
+
+        try {
+            new GraphTransactionInterceptor(graph).invoke(invocation(() -> new RecordingHook(events, true)));
+
+            fail("expected the pre-commit hook failure");
+        } catch (AtlasBaseException excp) {
+            // expected
+        }
+
+        verify(graph, never()).commit();
+        verify(graph).rollback();
+
+        assertEquals(events, Arrays.asList("beforeCommit", "onComplete:false"));
+    }
+
+    @Test
+    public void testPreCommitHookNotCalledOnRollback() throws Throwable {
+        AtlasGraph   graph  = mock(AtlasGraph.class);
+        List<String> events = new ArrayList<>();
+
+        try {
+            new GraphTransactionInterceptor(graph).invoke(invocation(() -> {
+                new RecordingHook(events, false);
+
+                throw new IllegalStateException("operation failed");
+            }));
+
+            fail("expected the operation failure");
+        } catch (IllegalStateException excp) {
+            // expected
+        }
+
+        verify(graph, never()).commit();
+
+        assertEquals(events, Collections.singletonList("onComplete:false"));
+    }
+
+    private static MethodInvocation invocation(Operation operation) throws Throwable {
+        MethodInvocation ret = mock(MethodInvocation.class);
+
+        when(ret.getMethod()).thenReturn(Object.class.getMethod("toString"));
+        when(ret.proceed()).thenAnswer(invocation -> operation.run());
+
+        return ret;
+    }
+
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+    private static class RecordingHook extends GraphTransactionInterceptor.PreCommitHook {
+        private final List<String> events;
+        private final boolean      fail;
+
+        RecordingHook(List<String> events, boolean fail) {
+            this.events = events;
+            this.fail   = fail;
+        }
+
+        @Override
+        public void beforeCommit() throws AtlasBaseException {
+            events.add("beforeCommit");
+
+            if (fail) {
+                throw new AtlasBaseException("alias update failed");
+            }
+        }
+
+        @Override
+        public void onComplete(boolean isSuccess) {
+            events.add("onComplete:" + isSuccess);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.discovery;
+
+import org.apache.atlas.SortOrder;
+import org.apache.atlas.model.discovery.SearchParameters;
+import org.apache.atlas.model.discovery.SearchParameters.FilterCriteria;
+import org.apache.atlas.model.discovery.SearchParameters.FilterCriteria.Condition;
+import org.apache.atlas.model.discovery.SearchParameters.Operator;
+import org.apache.atlas.model.typedef.AtlasClassificationDef;
+import org.apache.atlas.model.typedef.AtlasEntityDef;
+import org.apache.atlas.model.typedef.AtlasStructDef.AtlasAttributeDef;
+import org.apache.atlas.model.typedef.AtlasTypesDef;
+import org.apache.atlas.type.AtlasClassificationType;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.apache.commons.collections.CollectionUtils;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ExistsQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.elasticsearch.index.query.WildcardQueryBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.atlas.repository.Constants.IS_INCOMPLETE_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.PROPAGATED_TRAIT_NAMES_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.STATE_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.TIMESTAMP_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.TRAIT_NAMES_PROPERTY_KEY;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ElasticsearchFilterCompilerTest {
+    private AtlasTypeRegistry       typeRegistry;
+    private AtlasEntityType         tableType;
+    private AtlasClassificationType piiType;
+    private Set<String>             indexedKeys;
+
+    @BeforeClass
+    public void setup() throws Exception {
+        AtlasEntityDef         table  = new AtlasEntityDef("Table");
+        AtlasClassificationDef pii    = new AtlasClassificationDef("PII");
+        AtlasAttributeDef      qName  = new AtlasAttributeDef("qualifiedName", "string");
+        AtlasAttributeDef      name   = new AtlasAttributeDef("name", "string");
+        HashMap<String, Object> keyword = new HashMap<>();
+
+        qName.setIndexType(AtlasAttributeDef.IndexType.STRING);
+
+        keyword.put("type", "keyword");
+        keyword.put("normalizer", "atlan_normalizer");
+        name.setIndexTypeESFields(new HashMap<>(Collections.singletonMap("keyword", keyword)));
+
+        table.addAttribute(qName);
+        table.addAttribute(name);
+        table.addAttribute(new AtlasAttributeDef("description", "string"));
+        table.addAttribute(new AtlasAttributeDef("rowCount", "long"));
+        table.addAttribute(new AtlasAttributeDef("isTemporary", "boolean"));
+
+        AtlasTypesDef types = new AtlasTypesDef();
+
+        types.setEntityDefs(Collections.singletonList(table));
+        types.setClassificationDefs(Collections.singletonList(pii));
+
+        typeRegistry = new AtlasTypeRegistry();
+
+        AtlasTypeRegistry.AtlasTransientTypeRegistry ttr = typeRegistry.lockTypeRegistryForUpdate();
+
+        ttr.addTypes(types);
+
+        typeRegistry.releaseTypeRegistryForUpdate(ttr, true);
+
+        tableType   = typeRegistry.getEntityTypeByName("Table");
+        piiType     = typeRegistry.getClassificationTypeByName("PII");
+        indexedKeys = new HashSet<>(Arrays.asList(STATE_PROPERTY_KEY, TIMESTAMP_PROPERTY_KEY, IS_INCOMPLETE_PROPERTY_KEY));
+
+        for (String attrName : Arrays.asList("qualifiedName", "name", "description", "rowCount", "isTemporary")) {
+            indexedKeys.add(tableType.getAttribute(attrName).getVertexPropertyName());
+        }
+    }
+
+    @Test
+    public void compilesTypesClassificationsAndFilters() {
+        SearchParameters params = new SearchParameters();
+
+        params.setTypeName("Table");
+        params.setClassification("PII");
+        params.setExcludeDeletedEntities(true);
+        params.setEntityFilters(and(criteria("qualifiedName", Operator.EQ, "db.t1@cl1"),
+                                    criteria("rowCount", Operator.GT, "10"),
+                                    criteria(TIMESTAMP_PROPERTY_KEY, Operator.TIME_RANGE, "1000,2000"),
+                                    criteria("__classificationNames", Operator.EQ, "Tier"),
+                                    or(criteria("isTemporary", Operator.EQ, "true"), criteria(IS_INCOMPLETE_PROPERTY_KEY, Operator.EQ, "false"))));
+
+        ElasticsearchFilterCompiler.CompiledQuery compiled = new ElasticsearchFilterCompiler(createContext(params, Collections.singleton(piiType))).compile();
+
+        assertTrue(compiled.isComplete(), compiled.explain());
+
+        List<QueryBuilder> filters = ((BoolQueryBuilder) compiled.getQuery()).filter();
+
+        assertEquals(filters.size(), 4);
+        assertEquals(((TermsQueryBuilder) filters.get(0)).fieldName(), "__typeName.keyword");
+        assertEquals(((TermsQueryBuilder) filters.get(0)).values(), Collections.singletonList("Table"));
+
+        List<QueryBuilder> classificationFilter = ((BoolQueryBuilder) filters.get(1)).should();
+
+        assertEquals(((TermsQueryBuilder) classificationFilter.get(0)).fieldName(), TRAIT_NAMES_PROPERTY_KEY);
+        assertEquals(((TermsQueryBuilder) classificationFilter.get(1)).fieldName(), PROPAGATED_TRAIT_NAMES_PROPERTY_KEY);
+        assertEquals(((TermQueryBuilder) filters.get(2)).fieldName(), STATE_PROPERTY_KEY);
+
+        List<QueryBuilder> criteria = ((BoolQueryBuilder) filters.get(3)).filter();
+
+        assertEquals(((TermQueryBuilder) criteria.get(0)).value(), "db.t1@cl1");
+        assertEquals(((RangeQueryBuilder) criteria.get(1)).from(), 10L);
+        assertFalse(((RangeQueryBuilder) criteria.get(1)).includeLower());
+        assertEquals(((RangeQueryBuilder) criteria.get(2)).from(), 1000L);
+        assertEquals(((RangeQueryBuilder) criteria.get(2)).to(), 2000L);
+        assertEquals(((TermQueryBuilder) criteria.get(3)).fieldName(), TRAIT_NAMES_PROPERTY_KEY);
+        assertEquals(((TermQueryBuilder) criteria.get(3)).value(), "Tier");
+
+        List<QueryBuilder> orCriteria = ((BoolQueryBuilder) criteria.get(4)).should();
+
+        assertEquals(((TermQueryBuilder) orCriteria.get(0)).value(), true);
+        assertEquals(((ExistsQueryBuilder) ((BoolQueryBuilder) orCriteria.get(1)).mustNot().get(0)).fieldName(), IS_INCOMPLETE_PROPERTY_KEY);
+    }
+
+    @Test
+    public void reportsCriteriaRequiringInMemoryEvaluation() {
+        SearchParameters params = new SearchParameters();
+
+        params.setTypeName("Table");
+        params.setEntityFilters(or(criteria("name", Operator.EQ, "t1"), criteria("description", Operator.CONTAINS, "sales"), criteria("rowCount", Operator.LIKE, "1*")));
+        params.setTagFilters(criteria("level", Operator.EQ, "high"));
+
+        ElasticsearchFilterCompiler.CompiledQuery compiled = new ElasticsearchFilterCompiler(createContext(params, null)).compile();
+        List<String>                              inMemory = compiled.getInMemoryCriteria();
+
+        assertFalse(compiled.isComplete());
+        assertEquals(inMemory.size(), 4, inMemory.toString());
+        assertTrue(inMemory.get(0).startsWith("tagFilters"));
+        assertTrue(inMemory.get(1).startsWith("name EQ"));
+        assertTrue(inMemory.get(2).startsWith("description CONTAINS"));
+        assertTrue(inMemory.get(3).startsWith("rowCount LIKE"));
+        assertTrue(compiled.explain().contains("in-memory"));
+    }
+
+    @Test
+    public void compilesNotClassifiedAndSort() {
+        SearchParameters params = new SearchParameters();
+
+        params.setTypeName("Table");
+        params.setClassification(SearchParameters.NO_CLASSIFICATIONS);
+        params.setSortBy("name");
+        params.setSortOrder(SortOrder.DESCENDING);
+
+        ElasticsearchFilterCompiler.CompiledQuery compiled = new ElasticsearchFilterCompiler(createContext(params, Collections.singleton(SearchContext.MATCH_ALL_NOT_CLASSIFIED))).compile();
+
+        assertTrue(compiled.isComplete(), compiled.explain());
+
+        List<QueryBuilder> notClassified = ((BoolQueryBuilder) ((BoolQueryBuilder) compiled.getQuery()).filter().get(1)).mustNot();
+
+        assertEquals(((ExistsQueryBuilder) notClassified.get(0)).fieldName(), TRAIT_NAMES_PROPERTY_KEY);
+        assertEquals(((ExistsQueryBuilder) notClassified.get(1)).fieldName(), PROPAGATED_TRAIT_NAMES_PROPERTY_KEY);
+
+        FieldSortBuilder sort = (FieldSortBuilder) compiled.toSourceBuilder().sorts().get(0);
+
+        assertEquals(sort.getFieldName(), tableType.getAttribute("name").getVertexPropertyName() + ".keyword");
+        assertEquals(sort.order(), org.elasticsearch.search.sort.SortOrder.DESC);
+    }
+
+    @Test
+    public void compilesWildcardClassificationsCaseInsensitively() {
+        SearchParameters params = new SearchParameters();
+
+        params.setTypeName("Table");
+        params.setClassification("pii*");
+
+        SearchContext context = createContext(params, Collections.emptySet());
+
+        when(context.isWildCardSearch()).thenReturn(true);
+        when(context.getClassificationNames()).thenReturn(Collections.singleton("pii*"));
+
+        ElasticsearchFilterCompiler.CompiledQuery compiled = new ElasticsearchFilterCompiler(context).compile();
+
+        assertTrue(compiled.isComplete(), compiled.explain());
+
+        List<QueryBuilder> classificationFilter = ((BoolQueryBuilder) ((BoolQueryBuilder) compiled.getQuery()).filter().get(1)).should();
+
+        assertEquals(classificationFilter.size(), 2);
+        assertEquals(((WildcardQueryBuilder) classificationFilter.get(0)).fieldName(), TRAIT_NAMES_PROPERTY_KEY);
+        assertEquals(((WildcardQueryBuilder) classificationFilter.get(0)).value(), "pii*");
+        assertTrue(((WildcardQueryBuilder) classificationFilter.get(0)).caseInsensitive());
+        assertEquals(((WildcardQueryBuilder) classificationFilter.get(1)).fieldName(), PROPAGATED_TRAIT_NAMES_PROPERTY_KEY);
+        assertTrue(((WildcardQueryBuilder) classificationFilter.get(1)).caseInsensitive());
+    }
+
+    @Test
+    public void keepsWildcardsWithinClassificationNamesInMemory() {
+        SearchParameters params = new SearchParameters();
+
+        params.setTypeName("Table");
+        params.setClassification("p*i");
+
+        SearchContext context = createContext(params, Collections.emptySet());
+
+        when(context.isWildCardSearch()).thenReturn(true);
+        when(context.getClassificationNames()).thenReturn(Collections.singleton("p*i"));
+
+        ElasticsearchFilterCompiler.CompiledQuery compiled = new ElasticsearchFilterCompiler(context).compile();
+
+        // the in-memory regex matches 'p*i' across the names in '|pa|xi|'
+        assertFalse(compiled.isComplete());
+        assertEquals(compiled.getInMemoryCriteria().size(), 1);
+        assertTrue(compiled.getInMemoryCriteria().get(0).startsWith("classification 'p*i'"));
+    }
+
+    private SearchContext createContext(SearchParameters params, Set<AtlasClassificationType> classificationTypes) {
+        SearchContext context = mock(SearchContext.class);
+
+        when(context.getSearchParameters()).thenReturn(params);
+        when(context.getTypeRegistry()).thenReturn(typeRegistry);
+        when(context.getIndexedKeys()).thenReturn(indexedKeys);
+        when(context.getEntityTypes()).thenReturn(Collections.singleton(tableType));
+        when(context.getEntityTypeNames()).thenReturn(Collections.singleton("Table"));
+        when(context.getClassificationTypes()).thenReturn(classificationTypes);
+        when(context.getClassificationTypeNames()).thenReturn(CollectionUtils.isNotEmpty(classificationTypes) ? Collections.singleton("PII") : Collections.emptySet());
+        when(context.hasAttributeFilter(any(FilterCriteria.class))).thenCallRealMethod();
+
+        return context;
+    }
+
+    private static FilterCriteria criteria(String attrName, Operator operator, String value) {
+        FilterCriteria ret = new FilterCriteria();
+
+        ret.setAttributeName(attrName);
+        ret.setOperator(operator);
+        ret.setAttributeValue(value);
+
+        return ret;
+    }
+
+    private static FilterCriteria and(FilterCriteria... criterion) {
+        return condition(Condition.AND, criterion);
+    }
+
+    private static FilterCriteria or(FilterCriteria... criterion) {
+        return condition(Condition.OR, criterion);
+    }
+
+    private static FilterCriteria condition(Condition condition, FilterCriteria... criterion) {
+        FilterCriteria ret = new FilterCriteria();
+
+        ret.setCondition(condition);
+        ret.setCriterion(Arrays.asList(criterion));
+
+        return ret;
+    }
+}
@@ -18,6 +18,8 @@
 package org.apache.atlas.discovery;
 
 import com.google.common.collect.Sets;
+import org.apache.atlas.ApplicationProperties;
+import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.BasicTestSetup;
 import org.apache.atlas.SortOrder;
 import org.apache.atlas.TestModules;
@@ -39,13 +41,16 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 @Guice(modules = TestModules.TestOnlyModule.class)
@@ -88,6 +93,35 @@ public class EntitySearchProcessorTest extends BasicTestSetup {
         assertEquals(processor.execute().size(), 4);
     }
 
+    @Test
+    public void searchByNativeQueryMatchesProcessorChain() throws Exception {
+        for (String classification : new String[] { "Metric", "metric*", "*ETRIC" }) {
+            SearchParameters params = new SearchParameters();
+            params.setTypeName("hive_table");
+            params.setClassification(classification);
+            params.setExcludeDeletedEntities(true);
+            params.setLimit(20);
+
+            SearchContext chainContext = new SearchContext(params, typeRegistry, graph, indexer.getVertexIndexKeys());
+
+            assertFalse(isNativeQuery(chainContext.getSearchProcessor()));
+
+            Set<Object> expected = getVertexIds(chainContext.getSearchProcessor().execute());
+
+            ApplicationProperties.get().setProperty(AtlasConfiguration.SEARCH_BASIC_NATIVE_QUERY_ENABLED.getPropertyName(), true);
+
+            try {
+                SearchContext nativeContext = new SearchContext(params, typeRegistry, graph, indexer.getVertexIndexKeys());
+
+                assertTrue(isNativeQuery(nativeContext.getSearchProcessor()), classification);
+                assertEquals(getVertexIds(nativeContext.getSearchProcessor().execute()), expected, classification);
+                assertFalse(expected.isEmpty(), classification);
+            } finally {
+                ApplicationProperties.get().setProperty(AtlasConfiguration.SEARCH_BASIC_NATIVE_QUERY_ENABLED.getPropertyName(), false);
+            }
+        }
+    }
+
     @Test
     public void searchByClassificationSortBy() throws AtlasBaseException {
         SearchParameters params = new SearchParameters();
@@ -588,6 +622,20 @@ public class EntitySearchProcessorTest extends BasicTestSetup {
         assertEquals(formattedDate.format(new Date((Long.parseLong(attrValue2)))), formattedDate.format(originalenddate.getTime()));
     }
 
+    private static boolean isNativeQuery(SearchProcessor processor) {
+        return processor instanceof EntitySearchProcessor && ((EntitySearchProcessor) processor).isNativeQuery();
+    }
+
+    private static Set<Object> getVertexIds(List<AtlasVertex> vertices) {
+        Set<Object> ret = new HashSet<>();
+
+        for (AtlasVertex vertex : vertices) {
+            ret.add(vertex.getId());
+        }
+
+        return ret;
+    }
+
     private static SearchParameters.FilterCriteria filtercriteriaDateRange(String attributeValue, AtlasTypeRegistry typeRegistry, AtlasGraph graph) throws AtlasBaseException {
         SearchParameters params = new SearchParameters();
         params.setTypeName(HIVE_TABLE_TYPE);
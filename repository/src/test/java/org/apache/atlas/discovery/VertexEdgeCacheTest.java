@@ -0,0 +1,109 @@
+package org.apache.atlas.discovery;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.repository.graphdb.AtlasEdge;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.atlas.repository.graphdb.AtlasEdgeDirection.OUT;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class VertexEdgeCacheTest {
+    private static final String LABEL = "__Process.outputs";
+
+    @AfterMethod
+    public void clearContext() {
+        RequestContext.clear();
+    }
+
+    @Test
+    public void testEdgesAreCachedWithinRequest() {
+        MeterRegistry   registry = new SimpleMeterRegistry();
+        VertexEdgeCache cache    = new VertexEdgeCache(100, registry);
+        AtlasVertex     vertex   = mockVertex("1", 3);
+
+        List<AtlasEdge> first  = cache.getEdges(vertex, OUT, LABEL);
+        List<AtlasEdge> second = cache.getEdges(vertex, OUT, LABEL);
+
+        assertSame(second, first);
+        verify(vertex, times(1)).getEdges(OUT, LABEL);
+        assertEquals(registry.counter("lineage_edge_cache_requests", "result", "hit").count(), 1.0);
+        assertEquals(registry.counter("lineage_edge_cache_requests", "result", "miss").count(), 1.0);
+    }
+
+    @Test
+    public void testCacheIsDroppedWithRequestContext() {
+        VertexEdgeCache cache  = new VertexEdgeCache(100, new SimpleMeterRegistry());
+        AtlasVertex     vertex = mockVertex("1", 3);
+
+        cache.getEdges(vertex, OUT, LABEL);
+
+        RequestContext.clear();
+
+        cache.getEdges(vertex, OUT, LABEL);
+
+        verify(vertex, times(2)).getEdges(OUT, LABEL);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() {
+        MeterRegistry   registry = new SimpleMeterRegistry();
+        VertexEdgeCache cache    = new VertexEdgeCache(5, registry);
+        AtlasVertex     v1       = mockVertex("1", 2);
+        AtlasVertex     v2       = mockVertex("2", 2);
+        AtlasVertex     v3       = mockVertex("3", 2);
+
+        cache.getEdges(v1, OUT, LABEL);
+        cache.getEdges(v2, OUT, LABEL);
+        cache.getEdges(v1, OUT, LABEL);
+        cache.getEdges(v3, OUT, LABEL); // evicts v2, the least recently used
+
+        VertexEdgeCache.RequestEdgeCache requestCache = RequestContext.get().getRequestScopedCache(VertexEdgeCache.REQUEST_CACHE_NAME, VertexEdgeCache.RequestEdgeCache::new);
+
+        assertEquals(requestCache.size(), 2);
+        assertEquals(requestCache.edgeCount(), 4);
+        assertEquals(registry.counter("lineage_edge_cache_evictions").count(), 1.0);
+
+        cache.getEdges(v1, OUT, LABEL);
+        cache.getEdges(v2, OUT, LABEL);
+
+        verify(v1, times(1)).getEdges(OUT, LABEL);
+        verify(v2, times(2)).getEdges(OUT, LABEL);
+    }
+
+    @Test
+    public void testOversizedEdgeListsAreNotCached() {
+        VertexEdgeCache cache  = new VertexEdgeCache(2, new SimpleMeterRegistry());
+        AtlasVertex     vertex = mockVertex("1", 3);
+
+        assertEquals(cache.getEdges(vertex, OUT, LABEL).size(), 3);
+        assertEquals(cache.getEdges(vertex, OUT, LABEL).size(), 3);
+
+        verify(vertex, times(2)).getEdges(OUT, LABEL);
+    }
+
+    private static AtlasVertex mockVertex(String id, int edgeCount) {
+        AtlasVertex     ret   = mock(AtlasVertex.class);
+        List<AtlasEdge> edges = new ArrayList<>();
+
+        for (int i = 0; i < edgeCount; i++) {
+            edges.add(mock(AtlasEdge.class));
+        }
+
+        when(ret.getId()).thenReturn(id);
+        when(ret.getEdges(OUT, LABEL)).thenReturn(edges);
+
+        return ret;
+    }
+}
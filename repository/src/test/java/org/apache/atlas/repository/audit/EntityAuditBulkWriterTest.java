@@ -0,0 +1,267 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.audit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.atlas.model.audit.EntityAuditEventV2;
+import org.apache.atlas.model.audit.EntityAuditEventV2.EntityAuditActionV2;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.utils.AtlasJson;
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class EntityAuditBulkWriterTest {
+    private File spoolDir;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        spoolDir = Files.createTempDirectory("entity-audit-spool").toFile();
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(spoolDir);
+    }
+
+    @Test
+    public void testFlushesInBatches() throws Exception {
+        List<String>          bodies = Collections.synchronizedList(new ArrayList<>());
+        EntityAuditBulkWriter writer = new EntityAuditBulkWriter(items -> send(bodies, items), 100, 2, 10000, 0, 0, 1, spoolDir, new SimpleMeterRegistry());
+
+        writer.start();
+        writer.submit(Arrays.asList(item("a"), item("b"), item("c")));
+
+        waitFor(() -> bodies.size() == 1);
+
+        assertEquals(bodies.get(0), item("a") + item("b"));
+
+        writer.stop(10000);
+
+        assertEquals(bodies, Arrays.asList(item("a") + item("b"), item("c")));
+    }
+
+    @Test
+    public void testSpoolsFailedBatchAndReplaysIt() throws Exception {
+        AtomicBoolean         available = new AtomicBoolean(false);
+        List<String>          bodies    = Collections.synchronizedList(new ArrayList<>());
+        EntityAuditBulkWriter writer    = new EntityAuditBulkWriter(items -> {
+            if (!available.get()) {
+                throw new IOException("unavailable");
+            }
+
+            return send(bodies, items);
+        }, 100, 10, 50, 1, 1, 1, spoolDir, new SimpleMeterRegistry());
+
+        writer.start();
+        writer.submit(Arrays.asList(item("a"), item("b")));
+
+        waitFor(() -> spoolFiles(spoolDir).length == 1);
+
+        assertTrue(bodies.isEmpty());
+
+        available.set(true);
+
+        waitFor(() -> bodies.size() == 1);
+
+        assertEquals(bodies.get(0), item("a") + item("b"));
+
+        waitFor(() -> spoolFiles(spoolDir).length == 0);
+
+        writer.stop(10000);
+
+        assertEquals(spoolFiles(new File(spoolDir, "dead-letter")).length, 0);
+    }
+
+    @Test
+    public void testSpoolsOverflowAndReplaysAfterRestart() throws Exception {
+        List<String>          bodies = Collections.synchronizedList(new ArrayList<>());
+        EntityAuditBulkWriter writer = new EntityAuditBulkWriter(items -> send(bodies, items), 1, 10, 50, 0, 0, 1, spoolDir, new SimpleMeterRegistry());
+
+        // not started: the queue holds one item, the rest goes to the spool
+        writer.submit(Arrays.asList(item("a"), item("b"), item("c")));
+
+        assertEquals(writer.getQueueDepth(), 1);
+        assertEquals(new EntityAuditSpool(spoolDir).getFileCount(), 1);
+
+        EntityAuditBulkWriter restarted = new EntityAuditBulkWriter(items -> send(bodies, items), 1, 10, 50, 0, 0, 1, spoolDir, new SimpleMeterRegistry());
+
+        restarted.start();
+
+        waitFor(() -> bodies.size() == 1);
+
+        assertEquals(bodies.get(0), item("b") + item("c"));
+
+        restarted.stop(10000);
+    }
+
+    @Test
+    public void testResendsOnlyFailedItemsAndDeadLettersRejectedItems() throws Exception {
+        List<String>          bodies = Collections.synchronizedList(new ArrayList<>());
+        EntityAuditBulkWriter writer = new EntityAuditBulkWriter(items -> {
+            send(bodies, items);
+
+            if (bodies.size() > 1) {
+                return EntityAuditBulkWriter.BulkResult.SUCCESS;
+            }
+
+            // first request: b fails with a retryable error, c is rejected
+            return new EntityAuditBulkWriter.BulkResult(Collections.singletonList(item("b")), Collections.singletonList(item("c")), Arrays.asList("429", "400"));
+        }, 100, 10, 50, 3, 1, 1, spoolDir, new SimpleMeterRegistry());
+
+        writer.start();
+        writer.submit(Arrays.asList(item("a"), item("b"), item("c")));
+
+        waitFor(() -> bodies.size() == 2);
+
+        writer.stop(10000);
+
+        assertEquals(bodies, Arrays.asList(item("a") + item("b") + item("c"), item("b")));
+        assertEquals(spoolFiles(spoolDir).length, 0);
+        assertEquals(readSpoolFiles(new File(spoolDir, "dead-letter")), Collections.singletonList(item("c")));
+    }
+
+    @Test
+    public void testMovesSpoolFileToDeadLetterAfterMaxReplayAttempts() throws Exception {
+        EntityAuditSpool spool = new EntityAuditSpool(spoolDir);
+
+        spool.append(Arrays.asList(item("a"), item("poison")));
+        Thread.sleep(2); // file names are ordered by time
+        spool.append(Collections.singletonList(item("b")));
+
+        List<String>          bodies = Collections.synchronizedList(new ArrayList<>());
+        EntityAuditBulkWriter writer = new EntityAuditBulkWriter(items -> {
+            send(bodies, items);
+
+            return items.contains(item("poison")) ? new EntityAuditBulkWriter.BulkResult(Collections.singletonList(item("poison")), Collections.emptyList(), Collections.singletonList("503"))
+                                                  : EntityAuditBulkWriter.BulkResult.SUCCESS;
+        }, 100, 10, 10, 0, 1, 3, spoolDir, new SimpleMeterRegistry());
+
+        writer.start();
+
+        waitFor(() -> bodies.contains(item("b")));
+
+        writer.stop(10000);
+
+        // the first replay sends both items, later replays only the failed one
+        assertEquals(bodies, Arrays.asList(item("a") + item("poison"), item("poison"), item("poison"), item("b")));
+        assertEquals(spoolFiles(spoolDir).length, 0);
+        assertEquals(readSpoolFiles(new File(spoolDir, "dead-letter")), Collections.singletonList(item("poison")));
+    }
+
+    @Test
+    public void testBulkResultHasFailedItems() {
+        List<String> items    = Arrays.asList(item("a"), item("b"), item("c"));
+        String       response = "{\"errors\":true,\"items\":[" +
+                                "{\"index\":{\"_id\":\"a\",\"status\":201}}," +
+                                "{\"index\":{\"_id\":\"b\",\"status\":429,\"error\":{\"type\":\"es_rejected_execution_exception\"}}}," +
+                                "{\"index\":{\"_id\":\"c\",\"status\":400,\"error\":{\"type\":\"mapper_parsing_exception\"}}}]}";
+
+        EntityAuditBulkWriter.BulkResult result = ESBasedAuditRepository.toBulkResult(items, response);
+
+        assertEquals(result.getRetryable(), Collections.singletonList(item("b")));
+        assertEquals(result.getRejected(), Collections.singletonList(item("c")));
+        assertEquals(result.getErrors().size(), 2);
+        assertTrue(ESBasedAuditRepository.toBulkResult(items, "{\"errors\":false,\"items\":[]}").isSuccess());
+    }
+
+    @Test
+    public void testBulkItemIsValidJson() throws Exception {
+        AtlasEntity entity = new AtlasEntity("Table");
+
+        entity.setUpdateTime(new Date(2000L));
+
+        String             prefix = EntityAuditListenerV2.getV2AuditPrefix(EntityAuditActionV2.ENTITY_UPDATE);
+        EntityAuditEventV2 event  = new EntityAuditEventV2("guid-1", 1000L, "user \"quoted\"", EntityAuditActionV2.ENTITY_UPDATE,
+                                                           prefix + "{\"typeName\":\"Table\"}", entity);
+
+        event.setEntityQualifiedName(AtlasJson.toJson("db.table@cluster"));
+
+        String   item  = ESBasedAuditRepository.toBulkItem(event, Collections.singletonMap("x-atlan-agent", "sdk"));
+        String[] lines = item.split("\n");
+
+        assertEquals(lines.length, 2);
+
+        JsonNode action = AtlasJson.getMapper().readTree(lines[0]);
+        JsonNode doc    = AtlasJson.getMapper().readTree(lines[1]);
+
+        assertEquals(action.get("index").get("_index").asText(), "entity_audits");
+        assertTrue(action.get("index").get("_id").asText().startsWith("guid-1:2000:"));
+        assertEquals(ESBasedAuditRepository.toBulkItem(event, Collections.singletonMap("x-atlan-agent", "sdk")), item);
+
+        assertEquals(doc.get("entityId").asText(), "guid-1");
+        assertEquals(doc.get("action").asText(), "ENTITY_UPDATE");
+        assertEquals(doc.get("user").asText(), "user \"quoted\"");
+        assertEquals(doc.get("detail").get("typeName").asText(), "Table");
+        assertEquals(doc.get("entityQualifiedName").asText(), "db.table@cluster");
+        assertEquals(doc.get("eventKey").asText(), "guid-1:2000");
+        assertEquals(doc.get("created").asLong(), 1000L);
+        assertEquals(doc.get("timestamp").asLong(), 2000L);
+        assertEquals(doc.get("headers").get("x-atlan-agent").asText(), "sdk");
+    }
+
+    private static String item(String id) {
+        return "{\"index\":{\"_id\":\"" + id + "\"}}\n{}\n";
+    }
+
+    private static EntityAuditBulkWriter.BulkResult send(List<String> bodies, List<String> items) {
+        bodies.add(String.join("", items));
+
+        return EntityAuditBulkWriter.BulkResult.SUCCESS;
+    }
+
+    private static File[] spoolFiles(File dir) {
+        return dir.listFiles((d, name) -> name.endsWith(".ndjson"));
+    }
+
+    private static List<String> readSpoolFiles(File dir) throws IOException {
+        List<String> ret = new ArrayList<>();
+
+        for (File file : spoolFiles(dir)) {
+            ret.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+
+        return ret;
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertTrue(condition.getAsBoolean());
+    }
+}
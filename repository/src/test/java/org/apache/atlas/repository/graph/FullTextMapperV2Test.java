@@ -0,0 +1,78 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import org.apache.atlas.model.instance.AtlasClassification;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.typedef.AtlasClassificationDef;
+import org.apache.atlas.model.typedef.AtlasStructDef.AtlasAttributeDef;
+import org.apache.atlas.model.typedef.AtlasTypesDef;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+
+public class FullTextMapperV2Test {
+    @Test
+    public void testEntityClassificationTextIsConcatenationOfClassificationTexts() throws Exception {
+        FullTextMapperV2    mapper = new FullTextMapperV2(mock(AtlasGraph.class), getTypeRegistry(), null);
+        AtlasClassification pii    = new AtlasClassification("PII");
+        AtlasClassification tier   = new AtlasClassification("Tier");
+        Map<String, Object> attrs  = new HashMap<>();
+
+        attrs.put("level", "gold");
+        attrs.put("owners", Arrays.asList("alice", "bob"));
+
+        tier.setAttributes(attrs);
+
+        AtlasEntity entity = new AtlasEntity("Table");
+
+        entity.setClassifications(Arrays.asList(pii, tier));
+
+        assertEquals(mapper.getClassificationText(pii), "PII ");
+        assertEquals(mapper.getClassificationTextForEntity(entity), mapper.getClassificationText(pii) + mapper.getClassificationText(tier));
+    }
+
+    private static AtlasTypeRegistry getTypeRegistry() throws Exception {
+        AtlasTypeRegistry      ret   = new AtlasTypeRegistry();
+        AtlasClassificationDef pii   = new AtlasClassificationDef("PII");
+        AtlasClassificationDef tier  = new AtlasClassificationDef("Tier");
+        AtlasTypesDef          types = new AtlasTypesDef();
+
+        tier.addAttribute(new AtlasAttributeDef("level", "string"));
+        tier.addAttribute(new AtlasAttributeDef("owners", "array<string>"));
+
+        types.setClassificationDefs(Arrays.asList(pii, tier));
+        types.setEntityDefs(Collections.emptyList());
+
+        AtlasTypeRegistry.AtlasTransientTypeRegistry ttr = ret.lockTypeRegistryForUpdate();
+
+        ttr.addTypes(types);
+
+        ret.releaseTypeRegistryForUpdate(ttr, true);
+
+        return ret;
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.graph;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.cursors.LongCursor;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class GraphTraversalEngineTest {
+    // 1 - 2 - 3 - 4, 2 - 5, 5 - 1 (cycle), 6 is isolated
+    private static final Map<Long, long[]> ADJACENCY = new HashMap<>();
+
+    static {
+        ADJACENCY.put(1L, new long[] { 2, 5 });
+        ADJACENCY.put(2L, new long[] { 1, 3, 5 });
+        ADJACENCY.put(3L, new long[] { 2, 4 });
+        ADJACENCY.put(4L, new long[] { 3 });
+        ADJACENCY.put(5L, new long[] { 2, 1 });
+        ADJACENCY.put(6L, new long[] { });
+    }
+
+    private final GraphTraversalEngine engine = new GraphTraversalEngine(4, 2, -1, null);
+
+    @Test
+    public void testSequentialTraversal() {
+        AtomicInteger expandCalls = new AtomicInteger();
+        LongHashSet   reached     = engine.newTraversal("test", frontier -> expand(frontier, expandCalls)).parallel(false).run(1L);
+
+        assertReached(reached, 2, 3, 4, 5);
+        // levels: {1}, {2, 5}, {3}, {4} - each fits in one chunk of 2
+        assertEquals(expandCalls.get(), 4);
+    }
+
+    @Test
+    public void testParallelTraversal() {
+        LongHashSet reached = engine.newTraversal("test", frontier -> expand(frontier, new AtomicInteger())).run(1L);
+
+        assertReached(reached, 2, 3, 4, 5);
+    }
+
+    @Test
+    public void testIsolatedVertex() {
+        LongHashSet reached = engine.newTraversal("test", frontier -> expand(frontier, new AtomicInteger())).run(6L);
+
+        assertTrue(reached.isEmpty());
+    }
+
+    @Test(expectedExceptions = GraphTraversalEngine.TraversalAbortedException.class)
+    public void testVertexBudget() {
+        engine.newTraversal("test", frontier -> expand(frontier, new AtomicInteger())).maxVertices(3).run(1L);
+    }
+
+    @Test(expectedExceptions = GraphTraversalEngine.TraversalAbortedException.class)
+    public void testCancel() {
+        GraphTraversalEngine.Traversal[] traversal = new GraphTraversalEngine.Traversal[1];
+
+        traversal[0] = engine.newTraversal("test", frontier -> {
+            traversal[0].cancel();
+
+            return expand(frontier, new AtomicInteger());
+        });
+
+        traversal[0].run(1L);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testExpanderFailureIsPropagated() {
+        engine.newTraversal("test", frontier -> { throw new IllegalStateException("backend unavailable"); }).run(1L);
+    }
+
+    private static LongArrayList expand(LongArrayList frontier, AtomicInteger expandCalls) {
+        LongArrayList ret = new LongArrayList();
+
+        expandCalls.incrementAndGet();
+
+        for (LongCursor cursor : frontier) {
+            ret.add(ADJACENCY.get(cursor.value));
+        }
+
+        return ret;
+    }
+
+    private static void assertReached(LongHashSet reached, long... expected) {
+        assertEquals(reached.size(), expected.length);
+
+        for (long vertexId : expected) {
+            assertTrue(reached.contains(vertexId), "missing " + vertexId);
+        }
+
+        assertFalse(reached.contains(1L));
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.impexp;
+
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.store.graph.v2.EntityGraphRetriever;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+public class ExportEntityRetrieverTest {
+    @AfterMethod
+    public void clearRequestContext() {
+        RequestContext.clear();
+    }
+
+    @Test
+    public void workersReleaseTheirRequestContexts() throws Exception {
+        EntityGraphRetriever entityGraphRetriever = mock(EntityGraphRetriever.class);
+        List<String>         guids                = new ArrayList<>();
+        Set<String>          guidsProcessed       = new HashSet<>();
+
+        when(entityGraphRetriever.toAtlasEntityWithExtInfo(anyString())).thenAnswer(invocation -> {
+            RequestContext.get(); // as EntityGraphRetriever does, for the caches of the thread
+
+            AtlasEntity entity = new AtlasEntity("hive_table");
+
+            entity.setGuid((String) invocation.getArguments()[0]);
+
+            return new AtlasEntityWithExtInfo(entity);
+        });
+
+        for (int i = 0; i < 20; i++) {
+            guids.add("guid-" + i);
+        }
+
+        RequestContext.get();
+
+        int                   activeRequests = RequestContext.getActiveRequestsCount();
+        ExportEntityRetriever retriever      = new ExportEntityRetriever(entityGraphRetriever, mock(AtlasGraph.class), 4, 8);
+
+        try {
+            for (String guid : guids) {
+                retriever.prefetch(guids, guidsProcessed);
+
+                assertNotNull(retriever.get(guid).json);
+
+                guidsProcessed.add(guid);
+            }
+        } finally {
+            retriever.close();
+        }
+
+        // contexts left behind by workers would hold back the change marker of later exports
+        assertEquals(RequestContext.getActiveRequestsCount(), activeRequests);
+    }
+}
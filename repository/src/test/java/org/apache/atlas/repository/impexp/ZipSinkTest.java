@@ -30,6 +30,7 @@ import org.testng.annotations.Test;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -180,6 +181,68 @@ public class ZipSinkTest {
         zs.close();
     }
 
+    @Test
+    public void writerThreadWritesSameEntries() throws AtlasBaseException, IOException {
+        List<String> syncEntries  = writeEntities(new ByteArrayOutputStream(), 0);
+        List<String> asyncEntries = writeEntities(new ByteArrayOutputStream(), 2);
+
+        assertEquals(syncEntries.size(), 2 * 11);
+        assertEquals(asyncEntries, syncEntries);
+    }
+
+    @Test(expectedExceptions = AtlasBaseException.class)
+    public void writerThreadErrorFailsClose() throws AtlasBaseException {
+        OutputStream failingStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+
+        ZipSink     zs     = new ZipSink(failingStream, 2);
+        AtlasEntity entity = new AtlasEntity("hive_table");
+
+        entity.setGuid(String.format(knownEntityGuidFormat, 0));
+
+        zs.add(new AtlasEntity.AtlasEntityWithExtInfo(entity));
+        zs.close();
+    }
+
+    // entry names and contents, in the order written
+    private List<String> writeEntities(ByteArrayOutputStream byteOutputStream, int queueSize) throws AtlasBaseException, IOException {
+        ZipSink      zs    = new ZipSink(byteOutputStream, queueSize);
+        List<String> guids = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            AtlasEntity entity = new AtlasEntity("hive_table");
+            entity.setGuid(String.format(knownEntityGuidFormat, i));
+            entity.setAttribute("name", "table-\u00e9-" + i);
+
+            AtlasEntity.AtlasEntityWithExtInfo entityWithExtInfo = new AtlasEntity.AtlasEntityWithExtInfo(entity);
+
+            if (i % 2 == 0) {
+                zs.add(entityWithExtInfo, ZipSink.toJsonBytes(entityWithExtInfo));
+            } else {
+                zs.add(entityWithExtInfo);
+            }
+
+            guids.add(entity.getGuid());
+        }
+
+        zs.setExportOrder(guids);
+        zs.close();
+
+        List<String>   ret       = new ArrayList<>();
+        ZipInputStream zipStream = new ZipInputStream(new ByteArrayInputStream(byteOutputStream.toByteArray()));
+
+        for (ZipEntry entry = zipStream.getNextEntry(); entry != null; entry = zipStream.getNextEntry()) {
+            ret.add(entry.getName());
+            ret.add(getZipEntryAsStream(zipStream));
+        }
+
+        return ret;
+    }
+
     private void addReferredEntities(AtlasEntity.AtlasEntityWithExtInfo entityWithExtInfo, int maxEntries) {
 
         for (int i = 1; i <= maxEntries; i++) {
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.impexp;
+
+import org.apache.atlas.exception.AtlasBaseException;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class ZipSourceStreamingTest {
+    private static final int ENTITY_COUNT = 50;
+
+    @Test
+    public void readsEntitiesInCreationOrder() throws IOException, AtlasBaseException {
+        List<String> guids = getGuids();
+
+        ZipSourceStreaming source = createSource(guids, 4);
+
+        try {
+            assertEquals(source.size(), ENTITY_COUNT);
+            assertEquals(source.getCreationOrder(), guids);
+
+            for (String guid : guids) {
+                assertTrue(source.hasNext());
+
+                AtlasEntityWithExtInfo entityWithExtInfo = source.getNextEntityWithExtInfo();
+
+                assertNotNull(entityWithExtInfo);
+                assertEquals(entityWithExtInfo.getEntity().getGuid(), guid);
+
+                source.onImportComplete(guid);
+            }
+
+            assertFalse(source.hasNext());
+            assertNull(source.getNextEntityWithExtInfo());
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    public void getByGuidReadsEntitiesOutsideWindow() throws IOException, AtlasBaseException {
+        List<String> guids = getGuids();
+
+        ZipSourceStreaming source = createSource(guids, 2);
+
+        try {
+            AtlasEntity last = source.getByGuid(guids.get(ENTITY_COUNT - 1));
+
+            assertNotNull(last);
+            assertEquals(last.getAttribute("name"), "entity-" + (ENTITY_COUNT - 1));
+            assertEquals(source.getNextEntityWithExtInfo().getEntity().getGuid(), guids.get(0));
+            assertNull(source.getByGuid("unknown-guid"));
+
+            source.onImportComplete(guids.get(0));
+
+            assertNull(source.getByGuid(guids.get(0)));
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    public void windowReturnsCopies() throws IOException, AtlasBaseException {
+        List<String> guids = getGuids();
+
+        ZipSourceStreaming source = createSource(guids, 4);
+
+        try {
+            AtlasEntity first = source.getByGuid(guids.get(0));
+
+            first.setAttribute("name", "modified");
+
+            AtlasEntity fromWindow = source.getByGuid(guids.get(0));
+            AtlasEntity next       = source.getNextEntityWithExtInfo().getEntity();
+
+            assertNotSame(fromWindow, first);
+            assertNotSame(next, fromWindow);
+            assertEquals(fromWindow.getAttribute("name"), "entity-0");
+            assertEquals(next.getAttribute("name"), "entity-0");
+        } finally {
+            source.close();
+        }
+    }
+
+    @Test
+    public void setPositionSkipsImportedEntities() throws IOException, AtlasBaseException {
+        List<String> guids = getGuids();
+
+        ZipSourceStreaming source = createSource(guids, 3);
+
+        try {
+            assertEquals(source.getNextEntityWithExtInfo().getEntity().getGuid(), guids.get(0));
+
+            source.setPosition(9);
+
+            assertEquals(source.getPosition(), 10);
+            assertEquals(source.getNextEntityWithExtInfo().getEntity().getGuid(), guids.get(10));
+            assertNull(source.getByGuid(guids.get(5)));
+
+            source.setPositionUsingEntityGuid(guids.get(30));
+
+            assertEquals(source.getNextEntityWithExtInfo().getEntity().getGuid(), guids.get(30));
+            assertEquals(source.getNextEntityWithExtInfo().getEntity().getGuid(), guids.get(31));
+        } finally {
+            source.close();
+        }
+    }
+
+    private static ZipSourceStreaming createSource(List<String> guids, int windowSize) throws IOException, AtlasBaseException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipSink               sink  = new ZipSink(bytes);
+
+        for (int i = 0; i < guids.size(); i++) {
+            AtlasEntity entity = new AtlasEntity("hive_table");
+
+            entity.setGuid(guids.get(i));
+            entity.setAttribute("name", "entity-" + i);
+
+            sink.add(new AtlasEntityWithExtInfo(entity));
+        }
+
+        sink.setExportOrder(guids);
+        sink.close();
+
+        return new ZipSourceStreaming(new ByteArrayInputStream(bytes.toByteArray()), null, windowSize);
+    }
+
+    private static List<String> getGuids() {
+        List<String> ret = new ArrayList<>();
+
+        for (int i = 0; i < ENTITY_COUNT; i++) {
+            ret.add(String.format("111-222-333-%03d", i));
+        }
+
+        return ret;
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.patches;
+
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasGraphScanner;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class GraphScanProcessorTest {
+    private static final int RANGE_COUNT        = 8;
+    private static final int VERTICES_PER_RANGE = 5;
+
+    @Test
+    public void checkpointRoundTrip() {
+        Set<Integer> completed = new TreeSet<>(Arrays.asList(0, 3, 7));
+
+        assertEquals(GraphScanProcessor.toCheckpoint(8, completed), "8:0,3,7");
+        assertEquals(GraphScanProcessor.fromCheckpoint("8:0,3,7", 8), completed);
+        assertEquals(GraphScanProcessor.fromCheckpoint("8:", 8), Collections.emptySet());
+        assertEquals(GraphScanProcessor.fromCheckpoint(null, 8), Collections.emptySet());
+        assertNull(GraphScanProcessor.fromCheckpoint("16:0,3", 8));
+        assertNull(GraphScanProcessor.fromCheckpoint("8:9", 8));
+        assertNull(GraphScanProcessor.fromCheckpoint("garbage", 8));
+    }
+
+    @Test
+    public void scansAllRangesAndClearsCheckpoint() {
+        MemoryCheckpoint   checkpoint = new MemoryCheckpoint(null);
+        Set<String>        processed  = Collections.synchronizedSet(new HashSet<>());
+        GraphScanProcessor processor  = new GraphScanProcessor(createGraph(-1), "test", checkpoint, RANGE_COUNT, 3, 2, 0);
+
+        GraphScanProcessor.ScanResult result = processor.scan(vertices -> vertices.forEach(v -> processed.add(v.getIdForDisplay())));
+
+        assertTrue(result.isComplete());
+        assertEquals(result.getVertexCount(), RANGE_COUNT * VERTICES_PER_RANGE);
+        assertEquals(processed.size(), RANGE_COUNT * VERTICES_PER_RANGE);
+        assertNull(checkpoint.value);
+        assertTrue(checkpoint.saveCount > 0);
+    }
+
+    @Test
+    public void failedRangeIsResumedFromCheckpoint() {
+        MemoryCheckpoint checkpoint = new MemoryCheckpoint(null);
+        Set<String>      processed  = Collections.synchronizedSet(new HashSet<>());
+
+        GraphScanProcessor.ScanResult result = new GraphScanProcessor(createGraph(5), "test", checkpoint, RANGE_COUNT, 2, 2, 0).scan(vertices -> {});
+
+        assertFalse(result.isComplete());
+        assertEquals(result.getFailedRanges(), Collections.singletonList(5));
+        assertEquals(GraphScanProcessor.fromCheckpoint(checkpoint.value, RANGE_COUNT), new TreeSet<>(Arrays.asList(0, 1, 2, 3, 4, 6, 7)));
+
+        result = new GraphScanProcessor(createGraph(-1), "test", checkpoint, RANGE_COUNT, 2, 2, 0).scan(vertices -> vertices.forEach(v -> processed.add(v.getIdForDisplay())));
+
+        assertTrue(result.isComplete());
+        assertEquals(result.getVertexCount(), VERTICES_PER_RANGE);
+        assertTrue(processed.stream().allMatch(id -> id.startsWith("5-")));
+        assertNull(checkpoint.value);
+    }
+
+    // each range has VERTICES_PER_RANGE vertices with id <range>-<n>; scan of failedRange throws
+    private static AtlasGraph createGraph(int failedRange) {
+        AtlasGraph               graph    = mock(AtlasGraph.class);
+        Map<String, AtlasVertex> vertices = new HashMap<>();
+
+        // vertex mocks are created here, as stubbing isn't safe from the scan worker threads
+        for (int range = 0; range < RANGE_COUNT; range++) {
+            for (int i = 0; i < VERTICES_PER_RANGE; i++) {
+                AtlasVertex vertex = mock(AtlasVertex.class);
+                String      id     = range + "-" + i;
+
+                when(vertex.getIdForDisplay()).thenReturn(id);
+
+                vertices.put(id, vertex);
+            }
+        }
+
+        when(graph.getScanner(anyInt())).thenReturn(new AtlasGraphScanner() {
+            @Override
+            public int getRangeCount() {
+                return RANGE_COUNT;
+            }
+
+            @Override
+            public String getRangeDescription(int range) {
+                return "range-" + range;
+            }
+
+            @Override
+            public void scanVertexIds(int range, Consumer<String> consumer) {
+                if (range == failedRange) {
+                    throw new IllegalStateException("scan failed");
+                }
+
+                for (int i = 0; i < VERTICES_PER_RANGE; i++) {
+                    consumer.accept(range + "-" + i);
+                }
+            }
+        });
+
+        when(graph.getVertices(anyCollection())).thenAnswer(invocation -> {
+            Map<String, AtlasVertex> ret = new HashMap<>();
+
+            for (Object id : (Collection<?>) invocation.getArguments()[0]) {
+                ret.put((String) id, vertices.get(id));
+            }
+
+            return ret;
+        });
+
+        return graph;
+    }
+
+    private static class MemoryCheckpoint implements GraphScanCheckpoint {
+        private String value;
+        private int    saveCount;
+
+        MemoryCheckpoint(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String load() {
+            return value;
+        }
+
+        @Override
+        public synchronized void save(String checkpoint) {
+            value = checkpoint;
+
+            saveCount++;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.aliasstore;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.atlas.repository.util.AtlasEntityUtils.mapOf;
+import static org.testng.Assert.assertEquals;
+
+public class ESAliasFilterCompilerTest {
+    private static final String QN        = "qualifiedName";
+    private static final String HIERARCHY = "__qualifiedNameHierarchy";
+
+    @Test
+    public void testTrailingWildcardsBecomePrefixes() {
+        ESAliasFilterCompiler compiler = new ESAliasFilterCompiler(QN, null);
+
+        compiler.addWildcard(QN, "default/snowflake/123/db/*")
+                .addWildcard(QN, "default/snowflake/123/db*")
+                .addWildcard(QN, "default/snow*/db/*")
+                .addWildcard(QN, "default/redshift/45?/*");
+
+        assertEquals(compiler.compile(), Arrays.asList(prefix("default/snowflake/123/db"),
+                                                       wildcard("default/redshift/45?/*"),
+                                                       wildcard("default/snow*/db/*")));
+    }
+
+    @Test
+    public void testSubsumedByPrefix() {
+        ESAliasFilterCompiler compiler = new ESAliasFilterCompiler(QN, null);
+
+        compiler.addWildcard(QN, "default/snowflake/123/*")
+                .addWildcard(QN, "default/snowflake/123/db/schema/*")
+                .addWildcard(QN, "default/snowflake/123/db/t?ble")
+                .addWildcard(QN, "default/snowflake/1234*")
+                .addTerm(QN, "default/snowflake/123/db")
+                .addTerm(QN, "default/snowflake/123")
+                .addTerm(QN, "default/bigquery/9");
+
+        assertEquals(compiler.compile(), Arrays.asList(terms(QN, "default/bigquery/9", "default/snowflake/123"),
+                                                       prefix("default/snowflake/123/"),
+                                                       prefix("default/snowflake/1234")));
+
+        Map<String, Integer> complexity = compiler.getComplexity();
+
+        assertEquals(complexity.get("input").intValue(), 7);
+        assertEquals(complexity.get("output").intValue(), 4);
+        assertEquals(complexity.get("wildcard").intValue(), 0);
+    }
+
+    @Test
+    public void testTermsMergedPerField() {
+        ESAliasFilterCompiler compiler = new ESAliasFilterCompiler(QN, null);
+        Map<String, Object>   clause   = mapOf("bool", mapOf("must", new ArrayList<>()));
+
+        compiler.addTerm(QN, "b").addTerm(QN, "a").addTerm(QN, "b").addTerm(QN, null)
+                .addTerms("__glossary", Arrays.asList("g2", "g1"))
+                .addClause(clause);
+
+        assertEquals(compiler.compile(), Arrays.asList(terms("__glossary", "g1", "g2"), terms(QN, "a", "b"), clause));
+    }
+
+    @Test
+    public void testSubsumedByHierarchy() {
+        ESAliasFilterCompiler compiler = new ESAliasFilterCompiler(QN, HIERARCHY);
+
+        compiler.addTerm(HIERARCHY, "default/snowflake/123")
+                .addTerm(HIERARCHY, "default/domain/abc/super")
+                .addTerm(HIERARCHY, "default/x")
+                .addTerm(QN, "default/snowflake/123")
+                .addTerm(QN, "default/snowflake/123/db")
+                .addTerm(QN, "default/snowflake/1234")
+                .addTerm(QN, "default/domain/abc/super/domain/def/super")
+                .addTerm(QN, "default/x/y")
+                .addWildcard(QN, "default/snowflake/123/db*/*")
+                .addWildcard(QN, "default/snowflake/123/*")
+                .addWildcard(QN, "default/bigquery/*");
+
+        // default/x isn't in the hierarchy field of entities, so default/x/y is kept
+        assertEquals(compiler.compile(), Arrays.asList(terms(HIERARCHY, "default/domain/abc/super", "default/snowflake/123", "default/x"),
+                                                       terms(QN, "default/snowflake/1234", "default/x/y"),
+                                                       prefix("default/bigquery/")));
+    }
+
+    @Test
+    public void testSameFilterForAnyOrder() {
+        ESAliasFilterCompiler compiler1 = new ESAliasFilterCompiler(QN, HIERARCHY);
+        ESAliasFilterCompiler compiler2 = new ESAliasFilterCompiler(QN, HIERARCHY);
+
+        compiler1.addTerm(QN, "a/b/c").addWildcard(QN, "x/*").addWildcard(QN, "a?/*").addTerm(HIERARCHY, "d/e/f");
+        compiler2.addTerm(HIERARCHY, "d/e/f").addWildcard(QN, "a?/*").addWildcard(QN, "x/*").addTerm(QN, "a/b/c");
+
+        assertEquals(compiler1.compile(), compiler2.compile());
+    }
+
+    @Test
+    public void testAddKeepsAddedCompiler() {
+        ESAliasFilterCompiler policy1 = new ESAliasFilterCompiler(QN, null).addWildcard(QN, "a/b/*").addTerm(QN, "a/b/c");
+        ESAliasFilterCompiler policy2 = new ESAliasFilterCompiler(QN, null).addWildcard(QN, "a/*");
+
+        for (int i = 0; i < 2; i++) {
+            ESAliasFilterCompiler persona = new ESAliasFilterCompiler(QN, null).add(policy1).add(policy2);
+
+            assertEquals(persona.compile(), Arrays.asList(prefix("a/")));
+            assertEquals(persona.getComplexity().get("input").intValue(), 3);
+        }
+
+        assertEquals(policy1.compile(), Arrays.asList(prefix("a/b/")));
+    }
+
+    private static Map<String, Object> terms(String field, String... values) {
+        List<String> list = new ArrayList<>(Arrays.asList(values));
+
+        return mapOf("terms", mapOf(field, list));
+    }
+
+    private static Map<String, Object> prefix(String value) {
+        return mapOf("prefix", mapOf(QN, value));
+    }
+
+    private static Map<String, Object> wildcard(String value) {
+        return mapOf("wildcard", mapOf(QN, value));
+    }
+}
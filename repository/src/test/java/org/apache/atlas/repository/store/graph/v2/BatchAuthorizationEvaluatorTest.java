@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2;
+
+import org.apache.atlas.AtlasErrorCode;
+import org.apache.atlas.RequestContext;
+import org.apache.atlas.exception.AtlasBaseException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class BatchAuthorizationEvaluatorTest {
+    @AfterMethod
+    public void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Test
+    public void testEvaluatesDistinctKeysOnce() throws Exception {
+        BatchAuthorizationEvaluator evaluator = new BatchAuthorizationEvaluator(1, 2);
+        AtomicInteger               calls     = new AtomicInteger();
+
+        Map<String, BatchAuthorizationEvaluator.Result<Integer>> results = evaluator.evaluate(Arrays.asList("a", "b", "a", "a"), key -> {
+            calls.incrementAndGet();
+
+            return key.length();
+        });
+
+        assertEquals(calls.get(), 2);
+        assertEquals(results.size(), 2);
+        assertEquals(results.get("a").get(), Integer.valueOf(1));
+    }
+
+    @Test
+    public void testCapturesFailures() throws Exception {
+        BatchAuthorizationEvaluator evaluator = new BatchAuthorizationEvaluator(1, 2);
+
+        Map<String, BatchAuthorizationEvaluator.Result<Boolean>> results = evaluator.evaluate(Arrays.asList("allowed", "denied"), key -> {
+            if (key.equals("denied")) {
+                throw new AtlasBaseException(AtlasErrorCode.UNAUTHORIZED_ACCESS, "user", key);
+            }
+
+            return Boolean.TRUE;
+        });
+
+        assertNull(results.get("allowed").getError());
+        assertEquals(results.get("denied").getError().getAtlasErrorCode(), AtlasErrorCode.UNAUTHORIZED_ACCESS);
+    }
+
+    @Test
+    public void testParallelEvaluationSeesCallerContext() throws Exception {
+        BatchAuthorizationEvaluator evaluator = new BatchAuthorizationEvaluator(4, 2);
+        Set<String>                 threads   = ConcurrentHashMap.newKeySet();
+        List<Integer>               keys      = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            keys.add(i);
+        }
+
+        RequestContext.get().setUser("alice", Collections.singleton("admins"));
+        RequestContext.get().setClientIPAddress("10.0.0.1");
+
+        Map<Integer, BatchAuthorizationEvaluator.Result<String>> results = evaluator.evaluate(keys, key -> {
+            threads.add(Thread.currentThread().getName());
+
+            return RequestContext.get().getUser() + "@" + RequestContext.get().getClientIPAddress();
+        });
+
+        assertEquals(results.size(), 100);
+
+        for (BatchAuthorizationEvaluator.Result<String> result : results.values()) {
+            assertEquals(result.get(), "alice@10.0.0.1");
+        }
+
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("authz-batch-eval-")));
+        assertEquals(RequestContext.get().getUser(), "alice");
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.repository.store.graph.v2.tasks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.atlas.model.tasks.AtlasTask;
+import org.apache.atlas.tasks.TaskRegistry;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.apache.atlas.repository.store.graph.v2.tasks.ClassificationPropagateTaskFactory.CLASSIFICATION_ONLY_PROPAGATION_DELETE;
+import static org.apache.atlas.repository.store.graph.v2.tasks.ClassificationPropagateTaskFactory.CLASSIFICATION_PROPAGATION_ADD;
+import static org.apache.atlas.repository.store.graph.v2.tasks.ClassificationPropagateTaskFactory.CLASSIFICATION_PROPAGATION_DELETE;
+import static org.apache.atlas.repository.store.graph.v2.tasks.ClassificationPropagateTaskFactory.CLASSIFICATION_PROPAGATION_TEXT_UPDATE;
+import static org.apache.atlas.repository.store.graph.v2.tasks.ClassificationPropagateTaskFactory.CLASSIFICATION_REFRESH_PROPAGATION;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class ClassificationTaskCoalescerTest {
+    @Test
+    public void testNewerDeleteSupersedesEverything() {
+        AtlasTask delete = newTask(CLASSIFICATION_PROPAGATION_DELETE, 10, null);
+
+        assertTrue(ClassificationTaskCoalescer.supersedes(delete, newTask(CLASSIFICATION_PROPAGATION_ADD, 1, null)));
+        assertTrue(ClassificationTaskCoalescer.supersedes(delete, newTask(CLASSIFICATION_REFRESH_PROPAGATION, 1, null)));
+        assertTrue(ClassificationTaskCoalescer.supersedes(delete, newTask(CLASSIFICATION_PROPAGATION_TEXT_UPDATE, 1, null)));
+        assertTrue(ClassificationTaskCoalescer.supersedes(delete, newTask(CLASSIFICATION_PROPAGATION_DELETE, 1, null)));
+        assertFalse(ClassificationTaskCoalescer.supersedes(delete, newTask(CLASSIFICATION_ONLY_PROPAGATION_DELETE, 1, null)));
+    }
+
+    @Test
+    public void testNewerAddSupersedesOnlyIdenticalAdd() {
+        AtlasTask add = newTask(CLASSIFICATION_PROPAGATION_ADD, 10, false);
+
+        assertTrue(ClassificationTaskCoalescer.supersedes(add, newTask(CLASSIFICATION_PROPAGATION_ADD, 1, false)));
+        assertFalse(ClassificationTaskCoalescer.supersedes(add, newTask(CLASSIFICATION_PROPAGATION_ADD, 1, true)));
+        assertFalse(ClassificationTaskCoalescer.supersedes(add, newTask(CLASSIFICATION_PROPAGATION_DELETE, 1, null)));
+        assertFalse(ClassificationTaskCoalescer.supersedes(add, newTask(CLASSIFICATION_PROPAGATION_TEXT_UPDATE, 1, null)));
+    }
+
+    @Test
+    public void testOnlyNewerTasksSupersede() {
+        AtlasTask add    = newTask(CLASSIFICATION_PROPAGATION_ADD, 5, null);
+        AtlasTask older  = newTask(CLASSIFICATION_PROPAGATION_DELETE, 1, null);
+        AtlasTask newer  = newTask(CLASSIFICATION_REFRESH_PROPAGATION, 7, null);
+        AtlasTask newest = newTask(CLASSIFICATION_PROPAGATION_DELETE, 9, null);
+
+        assertNull(ClassificationTaskCoalescer.getSupersedingTask(add, Arrays.asList(older, add)));
+        assertEquals(ClassificationTaskCoalescer.getSupersedingTask(add, Arrays.asList(older, add, newer)), newer);
+        assertEquals(ClassificationTaskCoalescer.getSupersedingTask(add, Arrays.asList(older, add, newer, newest)), newest);
+    }
+
+    @Test
+    public void testLooksUpPendingTasksOfEntityAndClassification() {
+        TaskRegistry registry = mock(TaskRegistry.class);
+        AtlasTask    text     = newTask(CLASSIFICATION_PROPAGATION_TEXT_UPDATE, 1, null);
+        AtlasTask    newer    = newTask(CLASSIFICATION_PROPAGATION_TEXT_UPDATE, 2, null);
+
+        when(registry.getPendingTasks("entity-guid", "classification-id")).thenReturn(Arrays.asList(text, newer));
+
+        SimpleMeterRegistry         meterRegistry = new SimpleMeterRegistry();
+        ClassificationTaskCoalescer coalescer     = new ClassificationTaskCoalescer(registry, meterRegistry);
+
+        assertEquals(coalescer.getSupersedingTask(text), newer);
+        assertNull(coalescer.getSupersedingTask(newer));
+        assertEquals(meterRegistry.get("classification_tasks_coalesced").counter().count(), 1.0);
+    }
+
+    private static AtlasTask newTask(String type, long createdTime, Boolean previousRestrictPropagationThroughLineage) {
+        AtlasTask ret = new AtlasTask(type, "admin",
+                                      ClassificationTask.toParameters("entity-guid", "classification-id", null, previousRestrictPropagationThroughLineage, null),
+                                      "classification-id", "entity-guid");
+
+        ret.setCreatedTime(new Date(createdTime));
+
+        return ret;
+    }
+}
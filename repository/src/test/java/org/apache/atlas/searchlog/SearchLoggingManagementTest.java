@@ -0,0 +1,102 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.searchlog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.atlas.model.searchlog.SearchRequestLogData;
+import org.apache.atlas.searchlog.SearchLogQueue.OverflowPolicy;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class SearchLoggingManagementTest {
+    @Test
+    public void testDropOldestKeepsNewestLogs() {
+        SimpleMeterRegistry  meterRegistry = new SimpleMeterRegistry();
+        SearchLogQueue       queue         = new SearchLogQueue(2, OverflowPolicy.DROP_OLDEST, 100, meterRegistry);
+        SearchRequestLogData second        = new SearchRequestLogData();
+        SearchRequestLogData third         = new SearchRequestLogData();
+
+        assertTrue(queue.offer(new SearchRequestLogData()));
+        assertTrue(queue.offer(second));
+        assertTrue(queue.offer(third));
+
+        assertEquals(queue.size(), 2);
+        assertSame(queue.poll(), second);
+        assertSame(queue.poll(), third);
+        assertEquals(meterRegistry.get("search_log_dropped").tag("reason", "overflow").counter().count(), 1.0);
+        assertEquals(meterRegistry.get("search_log_queue_depth").gauge().value(), 0.0);
+    }
+
+    @Test
+    public void testSampleDropsNewLogsUnderPressure() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SearchLogQueue      queue         = new SearchLogQueue(4, OverflowPolicy.SAMPLE, 0, meterRegistry);
+
+        assertTrue(queue.offer(new SearchRequestLogData()));
+        assertTrue(queue.offer(new SearchRequestLogData()));
+        assertFalse(queue.offer(new SearchRequestLogData())); // half full: 0% sampled
+
+        assertEquals(queue.size(), 2);
+        assertEquals(meterRegistry.get("search_log_dropped").tag("reason", "sampled").counter().count(), 1.0);
+    }
+
+    @Test
+    public void testLogsAreWrittenInBatches() throws Exception {
+        RecordingSearchLogger   logger        = new RecordingSearchLogger();
+        SimpleMeterRegistry     meterRegistry = new SimpleMeterRegistry();
+        SearchLoggingManagement management    = new SearchLoggingManagement(Collections.singletonList(logger), 100, OverflowPolicy.DROP_OLDEST, 100,
+                                                                            3, 60000, meterRegistry);
+
+        for (int i = 0; i < 7; i++) {
+            management.log(new SearchRequestLogData());
+        }
+
+        // the 2 logs short of a full batch are written on stop
+        management.stop();
+
+        assertEquals(logger.getBatchSizes().subList(0, 2), List.of(3, 3));
+        assertEquals(logger.getBatchSizes().stream().mapToInt(Integer::intValue).sum(), 7);
+        assertEquals(meterRegistry.get("search_log_flushed").counter().count(), 7.0);
+    }
+
+    private static class RecordingSearchLogger implements SearchLogger {
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void log(SearchRequestLogData searchRequestData) {
+            batchSizes.add(1);
+        }
+
+        @Override
+        public void log(List<SearchRequestLogData> searchRequestsData) {
+            batchSizes.add(searchRequestsData.size());
+        }
+
+        List<Integer> getBatchSizes() {
+            return new ArrayList<>(batchSizes);
+        }
+    }
+}
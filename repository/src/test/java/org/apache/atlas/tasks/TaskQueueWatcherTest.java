@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.tasks;
+
+import org.apache.atlas.model.tasks.AtlasTask;
+import org.apache.atlas.service.redis.RedisService;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+
+public class TaskQueueWatcherTest {
+    @Test
+    public void testClaimsOldestTaskPerEntityWithFreeLease() throws Exception {
+        AtlasTask e1First  = newTask("e1");
+        AtlasTask e1Second = newTask("e1");
+        AtlasTask e2       = newTask("e2");
+        AtlasTask leased   = newTask("e3");
+        AtlasTask e3Later  = newTask("e3");
+
+        TaskRegistry   registry  = mockRegistry(e1First, e1Second, e2, leased, e3Later);
+        RedisService   redis     = mock(RedisService.class);
+        List<Runnable> submitted = new ArrayList<>();
+
+        when(redis.acquireLease(anyString(), anyString(), anyLong())).thenReturn(true);
+        when(redis.acquireLease(eq("atlas:task:lease:" + leased.getGuid()), anyString(), anyLong())).thenReturn(false);
+
+        TaskQueueWatcher watcher = new TaskQueueWatcher(capturingExecutor(submitted), registry, new HashMap<>(), new TaskManagement.Statistics(),
+                                                        null, redis, "/apache-atlas", false, 10);
+
+        assertEquals(watcher.scanAndClaim(), 2);
+        assertEquals(watcher.getRunningTasks(), new HashSet<>(Arrays.asList(e1First.getGuid(), e2.getGuid())));
+
+        // a running task is not claimed again, nor are newer tasks of its entity
+        assertEquals(watcher.scanAndClaim(), 0);
+
+        submitted.get(0).run();
+
+        verify(redis).releaseLease(eq("atlas:task:lease:" + e1First.getGuid()), anyString());
+
+        when(registry.getTasksForReQueuePage(any(), anyInt())).thenReturn(new TaskRegistry.TaskPage(Arrays.asList(e1Second, e2, leased, e3Later), null));
+
+        assertEquals(watcher.scanAndClaim(), 1);
+        assertEquals(watcher.getRunningTasks(), new HashSet<>(Arrays.asList(e1Second.getGuid(), e2.getGuid())));
+    }
+
+    @Test
+    public void testSkipsTaskCompletedByAnotherNode() throws Exception {
+        AtlasTask stale   = newTask("e1");
+        AtlasTask current = new AtlasTask();
+
+        current.setGuid(stale.getGuid());
+        current.setStatus(AtlasTask.Status.COMPLETE);
+
+        AtlasTask    next     = newTask("e1");
+        TaskRegistry registry = mockRegistry(stale, next);
+
+        when(registry.getById(stale.getGuid())).thenReturn(current);
+
+        TaskQueueWatcher watcher = new TaskQueueWatcher(capturingExecutor(new ArrayList<>()), registry, new HashMap<>(), new TaskManagement.Statistics(),
+                                                        null, null, "/apache-atlas", false, 1);
+
+        assertEquals(watcher.scanAndClaim(), 1);
+        assertEquals(watcher.getRunningTasks(), Collections.singleton(next.getGuid()));
+    }
+
+    private static AtlasTask newTask(String entityGuid) {
+        return new AtlasTask("TEST", "admin", Collections.emptyMap(), "classificationId", entityGuid);
+    }
+
+    private static TaskRegistry mockRegistry(AtlasTask... tasks) throws Exception {
+        TaskRegistry registry = mock(TaskRegistry.class);
+
+        when(registry.getTasksForReQueuePage(any(), anyInt())).thenReturn(new TaskRegistry.TaskPage(Arrays.asList(tasks), null));
+
+        for (AtlasTask task : tasks) {
+            when(registry.getById(task.getGuid())).thenReturn(task);
+        }
+
+        return registry;
+    }
+
+    private static ExecutorService capturingExecutor(List<Runnable> submitted) {
+        ExecutorService ret = mock(ExecutorService.class);
+
+        doAnswer(invocation -> {
+            submitted.add((Runnable) invocation.getArguments()[0]);
+
+            return null;
+        }).when(ret).submit(any(Runnable.class));
+
+        return ret;
+    }
+}
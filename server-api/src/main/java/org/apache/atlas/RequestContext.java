@@ -31,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 import static org.apache.atlas.model.instance.AtlasObjectId.KEY_GUID;
 
@@ -76,6 +77,7 @@ public class RequestContext {
 
     private final Map<String, Set<AtlasRelationship>> relationshipMutationMap = new HashMap<>();
     private final Set<String> edgeLabels = new HashSet<>();
+    private final Map<String, Object> requestScopedCaches = new HashMap<>();
 
     private String user;
     private Set<String> userGroups;
@@ -174,6 +176,7 @@ public class RequestContext {
         this.requestContextHeaders.clear();
         this.relationshipEndToVertexIdMap.clear();
         this.relationshipMutationMap.clear();
+        this.requestScopedCaches.clear();
         this.lexoRankCache = null;
         this.currentTask = null;
         this.skipAuthorizationCheck = false;
@@ -741,6 +744,15 @@ public class RequestContext {
         return this.requestUri;
     }
 
+    /**
+     * Returns the cache registered under the given name for this request, creating it on first use.
+     * Such caches are dropped, along with the other request caches, when the request context is cleared.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getRequestScopedCache(String name, Supplier<T> creator) {
+        return (T) requestScopedCaches.computeIfAbsent(name, k -> creator.get());
+    }
+
     public void setEnableCache(boolean cacheEnabled) {
         this.cacheEnabled = cacheEnabled;
     }
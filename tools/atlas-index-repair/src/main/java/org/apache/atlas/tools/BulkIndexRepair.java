@@ -0,0 +1,513 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.tools;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.repository.graphdb.AtlasGraph;
+import org.apache.atlas.repository.graphdb.AtlasGraphScanner;
+import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.store.graph.v2.AtlasGraphUtilsV2;
+import org.apache.atlas.type.AtlasType;
+import org.apache.commons.lang.ArrayUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.janusgraph.core.JanusGraphElement;
+import org.janusgraph.core.schema.JanusGraphIndex;
+import org.janusgraph.diskstorage.indexing.IndexEntry;
+import org.janusgraph.graphdb.database.IndexSerializer;
+import org.janusgraph.graphdb.database.StandardJanusGraph;
+import org.janusgraph.graphdb.database.management.ManagementSystem;
+import org.janusgraph.graphdb.types.MixedIndexType;
+import org.janusgraph.util.encoding.LongEncoding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.apache.atlas.repository.Constants.CLASSIFICATION_TEXT_KEY;
+import static org.apache.atlas.repository.Constants.ENTITY_TYPE_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.FULLTEXT_INDEX;
+import static org.apache.atlas.repository.Constants.GUID_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.LABELS_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.MODIFICATION_TIMESTAMP_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.PROPAGATED_TRAIT_NAMES_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.STATE_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.TRAIT_NAMES_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.VERTEX_INDEX;
+import static org.apache.atlas.repository.Constants.VERTEX_INDEX_NAME;
+
+/**
+ * Reindexes entities selected by guids, by types or by ranges of a graph scan, in batches processed by a pool of
+ * workers. For each batch:
+ * - documents of the entities are read from the vertex index with a single multi-get, and entities whose document
+ *   has the same guid, state, modification timestamp, classifications and labels as the graph are skipped as
+ *   consistent; see DIFF_FIELDS
+ * - documents of the remaining entities are rebuilt and written with a single restore per index store
+ *
+ * The fulltext index is rebuilt along with the vertex index, but is not diffed: its documents don't hold the
+ * attributes that change on updates. An instance repairs a single selection, as its workers stop once done.
+ */
+public class BulkIndexRepair {
+    private static final Logger LOG = LoggerFactory.getLogger(BulkIndexRepair.class);
+
+    private static final String[] INDEX_NAMES          = new String[] { VERTEX_INDEX, FULLTEXT_INDEX };
+    private static final String[] DIFF_FIELDS          = new String[] { GUID_PROPERTY_KEY, STATE_PROPERTY_KEY, MODIFICATION_TIMESTAMP_PROPERTY_KEY,
+                                                                        TRAIT_NAMES_PROPERTY_KEY, PROPAGATED_TRAIT_NAMES_PROPERTY_KEY,
+                                                                        CLASSIFICATION_TEXT_KEY, LABELS_PROPERTY_KEY };
+    private static final String[] MULTI_VALUED_FIELDS  = new String[] { TRAIT_NAMES_PROPERTY_KEY, PROPAGATED_TRAIT_NAMES_PROPERTY_KEY };
+    private static final int      MAX_TRIES_ON_FAILURE = 3;
+    private static final long     REPORT_INTERVAL_MS   = 10000;
+
+    private final StandardJanusGraph janusGraph;
+    private final AtlasGraph         graph;
+    private final RestClient         esClient;
+    private final int                batchSize;
+    private final boolean            isDiffEnabled;
+    private final ExecutorService    executor;
+    private final Semaphore          pendingBatches;
+    private final Stats              stats = new Stats();
+
+    /**
+     * @param esClient client for the index backend; null to reindex entities without diffing
+     */
+    public BulkIndexRepair(StandardJanusGraph janusGraph, AtlasGraph graph, RestClient esClient, int numWorkers, int batchSize) {
+        this.janusGraph     = janusGraph;
+        this.graph          = graph;
+        this.esClient       = esClient;
+        this.batchSize      = Math.max(batchSize, 1);
+        this.isDiffEnabled  = esClient != null;
+        this.executor       = Executors.newFixedThreadPool(Math.max(numWorkers, 1), new ThreadFactoryBuilder().setNameFormat("index-repair-%d").setDaemon(true).build());
+        this.pendingBatches = new Semaphore(Math.max(numWorkers, 1) * 2); // bounds guids held in memory
+    }
+
+    public Stats repairGuids(Iterator<String> guids) throws InterruptedException {
+        List<String> batch = new ArrayList<>(batchSize);
+
+        while (guids.hasNext()) {
+            batch.add(guids.next());
+
+            if (batch.size() >= batchSize) {
+                submitGuids(batch);
+
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        submitGuids(batch);
+
+        return awaitCompletion();
+    }
+
+    public Stats repairTypes(Collection<String> typeNames) throws InterruptedException {
+        for (String typeName : typeNames) {
+            List<String> batch = new ArrayList<>(batchSize);
+
+            try {
+                for (Object vertexId : graph.query().has(ENTITY_TYPE_PROPERTY_KEY, typeName).vertexIds()) {
+                    batch.add(String.valueOf(vertexId));
+
+                    if (batch.size() >= batchSize) {
+                        submitVertexIds(batch);
+
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+            } finally {
+                graph.rollback();
+            }
+
+            submitVertexIds(batch);
+
+            LOG.info("submitted entities of type {}: {}", typeName, stats);
+        }
+
+        return awaitCompletion();
+    }
+
+    /**
+     * @param rangeCount number of ranges to split the graph into; see AtlasGraph.getScanner()
+     * @param fromRange first range to repair
+     * @param toRange last range to repair
+     */
+    public Stats repairRanges(int rangeCount, int fromRange, int toRange) throws InterruptedException {
+        AtlasGraphScanner scanner = graph.getScanner(rangeCount);
+
+        for (int range = Math.max(fromRange, 0); range <= toRange && range < scanner.getRangeCount(); range++) {
+            List<String> vertexIds = new ArrayList<>();
+
+            scanner.scanVertexIds(range, vertexIds::add);
+
+            for (int i = 0; i < vertexIds.size(); i += batchSize) {
+                submitVertexIds(new ArrayList<>(vertexIds.subList(i, Math.min(i + batchSize, vertexIds.size()))));
+            }
+
+            LOG.info("submitted range {} ({}): {} vertices; {}", range, scanner.getRangeDescription(range), vertexIds.size(), stats);
+        }
+
+        return awaitCompletion();
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    private void submitGuids(List<String> guids) throws InterruptedException {
+        if (guids.isEmpty()) {
+            return;
+        }
+
+        submit(guids.size(), () -> {
+            List<AtlasVertex> ret = new ArrayList<>();
+
+            for (Object vertex : graph.query().in(GUID_PROPERTY_KEY, guids).vertices()) {
+                ret.add((AtlasVertex) vertex);
+            }
+
+            return ret;
+        });
+    }
+
+    private void submitVertexIds(List<String> vertexIds) throws InterruptedException {
+        if (vertexIds.isEmpty()) {
+            return;
+        }
+
+        submit(-1, () -> {
+            List<AtlasVertex> ret = new ArrayList<>();
+
+            for (Object vertex : graph.getVertices(vertexIds).values()) {
+                if (isEntityVertex((AtlasVertex) vertex)) {
+                    ret.add((AtlasVertex) vertex);
+                }
+            }
+
+            return ret;
+        });
+    }
+
+    /**
+     * @param guidCount number of guids the batch was selected by; -1 if selected by vertex ids
+     */
+    private void submit(int guidCount, Supplier<List<AtlasVertex>> vertices) throws InterruptedException {
+        if (stats.isReportDue()) {
+            LOG.info("progress: {}", stats);
+        }
+
+        pendingBatches.acquire();
+
+        try {
+            executor.submit(() -> {
+                try {
+                    processBatch(guidCount, vertices);
+                } finally {
+                    pendingBatches.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            pendingBatches.release();
+
+            throw e;
+        }
+    }
+
+    private Stats awaitCompletion() throws InterruptedException {
+        executor.shutdown();
+
+        while (!executor.awaitTermination(REPORT_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            LOG.info("progress: {}", stats);
+        }
+
+        LOG.info("completed: {}", stats);
+
+        return stats;
+    }
+
+    private void processBatch(int guidCount, Supplier<List<AtlasVertex>> vertexSupplier) {
+        for (int attemptCount = 1; attemptCount <= MAX_TRIES_ON_FAILURE; attemptCount++) {
+            try {
+                List<AtlasVertex> vertices   = vertexSupplier.get();
+                long[]            diffCounts = new long[3];
+                List<AtlasVertex> toRepair   = isDiffEnabled ? getInconsistent(vertices, diffCounts) : vertices;
+
+                reindex(toRepair);
+
+                // stats are updated once the batch succeeds, so that retries aren't counted again
+                stats.selected.addAndGet(guidCount >= 0 ? guidCount : vertices.size());
+                stats.notInGraph.addAndGet(guidCount >= 0 ? guidCount - vertices.size() : 0);
+                stats.consistent.addAndGet(diffCounts[0]);
+                stats.missingInIndex.addAndGet(diffCounts[1]);
+                stats.staleInIndex.addAndGet(diffCounts[2]);
+                stats.repaired.addAndGet(toRepair.size());
+
+                return;
+            } catch (Exception e) {
+                if (attemptCount == MAX_TRIES_ON_FAILURE) {
+                    LOG.error("failed to repair batch after {} attempts", attemptCount, e);
+
+                    stats.failedBatches.incrementAndGet();
+                } else {
+                    LOG.warn("failed to repair batch; attempt {} of {}", attemptCount, MAX_TRIES_ON_FAILURE, e);
+
+                    try {
+                        Thread.sleep(1000L * attemptCount);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+
+                        return;
+                    }
+                }
+            } finally {
+                graph.rollback();
+            }
+        }
+    }
+
+    // vertices whose document in the vertex index is missing or differs from the graph; diffCounts: consistent, missing, stale
+    private List<AtlasVertex> getInconsistent(List<AtlasVertex> vertices, long[] diffCounts) throws Exception {
+        List<AtlasVertex>                ret  = new ArrayList<>();
+        Map<String, Map<String, Object>> docs = getIndexDocuments(vertices);
+
+        for (AtlasVertex vertex : vertices) {
+            Map<String, Object> doc = docs.get(toDocumentId(vertex));
+
+            if (doc == null) {
+                diffCounts[1]++;
+
+                ret.add(vertex);
+            } else if (!isConsistent(doc, getDiffValues(vertex))) {
+                diffCounts[2]++;
+
+                ret.add(vertex);
+            } else {
+                diffCounts[0]++;
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * @param doc source of the vertex index document, with DIFF_FIELDS
+     * @param graphValues values of DIFF_FIELDS in the graph; see getDiffValues()
+     * @return true if the document has the values in the graph, in any order for multi-valued fields
+     */
+    @VisibleForTesting
+    static boolean isConsistent(Map<String, Object> doc, Map<String, Object> graphValues) {
+        for (String field : DIFF_FIELDS) {
+            if (!Objects.equals(normalize(doc.get(field)), normalize(graphValues.get(field)))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static Map<String, Object> getDiffValues(AtlasVertex vertex) {
+        Map<String, Object> ret = new HashMap<>();
+
+        for (String field : DIFF_FIELDS) {
+            if (ArrayUtils.contains(MULTI_VALUED_FIELDS, field)) {
+                ret.put(field, vertex.getPropertyValues(field, String.class));
+            } else {
+                ret.put(field, vertex.getProperty(field, Object.class));
+            }
+        }
+
+        return ret;
+    }
+
+    // documents hold single values of multi-valued fields as is, and don't hold empty values
+    private static Object normalize(Object value) {
+        if (value instanceof Collection) {
+            Set<String> ret = new TreeSet<>();
+
+            for (Object element : (Collection<?>) value) {
+                if (element != null) {
+                    ret.add(element.toString());
+                }
+            }
+
+            return ret.isEmpty() ? null : ret.size() == 1 ? ret.iterator().next() : ret;
+        }
+
+        String ret = toString(value);
+
+        return StringUtils.isEmpty(ret) ? null : ret;
+    }
+
+    /**
+     * @return guids in the given input, one or more per line separated by commas or whitespace
+     */
+    static Iterator<String> readGuids(BufferedReader reader) {
+        return reader.lines().flatMap(line -> Arrays.stream(line.split("[,\\s]+"))).filter(guid -> !guid.isEmpty()).iterator();
+    }
+
+    /**
+     * @param ranges ranges of the graph scan as from-to, or a single range
+     * @return first and last range
+     */
+    static int[] parseRanges(String ranges) {
+        String[] fromTo = ranges.split("-", 2);
+        int      from   = Integer.parseInt(fromTo[0].trim());
+        int      to     = fromTo.length > 1 ? Integer.parseInt(fromTo[1].trim()) : from;
+
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("invalid ranges: " + ranges);
+        }
+
+        return new int[] { from, to };
+    }
+
+    // source of documents found, by document id
+    private Map<String, Map<String, Object>> getIndexDocuments(List<AtlasVertex> vertices) throws Exception {
+        Map<String, Map<String, Object>> ret = new HashMap<>();
+
+        if (vertices.isEmpty()) {
+            return ret;
+        }
+
+        List<String> ids = new ArrayList<>(vertices.size());
+
+        for (AtlasVertex vertex : vertices) {
+            ids.add(toDocumentId(vertex));
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+
+        body.put("ids", ids);
+
+        Request request = new Request("GET", VERTEX_INDEX_NAME + "/_mget");
+
+        request.addParameter("_source_includes", String.join(",", DIFF_FIELDS));
+        request.setEntity(new NStringEntity(AtlasType.toJson(body), ContentType.APPLICATION_JSON));
+
+        Response            response = esClient.performRequest(request);
+        Map<String, Object> result   = AtlasType.fromJson(EntityUtils.toString(response.getEntity()), Map.class);
+        List<Object>        docs     = result != null ? (List<Object>) result.get("docs") : null;
+
+        if (docs != null) {
+            for (Object doc : docs) {
+                Map<String, Object> docMap = (Map<String, Object>) doc;
+
+                if (Boolean.TRUE.equals(docMap.get("found"))) {
+                    Map<String, Object> source = (Map<String, Object>) docMap.get("_source");
+
+                    ret.put((String) docMap.get("_id"), source != null ? source : new HashMap<>());
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    // rebuilds documents of the vertices, with a single restore per index store
+    private void reindex(List<AtlasVertex> vertices) throws Exception {
+        if (vertices.isEmpty()) {
+            return;
+        }
+
+        IndexSerializer indexSerializer = janusGraph.getIndexSerializer();
+
+        for (String indexName : INDEX_NAMES) {
+            ManagementSystem mgmt = (ManagementSystem) janusGraph.openManagement();
+
+            try {
+                JanusGraphIndex                            index             = mgmt.getGraphIndex(indexName);
+                MixedIndexType                             indexType         = (MixedIndexType) mgmt.getSchemaVertex(index).asIndexType();
+                Map<String, Map<String, List<IndexEntry>>> documentsPerStore = new HashMap<>();
+
+                for (AtlasVertex vertex : vertices) {
+                    indexSerializer.reindexElement((JanusGraphElement) vertex.getWrappedElement(), indexType, documentsPerStore);
+                }
+
+                mgmt.getWrappedTx().getTxHandle().getIndexTransaction(indexType.getBackingIndexName()).restore(documentsPerStore);
+            } finally {
+                mgmt.rollback();
+            }
+        }
+    }
+
+    private static boolean isEntityVertex(AtlasVertex vertex) {
+        return vertex != null && !AtlasGraphUtilsV2.isTypeVertex(vertex) && vertex.getProperty(GUID_PROPERTY_KEY, String.class) != null &&
+               vertex.getProperty(ENTITY_TYPE_PROPERTY_KEY, String.class) != null;
+    }
+
+    private static String toDocumentId(AtlasVertex vertex) {
+        return LongEncoding.encode(Long.parseLong(vertex.getIdForDisplay()));
+    }
+
+    private static String toString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    public static class Stats {
+        private final long       startTime      = System.currentTimeMillis();
+        private final AtomicLong lastReportTime = new AtomicLong(startTime);
+        private final AtomicLong selected       = new AtomicLong();
+        private final AtomicLong notInGraph     = new AtomicLong();
+        private final AtomicLong consistent     = new AtomicLong();
+        private final AtomicLong missingInIndex = new AtomicLong();
+        private final AtomicLong staleInIndex   = new AtomicLong();
+        private final AtomicLong repaired       = new AtomicLong();
+        private final AtomicLong failedBatches  = new AtomicLong();
+
+        public long getFailedBatches() {
+            return failedBatches.get();
+        }
+
+        boolean isReportDue() {
+            long now  = System.currentTimeMillis();
+            long last = lastReportTime.get();
+
+            return now - last >= REPORT_INTERVAL_MS && lastReportTime.compareAndSet(last, now);
+        }
+
+        @Override
+        public String toString() {
+            long timeTakenMs = Math.max(System.currentTimeMillis() - startTime, 1);
+            long checked     = consistent.get() + missingInIndex.get() + staleInIndex.get();
+
+            return "selected=" + selected + ", notInGraph=" + notInGraph + ", consistent=" + consistent + ", missingInIndex=" + missingInIndex +
+                   ", staleInIndex=" + staleInIndex + ", repaired=" + repaired + ", failedBatches=" + failedBatches +
+                   ", timeTakenMs=" + timeTakenMs + ", checkedPerSecond=" + (checked * 1000 / timeTakenMs) + ", repairedPerSecond=" + (repaired.get() * 1000 / timeTakenMs);
+        }
+    }
+}
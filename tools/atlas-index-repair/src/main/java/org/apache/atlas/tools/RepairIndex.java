@@ -20,11 +20,16 @@ package org.apache.atlas.tools;
 
 import org.apache.atlas.ApplicationProperties;
 import org.apache.atlas.AtlasClientV2;
+import org.apache.atlas.AtlasConfiguration;
 import org.apache.atlas.AtlasException;
 import org.apache.atlas.model.instance.AtlasEntity;
 import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
 import org.apache.atlas.repository.graphdb.AtlasVertex;
+import org.apache.atlas.repository.graphdb.janus.AtlasElasticsearchDatabase;
 import org.apache.atlas.repository.graphdb.janus.AtlasJanusGraphDatabase;
+import org.apache.atlas.repository.patches.GraphScanCheckpoint;
+import org.apache.atlas.repository.patches.PatchContext;
+import org.apache.atlas.repository.patches.ReIndexPatch.ReindexPatchProcessor;
 import org.apache.atlas.repository.store.graph.v2.AtlasGraphUtilsV2;
 import org.apache.atlas.utils.AuthenticationUtil;
 import org.apache.commons.cli.CommandLine;
@@ -46,6 +51,14 @@ import org.janusgraph.graphdb.types.MixedIndexType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +81,9 @@ public class RepairIndex {
     private static JanusGraph graph;
     private static AtlasClientV2 atlasClientV2;
     private static boolean isSelectiveRestore;
+    private static boolean isScanRestore;
+    private static String checkpointFile;
+    private static CommandLine bulkRestoreCmd;
 
     public static void main(String[] args) {
         int exitCode = EXIT_CODE_FAILED;
@@ -82,6 +98,11 @@ public class RepairIndex {
                 String uid = cmd.getOptionValue("u");
                 String pwd = cmd.getOptionValue("p");
                 setupAtlasClient(uid, pwd);
+            } else if (cmd.hasOption("f") || cmd.hasOption("t") || cmd.hasOption("r")) {
+                bulkRestoreCmd = cmd;
+            } else if (cmd.hasOption("s")) {
+                isScanRestore  = true;
+                checkpointFile = cmd.getOptionValue("c");
             }
 
             process(guid);
@@ -103,6 +124,10 @@ public class RepairIndex {
 
         if (isSelectiveRestore) {
             repairIndex.restoreSelective(guid);
+        } else if (bulkRestoreCmd != null) {
+            repairIndex.restoreBulk(bulkRestoreCmd);
+        } else if (isScanRestore) {
+            repairIndex.restoreByScan(checkpointFile);
         }else{
             repairIndex.restoreAll();
         }
@@ -115,6 +140,14 @@ public class RepairIndex {
         options.addOption("g", "guid", true, "guid for which update index should be executed.");
         options.addOption("u", "user", true, "User name.");
         options.addOption("p", "password", true, "Password name.");
+        options.addOption("s", "scan", false, "restore all indexes with a parallel scan of the graph, instead of the JanusGraph reindex job.");
+        options.addOption("c", "checkpoint", true, "file to save progress of the scan in, to resume an interrupted scan.");
+        options.addOption("f", "guid-file", true, "file with guids of entities to repair, separated by newlines, commas or spaces.");
+        options.addOption("t", "types", true, "comma separated names of entity types to repair.");
+        options.addOption("r", "ranges", true, "ranges of the graph scan to repair, as <from>-<to>; see atlas.graph.scan.ranges.");
+        options.addOption("w", "workers", true, "number of workers to repair with, for -f, -t and -r.");
+        options.addOption("b", "batch-size", true, "number of entities per batch, for -f, -t and -r.");
+        options.addOption("n", "no-diff", false, "repair all entities selected with -f, -t or -r, instead of only those inconsistent with the index.");
 
         return new DefaultParser().parse(options, args);
     }
@@ -154,6 +187,97 @@ public class RepairIndex {
         }
     }
 
+    /**
+     * Reindexes all vertices and edges with a scan of the graph split into ranges, scanned in parallel; see
+     * atlas.graph.scan.* properties. Ranges completed are saved in the checkpoint file, if given, so that a scan
+     * that is interrupted can be resumed by running the tool again with the same checkpoint file.
+     */
+    private void restoreByScan(String checkpointFile) throws Exception {
+        displayCrlf("Restoring all indexes with graph scan" + (checkpointFile != null ? ", checkpoint: " + checkpointFile : ""));
+        long startTime = System.currentTimeMillis();
+
+        PatchContext          context    = new PatchContext(new AtlasJanusGraphDatabase().getGraph(), null, null, null);
+        GraphScanCheckpoint   checkpoint = checkpointFile != null ? getFileCheckpoint(new File(checkpointFile)) : null;
+        ReindexPatchProcessor processor  = new ReindexPatchProcessor(context);
+
+        boolean isComplete = processor.repairAll(checkpoint);
+
+        display(": Time taken: " + (System.currentTimeMillis() - startTime) + " ms");
+
+        if (!isComplete) {
+            throw new Exception("some ranges of the graph failed to reindex; run again to retry them" + (checkpointFile != null ? "" : ", with -c to skip ranges completed"));
+        }
+
+        displayCrlf(": Done!");
+    }
+
+    /**
+     * Repairs documents of entities selected by a guid file, types or scan ranges. Entities are processed in
+     * batches by parallel workers; unless -n is given, entities whose documents are consistent with the graph
+     * are skipped.
+     */
+    private void restoreBulk(CommandLine cmd) throws Exception {
+        int             numWorkers = Integer.parseInt(cmd.getOptionValue("w", String.valueOf(AtlasConfiguration.GRAPH_SCAN_NUM_WORKERS.getInt())));
+        int             batchSize  = Integer.parseInt(cmd.getOptionValue("b", String.valueOf(AtlasConfiguration.GRAPH_SCAN_BATCH_SIZE.getInt())));
+        BulkIndexRepair repair     = new BulkIndexRepair((StandardJanusGraph) graph, new AtlasJanusGraphDatabase().getGraph(),
+                                                         cmd.hasOption("n") ? null : AtlasElasticsearchDatabase.getLowLevelClient(), numWorkers, batchSize);
+
+        BulkIndexRepair.Stats stats;
+
+        displayCrlf("Repairing indexes with " + numWorkers + " workers, batch size " + batchSize);
+        long startTime = System.currentTimeMillis();
+
+        if (cmd.hasOption("f")) {
+            try (BufferedReader reader = Files.newBufferedReader(new File(cmd.getOptionValue("f")).toPath(), StandardCharsets.UTF_8)) {
+                stats = repair.repairGuids(BulkIndexRepair.readGuids(reader));
+            }
+        } else if (cmd.hasOption("t")) {
+            stats = repair.repairTypes(Arrays.asList(cmd.getOptionValue("t").split("\\s*,\\s*")));
+        } else {
+            int[] ranges = BulkIndexRepair.parseRanges(cmd.getOptionValue("r"));
+
+            stats = repair.repairRanges(AtlasConfiguration.GRAPH_SCAN_RANGES.getInt(), ranges[0], ranges[1]);
+        }
+
+        displayCrlf(stats.toString());
+        display(": Time taken: " + (System.currentTimeMillis() - startTime) + " ms");
+
+        if (stats.getFailedBatches() > 0) {
+            throw new Exception(stats.getFailedBatches() + " batches failed to repair; see logs");
+        }
+
+        displayCrlf(": Done!");
+    }
+
+    private static GraphScanCheckpoint getFileCheckpoint(File file) {
+        return new GraphScanCheckpoint() {
+            @Override
+            public String load() {
+                try {
+                    return file.exists() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8) : null;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void save(String checkpoint) {
+                try {
+                    if (checkpoint == null) {
+                        Files.deleteIfExists(file.toPath());
+                    } else {
+                        File tmpFile = new File(file.getPath() + ".tmp");
+
+                        // replace the checkpoint in a single step, so that it is never left partially written
+                        Files.write(tmpFile.toPath(), checkpoint.getBytes(StandardCharsets.UTF_8));
+                        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
 
     private void restoreSelective(String guid) throws Exception  {
         Set<String> referencedGUIDs = new HashSet<>(getEntityAndReferenceGuids(guid));
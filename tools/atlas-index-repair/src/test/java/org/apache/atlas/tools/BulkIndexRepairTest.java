@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.tools;
+
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.atlas.repository.Constants.CLASSIFICATION_TEXT_KEY;
+import static org.apache.atlas.repository.Constants.GUID_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.LABELS_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.MODIFICATION_TIMESTAMP_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.PROPAGATED_TRAIT_NAMES_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.STATE_PROPERTY_KEY;
+import static org.apache.atlas.repository.Constants.TRAIT_NAMES_PROPERTY_KEY;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class BulkIndexRepairTest {
+    @Test
+    public void testConsistentDocument() {
+        Map<String, Object> graphValues = graphValues();
+        Map<String, Object> doc         = new HashMap<>(graphValues);
+
+        doc.put(MODIFICATION_TIMESTAMP_PROPERTY_KEY, 1700000000000L);                // number in the document, Long in the graph
+        doc.put(TRAIT_NAMES_PROPERTY_KEY, Arrays.asList("PII", "Confidential"));     // order of multi-valued fields doesn't matter
+        doc.put(PROPAGATED_TRAIT_NAMES_PROPERTY_KEY, "Sensitive");                   // single value of a multi-valued field
+
+        assertTrue(BulkIndexRepair.isConsistent(doc, graphValues));
+    }
+
+    @Test
+    public void testEmptyValuesMatchMissingFields() {
+        Map<String, Object> graphValues = graphValues();
+
+        graphValues.put(TRAIT_NAMES_PROPERTY_KEY, Collections.emptyList());
+        graphValues.put(PROPAGATED_TRAIT_NAMES_PROPERTY_KEY, Collections.emptyList());
+        graphValues.put(CLASSIFICATION_TEXT_KEY, "");
+        graphValues.put(LABELS_PROPERTY_KEY, null);
+
+        Map<String, Object> doc = new HashMap<>(graphValues);
+
+        doc.remove(TRAIT_NAMES_PROPERTY_KEY);
+        doc.remove(PROPAGATED_TRAIT_NAMES_PROPERTY_KEY);
+        doc.remove(CLASSIFICATION_TEXT_KEY);
+        doc.remove(LABELS_PROPERTY_KEY);
+
+        assertTrue(BulkIndexRepair.isConsistent(doc, graphValues));
+    }
+
+    @Test
+    public void testStaleDocuments() {
+        for (String field : Arrays.asList(GUID_PROPERTY_KEY, STATE_PROPERTY_KEY, MODIFICATION_TIMESTAMP_PROPERTY_KEY, CLASSIFICATION_TEXT_KEY, LABELS_PROPERTY_KEY)) {
+            Map<String, Object> doc = graphValues();
+
+            doc.put(field, "stale");
+
+            assertFalse(BulkIndexRepair.isConsistent(doc, graphValues()), field);
+        }
+    }
+
+    @Test
+    public void testMissingClassificationsInDocument() {
+        Map<String, Object> doc = graphValues();
+
+        doc.put(TRAIT_NAMES_PROPERTY_KEY, "PII");
+
+        assertFalse(BulkIndexRepair.isConsistent(doc, graphValues()));
+
+        doc = graphValues();
+
+        doc.remove(PROPAGATED_TRAIT_NAMES_PROPERTY_KEY);
+
+        assertFalse(BulkIndexRepair.isConsistent(doc, graphValues()));
+
+        doc = graphValues();
+
+        doc.remove(CLASSIFICATION_TEXT_KEY);
+
+        assertFalse(BulkIndexRepair.isConsistent(doc, graphValues()));
+    }
+
+    @Test
+    public void testReadGuids() {
+        String input = "guid-1\n" +
+                       "  guid-2 , guid-3,guid-4\n" +
+                       "\n" +
+                       "guid-5 guid-6\t guid-7\n" +
+                       ",\n";
+
+        assertEquals(toList(BulkIndexRepair.readGuids(new BufferedReader(new StringReader(input)))),
+                     Arrays.asList("guid-1", "guid-2", "guid-3", "guid-4", "guid-5", "guid-6", "guid-7"));
+
+        assertFalse(BulkIndexRepair.readGuids(new BufferedReader(new StringReader(""))).hasNext());
+    }
+
+    @Test
+    public void testParseRanges() {
+        assertEquals(BulkIndexRepair.parseRanges("3-7"), new int[] { 3, 7 });
+        assertEquals(BulkIndexRepair.parseRanges(" 3 - 7 "), new int[] { 3, 7 });
+        assertEquals(BulkIndexRepair.parseRanges("5"), new int[] { 5, 5 });
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testParseInvalidRanges() {
+        BulkIndexRepair.parseRanges("7-3");
+    }
+
+    private static Map<String, Object> graphValues() {
+        Map<String, Object> ret = new HashMap<>();
+
+        ret.put(GUID_PROPERTY_KEY, "a1b2c3");
+        ret.put(STATE_PROPERTY_KEY, "ACTIVE");
+        ret.put(MODIFICATION_TIMESTAMP_PROPERTY_KEY, 1700000000000L);
+        ret.put(TRAIT_NAMES_PROPERTY_KEY, Arrays.asList("Confidential", "PII"));
+        ret.put(PROPAGATED_TRAIT_NAMES_PROPERTY_KEY, Collections.singletonList("Sensitive"));
+        ret.put(CLASSIFICATION_TEXT_KEY, "Confidential PII Sensitive");
+        ret.put(LABELS_PROPERTY_KEY, "|label1|");
+
+        return ret;
+    }
+
+    private static List<String> toList(Iterator<String> iter) {
+        List<String> ret = new ArrayList<>();
+
+        iter.forEachRemaining(ret::add);
+
+        return ret;
+    }
+}
@@ -0,0 +1,400 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.atlas.kafka.AtlasKafkaMessage;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasObjectId;
+import org.apache.atlas.model.notification.HookNotification;
+import org.apache.atlas.model.notification.HookNotification.EntityCreateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.EntityDeleteRequestV2;
+import org.apache.atlas.model.notification.HookNotification.EntityPartialUpdateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.EntityUpdateRequestV2;
+import org.apache.atlas.v1.model.instance.Referenceable;
+import org.apache.atlas.v1.model.notification.HookNotificationV1.EntityCreateRequest;
+import org.apache.atlas.v1.model.notification.HookNotificationV1.EntityDeleteRequest;
+import org.apache.atlas.v1.model.notification.HookNotificationV1.EntityPartialUpdateRequest;
+import org.apache.commons.collections.MapUtils;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes hook messages of one Kafka consumer on a pool of workers.
+ *
+ * Messages are routed to workers by the qualifiedName (or guid) of every entity they refer to, so that messages
+ * for the same entity are processed in the order they were received. A message whose entities map to several
+ * workers is processed by one of them once the others have processed their earlier messages; the others wait
+ * for it to complete before processing later messages. Completed offsets are tracked per partition, and only
+ * offsets below which every message has completed are reported as committable. At most maxInFlight messages
+ * are dispatched but not yet completed; submit() waits up to the given time beyond that.
+ */
+class HookMessageDispatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(HookMessageDispatcher.class);
+
+    private static final String ATTRIBUTE_QUALIFIED_NAME = "qualifiedName";
+
+    interface MessageHandler {
+        void handle(AtlasKafkaMessage<HookNotification> message) throws Exception;
+    }
+
+    private final String                                name;
+    private final ExecutorService[]                     workers;
+    private final Semaphore                             inFlight;
+    private final int                                   maxInFlight;
+    private final MessageHandler                        handler;
+    private final Map<TopicPartition, PartitionOffsets> partitionOffsets = new HashMap<>();
+
+    HookMessageDispatcher(String name, int numWorkers, int maxInFlight, MessageHandler handler) {
+        this.name        = name;
+        this.workers     = new ExecutorService[Math.max(1, numWorkers)];
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlight    = new Semaphore(this.maxInFlight);
+        this.handler     = handler;
+
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat(name + "-worker-" + i).setDaemon(true).build());
+        }
+
+        LOG.info("{}: started {} workers, maxInFlight={}", name, workers.length, this.maxInFlight);
+    }
+
+    /**
+     * @return false if the message could not be dispatched within waitMs because too many messages are in flight
+     */
+    boolean submit(AtlasKafkaMessage<HookNotification> message, long waitMs) throws InterruptedException {
+        TopicPartition partition = message.getTopicPartition();
+        long           offset    = message.getOffset();
+
+        synchronized (partitionOffsets) {
+            PartitionOffsets offsets = partitionOffsets.get(partition);
+
+            if (offsets != null && offset < offsets.nextOffset) {
+                LOG.info("{}: skipping message already dispatched: partition={}, offset={}", name, partition, offset);
+
+                return true;
+            }
+        }
+
+        if (!inFlight.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+
+        PartitionOffsets offsets;
+
+        synchronized (partitionOffsets) {
+            offsets = partitionOffsets.computeIfAbsent(partition, p -> new PartitionOffsets(offset));
+
+            offsets.pending.add(offset);
+            offsets.nextOffset = offset + 1;
+        }
+
+        int[] workerIndexes = getWorkerIndexes(getOrderingKeys(message));
+
+        try {
+            if (workerIndexes.length == 1) {
+                workers[workerIndexes[0]].execute(() -> process(message, offsets));
+            } else {
+                executeOnWorkers(workerIndexes, message, offsets);
+            }
+        } catch (RuntimeException e) {
+            onComplete(offsets, offset);
+
+            throw e;
+        }
+
+        return true;
+    }
+
+    /**
+     * Forgets offsets of the given partitions, as on their revocation in a rebalance: their messages are received
+     * again, by this or another consumer, from the last committed offset.
+     */
+    void revoke(Collection<TopicPartition> partitions) {
+        synchronized (partitionOffsets) {
+            for (TopicPartition partition : partitions) {
+                partitionOffsets.remove(partition);
+            }
+        }
+
+        LOG.info("{}: revoked partitions {}", name, partitions);
+    }
+
+    /**
+     * @return for each partition whose committable offset advanced since the previous call, the offset to commit
+     */
+    Map<TopicPartition, Long> getCommittableOffsets() {
+        Map<TopicPartition, Long> ret = new HashMap<>();
+
+        synchronized (partitionOffsets) {
+            for (Map.Entry<TopicPartition, PartitionOffsets> entry : partitionOffsets.entrySet()) {
+                PartitionOffsets offsets     = entry.getValue();
+                long             committable = offsets.pending.isEmpty() ? offsets.nextOffset : offsets.pending.first();
+
+                if (committable > offsets.committedOffset) {
+                    offsets.committedOffset = committable;
+
+                    ret.put(entry.getKey(), committable);
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * Stops accepting messages and waits up to timeoutMs for the dispatched ones to complete.
+     */
+    void shutdown(long timeoutMs) {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        try {
+            for (ExecutorService worker : workers) {
+                long remaining = deadline - System.currentTimeMillis();
+
+                if (remaining <= 0 || !worker.awaitTermination(remaining, TimeUnit.MILLISECONDS)) {
+                    LOG.warn("{}: timed out waiting for workers to complete; {} messages in flight", name, getInFlightCount());
+
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("{}: interrupted while waiting for workers to complete", name);
+
+            Thread.currentThread().interrupt();
+        }
+
+        for (ExecutorService worker : workers) {
+            worker.shutdownNow();
+        }
+    }
+
+    // the first worker processes the message once the others reach it, and releases them when done
+    private void executeOnWorkers(int[] workerIndexes, AtlasKafkaMessage<HookNotification> message, PartitionOffsets offsets) {
+        CountDownLatch othersReady = new CountDownLatch(workerIndexes.length - 1);
+        CountDownLatch completed   = new CountDownLatch(1);
+
+        try {
+            for (int i = 1; i < workerIndexes.length; i++) {
+                workers[workerIndexes[i]].execute(() -> {
+                    othersReady.countDown();
+
+                    try {
+                        completed.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            workers[workerIndexes[0]].execute(() -> {
+                try {
+                    othersReady.await();
+                } catch (InterruptedException e) { // on shutdown: the message is left pending, to be received again
+                    Thread.currentThread().interrupt();
+                    completed.countDown();
+
+                    return;
+                }
+
+                try {
+                    process(message, offsets);
+                } finally {
+                    completed.countDown();
+                }
+            });
+        } catch (RuntimeException e) {
+            completed.countDown();
+
+            throw e;
+        }
+    }
+
+    private void process(AtlasKafkaMessage<HookNotification> message, PartitionOffsets offsets) {
+        try {
+            handler.handle(message);
+        } catch (Throwable t) {
+            LOG.error("{}: failed to process message: partition={}, offset={}", name, message.getTopicPartition(), message.getOffset(), t);
+        } finally {
+            onComplete(offsets, message.getOffset());
+        }
+    }
+
+    // offsets of the partition when the message was dispatched, which are no longer tracked if the partition was revoked since
+    private void onComplete(PartitionOffsets offsets, long offset) {
+        synchronized (partitionOffsets) {
+            offsets.pending.remove(offset);
+        }
+
+        inFlight.release();
+    }
+
+    private int[] getWorkerIndexes(Set<String> keys) {
+        Set<Integer> ret = new TreeSet<>();
+
+        for (String key : keys) {
+            ret.add(Math.floorMod(key.hashCode(), workers.length));
+        }
+
+        return ret.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return qualifiedName (or guid) of every entity the message refers to; the partition if none
+     */
+    static Set<String> getOrderingKeys(AtlasKafkaMessage<HookNotification> kafkaMsg) {
+        HookNotification message = kafkaMsg.getMessage();
+        Set<String>      ret     = new TreeSet<>();
+
+        switch (message.getType()) {
+            case ENTITY_CREATE:
+            case ENTITY_FULL_UPDATE: {
+                List<Referenceable> entities = ((EntityCreateRequest) message).getEntities();
+
+                if (entities != null) {
+                    for (Referenceable entity : entities) {
+                        Object qualifiedName = entity.get(ATTRIBUTE_QUALIFIED_NAME);
+
+                        addKey(ret, qualifiedName != null ? qualifiedName.toString() : (entity.getId() != null ? entity.getId().getId() : null));
+                    }
+                }
+            }
+            break;
+
+            case ENTITY_PARTIAL_UPDATE:
+                addKey(ret, ((EntityPartialUpdateRequest) message).getAttributeValue());
+            break;
+
+            case ENTITY_DELETE:
+                addKey(ret, ((EntityDeleteRequest) message).getAttributeValue());
+            break;
+
+            case ENTITY_CREATE_V2:
+                addKeys(ret, ((EntityCreateRequestV2) message).getEntities());
+            break;
+
+            case ENTITY_FULL_UPDATE_V2:
+                addKeys(ret, ((EntityUpdateRequestV2) message).getEntities());
+            break;
+
+            case ENTITY_PARTIAL_UPDATE_V2: {
+                EntityPartialUpdateRequestV2 partialUpdateRequest = (EntityPartialUpdateRequestV2) message;
+
+                addKey(ret, partialUpdateRequest.getEntityId());
+
+                if (partialUpdateRequest.getEntity() != null && partialUpdateRequest.getEntity().getReferredEntities() != null) {
+                    for (AtlasEntity entity : partialUpdateRequest.getEntity().getReferredEntities().values()) {
+                        addKey(ret, entity);
+                    }
+                }
+            }
+            break;
+
+            case ENTITY_DELETE_V2: {
+                List<AtlasObjectId> entities = ((EntityDeleteRequestV2) message).getEntities();
+
+                if (entities != null) {
+                    for (AtlasObjectId entity : entities) {
+                        addKey(ret, entity);
+                    }
+                }
+            }
+            break;
+        }
+
+        // messages without a key keep the order of their partition
+        if (ret.isEmpty()) {
+            ret.add(kafkaMsg.getTopicPartition().toString());
+        }
+
+        return ret;
+    }
+
+    // referred entities are written along with the entities, hence are keys as well
+    private static void addKeys(Set<String> keys, AtlasEntity.AtlasEntitiesWithExtInfo entities) {
+        if (entities == null) {
+            return;
+        }
+
+        if (entities.getEntities() != null) {
+            for (AtlasEntity entity : entities.getEntities()) {
+                addKey(keys, entity);
+            }
+        }
+
+        if (entities.getReferredEntities() != null) {
+            for (AtlasEntity entity : entities.getReferredEntities().values()) {
+                addKey(keys, entity);
+            }
+        }
+    }
+
+    private static void addKey(Set<String> keys, AtlasEntity entity) {
+        if (entity != null) {
+            Object qualifiedName = entity.getAttribute(ATTRIBUTE_QUALIFIED_NAME);
+
+            addKey(keys, qualifiedName != null ? qualifiedName.toString() : entity.getGuid());
+        }
+    }
+
+    private static void addKey(Set<String> keys, AtlasObjectId objectId) {
+        if (objectId != null) {
+            Object qualifiedName = MapUtils.isNotEmpty(objectId.getUniqueAttributes()) ? objectId.getUniqueAttributes().get(ATTRIBUTE_QUALIFIED_NAME) : null;
+
+            addKey(keys, qualifiedName != null ? qualifiedName.toString() : objectId.getGuid());
+        }
+    }
+
+    private static void addKey(Set<String> keys, String key) {
+        if (key != null) {
+            keys.add(key);
+        }
+    }
+
+    private static class PartitionOffsets {
+        final TreeSet<Long> pending = new TreeSet<>();
+        long                nextOffset;
+        long                committedOffset;
+
+        PartitionOffsets(long firstOffset) {
+            this.nextOffset      = firstOffset;
+            this.committedOffset = firstOffset;
+        }
+    }
+}
@@ -0,0 +1,549 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.apache.atlas.kafka.AtlasKafkaMessage;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntityWithExtInfo;
+import org.apache.atlas.model.instance.AtlasObjectId;
+import org.apache.atlas.model.notification.HookNotification;
+import org.apache.atlas.model.notification.HookNotification.EntityCreateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.EntityPartialUpdateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.HookNotificationType;
+import org.apache.atlas.notification.preprocessor.PreprocessorContext;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
+import org.apache.atlas.type.AtlasType;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.apache.atlas.type.AtlasTypeUtil;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.apache.atlas.model.instance.AtlasObjectId.KEY_GUID;
+
+/**
+ * Accumulates ENTITY_CREATE_V2 or ENTITY_PARTIAL_UPDATE_V2 hook messages of one user, to be written with a single
+ * createOrUpdate() call.
+ *
+ * Entities having the same type and unique attributes, or the same assigned guid, are merged into one entity,
+ * attributes of later messages overwriting those of earlier ones; an entity with an unassigned guid is merged
+ * with one having an assigned guid. Values appended to (or removed from) a relationship attribute by several
+ * messages are combined; a message that would make the outcome depend on the order of the messages - appending to
+ * an attribute another message removes from, or setting an attribute another message appends to or removes from -
+ * isn't added to the batch. Unassigned guids of each added message are renamed, along with references
+ * to them, so that guids of different messages don't clash.
+ *
+ * The batch holds copies of the entities of messages: messages are left as they were added, so that they can
+ * be processed individually if the batch fails.
+ */
+class HookNotificationBatch {
+    private final AtlasTypeRegistry typeRegistry;
+    private final int               maxMessages;
+    private final int               maxEntities;
+
+    private final List<AtlasKafkaMessage<HookNotification>> messages         = new ArrayList<>();
+    private final List<PreprocessorContext>                 contexts         = new ArrayList<>();
+    private final Map<String, String>                       guidByEntityKey  = new HashMap<>();
+    private final Map<String, AtlasEntity>                  entities         = new LinkedHashMap<>();
+    private final Map<String, AtlasEntity>                  referredEntities = new LinkedHashMap<>();
+    private       HookNotificationType                      messageType;
+    private       String                                    user;
+    private       long                                      startTime;
+    private       long                                      nextGuid = 1;
+
+    HookNotificationBatch(AtlasTypeRegistry typeRegistry, int maxMessages, int maxEntities) {
+        this.typeRegistry = typeRegistry;
+        this.maxMessages  = maxMessages;
+        this.maxEntities  = maxEntities;
+    }
+
+    static boolean isBatchable(HookNotificationType messageType) {
+        return messageType == HookNotificationType.ENTITY_CREATE_V2 || messageType == HookNotificationType.ENTITY_PARTIAL_UPDATE_V2;
+    }
+
+    /**
+     * @return false for messages that should be processed individually: other types, and messages with too many entities
+     */
+    boolean accepts(HookNotification message) {
+        int entityCount = getEntityCount(message);
+
+        return isBatchable(message.getType()) && entityCount > 0 && entityCount <= maxEntities;
+    }
+
+    /**
+     * @return true if the message can be added without flushing the batch first; the caller must make sure
+     * that entities of ENTITY_PARTIAL_UPDATE_V2 messages have their guid assigned
+     */
+    boolean canAdd(AtlasKafkaMessage<HookNotification> kafkaMsg) {
+        HookNotification message = kafkaMsg.getMessage();
+
+        if (messages.isEmpty()) {
+            return true;
+        }
+
+        return messages.size() < maxMessages &&
+               message.getType() == messageType &&
+               Objects.equals(message.getUser(), user) &&
+               kafkaMsg.getSpooled() == messages.get(0).getSpooled() &&
+               getEntityCount() + getEntityCount(message) <= maxEntities &&
+               !hasConflictingRelationshipUpdates(message);
+    }
+
+    /**
+     * @param context result of preprocessing the message, to be used if the message has to be processed individually
+     */
+    void add(AtlasKafkaMessage<HookNotification> kafkaMsg, PreprocessorContext context) {
+        HookNotification         message = kafkaMsg.getMessage();
+        List<AtlasEntity>        msgEntities;
+        Map<String, AtlasEntity> msgReferredEntities;
+
+        // entities are renamed and merged below, and references to them updated during createOrUpdate(): a copy
+        // is made (as received from Kafka, by way of json) so that the message is left as it was added
+        if (message.getType() == HookNotificationType.ENTITY_CREATE_V2) {
+            AtlasEntitiesWithExtInfo entitiesWithExtInfo = copyOf(((EntityCreateRequestV2) message).getEntities(), AtlasEntitiesWithExtInfo.class);
+
+            msgEntities         = entitiesWithExtInfo.getEntities();
+            msgReferredEntities = entitiesWithExtInfo.getReferredEntities();
+        } else if (message.getType() == HookNotificationType.ENTITY_PARTIAL_UPDATE_V2) {
+            AtlasEntityWithExtInfo entityWithExtInfo = copyOf(((EntityPartialUpdateRequestV2) message).getEntity(), AtlasEntityWithExtInfo.class);
+
+            msgEntities         = Collections.singletonList(entityWithExtInfo.getEntity());
+            msgReferredEntities = entityWithExtInfo.getReferredEntities();
+        } else {
+            throw new IllegalArgumentException("message of type " + message.getType() + " can't be batched");
+        }
+
+        if (messages.isEmpty()) {
+            messageType = message.getType();
+            user        = message.getUser();
+            startTime   = System.currentTimeMillis();
+        }
+
+        Map<String, String> renamedGuids = new HashMap<>();
+
+        for (AtlasEntity entity : msgEntities) {
+            assignBatchGuid(entity, renamedGuids);
+        }
+
+        if (msgReferredEntities != null) {
+            for (AtlasEntity entity : msgReferredEntities.values()) {
+                assignBatchGuid(entity, renamedGuids);
+            }
+        }
+
+        if (!renamedGuids.isEmpty()) {
+            for (AtlasEntity entity : msgEntities) {
+                renameReferences(entity, renamedGuids);
+            }
+
+            if (msgReferredEntities != null) {
+                List<AtlasEntity> referred = new ArrayList<>(msgReferredEntities.values());
+
+                msgReferredEntities.clear();
+
+                for (AtlasEntity entity : referred) {
+                    renameReferences(entity, renamedGuids);
+
+                    msgReferredEntities.put(entity.getGuid(), entity);
+                }
+            }
+        }
+
+        if (msgReferredEntities != null) {
+            for (AtlasEntity entity : msgReferredEntities.values()) {
+                if (entities.containsKey(entity.getGuid())) {
+                    merge(entities.get(entity.getGuid()), entity);
+                } else {
+                    mergeInto(referredEntities, entity);
+                }
+            }
+        }
+
+        for (AtlasEntity entity : msgEntities) {
+            AtlasEntity referred = referredEntities.remove(entity.getGuid());
+
+            if (referred != null) { // referred to by an earlier message; now to be written as an entity
+                entities.put(referred.getGuid(), referred);
+            }
+
+            mergeInto(entities, entity);
+        }
+
+        messages.add(kafkaMsg);
+        contexts.add(context);
+    }
+
+    List<AtlasKafkaMessage<HookNotification>> getMessages() {
+        return messages;
+    }
+
+    List<PreprocessorContext> getContexts() {
+        return contexts;
+    }
+
+    AtlasEntitiesWithExtInfo getEntities() {
+        AtlasEntitiesWithExtInfo ret = new AtlasEntitiesWithExtInfo(new ArrayList<>(entities.values()));
+
+        for (AtlasEntity referred : referredEntities.values()) {
+            ret.addReferredEntity(referred);
+        }
+
+        return ret;
+    }
+
+    boolean isPartialUpdate() {
+        return messageType == HookNotificationType.ENTITY_PARTIAL_UPDATE_V2;
+    }
+
+    boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    boolean isFull() {
+        return messages.size() >= maxMessages || getEntityCount() >= maxEntities;
+    }
+
+    long getStartTime() {
+        return startTime;
+    }
+
+    String getUser() {
+        return user;
+    }
+
+    int getEntityCount() {
+        return entities.size() + referredEntities.size();
+    }
+
+    void clear() {
+        messages.clear();
+        contexts.clear();
+        guidByEntityKey.clear();
+        entities.clear();
+        referredEntities.clear();
+
+        messageType = null;
+        user        = null;
+    }
+
+    private static int getEntityCount(HookNotification message) {
+        if (message instanceof EntityCreateRequestV2) {
+            AtlasEntitiesWithExtInfo entities = ((EntityCreateRequestV2) message).getEntities();
+
+            return entities == null ? 0 : CollectionUtils.size(entities.getEntities()) + MapUtils.size(entities.getReferredEntities());
+        } else if (message instanceof EntityPartialUpdateRequestV2) {
+            AtlasEntityWithExtInfo entity = ((EntityPartialUpdateRequestV2) message).getEntity();
+
+            return entity == null ? 0 : 1 + MapUtils.size(entity.getReferredEntities());
+        }
+
+        return 0;
+    }
+
+    private boolean hasConflictingRelationshipUpdates(HookNotification message) {
+        List<AtlasEntity> msgEntities = new ArrayList<>();
+
+        if (message instanceof EntityCreateRequestV2) {
+            AtlasEntitiesWithExtInfo entitiesWithExtInfo = ((EntityCreateRequestV2) message).getEntities();
+
+            if (entitiesWithExtInfo != null && entitiesWithExtInfo.getEntities() != null) {
+                msgEntities.addAll(entitiesWithExtInfo.getEntities());
+            }
+
+            if (entitiesWithExtInfo != null && entitiesWithExtInfo.getReferredEntities() != null) {
+                msgEntities.addAll(entitiesWithExtInfo.getReferredEntities().values());
+            }
+        } else if (message instanceof EntityPartialUpdateRequestV2) {
+            AtlasEntityWithExtInfo entityWithExtInfo = ((EntityPartialUpdateRequestV2) message).getEntity();
+
+            if (entityWithExtInfo != null && entityWithExtInfo.getEntity() != null) {
+                msgEntities.add(entityWithExtInfo.getEntity());
+            }
+
+            if (entityWithExtInfo != null && entityWithExtInfo.getReferredEntities() != null) {
+                msgEntities.addAll(entityWithExtInfo.getReferredEntities().values());
+            }
+        }
+
+        for (AtlasEntity entity : msgEntities) {
+            AtlasEntity batchEntity = getBatchEntity(entity);
+
+            if (batchEntity != null && hasConflictingRelationshipUpdates(batchEntity, entity)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // the entity in the batch the given entity of a message would be merged with, if any
+    private AtlasEntity getBatchEntity(AtlasEntity entity) {
+        String key  = getEntityKey(entity);
+        String guid = AtlasTypeUtil.isAssignedGuid(entity.getGuid()) ? entity.getGuid() : null;
+
+        if (guid == null || !(entities.containsKey(guid) || referredEntities.containsKey(guid))) {
+            guid = key != null ? guidByEntityKey.get(key) : null;
+        }
+
+        if (guid == null) {
+            return null;
+        }
+
+        AtlasEntity ret = entities.get(guid);
+
+        return ret != null ? ret : referredEntities.get(guid);
+    }
+
+    private static boolean hasConflictingRelationshipUpdates(AtlasEntity earlier, AtlasEntity later) {
+        return intersects(earlier.getAppendRelationshipAttributes(), later.getRemoveRelationshipAttributes()) ||
+               intersects(earlier.getRemoveRelationshipAttributes(), later.getAppendRelationshipAttributes()) ||
+               intersects(earlier.getRelationshipAttributes(), later.getAppendRelationshipAttributes()) ||
+               intersects(earlier.getRelationshipAttributes(), later.getRemoveRelationshipAttributes()) ||
+               intersects(earlier.getAppendRelationshipAttributes(), later.getRelationshipAttributes()) ||
+               intersects(earlier.getRemoveRelationshipAttributes(), later.getRelationshipAttributes());
+    }
+
+    private static boolean intersects(Map<String, Object> attributes1, Map<String, Object> attributes2) {
+        return MapUtils.isNotEmpty(attributes1) && MapUtils.isNotEmpty(attributes2) && !Collections.disjoint(attributes1.keySet(), attributes2.keySet());
+    }
+
+    // unassigned guids are replaced by a guid unique within the batch, shared by entities having the same unique attributes
+    // (or by the assigned guid of an entity having the same unique attributes)
+    private void assignBatchGuid(AtlasEntity entity, Map<String, String> renamedGuids) {
+        String guid = entity.getGuid();
+        String key  = getEntityKey(entity);
+
+        if (AtlasTypeUtil.isAssignedGuid(guid)) {
+            String batchGuid = key != null ? guidByEntityKey.put(key, guid) : null;
+
+            if (batchGuid != null && !batchGuid.equals(guid)) {
+                if (AtlasTypeUtil.isAssignedGuid(batchGuid)) { // not expected: different guids for the same unique attributes
+                    guidByEntityKey.put(key, batchGuid);
+                } else { // added by an earlier message with an unassigned guid
+                    replaceBatchGuid(batchGuid, guid);
+                }
+            }
+
+            return;
+        }
+
+        String batchGuid = key != null ? guidByEntityKey.get(key) : null;
+
+        if (batchGuid == null) {
+            batchGuid = "-" + nextGuid++;
+
+            if (key != null) {
+                guidByEntityKey.put(key, batchGuid);
+            }
+        }
+
+        if (guid != null) {
+            renamedGuids.put(guid, batchGuid);
+        }
+
+        entity.setGuid(batchGuid);
+    }
+
+    // replaces the guid of an entity in the batch, and references to it, with the given assigned guid
+    private void replaceBatchGuid(String batchGuid, String assignedGuid) {
+        Map<String, String> renamedGuids = Collections.singletonMap(batchGuid, assignedGuid);
+
+        replaceKey(entities, batchGuid, assignedGuid);
+        replaceKey(referredEntities, batchGuid, assignedGuid);
+
+        for (AtlasEntity entity : entities.values()) {
+            renameReferences(entity, renamedGuids);
+        }
+
+        for (AtlasEntity entity : referredEntities.values()) {
+            renameReferences(entity, renamedGuids);
+        }
+    }
+
+    // keeps the order of entities, which are written in the order they were added
+    private static void replaceKey(Map<String, AtlasEntity> map, String oldGuid, String newGuid) {
+        if (!map.containsKey(oldGuid)) {
+            return;
+        }
+
+        List<AtlasEntity> values = new ArrayList<>(map.values());
+
+        map.clear();
+
+        for (AtlasEntity entity : values) {
+            if (entity.getGuid().equals(oldGuid)) {
+                entity.setGuid(newGuid);
+            }
+
+            mergeInto(map, entity);
+        }
+    }
+
+    private static <T> T copyOf(T obj, Class<T> cls) {
+        return obj != null ? AtlasType.fromJson(AtlasType.toJson(obj), cls) : null;
+    }
+
+    private String getEntityKey(AtlasEntity entity) {
+        AtlasEntityType entityType = typeRegistry.getEntityTypeByName(entity.getTypeName());
+
+        if (entityType == null || MapUtils.isEmpty(entityType.getUniqAttributes()) || entity.getAttributes() == null) {
+            return null;
+        }
+
+        StringBuilder sb = new StringBuilder(entity.getTypeName());
+
+        for (AtlasAttribute attribute : entityType.getUniqAttributes().values()) {
+            Object value = entity.getAttribute(attribute.getName());
+
+            if (value == null) {
+                return null;
+            }
+
+            sb.append('|').append(attribute.getName()).append('=').append(value);
+        }
+
+        return sb.toString();
+    }
+
+    private static void mergeInto(Map<String, AtlasEntity> target, AtlasEntity entity) {
+        AtlasEntity existing = target.get(entity.getGuid());
+
+        if (existing == null) {
+            target.put(entity.getGuid(), entity);
+        } else {
+            merge(existing, entity);
+        }
+    }
+
+    private static <V> Map<String, V> putAll(Map<String, V> target, Map<String, V> source) {
+        if (source == null) {
+            return target;
+        } else if (target == null) {
+            return new HashMap<>(source);
+        }
+
+        target.putAll(source);
+
+        return target;
+    }
+
+    // values of collection attributes in both are combined; otherwise, as putAll()
+    private static Map<String, Object> addAll(Map<String, Object> target, Map<String, Object> source) {
+        if (source == null) {
+            return target;
+        } else if (target == null) {
+            return new HashMap<>(source);
+        }
+
+        for (Map.Entry<String, Object> entry : source.entrySet()) {
+            Object existing = target.get(entry.getKey());
+            Object value    = entry.getValue();
+
+            if (existing instanceof Collection && value instanceof Collection) {
+                List<Object> values = new ArrayList<>((Collection<?>) existing);
+
+                for (Object element : (Collection<?>) value) {
+                    if (!values.contains(element)) {
+                        values.add(element);
+                    }
+                }
+
+                value = values;
+            }
+
+            target.put(entry.getKey(), value);
+        }
+
+        return target;
+    }
+
+    // last writer wins, per attribute; see canAdd() for relationship attributes
+    private static void merge(AtlasEntity target, AtlasEntity source) {
+        target.setAttributes(putAll(target.getAttributes(), source.getAttributes()));
+
+        target.setRelationshipAttributes(putAll(target.getRelationshipAttributes(), source.getRelationshipAttributes()));
+        target.setAppendRelationshipAttributes(addAll(target.getAppendRelationshipAttributes(), source.getAppendRelationshipAttributes()));
+        target.setRemoveRelationshipAttributes(addAll(target.getRemoveRelationshipAttributes(), source.getRemoveRelationshipAttributes()));
+        target.setCustomAttributes(putAll(target.getCustomAttributes(), source.getCustomAttributes()));
+        target.setBusinessAttributes(putAll(target.getBusinessAttributes(), source.getBusinessAttributes()));
+
+        if (source.getStatus() != null) {
+            target.setStatus(source.getStatus());
+        }
+
+        if (source.getClassifications() != null) {
+            target.setClassifications(source.getClassifications());
+        }
+
+        if (source.getMeanings() != null) {
+            target.setMeanings(source.getMeanings());
+        }
+
+        if (source.getLabels() != null) {
+            target.setLabels(source.getLabels());
+        }
+    }
+
+    private static void renameReferences(AtlasEntity entity, Map<String, String> renamedGuids) {
+        renameReferences(entity.getAttributes(), renamedGuids);
+        renameReferences(entity.getRelationshipAttributes(), renamedGuids);
+        renameReferences(entity.getAppendRelationshipAttributes(), renamedGuids);
+        renameReferences(entity.getRemoveRelationshipAttributes(), renamedGuids);
+    }
+
+    private static void renameReferences(Map<String, Object> attributes, Map<String, String> renamedGuids) {
+        if (attributes != null) {
+            for (Object value : attributes.values()) {
+                renameReference(value, renamedGuids);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void renameReference(Object value, Map<String, String> renamedGuids) {
+        if (value instanceof AtlasObjectId) {
+            AtlasObjectId objectId = (AtlasObjectId) value;
+            String        renamed  = objectId.getGuid() != null ? renamedGuids.get(objectId.getGuid()) : null;
+
+            if (renamed != null) {
+                objectId.setGuid(renamed);
+            }
+        } else if (value instanceof Map) {
+            Map<String, Object> map  = (Map<String, Object>) value;
+            Object              guid = map.get(KEY_GUID);
+
+            if (guid instanceof String && renamedGuids.containsKey(guid)) {
+                map.put(KEY_GUID, renamedGuids.get(guid));
+            }
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection<Object>) value) {
+                renameReference(element, renamedGuids);
+            }
+        }
+    }
+}
@@ -59,6 +59,7 @@ import org.apache.atlas.service.Service;
 import org.apache.atlas.type.AtlasEntityType;
 import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
 import org.apache.atlas.type.AtlasTypeRegistry;
+import org.apache.atlas.type.AtlasTypeUtil;
 import org.apache.atlas.utils.AtlasPerfTracer;
 import org.apache.atlas.web.filters.AuditFilter;
 import org.apache.atlas.web.filters.AuditFilter.AuditLog;
@@ -83,9 +84,11 @@ import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -138,6 +141,12 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
     public static final String CONSUMER_MAX_RETRY_INTERVAL       = "atlas.notification.consumer.max.retry.interval";
     public static final String CONSUMER_COMMIT_BATCH_SIZE        = "atlas.notification.consumer.commit.batch.size";
     public static final String CONSUMER_DISABLED                 = "atlas.notification.consumer.disabled";
+    public static final String CONSUMER_PARALLEL_WORKERS         = "atlas.notification.hook.parallel.workers";
+    public static final String CONSUMER_PARALLEL_MAX_INFLIGHT    = "atlas.notification.hook.parallel.max.inflight";
+    public static final String CONSUMER_BATCH_ENABLED            = "atlas.notification.hook.batch.enabled";
+    public static final String CONSUMER_BATCH_MAX_MESSAGES       = "atlas.notification.hook.batch.max.messages";
+    public static final String CONSUMER_BATCH_MAX_ENTITIES       = "atlas.notification.hook.batch.max.entities";
+    public static final String CONSUMER_BATCH_MAX_WAIT_MS        = "atlas.notification.hook.batch.max.wait.ms";
 
 
     public static final String CONSUMER_SKIP_HIVE_COLUMN_LINEAGE_HIVE_20633                  = "atlas.notification.consumer.skip.hive_column_lineage.hive-20633";
@@ -160,6 +169,9 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
 
     public static final int SERVER_READY_WAIT_TIME_MS = 1000;
 
+    private static final long PARALLEL_SUBMIT_WAIT_MS   = 1000;
+    private static final long PARALLEL_SHUTDOWN_WAIT_MS = 30 * 1000;
+
     private final AtlasEntityStore              atlasEntityStore;
     private final ServiceState                  serviceState;
     private final AtlasInstanceConverter        instanceConverter;
@@ -175,6 +187,12 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
     private final boolean                       updateHiveProcessNameWithQualifiedName;
     private final int                           largeMessageProcessingTimeThresholdMs;
     private final boolean                       consumerDisabled;
+    private final int                           parallelWorkers;
+    private final int                           parallelMaxInFlight;
+    private final boolean                       batchEnabled;
+    private final int                           batchMaxMessages;
+    private final int                           batchMaxEntities;
+    private final long                          batchMaxWaitMs;
     private final List<Pattern>                 hiveTablesToIgnore = new ArrayList<>();
     private final List<Pattern>                 hiveTablesToPrune  = new ArrayList<>();
     private final List<String>                  hiveDummyDatabasesToIgnore;
@@ -222,6 +240,12 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         minWaitDuration       = applicationProperties.getInt(CONSUMER_MIN_RETRY_INTERVAL, consumerRetryInterval); // 500 ms  by default
         maxWaitDuration       = applicationProperties.getInt(CONSUMER_MAX_RETRY_INTERVAL, minWaitDuration * 60);  //  30 sec by default
         commitBatchSize       = applicationProperties.getInt(CONSUMER_COMMIT_BATCH_SIZE, 50);
+        parallelWorkers       = applicationProperties.getInt(CONSUMER_PARALLEL_WORKERS, 0); // 0: process messages on the consumer thread
+        parallelMaxInFlight   = applicationProperties.getInt(CONSUMER_PARALLEL_MAX_INFLIGHT, 1000);
+        batchEnabled          = applicationProperties.getBoolean(CONSUMER_BATCH_ENABLED, false);
+        batchMaxMessages      = applicationProperties.getInt(CONSUMER_BATCH_MAX_MESSAGES, 100);
+        batchMaxEntities      = applicationProperties.getInt(CONSUMER_BATCH_MAX_ENTITIES, 500);
+        batchMaxWaitMs        = applicationProperties.getLong(CONSUMER_BATCH_MAX_WAIT_MS, 1000);
 
         skipHiveColumnLineageHive20633                = applicationProperties.getBoolean(CONSUMER_SKIP_HIVE_COLUMN_LINEAGE_HIVE_20633, false);
         skipHiveColumnLineageHive20633InputsThreshold = applicationProperties.getInt(CONSUMER_SKIP_HIVE_COLUMN_LINEAGE_HIVE_20633_INPUTS_THRESHOLD, 15); // skip if avg # of inputs is > 15
@@ -233,7 +257,7 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
 
         int authnCacheTtlSeconds = applicationProperties.getInt(CONSUMER_AUTHORIZE_AUTHN_CACHE_TTL_SECONDS, 300);
 
-        authnCache = (authorizeUsingMessageUser && authnCacheTtlSeconds > 0) ? new PassiveExpiringMap<>(authnCacheTtlSeconds * 1000) : null;
+        authnCache = (authorizeUsingMessageUser && authnCacheTtlSeconds > 0) ? Collections.synchronizedMap(new PassiveExpiringMap<>(authnCacheTtlSeconds * 1000)) : null;
 
         String[] patternHiveTablesToIgnore = applicationProperties.getStringArray(CONSUMER_PREPROCESS_HIVE_TABLE_IGNORE_PATTERN);
         String[] patternHiveTablesToPrune  = applicationProperties.getStringArray(CONSUMER_PREPROCESS_HIVE_TABLE_PRUNE_PATTERN);
@@ -265,7 +289,7 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         }
 
         if (!hiveTablesToIgnore.isEmpty() || !hiveTablesToPrune.isEmpty()) {
-            hiveTablesCache = new LruCache<>(applicationProperties.getInt(CONSUMER_PREPROCESS_HIVE_TABLE_CACHE_SIZE, 10000), 0);
+            hiveTablesCache = Collections.synchronizedMap(new LruCache<>(applicationProperties.getInt(CONSUMER_PREPROCESS_HIVE_TABLE_CACHE_SIZE, 10000), 0));
         } else {
             hiveTablesCache = Collections.emptyMap();
         }
@@ -323,6 +347,13 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         LOG.info("{}={}", CONSUMER_PREPROCESS_S3_V2_DIRECTORY_PRUNE_OBJECT_PREFIX, s3V2DirectoryPruneObjectPrefix);
         LOG.info("{}={}", CONSUMER_COMMIT_BATCH_SIZE, commitBatchSize);
         LOG.info("{}={}", CONSUMER_DISABLED, consumerDisabled);
+        LOG.info("{}={}", CONSUMER_PARALLEL_WORKERS, parallelWorkers);
+        LOG.info("{}={}", CONSUMER_PARALLEL_MAX_INFLIGHT, parallelMaxInFlight);
+        LOG.info("{}={}", CONSUMER_BATCH_ENABLED, batchEnabled);
+
+        if (batchEnabled && parallelWorkers > 0) {
+            LOG.warn("{} is ignored when {} > 0", CONSUMER_BATCH_ENABLED, CONSUMER_PARALLEL_WORKERS);
+        }
     }
 
     @Override
@@ -360,7 +391,7 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         executors = executorService;
 
         for (final NotificationConsumer<HookNotification> consumer : notificationConsumers) {
-            HookConsumer hookConsumer = new HookConsumer(consumer);
+            HookConsumer hookConsumer = new HookConsumer(consumer, consumers.size());
 
             consumers.add(hookConsumer);
             executors.submit(hookConsumer);
@@ -491,14 +522,14 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         }
 
         public void pause(Exception ex) {
-            setWaitDurations();
+            long duration = setWaitDurations();
 
             try {
                 if (LOG.isDebugEnabled()) {
-                    LOG.debug("{} in NotificationHookConsumer. Waiting for {} ms for recovery.", ex.getClass().getName(), waitDuration, ex);
+                    LOG.debug("{} in NotificationHookConsumer. Waiting for {} ms for recovery.", ex.getClass().getName(), duration, ex);
                 }
 
-                Thread.sleep(waitDuration);
+                Thread.sleep(duration);
             } catch (InterruptedException e) {
                 if (LOG.isDebugEnabled()) {
                     LOG.debug("{} in NotificationHookConsumer. Waiting for recovery interrupted.", ex.getClass().getName(), e);
@@ -506,7 +537,8 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
             }
         }
 
-        private void setWaitDurations() {
+        // synchronized: shared by the workers of a consumer in parallel mode
+        private synchronized long setWaitDurations() {
             long timeSinceLastWait = (lastWaitAt == 0) ? 0 : System.currentTimeMillis() - lastWaitAt;
 
             lastWaitAt = System.currentTimeMillis();
@@ -519,20 +551,32 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                     waitDuration = maxDuration;
                 }
             }
+
+            return waitDuration;
         }
     }
 
     @VisibleForTesting
     class HookConsumer extends ShutdownableThread {
-        private final NotificationConsumer<HookNotification> consumer;
-        private final AtomicBoolean                          shouldRun      = new AtomicBoolean(false);
-        private final List<String>                           failedMessages = new ArrayList<>();
-        private final AdaptiveWaiter                         adaptiveWaiter = new AdaptiveWaiter(minWaitDuration, maxWaitDuration, minWaitDuration);
+        private final NotificationConsumer<HookNotification>     consumer;
+        private final AtomicBoolean                              shouldRun      = new AtomicBoolean(false);
+        private final List<String>                               failedMessages = new ArrayList<>();
+        private final AdaptiveWaiter                             adaptiveWaiter = new AdaptiveWaiter(minWaitDuration, maxWaitDuration, minWaitDuration);
+        private final HookMessageDispatcher                      dispatcher;
+        private final HookNotificationBatch                      batch;
+        private final Deque<AtlasKafkaMessage<HookNotification>> undispatched   = new ArrayDeque<>(); // held while consumption is paused
+        private       boolean                                    isPaused       = false;
 
         public HookConsumer(NotificationConsumer<HookNotification> consumer) {
+            this(consumer, 0);
+        }
+
+        public HookConsumer(NotificationConsumer<HookNotification> consumer, int index) {
             super("atlas-hook-consumer-thread", false);
 
-            this.consumer = consumer;
+            this.consumer   = consumer;
+            this.dispatcher = parallelWorkers > 0 ? new HookMessageDispatcher(THREADNAME_PREFIX + "-" + index, parallelWorkers, parallelMaxInFlight, this::handleMessage) : null;
+            this.batch      = batchEnabled && dispatcher == null ? new HookNotificationBatch(typeRegistry, batchMaxMessages, batchMaxEntities) : null;
         }
 
         @Override
@@ -545,13 +589,30 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                 return;
             }
 
+            if (dispatcher != null) {
+                consumer.setPartitionsRevokedListener(this::onPartitionsRevoked);
+            }
+
             try {
                 while (shouldRun.get()) {
                     try {
                         List<AtlasKafkaMessage<HookNotification>> messages = consumer.receiveWithCheckedCommit(lastCommittedPartitionOffset);
 
-                        for (AtlasKafkaMessage<HookNotification> msg : messages) {
-                            handleMessage(msg);
+                        if (batch != null) {
+                            for (AtlasKafkaMessage<HookNotification> msg : messages) {
+                                batchOrHandleMessage(msg);
+                            }
+
+                            // messages still in the batch at shutdown are not committed, hence will be received again
+                            if (!batch.isEmpty() && System.currentTimeMillis() - batch.getStartTime() >= batchMaxWaitMs) {
+                                flushBatch();
+                            }
+                        } else if (dispatcher == null) {
+                            for (AtlasKafkaMessage<HookNotification> msg : messages) {
+                                handleMessage(msg);
+                            }
+                        } else {
+                            dispatch(messages);
                         }
                     } catch (IllegalStateException ex) {
                         adaptiveWaiter.pause(ex);
@@ -566,6 +627,12 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                     }
                 }
             } finally {
+                if (dispatcher != null) {
+                    dispatcher.shutdown(PARALLEL_SHUTDOWN_WAIT_MS);
+
+                    commitProcessedOffsets();
+                }
+
                 if (consumer != null) {
                     LOG.info("closing NotificationConsumer");
 
@@ -576,8 +643,248 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
             }
         }
 
+        /**
+         * Hands messages over to the dispatcher, and commits the offsets of partitions whose earlier messages have
+         * all been processed. While too many messages are in flight, the remaining messages are held and the
+         * partitions paused, so that the consumer keeps polling, hence stays in its group, without fetching more.
+         */
+        private void dispatch(List<AtlasKafkaMessage<HookNotification>> messages) throws InterruptedException {
+            undispatched.addAll(messages);
+
+            while (!undispatched.isEmpty() && dispatcher.submit(undispatched.peekFirst(), PARALLEL_SUBMIT_WAIT_MS)) {
+                undispatched.removeFirst();
+            }
+
+            if (undispatched.isEmpty() == isPaused) {
+                if (isPaused) {
+                    consumer.resume();
+                } else {
+                    consumer.pause();
+                }
+
+                isPaused = !isPaused;
+
+                LOG.info("{} consumption: {} messages held, {} in flight", isPaused ? "paused" : "resumed", undispatched.size(), dispatcher.getInFlightCount());
+            }
+
+            commitProcessedOffsets();
+        }
+
+        // called on the consumer thread; messages of the partitions are received again by their new consumer
+        private void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            commitProcessedOffsets();
+
+            undispatched.removeIf(msg -> partitions.contains(msg.getTopicPartition()));
+
+            dispatcher.revoke(partitions);
+        }
+
+        private void commitProcessedOffsets() {
+            for (Map.Entry<TopicPartition, Long> entry : dispatcher.getCommittableOffsets().entrySet()) {
+                try {
+                    lastCommittedPartitionOffset.put(entry.getKey(), entry.getValue());
+                    consumer.commit(entry.getKey(), entry.getValue());
+                } catch (Exception e) {
+                    LOG.warn("Failed to commit offset {} of partition {}", entry.getValue(), entry.getKey(), e);
+                }
+            }
+        }
+
+        /**
+         * Adds ENTITY_CREATE_V2/ENTITY_PARTIAL_UPDATE_V2 messages to the batch; other messages, and messages that need
+         * to be processed individually, are handled after flushing the batch so that messages are applied in order.
+         */
+        private void batchOrHandleMessage(AtlasKafkaMessage<HookNotification> kafkaMsg) throws AtlasServiceException, AtlasException {
+            if (!batch.accepts(kafkaMsg.getMessage())) {
+                flushBatch();
+                handleMessage(kafkaMsg);
+
+                return;
+            }
+
+            PreprocessorContext context = preProcessNotificationMessage(kafkaMsg);
+
+            if (isEmptyMessage(kafkaMsg) || (context != null && CollectionUtils.isNotEmpty(context.getPostUpdateEntities())) || !assignPartialUpdateGuid(kafkaMsg.getMessage())) {
+                flushBatch();
+                handleMessage(kafkaMsg, context, true);
+
+                return;
+            }
+
+            if (!batch.canAdd(kafkaMsg)) {
+                flushBatch();
+            }
+
+            batch.add(kafkaMsg, context);
+
+            if (batch.isFull()) {
+                flushBatch();
+            }
+        }
+
+        // the guid is resolved here, as in AtlasEntityStore.updateEntity(), so that the update can be batched with others
+        private boolean assignPartialUpdateGuid(HookNotification message) {
+            if (message.getType() != HookNotification.HookNotificationType.ENTITY_PARTIAL_UPDATE_V2) {
+                return true;
+            }
+
+            EntityPartialUpdateRequestV2 partialUpdateRequest = (EntityPartialUpdateRequestV2) message;
+            AtlasObjectId                entityId             = partialUpdateRequest.getEntityId();
+            AtlasEntityWithExtInfo       entity               = partialUpdateRequest.getEntity();
+
+            if (entityId == null || entity == null || entity.getEntity() == null) {
+                return false;
+            }
+
+            String guid = entityId.getGuid();
+
+            if (!AtlasTypeUtil.isAssignedGuid(guid)) {
+                AtlasEntityType entityType = typeRegistry.getEntityTypeByName(entityId.getTypeName());
+
+                if (entityType == null) {
+                    return false;
+                }
+
+                try {
+                    guid = AtlasGraphUtilsV2.getGuidByUniqueAttributes(entityType, entityId.getUniqueAttributes());
+                } catch (AtlasBaseException e) {
+                    return false; // to be reported when the message is processed individually
+                } finally {
+                    RequestContext.clear();
+                }
+            }
+
+            entity.getEntity().setGuid(guid);
+
+            return true;
+        }
+
+        /**
+         * Writes the entities of all batched messages with a single createOrUpdate() call, retrying on transient graph
+         * errors like handleMessage() does. If that fails, the messages are processed one by one, so that only the
+         * offending message is dropped; the batch holds copies of the entities, so the messages are processed as received.
+         */
+        private void flushBatch() {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            List<AtlasKafkaMessage<HookNotification>> messages        = new ArrayList<>(batch.getMessages());
+            List<PreprocessorContext>                 contexts        = new ArrayList<>(batch.getContexts());
+            AtlasEntitiesWithExtInfo                  entities        = batch.getEntities();
+            boolean                                   isPartialUpdate = batch.isPartialUpdate();
+            String                                    user            = batch.getUser();
+            AtlasKafkaMessage<HookNotification>       lastMsg         = messages.get(messages.size() - 1);
+            long                                      startTime       = System.currentTimeMillis();
+            NotificationStat                          stats           = new NotificationStat();
+            boolean                                   isSuccess       = false;
+            AtlasPerfTracer                           perf            = null;
+
+            batch.clear();
+
+            if (authorizeUsingMessageUser) {
+                setCurrentUser(user);
+            }
+
+            if (AtlasPerfTracer.isPerfTraceEnabled(PERF_LOG)) {
+                perf = AtlasPerfTracer.getPerfTracer(PERF_LOG, "flushBatch(messages=" + messages.size() + ", entities=" + entities.getEntities().size() + ")");
+            }
+
+            // guid assignments of the batch are tracked apart from those of the messages
+            AtlasKafkaMessage<HookNotification> batchMsg     = new AtlasKafkaMessage<>(new EntityCreateRequestV2(user, entities), lastMsg.getOffset(), lastMsg.getTopic(), lastMsg.getPartition(), lastMsg.getMsgCreated(), lastMsg.getSpooled());
+            PreprocessorContext                 batchContext = newPreprocessorContext(batchMsg);
+
+            try {
+                for (int numRetries = 0; numRetries < maxRetries && !isSuccess; numRetries++) {
+                    stats = new NotificationStat();
+
+                    try {
+                        RequestContext requestContext = RequestContext.get();
+
+                        requestContext.setAttemptCount(numRetries + 1);
+                        requestContext.setMaxAttempts(maxRetries);
+
+                        requestContext.setUser(user, null);
+                        requestContext.setInNotificationProcessing(true);
+                        requestContext.setCreateShellEntityForNonExistingReference(createShellEntityForNonExistingReference);
+
+                        createOrUpdate(entities, isPartialUpdate, stats, batchContext);
+
+                        isSuccess = true;
+                    } catch (Throwable t) {
+                        RequestContext.get().resetEntityGuidUpdates();
+
+                        String exceptionClassName = t.getClass().getSimpleName();
+
+                        if (numRetries < (maxRetries - 1) && (exceptionClassName.equals(EXCEPTION_CLASS_NAME_JANUSGRAPH_EXCEPTION) || exceptionClassName.equals(EXCEPTION_CLASS_NAME_PERMANENTLOCKING_EXCEPTION))) {
+                            LOG.warn("{}: Pausing & retry batch: Try: {}: Pause: {} ms. {}", exceptionClassName, numRetries, adaptiveWaiter.waitDuration, t.getMessage());
+
+                            adaptiveWaiter.pause((Exception) t);
+                        } else {
+                            LOG.warn("Failed to process a batch of {} messages with {} entities; processing the messages individually", messages.size(), entities.getEntities().size(), t);
+
+                            break;
+                        }
+                    } finally {
+                        RequestContext.clear();
+                    }
+                }
+            } finally {
+                AtlasPerfTracer.log(perf);
+            }
+
+            if (!isSuccess) {
+                for (int i = 0; i < messages.size(); i++) {
+                    try {
+                        handleMessage(messages.get(i), contexts.get(i), true);
+                    } catch (Exception e) {
+                        LOG.warn("Exception in NotificationHookConsumer", e);
+                    }
+                }
+
+                return;
+            }
+
+            long                                                     timeTakenMs            = System.currentTimeMillis() - startTime;
+            Map<TopicPartition, AtlasKafkaMessage<HookNotification>> lastMessageByPartition = new HashMap<>();
+
+            for (int i = 0; i < messages.size(); i++) {
+                AtlasKafkaMessage<HookNotification> msg      = messages.get(i);
+                NotificationStat                    msgStats = (i == messages.size() - 1) ? stats : new NotificationStat();
+
+                msgStats.timeTakenMs = timeTakenMs / messages.size();
+
+                metricsUtil.onNotificationProcessingComplete(msg.getTopic(), msg.getPartition(), msg.getOffset(), msgStats);
+
+                lastMessageByPartition.put(msg.getTopicPartition(), msg);
+            }
+
+            for (AtlasKafkaMessage<HookNotification> msg : lastMessageByPartition.values()) {
+                commit(msg);
+            }
+
+            AtlasClientV2.API_V2 api      = isPartialUpdate ? AtlasClientV2.API_V2.UPDATE_ENTITY : AtlasClientV2.API_V2.CREATE_ENTITY;
+            AuditLog             auditLog = new AuditLog(user, THREADNAME_PREFIX, api.getMethod(), api.getNormalizedPath());
+
+            auditLog.setHttpStatus(SC_OK);
+            auditLog.setTimeTaken(timeTakenMs);
+
+            AuditFilter.audit(auditLog);
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("processed a batch of {} messages with {} entities in {} ms", messages.size(), entities.getEntities().size(), timeTakenMs);
+            }
+        }
+
         @VisibleForTesting
         void handleMessage(AtlasKafkaMessage<HookNotification> kafkaMsg) throws AtlasServiceException, AtlasException {
+            handleMessage(kafkaMsg, null, false);
+        }
+
+        /**
+         * @param preprocessedContext result of preprocessing the message, when isPreprocessed is true
+         */
+        private void handleMessage(AtlasKafkaMessage<HookNotification> kafkaMsg, PreprocessorContext preprocessedContext, boolean isPreprocessed) throws AtlasServiceException, AtlasException {
             AtlasPerfTracer  perf           = null;
             HookNotification message        = kafkaMsg.getMessage();
             String           messageUser    = message.getUser();
@@ -621,7 +928,7 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
                     LOG.error("handleMessage(): failed to convert V1 message to V2", message.getType().name());
                 }
 
-                PreprocessorContext context = preProcessNotificationMessage(kafkaMsg);
+                PreprocessorContext context = isPreprocessed ? preprocessedContext : preProcessNotificationMessage(kafkaMsg);
 
                 if (isEmptyMessage(kafkaMsg)) {
                     commit(kafkaMsg);
@@ -808,9 +1115,15 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
 
                             stats.isFailedMsg = true;
 
-                            failedMessages.add(strMessage);
+                            boolean recordFailed;
+
+                            synchronized (failedMessages) {
+                                failedMessages.add(strMessage);
+
+                                recordFailed = failedMessages.size() >= failedMsgCacheSize;
+                            }
 
-                            if (failedMessages.size() >= failedMsgCacheSize) {
+                            if (recordFailed) {
                                 recordFailedMessages();
                             }
                             return;
@@ -917,17 +1230,23 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         }
 
         private void recordFailedMessages() {
-            //logging failed messages
-            for (String message : failedMessages) {
-                FAILED_LOG.error("[DROPPED_NOTIFICATION] {}", message);
-            }
+            synchronized (failedMessages) {
+                //logging failed messages
+                for (String message : failedMessages) {
+                    FAILED_LOG.error("[DROPPED_NOTIFICATION] {}", message);
+                }
 
-            failedMessages.clear();
+                failedMessages.clear();
+            }
         }
 
         private void commit(AtlasKafkaMessage<HookNotification> kafkaMessage) {
             recordFailedMessages();
 
+            if (dispatcher != null) { // offsets are committed from the consumer thread, see commitProcessedOffsets()
+                return;
+            }
+
             long commitOffset = kafkaMessage.getOffset() + 1;
             lastCommittedPartitionOffset.put(kafkaMessage.getTopicPartition(), commitOffset);
             consumer.commit(kafkaMessage.getTopicPartition(), commitOffset);
@@ -981,13 +1300,17 @@ public class NotificationHookConsumer implements Service, ActiveStateChangeHandl
         }
     }
 
+    private PreprocessorContext newPreprocessorContext(AtlasKafkaMessage<HookNotification> kafkaMsg) {
+        return new PreprocessorContext(kafkaMsg, typeRegistry, hiveTablesToIgnore, hiveTablesToPrune, hiveTablesCache,
+                hiveDummyDatabasesToIgnore, hiveDummyTablesToIgnore, hiveTablePrefixesToIgnore, hiveTypesRemoveOwnedRefAttrs,
+                rdbmsTypesRemoveOwnedRefAttrs, s3V2DirectoryPruneObjectPrefix, updateHiveProcessNameWithQualifiedName, entityCorrelationManager);
+    }
+
     private PreprocessorContext preProcessNotificationMessage(AtlasKafkaMessage<HookNotification> kafkaMsg) {
         PreprocessorContext context = null;
 
         if (preprocessEnabled) {
-            context = new PreprocessorContext(kafkaMsg, typeRegistry, hiveTablesToIgnore, hiveTablesToPrune, hiveTablesCache,
-                    hiveDummyDatabasesToIgnore, hiveDummyTablesToIgnore, hiveTablePrefixesToIgnore, hiveTypesRemoveOwnedRefAttrs,
-                    rdbmsTypesRemoveOwnedRefAttrs, s3V2DirectoryPruneObjectPrefix, updateHiveProcessNameWithQualifiedName, entityCorrelationManager);
+            context = newPreprocessorContext(kafkaMsg);
 
             if (context.isHivePreprocessEnabled()) {
                 preprocessHiveTypes(context);
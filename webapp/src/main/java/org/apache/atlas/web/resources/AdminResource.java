@@ -564,7 +564,7 @@ public class AdminResource {
         boolean isSuccessful = false;
         AtlasExportResult result = null;
         try {
-            exportSink = new ZipSink(httpServletResponse.getOutputStream());
+            exportSink = new ZipSink(httpServletResponse.getOutputStream(), AtlasConfiguration.EXPORT_ZIP_WRITER_QUEUE_SIZE.getInt());
             result = exportService.run(exportSink, request, AtlasAuthorizationUtils.getCurrentUserName(),
                                                          Servlets.getHostName(httpServletRequest),
                                                          AtlasAuthorizationUtils.getRequestIpAddress(httpServletRequest));
@@ -590,7 +590,11 @@ public class AdminResource {
             }
 
             if (exportSink != null) {
-                exportSink.close();
+                try {
+                    exportSink.close();
+                } catch (AtlasBaseException excp) {
+                    LOG.error("export(): failed to close the export zip", excp);
+                }
             }
 
             addToExportOperationAudits(isSuccessful, result);
@@ -0,0 +1,236 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.apache.atlas.kafka.AtlasKafkaMessage;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
+import org.apache.atlas.model.instance.AtlasObjectId;
+import org.apache.atlas.model.notification.HookNotification;
+import org.apache.atlas.model.notification.HookNotification.EntityCreateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.EntityDeleteRequestV2;
+import org.apache.kafka.common.TopicPartition;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class HookMessageDispatcherTest {
+    private static final String         TOPIC     = "ATLAS_HOOK";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    @Test
+    public void testMessagesOfSameEntityAreProcessedInOrder() throws Exception {
+        Map<String, List<Long>> processed  = new ConcurrentHashMap<>();
+        HookMessageDispatcher   dispatcher = new HookMessageDispatcher("test", 4, 100,
+                msg -> processed.computeIfAbsent(HookMessageDispatcher.getOrderingKeys(msg).iterator().next(), k -> Collections.synchronizedList(new ArrayList<>())).add(msg.getOffset()));
+
+        for (long offset = 0; offset < 60; offset++) {
+            assertTrue(dispatcher.submit(deleteMessage("table-" + (offset % 3), offset), 1000));
+        }
+
+        dispatcher.shutdown(10000);
+
+        assertEquals(processed.size(), 3);
+
+        for (int i = 0; i < 3; i++) {
+            List<Long> offsets = processed.get("table-" + i);
+
+            assertEquals(offsets.size(), 20);
+
+            for (int j = 0; j < offsets.size(); j++) {
+                assertEquals(offsets.get(j).longValue(), (long) (j * 3 + i));
+            }
+        }
+
+        assertEquals(dispatcher.getCommittableOffsets().get(PARTITION), Long.valueOf(60));
+    }
+
+    @Test
+    public void testOnlyContiguousOffsetsAreCommittable() throws Exception {
+        CountDownLatch        blockFirst = new CountDownLatch(1);
+        CountDownLatch        othersDone = new CountDownLatch(2);
+        HookMessageDispatcher dispatcher = new HookMessageDispatcher("test", 2, 100, msg -> {
+            if (msg.getOffset() == 10) {
+                blockFirst.await();
+            } else {
+                othersDone.countDown();
+            }
+        });
+
+        // offsets 10 and 12 map to one key, 11 to another; 12 waits behind 10 on the same worker
+        dispatcher.submit(deleteMessage("slow", 10), 1000);
+        dispatcher.submit(deleteMessage(keyOnOtherWorker("slow", 2), 11), 1000);
+
+        assertFalse(othersDone.await(200, TimeUnit.MILLISECONDS));
+        assertTrue(dispatcher.getCommittableOffsets().isEmpty());
+
+        blockFirst.countDown();
+
+        dispatcher.submit(deleteMessage("slow", 12), 1000);
+
+        assertTrue(othersDone.await(5, TimeUnit.SECONDS));
+
+        dispatcher.shutdown(5000);
+
+        assertEquals(dispatcher.getCommittableOffsets().get(PARTITION), Long.valueOf(13));
+    }
+
+    @Test
+    public void testSubmitBlocksWhenTooManyMessagesAreInFlight() throws Exception {
+        CountDownLatch        release    = new CountDownLatch(1);
+        HookMessageDispatcher dispatcher = new HookMessageDispatcher("test", 2, 2, msg -> release.await());
+
+        assertTrue(dispatcher.submit(deleteMessage("a", 0), 100));
+        assertTrue(dispatcher.submit(deleteMessage("b", 1), 100));
+        assertFalse(dispatcher.submit(deleteMessage("c", 2), 100));
+        assertEquals(dispatcher.getInFlightCount(), 2);
+
+        release.countDown();
+
+        assertTrue(dispatcher.submit(deleteMessage("c", 2), 5000));
+
+        dispatcher.shutdown(5000);
+
+        assertEquals(dispatcher.getInFlightCount(), 0);
+    }
+
+    @Test
+    public void testAlreadyDispatchedOffsetsAreSkipped() throws Exception {
+        List<Long>            processed  = Collections.synchronizedList(new ArrayList<>());
+        HookMessageDispatcher dispatcher = new HookMessageDispatcher("test", 1, 10, msg -> processed.add(msg.getOffset()));
+
+        dispatcher.submit(deleteMessage("a", 0), 100);
+        dispatcher.submit(deleteMessage("a", 1), 100);
+        dispatcher.submit(deleteMessage("a", 0), 100); // redelivered, e.g. after a rebalance
+
+        dispatcher.shutdown(5000);
+
+        assertEquals(processed.size(), 2);
+    }
+
+    @Test
+    public void testOrderingKeysIncludeEveryEntity() {
+        AtlasEntity db    = new AtlasEntity("hive_db", "qualifiedName", "db1");
+        AtlasEntity table = new AtlasEntity("hive_table", "qualifiedName", "db1.t1");
+        AtlasEntity column = new AtlasEntity("hive_column", "qualifiedName", "db1.t1.c1");
+
+        AtlasEntitiesWithExtInfo entities = new AtlasEntitiesWithExtInfo(Arrays.asList(table, column));
+
+        entities.addReferredEntity(db);
+
+        AtlasKafkaMessage<HookNotification> msg = new AtlasKafkaMessage<>(new EntityCreateRequestV2("test", entities), 0, TOPIC, 0);
+
+        assertEquals(HookMessageDispatcher.getOrderingKeys(msg), new TreeSet<>(Arrays.asList("db1", "db1.t1", "db1.t1.c1")));
+
+        AtlasObjectId         table1 = new AtlasObjectId("hive_table", "qualifiedName", "db1.t1");
+        AtlasObjectId         table2 = new AtlasObjectId("hive_table", "qualifiedName", "db1.t2");
+        EntityDeleteRequestV2 delete = new EntityDeleteRequestV2("test", Arrays.asList(table1, table2));
+
+        assertEquals(HookMessageDispatcher.getOrderingKeys(new AtlasKafkaMessage<>(delete, 1, TOPIC, 0)), new TreeSet<>(Arrays.asList("db1.t1", "db1.t2")));
+
+        EntityDeleteRequestV2 empty = new EntityDeleteRequestV2("test", Collections.emptyList());
+
+        assertEquals(HookMessageDispatcher.getOrderingKeys(new AtlasKafkaMessage<>(empty, 2, TOPIC, 0)), Collections.singleton(PARTITION.toString()));
+    }
+
+    @Test
+    public void testMessageOfEntitiesOnSeveralWorkersIsOrderedWithEach() throws Exception {
+        String                key1       = "slow";
+        String                key2       = keyOnOtherWorker(key1, 2);
+        List<Long>            processed  = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch        blockFirst = new CountDownLatch(1);
+        HookMessageDispatcher dispatcher = new HookMessageDispatcher("test", 2, 100, msg -> {
+            if (msg.getOffset() == 0) {
+                blockFirst.await();
+            }
+
+            processed.add(msg.getOffset());
+        });
+
+        dispatcher.submit(deleteMessage(key1, 0), 1000);                      // blocks the worker of key1
+        dispatcher.submit(deleteMessage(Arrays.asList(key1, key2), 1), 1000); // waits for offset 0
+        dispatcher.submit(deleteMessage(key2, 2), 1000);                      // waits for offset 1
+
+        Thread.sleep(200);
+
+        assertTrue(processed.isEmpty());
+
+        blockFirst.countDown();
+
+        dispatcher.shutdown(5000);
+
+        assertEquals(processed, Arrays.asList(0L, 1L, 2L));
+        assertEquals(dispatcher.getCommittableOffsets().get(PARTITION), Long.valueOf(3));
+    }
+
+    @Test
+    public void testRevokedPartitionsAreForgotten() throws Exception {
+        List<Long>            processed  = Collections.synchronizedList(new ArrayList<>());
+        HookMessageDispatcher dispatcher = new HookMessageDispatcher("test", 1, 10, msg -> processed.add(msg.getOffset()));
+
+        dispatcher.submit(deleteMessage("a", 0), 100);
+        dispatcher.submit(deleteMessage("a", 1), 100);
+
+        dispatcher.revoke(Collections.singleton(PARTITION));
+
+        dispatcher.submit(deleteMessage("a", 0), 100); // received again once the partition is assigned back
+
+        dispatcher.shutdown(5000);
+
+        assertEquals(processed.size(), 3);
+        assertEquals(dispatcher.getCommittableOffsets().get(PARTITION), Long.valueOf(1));
+    }
+
+    private static String keyOnOtherWorker(String key, int numWorkers) {
+        int worker = Math.floorMod(key.hashCode(), numWorkers);
+
+        for (int i = 0; ; i++) {
+            String ret = "other-" + i;
+
+            if (Math.floorMod(ret.hashCode(), numWorkers) != worker) {
+                return ret;
+            }
+        }
+    }
+
+    private static AtlasKafkaMessage<HookNotification> deleteMessage(String qualifiedName, long offset) {
+        return deleteMessage(Collections.singletonList(qualifiedName), offset);
+    }
+
+    private static AtlasKafkaMessage<HookNotification> deleteMessage(List<String> qualifiedNames, long offset) {
+        List<AtlasObjectId> objectIds = new ArrayList<>();
+
+        for (String qualifiedName : qualifiedNames) {
+            objectIds.add(new AtlasObjectId("hive_table", "qualifiedName", qualifiedName));
+        }
+
+        return new AtlasKafkaMessage<>(new EntityDeleteRequestV2("test", objectIds), offset, TOPIC, 0);
+    }
+}
@@ -0,0 +1,297 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.atlas.notification;
+
+import org.apache.atlas.kafka.AtlasKafkaMessage;
+import org.apache.atlas.model.instance.AtlasEntity;
+import org.apache.atlas.model.instance.AtlasEntity.AtlasEntitiesWithExtInfo;
+import org.apache.atlas.model.instance.AtlasObjectId;
+import org.apache.atlas.model.notification.HookNotification;
+import org.apache.atlas.model.notification.HookNotification.EntityCreateRequestV2;
+import org.apache.atlas.model.notification.HookNotification.EntityDeleteRequestV2;
+import org.apache.atlas.type.AtlasEntityType;
+import org.apache.atlas.type.AtlasStructType.AtlasAttribute;
+import org.apache.atlas.type.AtlasTypeRegistry;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+public class HookNotificationBatchTest {
+    private static final String TABLE = "hive_table";
+    private static final String DB    = "hive_db";
+
+    private AtlasTypeRegistry typeRegistry;
+    private long              offset;
+
+    @BeforeMethod
+    public void setUp() {
+        AtlasAttribute  qualifiedName = mock(AtlasAttribute.class);
+        AtlasEntityType entityType    = mock(AtlasEntityType.class);
+
+        when(qualifiedName.getName()).thenReturn("qualifiedName");
+        when(entityType.getUniqAttributes()).thenReturn(Collections.singletonMap("qualifiedName", qualifiedName));
+
+        typeRegistry = mock(AtlasTypeRegistry.class);
+
+        when(typeRegistry.getEntityTypeByName(TABLE)).thenReturn(entityType);
+        when(typeRegistry.getEntityTypeByName(DB)).thenReturn(entityType);
+    }
+
+    @Test
+    public void testEntitiesWithSameUniqueAttributesAreMerged() {
+        HookNotificationBatch batch = new HookNotificationBatch(typeRegistry, 10, 100);
+
+        AtlasEntity t1 = entity(TABLE, "-1", "db.t1");
+        t1.setAttribute("owner", "alice");
+        t1.setAttribute("comment", "first");
+
+        AtlasEntity t1Again = entity(TABLE, "-1", "db.t1"); // same placeholder guid and unique attributes, in a later message
+        t1Again.setAttribute("comment", "second");
+
+        AtlasEntity t2 = entity(TABLE, "-2", "db.t2");
+
+        batch.add(createMessage(t1), null);
+        batch.add(createMessage(t1Again, t2), null);
+
+        AtlasEntitiesWithExtInfo entities = batch.getEntities();
+
+        assertEquals(entities.getEntities().size(), 2);
+
+        AtlasEntity merged = entities.getEntities().get(0);
+
+        assertEquals(merged.getAttribute("qualifiedName"), "db.t1");
+        assertEquals(merged.getAttribute("owner"), "alice");
+        assertEquals(merged.getAttribute("comment"), "second");
+
+        // messages are left as they were added
+        assertEquals(t1.getAttribute("comment"), "first");
+        assertEquals(t1.getGuid(), "-1");
+        assertEquals(t2.getGuid(), "-2");
+    }
+
+    @Test
+    public void testClashingPlaceholderGuidsAreRenamed() {
+        HookNotificationBatch batch = new HookNotificationBatch(typeRegistry, 10, 100);
+
+        AtlasEntity db1 = entity(DB, "-1", "db1");
+        AtlasEntity t1  = entity(TABLE, "-2", "db1.t");
+        AtlasEntity db2 = entity(DB, "-1", "db2"); // same placeholder guid as db1, in another message
+        AtlasEntity t2  = entity(TABLE, "-2", "db2.t");
+
+        t1.setAttribute("db", new AtlasObjectId("-1", DB));
+        t2.setAttribute("db", new AtlasObjectId("-1", DB));
+
+        batch.add(createMessage(t1, db1), null);
+        batch.add(createMessage(t2, db2), null);
+
+        AtlasEntitiesWithExtInfo entities = batch.getEntities();
+
+        assertEquals(entities.getEntities().size(), 4);
+
+        AtlasEntity batchDb1 = getEntity(entities, "db1");
+        AtlasEntity batchDb2 = getEntity(entities, "db2");
+
+        assertNotEquals(batchDb1.getGuid(), batchDb2.getGuid());
+        assertEquals(getReferenceGuid(getEntity(entities, "db1.t").getAttribute("db")), batchDb1.getGuid());
+        assertEquals(getReferenceGuid(getEntity(entities, "db2.t").getAttribute("db")), batchDb2.getGuid());
+
+        // messages are left as they were added
+        assertEquals(db2.getGuid(), "-1");
+        assertEquals(getReferenceGuid(t2.getAttribute("db")), "-1");
+    }
+
+    @Test
+    public void testReferredEntitiesAreRekeyedAfterRenaming() {
+        HookNotificationBatch    batch    = new HookNotificationBatch(typeRegistry, 10, 100);
+        AtlasEntity              db       = entity(DB, "-5", "db1");
+        AtlasEntity              table    = entity(TABLE, "-6", "db1.t");
+        AtlasEntitiesWithExtInfo entities = new AtlasEntitiesWithExtInfo(table);
+
+        table.setAttribute("db", new AtlasObjectId("-5", DB));
+        entities.addReferredEntity(db);
+
+        batch.add(new AtlasKafkaMessage<>(new EntityCreateRequestV2("user", entities), offset++, "ATLAS_HOOK", 0), null);
+
+        AtlasEntitiesWithExtInfo batchEntities = batch.getEntities();
+        String                   dbGuid        = getReferenceGuid(getEntity(batchEntities, "db1.t").getAttribute("db"));
+
+        assertNotNull(batchEntities.getReferredEntity(dbGuid));
+        assertNotNull(entities.getReferredEntity("-5"));
+    }
+
+    @Test
+    public void testUnassignedGuidIsMergedWithAssignedGuid() {
+        HookNotificationBatch batch    = new HookNotificationBatch(typeRegistry, 10, 100);
+        AtlasEntity           db       = entity(DB, "-1", "db1");
+        AtlasEntity           table    = entity(TABLE, "-2", "db1.t");
+        AtlasEntity           dbByGuid = entity(DB, "a1b2c3", "db1"); // same database, with its assigned guid, in a later message
+
+        db.setAttribute("owner", "alice");
+        table.setAttribute("db", new AtlasObjectId("-1", DB));
+        dbByGuid.setAttribute("comment", "updated");
+
+        batch.add(createMessage(db, table), null);
+        batch.add(createMessage(dbByGuid), null);
+
+        AtlasEntitiesWithExtInfo entities = batch.getEntities();
+
+        assertEquals(entities.getEntities().size(), 2);
+
+        AtlasEntity batchDb = getEntity(entities, "db1");
+
+        assertEquals(batchDb.getGuid(), "a1b2c3");
+        assertEquals(batchDb.getAttribute("owner"), "alice");
+        assertEquals(batchDb.getAttribute("comment"), "updated");
+        assertEquals(getReferenceGuid(getEntity(entities, "db1.t").getAttribute("db")), "a1b2c3");
+
+        // a later message with an unassigned guid is merged as well
+        batch.add(createMessage(entity(DB, "-7", "db1")), null);
+
+        assertEquals(batch.getEntities().getEntities().size(), 2);
+    }
+
+    @Test
+    public void testAppendedAndRemovedRelationshipValuesAreCombined() {
+        HookNotificationBatch batch  = new HookNotificationBatch(typeRegistry, 10, 100);
+        AtlasEntity           table1 = entity(TABLE, "a1b2c3", "db.t");
+        AtlasEntity           table2 = entity(TABLE, "a1b2c3", "db.t"); // same table, in a later message
+
+        table1.setAppendRelationshipAttributes(Collections.singletonMap("inputToProcesses", Collections.singletonList(new AtlasObjectId("p1", "Process"))));
+        table1.setRemoveRelationshipAttributes(Collections.singletonMap("outputFromProcesses", Collections.singletonList(new AtlasObjectId("p3", "Process"))));
+        table2.setAppendRelationshipAttributes(Collections.singletonMap("inputToProcesses", Arrays.asList(new AtlasObjectId("p1", "Process"), new AtlasObjectId("p2", "Process"))));
+        table2.setRemoveRelationshipAttributes(Collections.singletonMap("outputFromProcesses", Collections.singletonList(new AtlasObjectId("p4", "Process"))));
+
+        AtlasKafkaMessage<HookNotification> message2 = createMessage(table2);
+
+        batch.add(createMessage(table1), null);
+
+        assertTrue(batch.canAdd(message2));
+
+        batch.add(message2, null);
+
+        AtlasEntity merged = getEntity(batch.getEntities(), "db.t");
+
+        assertEquals(getReferenceGuids(merged.getAppendRelationshipAttributes().get("inputToProcesses")), Arrays.asList("p1", "p2"));
+        assertEquals(getReferenceGuids(merged.getRemoveRelationshipAttributes().get("outputFromProcesses")), Arrays.asList("p3", "p4"));
+    }
+
+    @Test
+    public void testConflictingRelationshipUpdatesAreNotBatched() {
+        HookNotificationBatch batch = new HookNotificationBatch(typeRegistry, 10, 100);
+        AtlasEntity           table = entity(TABLE, "-1", "db.t");
+
+        table.setAppendRelationshipAttributes(Collections.singletonMap("inputToProcesses", Collections.singletonList(new AtlasObjectId("p1", "Process"))));
+
+        batch.add(createMessage(table), null);
+
+        // removing from, or setting, an attribute an earlier message appended to; matched by unique attributes
+        AtlasEntity removeByKey  = entity(TABLE, "-2", "db.t");
+        AtlasEntity setByKey     = entity(TABLE, "-3", "db.t");
+        AtlasEntity otherTable   = entity(TABLE, "-4", "db.other");
+
+        removeByKey.setRemoveRelationshipAttributes(Collections.singletonMap("inputToProcesses", Collections.singletonList(new AtlasObjectId("p1", "Process"))));
+        setByKey.setRelationshipAttributes(Collections.singletonMap("inputToProcesses", Collections.emptyList()));
+        otherTable.setRemoveRelationshipAttributes(Collections.singletonMap("inputToProcesses", Collections.singletonList(new AtlasObjectId("p1", "Process"))));
+
+        assertFalse(batch.canAdd(createMessage(removeByKey)));
+        assertFalse(batch.canAdd(createMessage(setByKey)));
+        assertTrue(batch.canAdd(createMessage(otherTable)));
+    }
+
+    @Test
+    public void testBatchLimits() {
+        HookNotificationBatch               batch   = new HookNotificationBatch(typeRegistry, 2, 3);
+        AtlasKafkaMessage<HookNotification> delete  = new AtlasKafkaMessage<>(new EntityDeleteRequestV2("user", Collections.singletonList(new AtlasObjectId("guid"))), offset++, "ATLAS_HOOK", 0);
+        AtlasKafkaMessage<HookNotification> tooBig  = createMessage(entity(TABLE, "-1", "a"), entity(TABLE, "-2", "b"), entity(TABLE, "-3", "c"), entity(TABLE, "-4", "d"));
+        AtlasKafkaMessage<HookNotification> other   = new AtlasKafkaMessage<>(new EntityCreateRequestV2("someone-else", new AtlasEntitiesWithExtInfo(entity(TABLE, "-1", "x"))), offset++, "ATLAS_HOOK", 0);
+
+        assertFalse(batch.accepts(delete.getMessage()));
+        assertFalse(batch.accepts(tooBig.getMessage()));
+
+        batch.add(createMessage(entity(TABLE, "-1", "a")), null);
+
+        assertFalse(batch.canAdd(other));
+        assertTrue(batch.canAdd(createMessage(entity(TABLE, "-1", "b"))));
+        assertFalse(batch.canAdd(createMessage(entity(TABLE, "-1", "b"), entity(TABLE, "-2", "c"), entity(TABLE, "-3", "d"))));
+
+        batch.add(createMessage(entity(TABLE, "-1", "b")), null);
+
+        assertTrue(batch.isFull());
+
+        batch.clear();
+
+        assertTrue(batch.isEmpty());
+    }
+
+    private AtlasKafkaMessage<HookNotification> createMessage(AtlasEntity... entities) {
+        AtlasEntitiesWithExtInfo entitiesWithExtInfo = new AtlasEntitiesWithExtInfo();
+
+        for (AtlasEntity entity : entities) {
+            entitiesWithExtInfo.addEntity(entity);
+        }
+
+        return new AtlasKafkaMessage<>(new EntityCreateRequestV2("user", entitiesWithExtInfo), offset++, "ATLAS_HOOK", 0);
+    }
+
+    private static AtlasEntity getEntity(AtlasEntitiesWithExtInfo entities, String qualifiedName) {
+        for (AtlasEntity entity : entities.getEntities()) {
+            if (qualifiedName.equals(entity.getAttribute("qualifiedName"))) {
+                return entity;
+            }
+        }
+
+        return null;
+    }
+
+    // references in the batch are copies made by way of json, hence maps
+    private static String getReferenceGuid(Object reference) {
+        return reference instanceof AtlasObjectId ? ((AtlasObjectId) reference).getGuid() : (String) ((Map<?, ?>) reference).get("guid");
+    }
+
+    private static List<String> getReferenceGuids(Object references) {
+        List<String> ret = new ArrayList<>();
+
+        for (Object reference : (Collection<?>) references) {
+            ret.add(getReferenceGuid(reference));
+        }
+
+        return ret;
+    }
+
+    private static AtlasEntity entity(String typeName, String guid, String qualifiedName) {
+        AtlasEntity ret = new AtlasEntity(typeName, "qualifiedName", qualifiedName);
+
+        ret.setGuid(guid);
+
+        return ret;
+    }
+}